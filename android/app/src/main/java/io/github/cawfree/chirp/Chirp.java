@@ -3,52 +3,57 @@ package io.github.cawfree.chirp;
 import android.media.AudioFormat;
 import android.media.AudioManager;
 import android.media.AudioTrack;
-import android.os.AsyncTask;
 import android.util.Log;
 
-import com.google.zxing.common.reedsolomon.GenericGF;
-import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
-import com.google.zxing.common.reedsolomon.ReedSolomonEncoder;
-import com.google.zxing.common.reedsolomon.ReedSolomonException;
-
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import be.tarsos.dsp.AudioDispatcher;
 import be.tarsos.dsp.AudioEvent;
 import be.tarsos.dsp.AudioProcessor;
-import be.tarsos.dsp.io.TarsosDSPAudioFormat;
 import be.tarsos.dsp.io.android.AudioDispatcherFactory;
-import be.tarsos.dsp.pitch.PitchDetectionHandler;
-import be.tarsos.dsp.pitch.PitchDetectionResult;
-import be.tarsos.dsp.pitch.PitchProcessor;
 
 class Chirp {
 
     /* Logging. */
     protected static final String TAG = "chirp.io";
-    /** TODO: How to function based on the symbol period? */
-    protected static final ChirpFactory FACTORY_CHIRP = new ChirpFactory.Builder().setSymbolPeriodMs(85).build();
+    /** The default speed profile. (Every profile shares the same alphabet and frame layout; only the symbol period differs.) */
+    protected static final ChirpFactory FACTORY_CHIRP = ChirpFactory.PROFILE_85_MS;
     /* Sampling Declarations. */
     private static final int WRITE_AUDIO_RATE_SAMPLE_HZ = 44100; // (Guaranteed for all devices!)
-    private static final int WRITE_NUMBER_OF_SAMPLES    = (int)(Chirp.FACTORY_CHIRP.getEncodedLength() * (Chirp.FACTORY_CHIRP.getSymbolPeriodMs() / 1000.0f) * Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ);
-    private static final int READ_NUMBER_OF_SAMPLES     = ((int)((Chirp.FACTORY_CHIRP.getSymbolPeriodMs() / 1000.0f) * Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ));
     private static final int READ_SUBSAMPLING_FACTOR    = 9;
 
     /* Member Variables. */
+    private final ChirpFactory mChirpFactory;
     private AudioTrack         mAudioTrack;
-    private ReedSolomonEncoder mReedSolomonEncoder;
-    private ReedSolomonDecoder mReedSolomonDecoder;
+    private ChirpEncoder       mChirpEncoder;
+    private ChirpTransmitter   mChirpTransmitter;
+    private ChirpScheduler     mChirpScheduler;
+    private CarrierSense       mCarrierSense;
+    private ChirpReceiver      mChirpReceiver;
+    private ChirpSquelch       mChirpSquelch;
+    private ChirpEchoCanceller mChirpEchoCanceller;
+    private ChirpDispatcher    mChirpDispatcher;
+    private Executor           mDeliveryExecutor;
+    private ChirpFragmenter    mChirpFragmenter;
+    private ChirpReassembler   mChirpReassembler;
+    private ChirpMetrics       mChirpMetrics;
     private AudioDispatcher    mAudioDispatcher;
     private Thread             mAudioThread;
-    private boolean            mChirping;
     private boolean            mSampleSelf;
-    private double[]           mSampleBuffer;
-    private double[]           mConfidenceBuffer;
+    private volatile boolean   mFullDuplex;
     public interface  onReceiveListener {
         void OnReceive(String message);
     }
 
-    private onReceiveListener mListener = null;
+    public interface  onReceiveBytesListener {
+        void OnReceive(byte[] data);
+    }
+
+    private volatile onReceiveListener      mListener      = null;
+    private volatile onReceiveBytesListener mBytesListener = null;
     /** Creates a ChirpFactory from a ChirpBuffer. */
     public static final String getChirp(final int[] pChirpBuffer, final int pChirpLength) {
         // Declare the ChirpFactory.
@@ -56,98 +61,23 @@ class Chirp {
         // Buffer the initial characters.
         for(int i = 0; i < pChirpLength; i++) {
             // Update the ChirpFactory.
-            lChirp += FACTORY_CHIRP.getRange().getCharacters().charAt(pChirpBuffer[i]);
+            lChirp += FACTORY_CHIRP.getCodebook().getCharacter(pChirpBuffer[i]);
         }
         // Iterate the ChirpBuffer. (Skip over the zero-padded region.)
         for(int i = (pChirpBuffer.length) - Chirp.FACTORY_CHIRP.getErrorLength(); i < pChirpBuffer.length; i++) {
             // Update the ChirpFactory.
-            lChirp += FACTORY_CHIRP.getRange().getCharacters().charAt(pChirpBuffer[i]);
+            lChirp += FACTORY_CHIRP.getCodebook().getCharacter(pChirpBuffer[i]);
         }
         // Return the ChirpFactory.
         return lChirp;
     }
 
-    /** Inserts an element at the end of the array, pushing all other elements down towards lesser indices. Returns the popped element. */
-    private static final double push(final double[] pBuffer, final double pT) {
-        // Fetch the first element.
-        final double lPopped = pBuffer[0];
-        // Iterate the Buffer.
-        for(int i = 0; i < pBuffer.length - 1; i++) {
-            // Offset the entries.
-            pBuffer[i] = pBuffer[i + 1];
-        }
-        // Append the new sample.
-        pBuffer[pBuffer.length - 1] = pT;
-        // Return the Popped sample.
-        return lPopped;
-    }
-
-    /** Called when the samples have been updated. */
-    private static final void onGaydecki(final ReedSolomonDecoder pReedSolomonDecoder, final double[] pSamples, final double[] pConfidences, final int pSubsamples, final ChirpFactory.IListener pChirpListener) {
-        // Calculate the Number of Symbols.
-        final int    lSymbols      = (pSamples.length / pSubsamples);
-        // Declare the String.
-              String lAccumulation = "";
-        // Iterate the Samples whilst we're building up the string.
-        for(int i = 0; i < lSymbols && (lAccumulation.length() != Chirp.FACTORY_CHIRP.getEncodedLength()); i++) {
-            // Fetch the Offset for the next Symbol.
-            final int lOffset = (i * pSubsamples);
-            // Detect the Chirp.
-            final ChirpFactory.Result lResult = ChirpFactory.DETECTOR_CHIRP_MEAN.getSymbol(Chirp.FACTORY_CHIRP, pSamples, pConfidences, lOffset, pSubsamples);
-            // Is the Result valid?
-            if(lResult.isValid()) {
-                // Buffer the Result's data into the Accumulation.
-                lAccumulation += lResult.getCharacter();
-            }
-        }
-        // Is the accumulated data long enough?
-        if(lAccumulation.length() == Chirp.FACTORY_CHIRP.getEncodedLength()) {
-            // Declare the Packetized Representation.
-            final int[] lPacketized = new int[Chirp.FACTORY_CHIRP.getRange().getFrameLength()];
-            // Buffer the Header/Payload.
-            for(int i = 0; i < Chirp.FACTORY_CHIRP.getIdentifier().length() + Chirp.FACTORY_CHIRP.getPayloadLength(); i++) {
-                // Update the Packetized with the corresponding index value.
-                lPacketized[i] = Chirp.FACTORY_CHIRP.getRange().getCharacters().indexOf(lAccumulation.charAt(i));
-            }
-            // Iterate the Error Symbols.
-            for(int i = 0; i < Chirp.FACTORY_CHIRP.getErrorLength(); i++) {
-                // Update the Packetized with the corresponding index value.
-                lPacketized[Chirp.FACTORY_CHIRP.getRange().getFrameLength() - Chirp.FACTORY_CHIRP.getErrorLength() + i] = Chirp.FACTORY_CHIRP.getRange().getCharacters().indexOf(lAccumulation.charAt(Chirp.FACTORY_CHIRP.getIdentifier().length() + Chirp.FACTORY_CHIRP.getPayloadLength() + i));
-            }
-            // Attempt to Reed/Solomon Decode.
-            try {
-                // Decode the Sample.
-                pReedSolomonDecoder.decode(lPacketized, Chirp.FACTORY_CHIRP.getErrorLength());
-                // Declare the search metric.
-                boolean lIsValid = true;
-                // Iterate the Identifier characters.
-                for(int i = 0; i < Chirp.FACTORY_CHIRP.getIdentifier().length(); i++) {
-                    // Update the search metric.
-                    lIsValid &= Chirp.FACTORY_CHIRP.getIdentifier().charAt(i) == (Chirp.FACTORY_CHIRP.getRange().getCharacters().charAt(lPacketized[i]));
-                }
-                // Is the message directed to us?
-                if(lIsValid) {
-                    // Fetch the Message data.
-                    String lMessage = "";
-                    // Iterate the Packet.
-                    for(int i = Chirp.FACTORY_CHIRP.getIdentifier().length(); i < Chirp.FACTORY_CHIRP.getIdentifier().length() + Chirp.FACTORY_CHIRP.getPayloadLength(); i++) {
-                        // Accumulate the Message.
-                        lMessage += Chirp.FACTORY_CHIRP.getRange().getCharacters().charAt(lPacketized[i]);
-                    }
-                    // Call the callback.
-                    pChirpListener.onChirp(lMessage);
-                }
-            }
-            catch(final ReedSolomonException pReedSolomonException) { /* Do nothing; we're transmitting across a very lossy channel! */ }
-        }
-    }
-
     /** Prints the equivalent information representation of a data string. */
     @SuppressWarnings("unused") public static final void indices(final String pData, final int[] pBuffer, final int pOffset) {
         // Iterate the Data.
         for(int i = 0; i < pData.length(); i++) {
             // Update the contents of the Array.
-            pBuffer[pOffset + i] = FACTORY_CHIRP.getRange().getCharacters().indexOf(Character.valueOf(pData.charAt(i)));
+            pBuffer[pOffset + i] = FACTORY_CHIRP.getCodebook().getSymbolFor(pData.charAt(i));
         }
     }
 
@@ -158,7 +88,7 @@ class Chirp {
         // Iterate the Data.
         for(int i = 0; i < pString.length(); i++) {
             // Update the Array.
-            lArray[i] = Chirp.FACTORY_CHIRP.getRange().getCharacters().indexOf(pString.charAt(i));
+            lArray[i] = Chirp.FACTORY_CHIRP.getCodebook().getSymbolFor(pString.charAt(i));
         }
         // Return the Array.
         return Chirp.array(lArray);
@@ -179,28 +109,65 @@ class Chirp {
     }
 
     Chirp() {
+        this(Chirp.FACTORY_CHIRP);
+    }
+
+    /** Constructs a Chirp which transmits and receives using the given profile; e.g. ChirpFactory.PROFILE_40_MS. */
+    Chirp(final ChirpFactory pChirpFactory) {
+        this(pChirpFactory, false);
+    }
+
+    /**
+     * Constructs a Chirp. When fragmenting, messages may be of any length up to ChirpFragmenter.getMaximumLength(); they're split across as many
+     * chirps as necessary and reassembled on receipt. (Both ends must agree. Use a profile with a longer payload to reduce the overhead.)
+     */
+    Chirp(final ChirpFactory pChirpFactory, final boolean pIsFragmenting) {
+        // Initialize Member Variables.
+        this.mChirpFactory = pChirpFactory;
+        // Allocate the ChirpTransmitter; this renders encoded chirps into PCM, a block at a time.
+        this.mChirpTransmitter = new ChirpTransmitter(new ChirpSynthesizer(pChirpFactory, Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ));
+        // Calculate the size of the AudioTrack's buffer; we only need room for a couple of blocks, since we stream them in as they're rendered.
+        final int lBufferSize = Math.max(AudioTrack.getMinBufferSize(Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ, AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT), 2 * this.getChirpTransmitter().getBlockSize());
         // Allocate the AudioTrack; this is how we'll be generating continuous audio.
-        this.mAudioTrack = new AudioTrack(AudioManager.STREAM_MUSIC, Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ, AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT, Chirp.WRITE_NUMBER_OF_SAMPLES, AudioTrack.MODE_STREAM);
+        this.mAudioTrack = new AudioTrack(AudioManager.STREAM_MUSIC, Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ, AudioFormat.CHANNEL_OUT_MONO, AudioFormat.ENCODING_PCM_16BIT, lBufferSize, AudioTrack.MODE_STREAM);
         this.mAudioThread = null;
-        // Declare the Galois Field. (5-bit, using root polynomial a^5 + a^2 + 1.)
-        final GenericGF lGenericGF = new GenericGF(FACTORY_CHIRP.getRange().getGaloisPolynomial(), Chirp.FACTORY_CHIRP.getRange().getFrameLength() + 1, 1);
-        // Allocate the ReedSolomonEncoder and ReedSolomonDecoder.
-        this.mReedSolomonEncoder = new ReedSolomonEncoder(lGenericGF);
-        this.mReedSolomonDecoder = new ReedSolomonDecoder(lGenericGF);
-        // By default, we won't be chirping.
-        this.mChirping = false;
+        // Allocate the CarrierSense; the receive path uses this to tell us whether somebody else is transmitting.
+        this.mCarrierSense = new CarrierSense();
+        // Allocate the ChirpScheduler; this queues our chirps and plays them back-to-back once the medium is free.
+        this.mChirpScheduler = new ChirpScheduler(this.getChirpTransmitter(), new MyAudioSink(), this.getCarrierSense());
+        // Allocate the ChirpEncoder; this frames payloads, appending the Reed/Solomon error symbols.
+        this.mChirpEncoder = new ChirpEncoder(pChirpFactory);
+        // Allocate the ChirpReceiver; this turns captured audio into received chirps.
+        this.mChirpReceiver = new ChirpReceiver(pChirpFactory, Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ, Chirp.READ_SUBSAMPLING_FACTOR);
+        // Allocate the ChirpSquelch; we spend most of our time listening to nothing, so the receiver sleeps until something's heard in band.
+        this.mChirpSquelch = new ChirpSquelch(pChirpFactory, Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ, Chirp.READ_SUBSAMPLING_FACTOR);
+        this.getChirpReceiver().setSquelch(this.getChirpSquelch());
+        // Allocate the ChirpEchoCanceller; when running full-duplex, this removes our own chirps from what we hear.
+        this.mChirpEchoCanceller = new ChirpEchoCanceller(pChirpFactory, Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ);
+        // Allocate the ChirpDispatcher; received payloads are handed over to this, so listeners are called away from the audio thread.
+        this.mChirpDispatcher = new ChirpDispatcher(pChirpFactory.getPayloadLength());
+        this.mDeliveryExecutor = null;
+        // Allocate the ChirpFragmenter and ChirpReassembler, if we're sending variable-length messages.
+        this.mChirpFragmenter  = pIsFragmenting ? new ChirpFragmenter(pChirpFactory)  : null;
+        this.mChirpReassembler = pIsFragmenting ? new ChirpReassembler(pChirpFactory) : null;
+        // Allocate the ChirpMetrics; both paths record how long each stage takes, and what they've seen. (Cheap enough to leave running.)
+        this.mChirpMetrics = new ChirpMetrics();
+        this.getChirpReceiver().setMetrics(this.getChirpMetrics());
+        this.getChirpDispatcher().setMetrics(this.getChirpMetrics());
+        this.getChirpEchoCanceller().setMetrics(this.getChirpMetrics());
+        this.getChirpTransmitter().setMetrics(this.getChirpMetrics());
         // Define whether we should listen to our own chirps.
         this.mSampleSelf = true;
-        // Declare the SampleBuffer; capable of storing an entire chirp, with each symbol sampled at the sub-sampling rate.
-        this.mSampleBuffer = new double[Chirp.READ_SUBSAMPLING_FACTOR * Chirp.FACTORY_CHIRP.getEncodedLength()];
-        // Allocate the ConfidenceBuffer; declares the corresponding confidence for each sample.
-        this.mConfidenceBuffer = this.getSampleBuffer().clone();
+        // By default, we're deaf whilst transmitting. (Unless we're sampling ourself.)
+        this.mFullDuplex = false;
     }
 
     void createAudioDispatcher() {
         try {
+            // Read a symbol's worth of samples at a time.
+            final int lReadSamples = (int)((this.getChirpFactory().getSymbolPeriodMs() / 1000.0f) * Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ);
             // Allocate the AudioDispatcher. (Note; requires dangerous permissions!)
-            this.mAudioDispatcher = AudioDispatcherFactory.fromDefaultMicrophone(Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ, Chirp.READ_NUMBER_OF_SAMPLES, 0); /** TODO: Abstract constants. */
+            this.mAudioDispatcher = AudioDispatcherFactory.fromDefaultMicrophone(Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ, lReadSamples, 0);
             // Define a Custom AudioProcessor.
             this.getAudioDispatcher().addAudioProcessor(new MyAudioProcessor());
         } catch (Exception e) {
@@ -212,6 +179,8 @@ class Chirp {
         if (getAudioDispatcher() == null) {
             createAudioDispatcher();
         }
+        // Start delivering received chirps. (A single consumer; reassembly relies on fragments arriving in order.)
+        getChirpDispatcher().start(getDeliveryExecutor(), 1);
         // Allocate the AudioThread.
         setAudioThread(new Thread(getAudioDispatcher()));
         // Start the AudioThread.
@@ -223,20 +192,26 @@ class Chirp {
         if (getAudioDispatcher() != null) {
             getAudioDispatcher().stop();
         }
+        // Stop transmitting, once the chirp being written (if any) has been; anything still queued is cancelled.
+        getChirpScheduler().shutdown();
+        // Stop delivering, once whatever we've already received has been.
+        getChirpDispatcher().shutdown();
+        // Print the Metrics.
+        Log.d(TAG, "Metrics(" + getChirpMetrics().snapshot() + ")");
     }
-    /** Encodes and generates a chirp Message. */
-    public final void chirp(String pMessage) throws UnsupportedOperationException {
+    /** Encodes and queues a chirp Message. The returned future completes once the chirp has been played. (Or, when fragmenting, once every fragment has.) */
+    public final CompletableFuture<Void> chirp(String pMessage) throws UnsupportedOperationException {
         // Is the message the correct length?
-        if(pMessage.length() != FACTORY_CHIRP.getPayloadLength()) {
+        if(!this.isFragmenting() && pMessage.length() != this.getChirpFactory().getPayloadLength()) {
             // Assert that we can't generate the chirp; they need to match the Payload.
-            throw new UnsupportedOperationException("Invalid message size (" + pMessage.length() + ")! Expected " + FACTORY_CHIRP.getPayloadLength() + " symbols.");
+            throw new UnsupportedOperationException("Invalid message size (" + pMessage.length() + ")! Expected " + this.getChirpFactory().getPayloadLength() + " symbols.");
         } {
             // Declare the search metric.
             boolean lIsSupported = true;
             // Iterate through the Message.
             for(final char c : pMessage.toCharArray()) {
                 // Update the search metric.
-                lIsSupported &= FACTORY_CHIRP.getRange().getCharacters().indexOf(c) != -1;
+                lIsSupported &= this.getChirpFactory().getCodebook().getSymbolFor(c) != ChirpCodebook.INDEX_INVALID;
             }
             // Is the message not supported?
             if(!lIsSupported) {
@@ -246,128 +221,123 @@ class Chirp {
         }
         // Assert that we're transmitting the Message. (Don't show error checksum codewords or the identifer.)
         Log.d(TAG, "Tx(" + pMessage + ")");
-        // Append the Header.
-        pMessage = FACTORY_CHIRP.getIdentifier().concat(pMessage);
-        // Declare the ChirpBuffer.
-        final int[] lChirpBuffer = new int[Chirp.FACTORY_CHIRP.getRange().getFrameLength()];
-        // Fetch the indices of the Message.
-        Chirp.indices(pMessage, lChirpBuffer, 0);
-        // Encode the Bytes.
-        getReedSolomonEncoder().encode(lChirpBuffer, Chirp.FACTORY_CHIRP.getErrorLength());
-        // Return the ChirpFactory.
-        final String lChirp = Chirp.getChirp(lChirpBuffer, pMessage.length()); // "hj050422014jikhif"; (This will work with ChirpFactory Share!)
-        // ChirpFactory-y. (Period is in milliseconds.)
-        chirp(lChirp, Chirp.FACTORY_CHIRP.getSymbolPeriodMs());
-    }
-
-    /** Produces a chirp. */
-    private final void chirp(final String pEncodedChirp, final int pPeriod) {
-        // Declare an AsyncTask which we'll use for generating audio.
-        final AsyncTask lAsyncTask = new AsyncTask<Void, Void, Void>() {
-            /** Initialize the play. */
-            @Override protected final void onPreExecute() {
-                // Assert that we're chirping.
-                setChirping(true);
-                // Play the AudioTrack.
-                getAudioTrack().play();
-            }
-            /** Threaded audio generation. */
-            @Override protected Void doInBackground(final Void[] pIsUnused) {
-                // Re-buffer the new tone.
-                final byte[] lChirp = onGenerateChirp(pEncodedChirp, pPeriod);
-                // Write the ChirpFactory to the Audio buffer.
-                getAudioTrack().write(lChirp, 0, lChirp.length);
-                // Satisfy the parent.
-                return null;
-            }
-            /** Cyclic. */
-            @Override protected final void onPostExecute(Void pIsUnused) {
-                // Stop the AudioTrack.
-                getAudioTrack().stop();
-                // Assert that we're no longer chirping.
-                setChirping(false);
-            }
-        };
-        // Execute the AsyncTask on the pre-prepared ThreadPool.
-        lAsyncTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, null);
-    }
-
-    /** Generates a tone for the audio stream. */
-    private final byte[] onGenerateChirp(final String pData, final int pPeriod) {
-        // Calculate the Number of Samples per chirp.
-        final int      lNumberOfSamples = (int)(Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ * (pPeriod / 1000.0f));
-        // Declare the SampleArray.
-              double[] lSampleArray     = new double[pData.length() * lNumberOfSamples];
-        // Declare the Generation.
-        final byte[]   lGeneration      = new byte[lSampleArray.length * 2];
-        // Declare the Offset.
-        int      lOffset          = 0;
-        // Iterate the Transmission.
-        for(int i = 0; i < pData.length(); i++) {
-            // Fetch the Data.
-            final Character lData      = Character.valueOf(pData.charAt(i));
-            // Fetch the Frequency.
-            final double    lFrequency = FACTORY_CHIRP.getMapCharFreq().get(lData);
-            // Iterate the NumberOfSamples. (Per chirp data.)
-            for(int j = 0; j < lNumberOfSamples; j++) {
-                // Update the SampleArray.
-                lSampleArray[lOffset] = Math.sin(2 * Math.PI * j / (Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ / lFrequency));
-                // Increase the Offset.
-                lOffset++;
-            }
+        // Are we sending a single chirp?
+        if(!this.isFragmenting()) {
+            // ChirpFactory-y.
+            return getChirpScheduler().submit(this.getChirpEncoder().encode(pMessage));
         }
-        // Reset the Offset.
-        lOffset = 0;
-        // Iterate between each sample.
-        for(int i = 0; i < pData.length(); i++) {
-            // Fetch the Start and End Indexes of the Sample.
-            final int lIo =   i * lNumberOfSamples;
-            final int lIa = lIo + lNumberOfSamples;
-            // Declare the RampWidth. We'll change it between iterations for more tuneful sound.)
-            final int lRw = (int)(lNumberOfSamples * 0.3);
-            // Iterate the Ramp.
-            for(int j = 0; j < lRw; j++) {
-                // Calculate the progression of the Ramp.
-                final double lP = j / (double)lRw;
-                // Scale the corresponding samples.
-                lSampleArray[lIo + j + 0] *= lP;
-                lSampleArray[lIa - j - 1] *= lP;
-            }
+        // Split the Message into Fragments.
+        final List<String>           lFragments = this.getChirpFragmenter().fragment(pMessage);
+        // Allocate the Futures.
+        final CompletableFuture<?>[] lFutures   = new CompletableFuture<?>[lFragments.size()];
+        // Iterate the Fragments.
+        for(int i = 0; i < lFragments.size(); i++) {
+            // Queue the Fragment.
+            lFutures[i] = getChirpScheduler().submit(this.getChirpEncoder().encode(lFragments.get(i)));
         }
+        // Complete once every Fragment has been sent.
+        return CompletableFuture.allOf(lFutures);
+    }
+
+    /** Encodes and queues a binary payload of up to getPayloadBytes() bytes; shorter data is padded with zeros. Binary payloads are always sent as a single chirp. */
+    public final CompletableFuture<Void> chirp(final byte[] pData) throws UnsupportedOperationException {
+        return this.chirp(ByteBuffer.wrap(pData));
+    }
 
-        // Declare the filtering constant.
-        final double lAlpha    = 0.3;
-              double lPrevious = 0;
-
-        // Iterate the SampleArray.
-        for(int i = 0; i < lSampleArray.length; i++) {
-            // Fetch the Value.
-            final double lValue    = lSampleArray[i];
-            // Filter the Value.
-            final double lFiltered = (lAlpha < 1.0) ? ((lValue - lPrevious) * lAlpha) : lValue;
-            // Assume normalized, so scale to the maximum amplitude.
-            final short lPCM = (short) ((lFiltered * 32767));
-            // Supply the Generation with 16-bit PCM. (The first byte is the low-order byte.)
-            lGeneration[lOffset++] = (byte) (lPCM & 0x00FF);
-            lGeneration[lOffset++] = (byte)((lPCM & 0xFF00) >>> 8);
-            // Overwrite the Previous with the Filtered value.
-            lPrevious = lFiltered;
+    /** Encodes and queues the remaining bytes of the buffer as a binary payload, advancing its position. */
+    public final CompletableFuture<Void> chirp(final ByteBuffer pData) throws UnsupportedOperationException {
+        // Are we fragmenting? (The receiver would try to reassemble the payload.)
+        if(this.isFragmenting()) {
+            // Assert that we can't send binary data.
+            throw new UnsupportedOperationException("Binary payloads can't be fragmented.");
+        }
+        // Is there too much data?
+        if(pData.remaining() > this.getPayloadBytes()) {
+            // Assert that we can't generate the chirp.
+            throw new UnsupportedOperationException("Invalid data size (" + pData.remaining() + ")! Expected at most " + this.getPayloadBytes() + " bytes.");
         }
-        // Return the Generation.
-        return lGeneration;
+        // Assert that we're transmitting the Data.
+        Log.d(TAG, "Tx(" + pData.remaining() + " bytes)");
+        // Declare the ChirpBuffer. (Any unused payload symbols remain zero.)
+        final int[] lChirpBuffer = this.getChirpEncoder().getChirpBuffer();
+        // Pack the Data into the Payload.
+        ChirpPacker.pack(pData, lChirpBuffer, this.getChirpFactory().getIdentifier().length());
+        // ChirpFactory-y.
+        return getChirpScheduler().submit(this.getChirpEncoder().encode(lChirpBuffer));
     }
 
     /* Getters. */
+    public final ChirpFactory getChirpFactory() {
+        return this.mChirpFactory;
+    }
+
     private final AudioTrack getAudioTrack() {
         return this.mAudioTrack;
     }
 
-    private final ReedSolomonDecoder getReedSolomonDecoder() {
-        return this.mReedSolomonDecoder;
+    private final ChirpTransmitter getChirpTransmitter() {
+        return this.mChirpTransmitter;
+    }
+
+    private final ChirpScheduler getChirpScheduler() {
+        return this.mChirpScheduler;
+    }
+
+    private final CarrierSense getCarrierSense() {
+        return this.mCarrierSense;
+    }
+
+    private final ChirpReceiver getChirpReceiver() {
+        return this.mChirpReceiver;
+    }
+
+    private final ChirpSquelch getChirpSquelch() {
+        return this.mChirpSquelch;
+    }
+
+    private final ChirpEchoCanceller getChirpEchoCanceller() {
+        return this.mChirpEchoCanceller;
+    }
+
+    private final ChirpDispatcher getChirpDispatcher() {
+        return this.mChirpDispatcher;
+    }
+
+    /** Sets where listeners are called; by default, a dedicated thread. Takes effect on the next start(). (Listeners are never called on the audio thread.) */
+    @SuppressWarnings("unused")
+    public final void setDeliveryExecutor(final Executor pExecutor) {
+        this.mDeliveryExecutor = pExecutor;
+    }
+
+    public final Executor getDeliveryExecutor() {
+        return this.mDeliveryExecutor;
+    }
+
+    private final ChirpFragmenter getChirpFragmenter() {
+        return this.mChirpFragmenter;
+    }
+
+    private final ChirpReassembler getChirpReassembler() {
+        return this.mChirpReassembler;
+    }
+
+    /** Returns the metrics of both paths; take a snapshot() to read or export them, and reset() to begin a new interval. Safe to use from any thread. */
+    public final ChirpMetrics getChirpMetrics() {
+        return this.mChirpMetrics;
+    }
+
+    /** Returns the number of bytes which fit into a binary payload. */
+    public final int getPayloadBytes() {
+        return ChirpPacker.getByteCount(this.getChirpFactory().getPayloadLength());
     }
 
-    private final ReedSolomonEncoder getReedSolomonEncoder() {
-        return this.mReedSolomonEncoder;
+    /** Returns whether messages are split across several chirps. */
+    public final boolean isFragmenting() {
+        return this.getChirpFragmenter() != null;
+    }
+
+    private final ChirpEncoder getChirpEncoder() {
+        return this.mChirpEncoder;
     }
 
     protected AudioDispatcher getAudioDispatcher() {
@@ -382,12 +352,8 @@ class Chirp {
         return this.mAudioThread;
     }
 
-    private final void setChirping(final boolean pIsChirping) {
-        this.mChirping = pIsChirping;
-    }
-
     public final boolean isChirping() {
-        return this.mChirping;
+        return this.getChirpScheduler().isTransmitting();
     }
 
     @SuppressWarnings("unused")
@@ -399,24 +365,87 @@ class Chirp {
         return this.mSampleSelf;
     }
 
-    private final double[] getSampleBuffer() {
-        return this.mSampleBuffer;
+    /**
+     * Duty-cycles listening, for use in the background; whilst nothing is being heard, we only listen for the first part of each cycle. Both are
+     * given in milliseconds. A chirp which begins whilst we aren't listening is missed, so this suits beacons which repeat for longer than a cycle.
+     * A cycle of zero (the default) listens all the time; otherwise, we must listen for at least a symbol period.
+     */
+    @SuppressWarnings("unused")
+    public final void setDutyCycle(final int pListenMs, final int pCycleMs) throws IllegalArgumentException {
+        this.getChirpSquelch().setDutyCycle(pListenMs, pCycleMs);
+    }
+
+    /**
+     * Sets how long a received chirp is remembered, in milliseconds; hearing it again within this time doesn't call OnReceive. Use a little longer
+     * than a beacon's repeat interval to hear it once. Zero (the default, ChirpDecoder.DEFAULT_DUPLICATE_TTL_MS) delivers every repeat.
+     */
+    @SuppressWarnings("unused")
+    public final void setDuplicateTtl(final int pDuplicateTtlMs) {
+        this.getChirpReceiver().setDuplicateTtl(pDuplicateTtlMs);
     }
 
-    private final double[] getConfidenceBuffer() {
-        return this.mConfidenceBuffer;
+    /**
+     * Enables full-duplex operation; our own chirps are cancelled from what we hear, so chirps from other devices can be received whilst we're
+     * transmitting. (The echo is found afresh for every burst, so cancellation only begins a few symbols in; until then, we hear nothing.) Takes effect
+     * on the next burst.
+     */
+    @SuppressWarnings("unused")
+    public final void setFullDuplex(final boolean pIsFullDuplex) {
+        this.mFullDuplex = pIsFullDuplex;
+    }
+
+    public final boolean isFullDuplex() {
+        return this.mFullDuplex;
     }
 
     protected final void setOnReceiveListener(final onReceiveListener listener) {
         this.mListener = listener;
     }
 
-    private class MyAudioProcessor implements AudioProcessor {
-        /* Member Variables. */
-        private final PitchProcessor mPitchProcessor;
+    /** Registers a listener for binary payloads; see chirp(byte[]). (Fragmented messages are only delivered as text.) */
+    protected final void setOnReceiveBytesListener(final onReceiveBytesListener listener) {
+        this.mBytesListener = listener;
+    }
+
+    private class MyAudioSink implements ChirpScheduler.IOutput {
+        /** Plays the AudioTrack at the start of a burst. */
+        @Override
+        public final void onStart() {
+            // Pin the burst to what we're hearing, so we can find its echo.
+            if (isFullDuplex()) {
+                getChirpEchoCanceller().onStart();
+            }
+            getAudioTrack().play();
+        }
+
+        /** Writes a rendered block to the AudioTrack. Blocks until there's room, which paces synthesis to playback. */
+        @Override
+        public final void onWrite(final ByteBuffer pBuffer, final int pSizeInBytes) {
+            // Keep a copy of what we're playing; this is the echo we'll be cancelling.
+            if (isFullDuplex()) {
+                getChirpEchoCanceller().onReference(pBuffer, pSizeInBytes);
+            }
+            getAudioTrack().write(pBuffer, pSizeInBytes, AudioTrack.WRITE_BLOCKING);
+        }
+
+        /** Stops the AudioTrack once a burst is complete. (Whatever has already been written is played out first.) */
+        @Override
+        public final void onStop() {
+            getAudioTrack().stop();
+        }
+    }
 
+    private class MyAudioProcessor implements AudioProcessor, ChirpReceiver.IGate, ChirpFactory.IListener {
         public MyAudioProcessor() {
-            mPitchProcessor = new PitchProcessor(PitchProcessor.PitchEstimationAlgorithm.FFT_YIN, Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ, (Chirp.READ_NUMBER_OF_SAMPLES / Chirp.READ_SUBSAMPLING_FACTOR), new MyPitchDetectionHandler());
+            // Route the ChirpReceiver through us; payloads are queued on the audio thread, and delivered to us by the ChirpDispatcher.
+            getChirpReceiver().setGate(this);
+            getChirpReceiver().setListener(getChirpDispatcher());
+            getChirpDispatcher().setListener(this);
+            // Are we reassembling fragmented messages?
+            if (isFragmenting()) {
+                // Deliver whole messages once they're complete.
+                getChirpReassembler().setListener(this::onMessage);
+            }
         }
 
         /**
@@ -424,22 +453,23 @@ class Chirp {
          */
         @Override
         public final boolean process(final AudioEvent pAudioEvent) {
-            // Declare the TarsosDSPFormat; essentially make a safe copy of the existing setup, that recognizes the buffer has been split up.
-            final TarsosDSPAudioFormat lTarsosDSPAudioFormat = new TarsosDSPAudioFormat(getAudioDispatcher().getFormat().getEncoding(), getAudioDispatcher().getFormat().getSampleRate(), getAudioDispatcher().getFormat().getSampleSizeInBits() / Chirp.READ_SUBSAMPLING_FACTOR, getAudioDispatcher().getFormat().getChannels(), getAudioDispatcher().getFormat().getFrameSize() / Chirp.READ_SUBSAMPLING_FACTOR, getAudioDispatcher().getFormat().getFrameRate(), getAudioDispatcher().getFormat().isBigEndian(), getAudioDispatcher().getFormat().properties());
             // Fetch the Floats.
             final float[] lFloats = pAudioEvent.getFloatBuffer();
-            // Calculate the FrameSize.
-            final int lFrameSize = (lFloats.length / Chirp.READ_SUBSAMPLING_FACTOR);
-            // Iterate across the Floats.
-            for (int i = 0; i < (lFloats.length - lFrameSize); i += lFrameSize) {
-                // Segment the buffer.
-                final float[] lSegment = Arrays.copyOfRange(lFloats, i, i + lFrameSize);
-                // Allocate an AudioEvent.
-                final AudioEvent lAudioEvent = new AudioEvent(lTarsosDSPAudioFormat);
-                // Assign the Segment.
-                lAudioEvent.setFloatBuffer(lSegment);
-                // Export the AudioEvent to the PitchProessor.
-                this.getPitchProcessor().process(lAudioEvent);
+            // Fetch when we started.
+            final long    lStart  = System.nanoTime();
+            // Remove our own chirps from the captured audio.
+            if (isFullDuplex()) {
+                getChirpEchoCanceller().process(lFloats, 0, lFloats.length);
+            }
+            // Process the captured audio.
+            getChirpReceiver().process(lFloats, 0, lFloats.length);
+            // Has the receiver been squelched? (Then nothing is in band, and the medium is free.)
+            if (!getChirpReceiver().isListening()) {
+                getCarrierSense().onQuiet();
+            }
+            // Did we take longer than it took to capture? (Then the recorder's buffer is filling up, and will eventually overrun.)
+            if (System.nanoTime() - lStart > lFloats.length * 1000000000L / Chirp.WRITE_AUDIO_RATE_SAMPLE_HZ) {
+                getChirpMetrics().onCount(ChirpMetrics.COUNTER_OVERRUNS);
             }
             // Assert that the event was handled.
             return true;
@@ -450,42 +480,56 @@ class Chirp {
          */
         @Override
         public final void processingFinished() {
-            // Export the event to the PitchProcessor.
+            // Discard any partial Segment; it can't complete a symbol.
+            getChirpReceiver().flush();
+        }
+
+        /** Called when a segment's tones have been measured. */
+        @Override
+        public final boolean isOpen(final ToneBank pToneBank) {
+            // Keep track of the in-band energy; this is how we know whether the medium is free.
+            getCarrierSense().onEnergy(pToneBank.getEnergy());
+            // Are we currently chirping, and not allowed to sample ourself? (When full-duplex, our own chirps are cancelled; but only once the echo has been found.)
+            return !isChirping() || isSampleSelf() || (isFullDuplex() && getChirpEchoCanceller().isLocked());
         }
 
-        /* Getters. */
-        private final PitchProcessor getPitchProcessor() {
-            return this.mPitchProcessor;
+        /** Called with the payload of a valid chirp, before it's been converted into text. (On the delivery thread.) */
+        @Override
+        public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) {
+            // Is anybody listening for binary data?
+            if (mBytesListener != null && !isFragmenting()) {
+                // Unpack the Payload.
+                final byte[] lData = new byte[ChirpPacker.getByteCount(pLength)];
+                ChirpPacker.unpack(pSymbols, pOffset, pLength, lData, 0);
+                // Deliver the Data.
+                mBytesListener.OnReceive(lData);
+            }
+            // Is anybody listening for text?
+            if (mListener != null || isFragmenting()) {
+                // Convert the Payload into text.
+                ChirpFactory.IListener.super.onPayload(pChirpFactory, pSymbols, pOffset, pLength);
+            }
+        }
+
+        /** Called when the ChirpReceiver has received a valid chirp. */
+        @Override
+        public final void onChirp(final String pMessage) {
+            // Are we fragmenting?
+            if (isFragmenting()) {
+                // Hand the Fragment over for reassembly.
+                getChirpReassembler().onChirp(pMessage);
+            } else {
+                // Deliver the Message.
+                this.onMessage(pMessage);
+            }
         }
 
-        private class MyPitchDetectionHandler implements PitchDetectionHandler {
-            @Override
-            public final void handlePitch(final PitchDetectionResult pPitchDetectionResult, final AudioEvent pAudioEvent) {
-                // Are we currently chirping?
-                if (isChirping()) {
-                    // Are we not allowed to sample ourself?
-                    if (!isSampleSelf()) {
-                        // Don't log the transactions.
-                        return;
-                    }
-                }
-                // Buffer the Pitch and the corresponding Confidence.
-                Chirp.push(getSampleBuffer(), pPitchDetectionResult.getPitch());
-                Chirp.push(getConfidenceBuffer(), pPitchDetectionResult.getProbability());
-                // Process the signal.
-                Chirp.onGaydecki(getReedSolomonDecoder(), getSampleBuffer(), getConfidenceBuffer(), Chirp.READ_SUBSAMPLING_FACTOR, new ChirpFactory.IListener() {
-                    @Override
-                    public final void onChirp(final String pMessage) {
-                        // Print the chirp.
-                        Log.d(TAG, "Rx(" + pMessage + ")");
-                        if (mListener != null) {
-                            mListener.OnReceive(pMessage);
-                        }
-                        // Clear the buffer; prevent multiple chirps coming through.
-                        Arrays.fill(getSampleBuffer(), -1.0);
-                        Arrays.fill(getConfidenceBuffer(), 0.0);
-                    }
-                });
+        /** Called with each complete message. */
+        private final void onMessage(final String pMessage) {
+            // Print the chirp.
+            Log.d(TAG, "Rx(" + pMessage + ")");
+            if (mListener != null) {
+                mListener.OnReceive(pMessage);
             }
         }
     }
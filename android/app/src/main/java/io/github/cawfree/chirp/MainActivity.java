@@ -16,7 +16,6 @@ import java.util.Arrays;
 public class MainActivity extends AppCompatActivity {
     protected static final String TAG = "MainActivity";
     public static final int REQUEST_CODE = 1;
-    /** TODO: How to know the transmission medium is free? */
     private EditText mTxtReceive;
     private Chirp mChirp = new Chirp();
     private Chirp.onReceiveListener mListener;
@@ -47,20 +46,20 @@ public class MainActivity extends AppCompatActivity {
         );
         // Register an OnTouchListener.
         this.findViewById(R.id.btnSend).setOnClickListener(pView -> {
-            // Are we not already chirping?
-            if (!mChirp.isChirping()) {
-                // Declare the Message.
-                final String lMessage = ((EditText) findViewById(R.id.txtTX)).getText().toString();// = "datadatada";//"datadatada";//"parrotbill"; // hj05142014
-                // ChirpFactory the message.
-                try {
-                    mChirp.chirp(lMessage);
-                } catch (UnsupportedOperationException e) {
-                    e.printStackTrace();
-                    new AlertDialog.Builder(MainActivity.this).setMessage(e.getMessage()).show();
-                }
-            } else {
-                // Inform the developer.
-                Log.e(TAG, "Can't chirp whilst chirpin'!");
+            // Declare the Message.
+            final String lMessage = ((EditText) findViewById(R.id.txtTX)).getText().toString();// = "datadatada";//"datadatada";//"parrotbill"; // hj05142014
+            // ChirpFactory the message. (It'll be queued behind any chirps that are already playing.)
+            try {
+                mChirp.chirp(lMessage).whenComplete((pIsUnused, pThrowable) -> {
+                    // Did the chirp fail to send?
+                    if (pThrowable != null) {
+                        // Inform the developer.
+                        Log.e(TAG, "Failed to chirp \"" + lMessage + "\"!", pThrowable);
+                    }
+                });
+            } catch (UnsupportedOperationException e) {
+                e.printStackTrace();
+                new AlertDialog.Builder(MainActivity.this).setMessage(e.getMessage()).show();
             }
         });
         if(Build.VERSION.SDK_INT >= 23 && checkSelfPermission(Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
@@ -0,0 +1,136 @@
+package io.github.cawfree.chirp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ChirpDecoder, which is fed a pitch per band for every segment. Once a phase has seen a frame's worth of valid symbols, every segment
+ * goes on to attempt a decode (onGaydecki), so the cost depends heavily on what's being heard: silence is cheap, whilst noise which keeps yielding
+ * valid-looking symbols attempts a decode every time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChirpDecoderBenchmark {
+
+    /* Static Declarations. */
+    private static final int SEGMENTS = 1024; // (A power of two, so we can wrap using a mask.)
+
+    /* Benchmark Parameters. */
+    /** The number of symbols in each frame which are misread as a neighbouring tone, and have to be corrected. */
+    @Param({ "0", "2" })
+    public int mErrors;
+
+    /* Member Variables. */
+    private ChirpDecoder           mChirpDecoder;
+    private double[][]             mFrame;
+    private double[][]             mNoise;
+    private double[]               mSilence;
+    private double[]               mConfident;
+    private double[]               mUnconfident;
+    private ChirpFactory.IListener mListener;
+    private int                    mIndex;
+    private int                    mPayloads;
+
+    @Setup
+    public final void onSetup() {
+        // Fetch the ChirpFactory.
+        final ChirpFactory lChirpFactory = ChirpFactory.PROFILE_85_MS;
+        // Fetch the Subsamples.
+        final int          lSubsamples   = ChirpFileDecoder.DEFAULT_SUBSAMPLES;
+        // Fetch the Frequencies and the size of the alphabet.
+        final double[]     lFrequencies  = lChirpFactory.getFrequencies();
+        final int          lSymbols      = lChirpFactory.getRange().getCharacters().length();
+        // Allocate the ChirpDecoder.
+        this.mChirpDecoder = new ChirpDecoder(lChirpFactory, lSubsamples);
+        // Frame a Payload.
+        final int[]        lEncoded      = new ChirpEncoder(lChirpFactory).encode("n3a67aai1o");
+        // Misread some of the Symbols. (Leave the identifier alone, so that the frame is still recognised.)
+        for(int i = 0; i < this.mErrors; i++) {
+            // Fetch a Symbol within the Payload.
+            final int lIndex = lChirpFactory.getIdentifier().length() + 3 * i;
+            // Replace it with its neighbour.
+            lEncoded[lIndex] = (lEncoded[lIndex] + 1) % lSymbols;
+        }
+        // Allocate the Frame; a pitch for every band of every segment, followed by a period of silence so that a held decode gets delivered.
+        this.mFrame        = new double[(lChirpFactory.getEncodedPeriods() + 1) * lSubsamples][lChirpFactory.getBands()];
+        // Iterate the Segments.
+        for(int i = 0; i < this.mFrame.length; i++) {
+            // Iterate the Bands.
+            for(int j = 0; j < lChirpFactory.getBands(); j++) {
+                // Fetch the Symbol heard during this Segment.
+                final int lSymbol = (i / lSubsamples) * lChirpFactory.getBands() + j;
+                // Fetch its Pitch. (Beyond the end of the frame, we hear nothing.)
+                this.mFrame[i][j] = (lSymbol < lEncoded.length) ? lFrequencies[j * lSymbols + lEncoded[lSymbol]] : ChirpHistory.SAMPLE_INVALID;
+            }
+        }
+        // Allocate the Noise; every segment hears a confident, random tone.
+        final Random       lRandom       = new Random(1L);
+        this.mNoise        = new double[ChirpDecoderBenchmark.SEGMENTS][lChirpFactory.getBands()];
+        // Iterate the Segments and Bands.
+        for(int i = 0; i < this.mNoise.length; i++) {
+            for(int j = 0; j < lChirpFactory.getBands(); j++) {
+                // Pick a Tone.
+                this.mNoise[i][j] = lFrequencies[j * lSymbols + lRandom.nextInt(lSymbols)];
+            }
+        }
+        // Allocate the Silence, and the Confidences.
+        this.mSilence      = new double[lChirpFactory.getBands()];
+        this.mConfident    = new double[lChirpFactory.getBands()];
+        this.mUnconfident  = new double[lChirpFactory.getBands()];
+        Arrays.fill(this.mSilence,   ChirpHistory.SAMPLE_INVALID);
+        Arrays.fill(this.mConfident, 0.95);
+        // Allocate the Listener; it counts what it's given. (The decoder drops the repeats heard by the remaining phases.)
+        this.mListener     = new ChirpFactory.IListener() {
+            @Override public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) { mPayloads++; }
+            @Override public final void onChirp(final String pMessage) { }
+        };
+        // Start from the first Segment.
+        this.mIndex        = 0;
+    }
+
+    /** Decodes an entire frame, one segment at a time; this includes every decode attempt made whilst the frame is heard. Reports time per frame. */
+    @Benchmark
+    public final int onFrame() {
+        // Iterate the Segments.
+        for(final double[] lSamples : this.mFrame) {
+            // Buffer the Segment.
+            this.mChirpDecoder.onSamples(lSamples, (lSamples[0] == ChirpHistory.SAMPLE_INVALID) ? this.mUnconfident : this.mConfident, this.mListener);
+        }
+        // Start the next Frame from a clean slate; otherwise, it'd be dropped as a repeat.
+        this.mChirpDecoder.reset();
+        // Return the number of Payloads, so the work can't be eliminated.
+        return this.mPayloads;
+    }
+
+    /** Buffers a single segment of silence. */
+    @Benchmark
+    public final int onSilence() {
+        // Buffer the Segment.
+        this.mChirpDecoder.onSamples(this.mSilence, this.mUnconfident, this.mListener);
+        // Return the number of Payloads.
+        return this.mPayloads;
+    }
+
+    /** Buffers a single segment of noise; once the runs fill up, every segment attempts a decode. (Nearly all of them are rejected.) */
+    @Benchmark
+    public final int onNoise() {
+        // Move onto the next Segment.
+        this.mIndex = (this.mIndex + 1) & (ChirpDecoderBenchmark.SEGMENTS - 1);
+        // Buffer the Segment.
+        this.mChirpDecoder.onSamples(this.mNoise[this.mIndex], this.mConfident, this.mListener);
+        // Return the number of Payloads.
+        return this.mPayloads;
+    }
+
+}
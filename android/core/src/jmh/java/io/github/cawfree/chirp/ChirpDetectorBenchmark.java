@@ -0,0 +1,89 @@
+package io.github.cawfree.chirp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Measures symbol detection; the detector runs once per band per segment, and maps every pitch it averages back onto the alphabet. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChirpDetectorBenchmark {
+
+    /* Static Declarations. */
+    private static final int PITCHES = 1024; // (A power of two, so we can wrap using a mask.)
+
+    /* Member Variables. */
+    private ChirpFactory        mChirpFactory;
+    private ChirpHistory        mChirpHistory;
+    private ChirpFactory.Result mResult;
+    private double[]            mPitches;
+    private int                 mIndex;
+
+    @Setup
+    public final void onSetup() {
+        // Allocate the ChirpFactory.
+        this.mChirpFactory = ChirpFactory.PROFILE_85_MS;
+        // Allocate the Random; the inputs are the same on every run.
+        final Random   lRandom      = new Random(1L);
+        // Fetch the Frequencies.
+        final double[] lFrequencies = this.mChirpFactory.getFrequencies();
+        // Allocate the Pitches; each lies somewhere within half a tone of one of our frequencies, as a real detector would report.
+        this.mPitches      = new double[ChirpDetectorBenchmark.PITCHES];
+        for(int i = 0; i < this.mPitches.length; i++) {
+            // Fetch a Tone.
+            final int lTone = lRandom.nextInt(lFrequencies.length - 1);
+            // Place the Pitch between it and its neighbour.
+            this.mPitches[i] = lFrequencies[lTone] + lRandom.nextDouble() * (lFrequencies[lTone + 1] - lFrequencies[lTone]) / 2.0;
+        }
+        // Allocate the History; a single symbol's worth of segments, as seen by the ChirpReceiver's default sub-sampling. (Some aren't confident enough to count.)
+        this.mChirpHistory = new ChirpHistory(ChirpFileDecoder.DEFAULT_SUBSAMPLES);
+        for(int i = 0; i < ChirpFileDecoder.DEFAULT_SUBSAMPLES; i++) {
+            this.mChirpHistory.push((float)this.mPitches[0], (i % 3 == 0) ? 0.5f : 0.95f);
+        }
+        // Allocate the Result.
+        this.mResult       = new ChirpFactory.Result();
+        // Start from the first Pitch.
+        this.mIndex        = 0;
+    }
+
+    /** Returns the next Pitch, cycling through them all. */
+    private final double getPitch() {
+        // Move onto the next Pitch.
+        this.mIndex = (this.mIndex + 1) & (ChirpDetectorBenchmark.PITCHES - 1);
+        // Return the Pitch.
+        return this.mPitches[this.mIndex];
+    }
+
+    /** Detects a single symbol, as ChirpDecoder.onSamples() does for every band of every segment. */
+    @Benchmark
+    public final ChirpFactory.Result getSymbol() {
+        return ChirpFactory.DETECTOR_CHIRP_MEAN.getSymbol(this.mChirpFactory, this.mChirpHistory, 0, this.mChirpHistory.getLength(), this.mResult);
+    }
+
+    /** Maps a pitch onto the alphabet. */
+    @Benchmark
+    public final char getCharacterFor() {
+        return this.mChirpFactory.getCharacterFor(this.getPitch());
+    }
+
+    /** Finds the tone nearest a pitch; the quantization getCharacterFor() and the detector are built upon. */
+    @Benchmark
+    public final int getIndexFor() {
+        return this.mChirpFactory.getIndexFor(this.getPitch());
+    }
+
+    /** Maps a character onto its symbol index, as framing does for every character of a payload. */
+    @Benchmark
+    public final int getSymbolFor() {
+        return this.mChirpFactory.getCodebook().getSymbolFor(this.mChirpFactory.getRange().getCharacters().charAt((this.mIndex++ & Integer.MAX_VALUE) % this.mChirpFactory.getCodebook().getSize()));
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.cawfree.chirp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ChirpDispatcher's handoff; the part of delivery which runs on the audio thread. No consumers are started, so each payload is
+ * taken back out on the same thread, and the cost of waking a consumer is left out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChirpDispatcherBenchmark {
+
+    /* Member Variables. */
+    private ChirpFactory    mChirpFactory;
+    private ChirpDispatcher mChirpDispatcher;
+    private ChirpDispatcher mFull;
+    private int[]           mPayload;
+    private int             mPayloads;
+
+    @Setup
+    public final void onSetup() {
+        // Fetch the ChirpFactory.
+        this.mChirpFactory    = ChirpFactory.PROFILE_85_MS;
+        // Allocate the Payload.
+        this.mPayload         = new int[this.mChirpFactory.getPayloadLength()];
+        // Allocate the ChirpDispatchers; one which is drained as we go, and one which is always full. (Its listener is never called.)
+        this.mChirpDispatcher = new ChirpDispatcher(this.mChirpFactory.getPayloadLength());
+        this.mFull            = new ChirpDispatcher(ChirpDispatcher.DEFAULT_CAPACITY, this.mChirpFactory.getPayloadLength(), ChirpDispatcher.OVERFLOW_DROP_OLDEST);
+        // Allocate the Listener; it counts what it's given.
+        final ChirpFactory.IListener lListener = new ChirpFactory.IListener() {
+            @Override public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) { mPayloads++; }
+            @Override public final void onChirp(final String pMessage) { }
+        };
+        this.mChirpDispatcher.setListener(lListener);
+        this.mFull.setListener(lListener);
+        // Fill the full ChirpDispatcher.
+        for(int i = 0; i < this.mFull.getCapacity(); i++) {
+            this.mFull.onPayload(this.mChirpFactory, this.mPayload, 0, this.mPayload.length);
+        }
+    }
+
+    /** Queues a payload, then delivers it. */
+    @Benchmark
+    public final int onPayload() {
+        // Queue the Payload.
+        this.mChirpDispatcher.onPayload(this.mChirpFactory, this.mPayload, 0, this.mPayload.length);
+        // Deliver it.
+        return this.mChirpDispatcher.deliver(1);
+    }
+
+    /** Queues a payload whilst the listener has fallen behind; the oldest is dropped to make room. */
+    @Benchmark
+    public final int onOverflow() {
+        // Queue the Payload.
+        this.mFull.onPayload(this.mChirpFactory, this.mPayload, 0, this.mPayload.length);
+        // Return the number of Payloads, so the work can't be eliminated.
+        return this.mPayloads;
+    }
+
+}
@@ -0,0 +1,57 @@
+package io.github.cawfree.chirp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** Measures framing; i.e. everything Chirp.chirp() does to a payload before it's queued for synthesis. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChirpEncoderBenchmark {
+
+    /* Member Variables. */
+    private ChirpEncoder mChirpEncoder;
+    private String       mPayload;
+    private int[]        mHeader;
+    private int[]        mChirpBuffer;
+    private int[]        mSymbols;
+
+    @Setup
+    public final void onSetup() {
+        // Allocate the ChirpEncoder.
+        this.mChirpEncoder = new ChirpEncoder(ChirpFactory.PROFILE_85_MS);
+        // Declare the Payload. (The example used by the Chirp developer guide.)
+        this.mPayload      = "n3a67aai1o";
+        // Allocate the Header; the identifier and payload, which each in-place encode starts from.
+        this.mHeader       = this.mChirpEncoder.getChirpBuffer();
+        this.mChirpEncoder.indices(this.mPayload, this.mHeader, ChirpFactory.PROFILE_85_MS.getIdentifier().length());
+        // Allocate the reusable buffers.
+        this.mChirpBuffer  = new int[this.mHeader.length];
+        this.mSymbols      = new int[ChirpFactory.PROFILE_85_MS.getEncodedLength()];
+    }
+
+    /** Frames a textual payload, as Chirp.chirp(String) does. */
+    @Benchmark
+    public final int[] encode() {
+        return this.mChirpEncoder.encode(this.mPayload);
+    }
+
+    /** Frames a payload into buffers we already hold; this is the floor for the work framing has to do. */
+    @Benchmark
+    public final int[] encodeInPlace() {
+        // Restore the Header. (The codec writes the error symbols into the ChirpBuffer.)
+        System.arraycopy(this.mHeader, 0, this.mChirpBuffer, 0, this.mHeader.length);
+        // Encode the ChirpBuffer.
+        this.mChirpEncoder.encode(this.mChirpBuffer, this.mSymbols);
+        // Return the Symbols.
+        return this.mSymbols;
+    }
+
+}
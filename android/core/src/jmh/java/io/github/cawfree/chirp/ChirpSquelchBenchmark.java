@@ -0,0 +1,70 @@
+package io.github.cawfree.chirp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Measures what a segment of silence costs the receive path, with and without a squelch in front of it. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChirpSquelchBenchmark {
+
+    /* Static Declarations. */
+    private static final int SAMPLE_RATE = 44100;
+
+    /* Member Variables. */
+    private ChirpSquelch  mChirpSquelch;
+    private ChirpReceiver mChirpReceiver;
+    private ChirpReceiver mSquelched;
+    private float[]       mSegment;
+
+    @Setup
+    public final void onSetup() {
+        // Fetch the ChirpFactory.
+        final ChirpFactory lChirpFactory = ChirpFactory.PROFILE_85_MS;
+        // Allocate the ChirpSquelch and the ChirpReceivers; one measures everything, and the other is squelched.
+        this.mChirpSquelch  = new ChirpSquelch(lChirpFactory, ChirpSquelchBenchmark.SAMPLE_RATE, ChirpFileDecoder.DEFAULT_SUBSAMPLES);
+        this.mChirpReceiver = new ChirpReceiver(lChirpFactory, ChirpSquelchBenchmark.SAMPLE_RATE, ChirpFileDecoder.DEFAULT_SUBSAMPLES);
+        this.mSquelched     = new ChirpReceiver(lChirpFactory, ChirpSquelchBenchmark.SAMPLE_RATE, ChirpFileDecoder.DEFAULT_SUBSAMPLES);
+        this.mSquelched.setSquelch(new ChirpSquelch(lChirpFactory, ChirpSquelchBenchmark.SAMPLE_RATE, ChirpFileDecoder.DEFAULT_SUBSAMPLES));
+        // Allocate the Segment; a little background noise, the same on every run.
+        final Random lRandom = new Random(1L);
+        this.mSegment       = new float[this.mChirpSquelch.getSegment()];
+        for(int i = 0; i < this.mSegment.length; i++) {
+            this.mSegment[i] = (float)(lRandom.nextGaussian() * 0.01);
+        }
+    }
+
+    /** Decides whether a segment is worth measuring. */
+    @Benchmark
+    public final boolean onSquelch() {
+        return this.mChirpSquelch.onSegment(this.mSegment, 0);
+    }
+
+    /** Measures a segment, and hands it to the decoder. */
+    @Benchmark
+    public final long onReceive() {
+        // Process the Segment.
+        this.mChirpReceiver.process(this.mSegment, 0, this.mSegment.length);
+        // Return the Position, so the work can't be eliminated.
+        return this.mChirpReceiver.getPosition();
+    }
+
+    /** Processes a segment whilst squelched; once the floor has settled, nothing is measured. */
+    @Benchmark
+    public final long onSquelched() {
+        // Process the Segment.
+        this.mSquelched.process(this.mSegment, 0, this.mSegment.length);
+        // Return the Position, so the work can't be eliminated.
+        return this.mSquelched.getPosition();
+    }
+
+}
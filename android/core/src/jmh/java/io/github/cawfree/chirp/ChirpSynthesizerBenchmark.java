@@ -0,0 +1,72 @@
+package io.github.cawfree.chirp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** Measures synthesis; rendering an encoded chirp into 16-bit PCM, whole or a block at a time. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChirpSynthesizerBenchmark {
+
+    /* Benchmark Parameters. */
+    @Param({ "85", "20" })
+    public int mSymbolPeriodMs;
+    @Param({ "1", "2" })
+    public int mBands;
+
+    /* Member Variables. */
+    private ChirpSynthesizer       mChirpSynthesizer;
+    private ChirpTransmitter       mChirpTransmitter;
+    private int[]                  mSymbols;
+    private short[]                mBuffer;
+    private ChirpTransmitter.ISink mSink;
+    private long                   mWritten;
+
+    @Setup
+    public final void onSetup() {
+        // Allocate the ChirpFactory. (Multiple bands need linearly-spaced tones to fit within the audible range.)
+        final ChirpFactory lChirpFactory = (this.mBands == 1) ? new ChirpFactory.Builder().setSymbolPeriodMs(this.mSymbolPeriodMs).build() : new ChirpFactory.Builder().setSymbolPeriodMs(this.mSymbolPeriodMs).setBands(this.mBands).setSpacing(110.0).setBaseFrequency(1000.0).build();
+        // Allocate the ChirpSynthesizer and the ChirpTransmitter. (These render into separate buffers, so they needn't share.)
+        this.mChirpSynthesizer = new ChirpSynthesizer(lChirpFactory, ChirpBenchmark.SAMPLE_RATE);
+        this.mChirpTransmitter = new ChirpTransmitter(new ChirpSynthesizer(lChirpFactory, ChirpBenchmark.SAMPLE_RATE));
+        // Frame a Payload.
+        this.mSymbols          = new ChirpEncoder(lChirpFactory).encode("n3a67aai1o");
+        // Allocate a Buffer for a single period.
+        this.mBuffer           = new short[this.mChirpSynthesizer.getSymbolSamples()];
+        // Allocate the Sink; it only counts what it's given. (Capturing a lambda per call would count towards our allocations.)
+        this.mSink             = (pBuffer, pSizeInBytes) -> this.mWritten += pSizeInBytes;
+        // Render once, so that the internal buffer has already grown.
+        this.mChirpSynthesizer.generate(this.mSymbols, this.mSymbols.length);
+    }
+
+    /** Renders an entire chirp into the synthesizer's buffer. */
+    @Benchmark
+    public final int generate() {
+        return this.mChirpSynthesizer.generate(this.mSymbols, this.mSymbols.length);
+    }
+
+    /** Renders a single symbol period; the unit of work the transmitter streams. */
+    @Benchmark
+    public final int onPeriod() {
+        return this.mChirpSynthesizer.onPeriod(this.mSymbols, 0, this.mSymbols.length, this.mBuffer, 0);
+    }
+
+    /** Streams an entire chirp to a sink, a block at a time, as the ChirpScheduler does. */
+    @Benchmark
+    public final long transmit() {
+        // Stream the Symbols.
+        this.mChirpTransmitter.transmit(this.mSymbols, this.mSymbols.length, this.mSink);
+        // Return the running total, so the work can't be eliminated.
+        return this.mWritten;
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.github.cawfree.chirp;
+
+import com.google.zxing.common.reedsolomon.GenericGF;
+import com.google.zxing.common.reedsolomon.ReedSolomonDecoder;
+import com.google.zxing.common.reedsolomon.ReedSolomonException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/** Measures Reed/Solomon decoding of a single frame, alongside zxing's decoder for the same field; the one we used to depend upon. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReedSolomonCodecBenchmark {
+
+    /* Benchmark Parameters. */
+    /** The number of symbols in error. (The default profile corrects up to four.) */
+    @Param({ "0", "2", "4" })
+    public int mErrors;
+
+    /* Member Variables. */
+    private ReedSolomonCodec   mReedSolomonCodec;
+    private ReedSolomonDecoder mReedSolomonDecoder;
+    private int                mErrorLength;
+    private int[]              mReceived;
+    private int[]              mCodeword;
+
+    @Setup
+    public final void onSetup() {
+        // Fetch the ChirpFactory.
+        final ChirpFactory lChirpFactory = ChirpFactory.PROFILE_85_MS;
+        // Allocate the Decoders.
+        this.mReedSolomonCodec   = new ReedSolomonCodec(lChirpFactory);
+        this.mReedSolomonDecoder = new ReedSolomonDecoder(new GenericGF(lChirpFactory.getRange().getGaloisPolynomial(), lChirpFactory.getRange().getFrameLength() + 1, 1));
+        this.mErrorLength        = lChirpFactory.getErrorLength();
+        // Allocate a Codeword.
+        final ChirpEncoder lChirpEncoder = new ChirpEncoder(lChirpFactory);
+        this.mReceived           = lChirpEncoder.getChirpBuffer();
+        lChirpEncoder.indices("n3a67aai1o", this.mReceived, lChirpFactory.getIdentifier().length());
+        this.mReedSolomonCodec.encode(this.mReceived, this.mReceived.length);
+        // Corrupt the Codeword; spread the errors across data, padding and error symbols alike.
+        for(int i = 0; i < this.mErrors; i++) {
+            this.mReceived[7 * i] ^= 1 + i;
+        }
+        // Allocate the working Codeword; both decoders correct in place.
+        this.mCodeword           = new int[this.mReceived.length];
+    }
+
+    /** Decodes the frame using our codec. */
+    @Benchmark
+    public final int decode() {
+        // Restore the received Codeword.
+        System.arraycopy(this.mReceived, 0, this.mCodeword, 0, this.mReceived.length);
+        // Decode the Codeword.
+        return this.mReedSolomonCodec.decode(this.mCodeword, this.mCodeword.length);
+    }
+
+    /** Decodes the frame using zxing. */
+    @Benchmark
+    public final int decodeZxing() {
+        // Restore the received Codeword.
+        System.arraycopy(this.mReceived, 0, this.mCodeword, 0, this.mReceived.length);
+        // Decode the Codeword.
+        try {
+            this.mReedSolomonDecoder.decode(this.mCodeword, this.mErrorLength);
+        }
+        catch(final ReedSolomonException pReedSolomonException) {
+            // Report the failure the way our codec does.
+            return ReedSolomonCodec.DECODE_FAILURE;
+        }
+        // Return the first symbol, so the work can't be eliminated.
+        return this.mCodeword[0];
+    }
+
+    /** Encodes the frame, for comparison. */
+    @Benchmark
+    public final int encode() {
+        // Restore the received Codeword.
+        System.arraycopy(this.mReceived, 0, this.mCodeword, 0, this.mReceived.length);
+        // Encode the Codeword.
+        this.mReedSolomonCodec.encode(this.mCodeword, this.mCodeword.length);
+        // Return the last error symbol, so the work can't be eliminated.
+        return this.mCodeword[this.mCodeword.length - 1];
+    }
+
+}
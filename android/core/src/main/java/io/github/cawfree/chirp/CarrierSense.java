@@ -0,0 +1,60 @@
+package io.github.cawfree.chirp;
+
+/**
+ * Decides whether the acoustic medium is in use, based upon the in-band energy measured by the receive path. The energy is smoothed over a few
+ * segments and compared against a slowly-adapting estimate of the noise floor; anything sufficiently louder than the floor is treated as a carrier.
+ */
+public class CarrierSense {
+
+    /* Static Declarations. */
+    public  static final double DEFAULT_RATIO   = 8.0;    // How far above the noise floor (in power) we consider the medium busy. (~9dB.)
+    private static final double SMOOTHING       = 0.25;   // The weight given to each new segment's energy.
+    private static final double FLOOR_RISE      = 1.001;  // How quickly the noise floor is allowed to creep back up, per segment.
+    private static final double FLOOR_MINIMUM   = 1.0E-9; // Prevents a perfectly silent input from making everything look busy.
+
+    /* Member Variables. */
+    private final    double  mRatio;
+    private          double  mEnergy;
+    private          double  mFloor;
+    private volatile boolean mBusy;
+
+    /** Constructor. */
+    public CarrierSense() {
+        this(CarrierSense.DEFAULT_RATIO);
+    }
+
+    /** Constructor. */
+    public CarrierSense(final double pRatio) {
+        // Initialize Member Variables.
+        this.mRatio  = pRatio;
+        this.mEnergy = 0.0;
+        this.mFloor  = Double.POSITIVE_INFINITY;
+        this.mBusy   = false;
+    }
+
+    /** Called by the receive path with the in-band energy of each segment. */
+    public final void onEnergy(final double pEnergy) {
+        // Smooth the Energy.
+        this.mEnergy = this.mEnergy + (pEnergy - this.mEnergy) * CarrierSense.SMOOTHING;
+        // Track the Floor; follow it down immediately, but only let it rise slowly. (Long carriers shouldn't become the floor.)
+        this.mFloor  = Math.max(CarrierSense.FLOOR_MINIMUM, Math.min(this.mFloor * CarrierSense.FLOOR_RISE, this.mEnergy));
+        // Update the Busy state.
+        this.mBusy   = this.mEnergy > this.mFloor * this.getRatio();
+    }
+
+    /** Called by the receive path in place of onEnergy() whilst it isn't measuring tones; it's squelched, so the band must be quiet. */
+    public final void onQuiet() {
+        this.mBusy = false;
+    }
+
+    /** Returns whether the medium currently appears to be in use. Safe to call from any thread. */
+    public final boolean isBusy() {
+        return this.mBusy;
+    }
+
+    /* Getters. */
+    public final double getRatio() {
+        return this.mRatio;
+    }
+
+}
@@ -0,0 +1,347 @@
+package io.github.cawfree.chirp;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures the receive path against a simulated channel. A run synthesizes a stream of random frames exactly as Chirp would transmit them, passes
+ * it through a ChirpChannel and hands the result to a ChirpReceiver, a block at a time. We report the share of frames which were delivered intact,
+ * the symbol error rate ahead of the Reed/Solomon decoder, how long after a frame ended it was delivered, and how much CPU time the receiver needed
+ * per second of audio. Everything but the CPU time is reproducible from the seed. Requires nothing from Android.
+ *
+ * The symbol error rate is measured with ideal timing; each symbol is read by the detector at the segment which ends closest to the end of its
+ * period (or a segment either side, whichever reads the frame best), just as the best-aligned sub-sampling phase of the decoder would see it.
+ */
+public class ChirpBenchmark {
+
+    /* Static Declarations. */
+    public  static final int    DEFAULT_FRAMES = 40;
+    public  static final int    SAMPLE_RATE    = 44100; // (Matches Chirp.)
+    private static final int    BLOCK_SAMPLES  = 4096;
+    private static final double GAP_SECONDS    = 0.25;  // Silence ahead of each frame; a random fraction of a symbol is added on top.
+
+    /** The outcome of a single run. */
+    public static final class Result {
+        /* Member Variables. */
+        private final int    mFrames;
+        private final int    mDecoded;
+        private final int    mFalse;
+        private final long   mSymbols;
+        private final long   mErrors;
+        private final double mLatency;
+        private final double mMaximumLatency;
+        private final double mCpu;
+        /** Constructor. */
+        public Result(final int pFrames, final int pDecoded, final int pFalse, final long pSymbols, final long pErrors, final double pLatency, final double pMaximumLatency, final double pCpu) {
+            // Initialize Member Variables.
+            this.mFrames         = pFrames;
+            this.mDecoded        = pDecoded;
+            this.mFalse          = pFalse;
+            this.mSymbols        = pSymbols;
+            this.mErrors         = pErrors;
+            this.mLatency        = pLatency;
+            this.mMaximumLatency = pMaximumLatency;
+            this.mCpu            = pCpu;
+        }
+        /* Getters. */
+        public final int    getFrames()         { return this.mFrames;         }
+        public final int    getDecoded()        { return this.mDecoded;        }
+        /** Returns the number of payloads delivered which were never sent. */
+        public final int    getFalse()          { return this.mFalse;          }
+        public final double getFrameSuccess()   { return (this.getFrames()  == 0) ? 0.0 : (double)this.getDecoded() / this.getFrames(); }
+        public final double getSymbolErrors()   { return (this.mSymbols     == 0) ? 0.0 : (double)this.mErrors     / this.mSymbols;     }
+        /** Returns the mean time from the end of a frame, as received, until it was delivered; in milliseconds of audio. (Negative when the last symbol could be read before its period had finished.) */
+        public final double getLatency()        { return this.mLatency;        }
+        public final double getMaximumLatency() { return this.mMaximumLatency; }
+        /** Returns the CPU time spent by the receiver per second of audio, in milliseconds. */
+        public final double getCpu()            { return this.mCpu;            }
+    }
+
+    /* Member Variables. */
+    private final ChirpFactory           mChirpFactory;
+    private final ChirpFactory.IDetector mDetector;
+    private final int                    mSubsamples;
+    private       boolean                mSquelched;
+
+    /** Constructor. */
+    public ChirpBenchmark(final ChirpFactory pChirpFactory, final ChirpFactory.IDetector pDetector, final int pSubsamples) {
+        // Initialize Member Variables.
+        this.mChirpFactory = pChirpFactory;
+        this.mDetector     = pDetector;
+        this.mSubsamples   = pSubsamples;
+        this.mSquelched    = false;
+    }
+
+    /** Sends the given number of random frames through the channel, and measures how well they're received. */
+    public final ChirpBenchmark.Result run(final ChirpChannel pChannel, final int pFrames, final long pSeed) {
+        // Fetch the Lengths.
+        final int              lHeader      = this.getChirpFactory().getIdentifier().length() + this.getChirpFactory().getPayloadLength();
+        final int              lLength      = this.getChirpFactory().getEncodedLength();
+        final int              lSymbols     = this.getChirpFactory().getRange().getCharacters().length();
+        // Allocate the transmit path.
+        final ChirpSynthesizer lSynthesizer = new ChirpSynthesizer(this.getChirpFactory(), pChannel.getSampleRate());
+        final ChirpTransmitter lTransmitter = new ChirpTransmitter(lSynthesizer);
+        final ChirpEncoder     lEncoder     = new ChirpEncoder(this.getChirpFactory());
+        // Declare the Stream; everything we've transmitted so far.
+        final float[][]        lStream      = new float[][] { new float[0] };
+        final int[]            lFill        = new int[] { 0 };
+        // Declare what we sent; the encoded symbols of each frame, where it began, and which frame each payload belongs to.
+        final int[][]          lSent        = new int[pFrames][];
+        final long[]           lStarts      = new long[pFrames];
+        final Map<String, Integer> lPayloads = new HashMap<>();
+        // Declare the Random; the frames are reproducible.
+        final Random           lRandom      = new Random(pSeed);
+        // Iterate the Frames.
+        for(int i = 0; i < pFrames; i++) {
+            // Allocate the ChirpBuffer.
+            final int[] lChirpBuffer = lEncoder.getChirpBuffer();
+            // Generate the Payload.
+            for(int j = this.getChirpFactory().getIdentifier().length(); j < lHeader; j++) {
+                lChirpBuffer[j] = lRandom.nextInt(lSymbols);
+            }
+            // Remember which Frame carries the Payload.
+            lPayloads.putIfAbsent(Arrays.toString(Arrays.copyOfRange(lChirpBuffer, this.getChirpFactory().getIdentifier().length(), lHeader)), i);
+            // Encode the ChirpBuffer.
+            lSent[i] = lEncoder.encode(lChirpBuffer);
+            // Leave a Gap.
+            lFill[0] += (int)(ChirpBenchmark.GAP_SECONDS * pChannel.getSampleRate()) + lRandom.nextInt(lSynthesizer.getSymbolSamples());
+            lStarts[i] = lFill[0];
+            // Transmit the Frame, appending each block to the Stream.
+            lTransmitter.transmit(lSent[i], lLength, (pBuffer, pSizeInBytes) -> {
+                // Fetch the Samples.
+                final ShortBuffer lSamples = pBuffer.asShortBuffer();
+                // Make room for the Samples.
+                if(lFill[0] + lSamples.remaining() > lStream[0].length) {
+                    lStream[0] = Arrays.copyOf(lStream[0], Math.max(2 * lStream[0].length, lFill[0] + lSamples.remaining()));
+                }
+                // Append the Samples.
+                while(lSamples.hasRemaining()) {
+                    lStream[0][lFill[0]++] = lSamples.get() / 32768.0f;
+                }
+            });
+        }
+        // Pass the Stream through the Channel. (Leave a trailing gap, so the last frame can finish decoding.)
+        final float[]       lReceived = pChannel.process(Arrays.copyOf(lStream[0], lFill[0] + (int)(ChirpBenchmark.GAP_SECONDS * pChannel.getSampleRate())));
+        // Allocate the receive path.
+        final ChirpReceiver lReceiver = new ChirpReceiver(this.getChirpFactory(), this.getDetector(), pChannel.getSampleRate(), this.getSubsamples());
+        final int           lSegment  = ChirpReceiver.getSegmentSamples(this.getChirpFactory(), pChannel.getSampleRate(), this.getSubsamples());
+        // Allocate the Pitches and Confidences measured for each segment of each band; these let us measure the symbol error rate afterwards.
+        final float[][]     lPitches     = new float[this.getChirpFactory().getBands()][lReceived.length / lSegment + 1];
+        final float[][]     lConfidences = new float[this.getChirpFactory().getBands()][lReceived.length / lSegment + 1];
+        final int[]         lSegments    = new int[] { 0 };
+        // Are we squelched? (Segments it skips are left unread.)
+        if(this.isSquelched()) {
+            lReceiver.setSquelch(new ChirpSquelch(this.getChirpFactory(), pChannel.getSampleRate(), this.getSubsamples()));
+        }
+        // Record every measured Segment.
+        lReceiver.setGate(pToneBank -> {
+            // Fetch the Segment; the squelch may have skipped some, and replays others after the fact.
+            final int lIndex = (int)(lReceiver.getPosition() / lSegment) - 1;
+            // Iterate the Bands.
+            for(int i = 0; i < lPitches.length; i++) {
+                lPitches[i][lIndex]     = (float)pToneBank.getPitches()[i];
+                lConfidences[i][lIndex] = (float)pToneBank.getConfidences()[i];
+            }
+            // Track how many Segments we've passed.
+            lSegments[0] = Math.max(lSegments[0], lIndex + 1);
+            // Let everything through.
+            return true;
+        });
+        // Declare the decoding results.
+        final boolean[]     lDecoded  = new boolean[pFrames];
+        final int[]         lFalse    = new int[] { 0 };
+        final double[]      lLatency  = new double[] { 0.0, Double.NEGATIVE_INFINITY };
+        // Listen for Payloads.
+        lReceiver.setListener(new ChirpFactory.IListener() {
+            /** Matches the Payload against the frames we sent. */
+            @Override public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) {
+                // Fetch the Frame.
+                final Integer lIndex = lPayloads.get(Arrays.toString(Arrays.copyOfRange(pSymbols, pOffset, pOffset + pLength)));
+                // Was the Payload never sent?
+                if(lIndex == null) {
+                    lFalse[0]++;
+                    return;
+                }
+                // Is this the first time we've received the Frame?
+                if(!lDecoded[lIndex]) {
+                    // Fetch how long after the end of the Frame we've been called, in milliseconds.
+                    final double lDelay = (lReceiver.getPosition() - pChannel.getPosition(lStarts[lIndex] + lSynthesizer.getPeriods(lLength) * lSynthesizer.getSymbolSamples())) * 1000.0 / pChannel.getSampleRate();
+                    // Accumulate the Latency.
+                    lDecoded[lIndex] = true;
+                    lLatency[0]     += lDelay;
+                    lLatency[1]      = Math.max(lLatency[1], lDelay);
+                }
+            }
+            /** The ChirpDecoder always calls onPayload() instead. */
+            @Override public final void onChirp(final String pMessage) { }
+        });
+        // Fetch when we started.
+        final long          lStart    = System.nanoTime();
+        // Receive the Stream, a block at a time.
+        for(int i = 0; i < lReceived.length; i += ChirpBenchmark.BLOCK_SAMPLES) {
+            lReceiver.process(lReceived, i, Math.min(ChirpBenchmark.BLOCK_SAMPLES, lReceived.length - i));
+        }
+        // Fetch how long the receiver took.
+        final long          lNanos    = System.nanoTime() - lStart;
+        // Declare the symbol error count.
+              long          lErrors   = 0L;
+        // Iterate the Frames.
+        for(int i = 0; i < pFrames; i++) {
+            // Count the errors when reading the Frame at each alignment around the ideal one, keeping the best.
+            int lBest = Integer.MAX_VALUE;
+            for(int lShift = -1; lShift <= 1; lShift++) {
+                lBest = Math.min(lBest, this.getErrors(lSent[i], lStarts[i], lShift, pChannel, lSynthesizer.getSymbolSamples(), lSegment, lPitches, lConfidences, lSegments[0]));
+            }
+            lErrors += lBest;
+        }
+        // Count the decoded Frames.
+        int lCount = 0;
+        for(final boolean lIsDecoded : lDecoded) {
+            lCount += lIsDecoded ? 1 : 0;
+        }
+        // Return the Result.
+        return new ChirpBenchmark.Result(pFrames, lCount, lFalse[0], (long)pFrames * lLength, lErrors, (lCount == 0) ? 0.0 : lLatency[0] / lCount, (lCount == 0) ? 0.0 : lLatency[1], (lNanos / 1.0E6) / ((double)lReceived.length / pChannel.getSampleRate()));
+    }
+
+    /** Counts the symbols of a frame which the detector misreads, when every symbol is read at the segment closest to the end of its period, plus the shift. */
+    private final int getErrors(final int[] pSent, final long pStart, final int pShift, final ChirpChannel pChannel, final int pSymbolSamples, final int pSegment, final float[][] pPitches, final float[][] pConfidences, final int pSegments) {
+        // Allocate a History; just long enough for a single symbol.
+        final ChirpHistory        lHistory = new ChirpHistory(this.getSubsamples());
+        final ChirpFactory.Result lResult  = new ChirpFactory.Result();
+        // Declare the number of Errors.
+              int                 lErrors  = 0;
+        // Iterate the Symbols.
+        for(int i = 0; i < pSent.length; i++) {
+            // Fetch the Band and Period of the Symbol.
+            final int    lBand   = i % this.getChirpFactory().getBands();
+            final int    lPeriod = i / this.getChirpFactory().getBands();
+            // Fetch the last Segment of the Symbol, as received.
+            final int    lLast   = (int)Math.round(pChannel.getPosition(pStart + (long)(lPeriod + 1) * pSymbolSamples) / pSegment) - 1 + pShift;
+            // Were the Segments measured?
+            if(lLast - this.getSubsamples() + 1 < 0 || lLast >= pSegments) {
+                lErrors++;
+                continue;
+            }
+            // Fill the History with the Symbol's Segments.
+            lHistory.reset();
+            for(int j = lLast - this.getSubsamples() + 1; j <= lLast; j++) {
+                lHistory.push(pPitches[lBand][j], pConfidences[lBand][j]);
+            }
+            // Detect the Symbol.
+            this.getDetector().getSymbol(this.getChirpFactory(), lHistory, 0, this.getSubsamples(), lResult);
+            // Was the Symbol misread?
+            if(!lResult.isValid() || lResult.getSymbol() != pSent[i]) {
+                lErrors++;
+            }
+        }
+        // Return the Errors.
+        return lErrors;
+    }
+
+    /** Returns the channels we measure by default; each of the impairments in isolation, then all of them at once. */
+    public static final Map<String, ChirpChannel> getChannels(final int pSampleRate, final double pSignalToNoise, final long pSeed) {
+        // Allocate the Channels. (Keep a stable order.)
+        final Map<String, ChirpChannel> lChannels = new LinkedHashMap<>();
+        // Fetch the Room.
+        final float[]                   lRoom     = ChirpChannel.getReverb(pSampleRate, 0.3, 24, 0.5, pSeed);
+        // Allocate the Channels.
+        lChannels.put("clean",   new ChirpChannel.Builder().build(pSampleRate));
+        lChannels.put("noise",   new ChirpChannel.Builder().setSignalToNoise(pSignalToNoise).setSeed(pSeed).build(pSampleRate));
+        lChannels.put("rolloff", new ChirpChannel.Builder().setSignalToNoise(pSignalToNoise).setSeed(pSeed).setLowPass(4000.0).setHighPass(300.0).build(pSampleRate));
+        lChannels.put("reverb",  new ChirpChannel.Builder().setSignalToNoise(pSignalToNoise).setSeed(pSeed).setImpulse(lRoom).build(pSampleRate));
+        lChannels.put("drift",   new ChirpChannel.Builder().setSignalToNoise(pSignalToNoise).setSeed(pSeed).setDrift(100.0).setOffset(0.0123).build(pSampleRate));
+        lChannels.put("room",    new ChirpChannel.Builder().setSignalToNoise(pSignalToNoise).setSeed(pSeed).setLowPass(4000.0).setHighPass(300.0).setImpulse(lRoom).setDrift(100.0).setOffset(0.0123).build(pSampleRate));
+        // Return the Channels.
+        return lChannels;
+    }
+
+    /** Returns the detectors we measure by default. */
+    public static final Map<String, ChirpFactory.IDetector> getDetectors() {
+        // Allocate the Detectors.
+        final Map<String, ChirpFactory.IDetector> lDetectors = new LinkedHashMap<>();
+        lDetectors.put("mean", ChirpFactory.DETECTOR_CHIRP_MEAN);
+        // Return the Detectors.
+        return lDetectors;
+    }
+
+    /** Usage: ChirpBenchmark [--frames <n>] [--snr <dB>] [--seed <n>] [--periods <ms>,...] [--squelch]; prints a row for each period, detector and channel. */
+    public static void main(final String[] pArgs) {
+        // Declare the options.
+        int     lFrames  = ChirpBenchmark.DEFAULT_FRAMES;
+        double  lSnr     = 0.0;
+        long    lSeed    = 1L;
+        String  lPeriods = "85,60,40,20";
+        boolean lSquelch = false;
+        // Iterate the Arguments.
+        for(int i = 0; i < pArgs.length; i++) {
+            // Is this an option?
+            if("--frames".equals(pArgs[i])) {
+                lFrames  = Integer.parseInt(pArgs[++i]);
+            }
+            else if("--snr".equals(pArgs[i])) {
+                lSnr     = Double.parseDouble(pArgs[++i]);
+            }
+            else if("--seed".equals(pArgs[i])) {
+                lSeed    = Long.parseLong(pArgs[++i]);
+            }
+            else if("--periods".equals(pArgs[i])) {
+                lPeriods = pArgs[++i];
+            }
+            else if("--squelch".equals(pArgs[i])) {
+                lSquelch = true;
+            }
+            else {
+                throw new IllegalArgumentException("Unknown option \"" + pArgs[i] + "\".");
+            }
+        }
+        // Print the Header.
+        System.out.println("period\tdetector\tchannel\tframes\tsuccess\tfalse\tser\tlatency_ms\tmax_latency_ms\tcpu_ms_per_s");
+        // Iterate the Periods.
+        for(final String lPeriod : lPeriods.split(",")) {
+            // Allocate the ChirpFactory.
+            final ChirpFactory lChirpFactory = new ChirpFactory.Builder().setSymbolPeriodMs(Integer.parseInt(lPeriod.trim())).build();
+            // Iterate the Detectors.
+            for(final Map.Entry<String, ChirpFactory.IDetector> lDetector : ChirpBenchmark.getDetectors().entrySet()) {
+                // Allocate the Benchmark.
+                final ChirpBenchmark lBenchmark = new ChirpBenchmark(lChirpFactory, lDetector.getValue(), ChirpFileDecoder.DEFAULT_SUBSAMPLES);
+                lBenchmark.setSquelched(lSquelch);
+                // Iterate the Channels.
+                for(final Map.Entry<String, ChirpChannel> lChannel : ChirpBenchmark.getChannels(ChirpBenchmark.SAMPLE_RATE, lSnr, lSeed).entrySet()) {
+                    // Run the Benchmark.
+                    final ChirpBenchmark.Result lResult = lBenchmark.run(lChannel.getValue(), lFrames, lSeed);
+                    // Print the Result.
+                    System.out.println(String.format(Locale.US, "%s\t%s\t%s\t%d/%d\t%.3f\t%d\t%.4f\t%.1f\t%.1f\t%.1f", lPeriod.trim(), lDetector.getKey(), lChannel.getKey(), lResult.getDecoded(), lResult.getFrames(), lResult.getFrameSuccess(), lResult.getFalse(), lResult.getSymbolErrors(), lResult.getLatency(), lResult.getMaximumLatency(), lResult.getCpu()));
+                }
+            }
+        }
+    }
+
+    /* Getters. */
+    public final ChirpFactory getChirpFactory() {
+        return this.mChirpFactory;
+    }
+
+    public final ChirpFactory.IDetector getDetector() {
+        return this.mDetector;
+    }
+
+    public final int getSubsamples() {
+        return this.mSubsamples;
+    }
+
+    /** Sets whether the receiver is squelched; see ChirpSquelch. */
+    public final void setSquelched(final boolean pIsSquelched) {
+        this.mSquelched = pIsSquelched;
+    }
+
+    public final boolean isSquelched() {
+        return this.mSquelched;
+    }
+
+}
@@ -0,0 +1,312 @@
+package io.github.cawfree.chirp;
+
+import java.util.Random;
+
+/**
+ * A simulated acoustic channel, for measuring the receive path without a room full of phones. Transmitted PCM is delayed and resampled to model
+ * the offset and drift between two sample clocks, filtered to model the roll-off of a speaker and microphone, convolved with an impulse response to
+ * model multipath and reverb, and finally buried in white noise at a chosen signal to noise ratio. The noise (like any generated impulse response)
+ * is drawn from a seeded generator, so a given channel always degrades a given signal in exactly the same way. Requires nothing from Android.
+ */
+public class ChirpChannel {
+
+    /* Static Declarations. */
+    private static final double SILENCE = 1.0E-6; // Received samples quieter than this don't count towards the signal's power.
+
+    /** Factory Pattern. */
+    public static final class Builder {
+        /* Default Declarations. */
+        private double  mSignalToNoise  = Double.POSITIVE_INFINITY; // In dB; infinite adds no noise at all.
+        private float[] mImpulse        = new float[] { 1.0f };
+        private double  mLowPass        = 0.0;                      // Cut-off in Hz; zero disables the filter.
+        private double  mHighPass       = 0.0;
+        private double  mDrift          = 0.0;                      // How fast the transmitter's clock runs, in parts per million.
+        private double  mOffset         = 0.0;                      // In seconds.
+        private long    mSeed           = 0L;
+        /** Builds the ChirpChannel. */
+        public final ChirpChannel build(final int pSampleRate) throws IllegalStateException {
+            // Are the filters valid?
+            if(this.getLowPass() < 0.0 || this.getHighPass() < 0.0 || this.getLowPass() >= pSampleRate / 2.0 || this.getHighPass() >= pSampleRate / 2.0) {
+                // Assert that the filters are invalid.
+                throw new IllegalStateException("Filter cut-offs must lie between zero and the Nyquist frequency.");
+            }
+            // Is the timing valid?
+            if(this.getOffset() < 0.0 || this.getDrift() <= -1.0E6) {
+                // Assert that the timing is invalid.
+                throw new IllegalStateException("The offset can't be negative, and the clocks must run forwards.");
+            }
+            // Allocate and return the ChirpChannel.
+            return new ChirpChannel(pSampleRate, this.getSignalToNoise(), this.getImpulse(), this.getLowPass(), this.getHighPass(), this.getDrift(), this.getOffset(), this.getSeed());
+        }
+        /* Setters. */
+        /** Sets the ratio of the received signal's power to that of the noise, in dB. */
+        public final ChirpChannel.Builder setSignalToNoise(final double pSignalToNoise) { this.mSignalToNoise = pSignalToNoise; return this; }
+        /** Sets the impulse response of the room; e.g. getReverb() or getEcho(). The first tap is the direct path. */
+        public final ChirpChannel.Builder setImpulse(final float[] pImpulse)             { this.mImpulse       = pImpulse;       return this; }
+        /** Rolls off frequencies above the cut-off at 6dB per octave, like a small speaker. */
+        public final ChirpChannel.Builder setLowPass(final double pLowPass)              { this.mLowPass       = pLowPass;       return this; }
+        /** Rolls off frequencies below the cut-off at 6dB per octave. */
+        public final ChirpChannel.Builder setHighPass(final double pHighPass)            { this.mHighPass      = pHighPass;      return this; }
+        /** Sets how much faster the transmitter's sample clock runs than the receiver's, in parts per million. (Negative values run slower.) */
+        public final ChirpChannel.Builder setDrift(final double pDrift)                  { this.mDrift         = pDrift;         return this; }
+        /** Delays the received signal by the given number of seconds; fractions of a sample are interpolated. */
+        public final ChirpChannel.Builder setOffset(final double pOffset)                { this.mOffset        = pOffset;        return this; }
+        public final ChirpChannel.Builder setSeed(final long pSeed)                      { this.mSeed          = pSeed;          return this; }
+        /* Getters. */
+        private final double  getSignalToNoise() { return this.mSignalToNoise; }
+        private final float[] getImpulse()       { return this.mImpulse;       }
+        private final double  getLowPass()       { return this.mLowPass;       }
+        private final double  getHighPass()      { return this.mHighPass;      }
+        private final double  getDrift()         { return this.mDrift;         }
+        private final double  getOffset()        { return this.mOffset;        }
+        private final long    getSeed()          { return this.mSeed;          }
+    }
+
+    /**
+     * Generates a sparse room impulse response; the direct path, followed by reflections at random delays whose level decays by 60dB over the
+     * reverb time. The ratio is the total power of the reflections relative to the direct path.
+     */
+    public static final float[] getReverb(final int pSampleRate, final double pReverbTime, final int pReflections, final double pRatio, final long pSeed) {
+        // Allocate the Impulse; long enough to hold the entire decay.
+        final float[] lImpulse = new float[Math.max(1, (int)Math.ceil(pReverbTime * pSampleRate))];
+        // Declare the Random; this way, the room is reproducible.
+        final Random  lRandom  = new Random(pSeed);
+        // Fetch the earliest Reflection. (Nothing arrives within the first couple of milliseconds; that's still the direct path.)
+        final int     lFirst   = Math.min(lImpulse.length - 1, (int)(pSampleRate * 0.002));
+        // Declare the power of the Reflections.
+              double  lPower   = 0.0;
+        // Iterate the Reflections.
+        for(int i = 0; i < pReflections; i++) {
+            // Fetch the Delay.
+            final int    lDelay = lFirst + lRandom.nextInt(lImpulse.length - lFirst);
+            // Calculate the Level; -60dB at the reverb time. (Reflections invert at random.)
+            final double lLevel = Math.pow(10.0, -3.0 * lDelay / (pReverbTime * pSampleRate)) * (lRandom.nextBoolean() ? 1.0 : -1.0);
+            // Buffer the Reflection.
+            lImpulse[lDelay] += (float)lLevel;
+            lPower           += lLevel * lLevel;
+        }
+        // Scale the Reflections to the requested Ratio.
+        final double lScale = (lPower > 0.0) ? Math.sqrt(pRatio / lPower) : 0.0;
+        for(int i = 1; i < lImpulse.length; i++) {
+            lImpulse[i] *= (float)lScale;
+        }
+        // Assign the direct path.
+        lImpulse[0] = 1.0f;
+        // Return the Impulse.
+        return lImpulse;
+    }
+
+    /** Generates the impulse response of a single echo; e.g. a hard wall, some distance behind the receiver. */
+    public static final float[] getEcho(final int pSampleRate, final double pDelay, final double pGain) {
+        // Allocate the Impulse.
+        final float[] lImpulse = new float[(int)Math.round(pDelay * pSampleRate) + 1];
+        // Assign the direct path, and the Echo.
+        lImpulse[0]                   = 1.0f;
+        lImpulse[lImpulse.length - 1] = (float)pGain;
+        // Return the Impulse.
+        return lImpulse;
+    }
+
+    /* Member Variables. */
+    private final int     mSampleRate;
+    private final double  mSignalToNoise;
+    private final float[] mImpulse;
+    private final int[]   mTaps;
+    private final double  mLowPass;
+    private final double  mHighPass;
+    private final double  mDrift;
+    private final double  mOffset;
+    private final long    mSeed;
+
+    /** Private construction; force the Builder pattern. */
+    private ChirpChannel(final int pSampleRate, final double pSignalToNoise, final float[] pImpulse, final double pLowPass, final double pHighPass, final double pDrift, final double pOffset, final long pSeed) {
+        // Declare the number of non-zero Taps.
+        int lTaps = 0;
+        // Iterate the Impulse.
+        for(final float lTap : pImpulse) {
+            lTaps += (lTap != 0.0f) ? 1 : 0;
+        }
+        // Allocate the Taps; we only convolve with the non-zero ones, so sparse rooms stay cheap.
+        final int[] lIndices = new int[lTaps];
+        for(int i = 0, j = 0; i < pImpulse.length; i++) {
+            if(pImpulse[i] != 0.0f) {
+                lIndices[j++] = i;
+            }
+        }
+        // Initialize Member Variables.
+        this.mSampleRate    = pSampleRate;
+        this.mSignalToNoise = pSignalToNoise;
+        this.mImpulse       = pImpulse.clone();
+        this.mTaps          = lIndices;
+        this.mLowPass       = pLowPass;
+        this.mHighPass      = pHighPass;
+        this.mDrift         = pDrift;
+        this.mOffset        = pOffset;
+        this.mSeed          = pSeed;
+    }
+
+    /** Passes transmitted samples through the channel. The result includes the offset, and the tail of the impulse response. */
+    public final float[] process(final float[] pSignal) {
+        // Resample onto the receiver's clock.
+        final float[] lReceived = this.onClock(pSignal);
+        // Roll off the extremes.
+        this.onFilter(lReceived);
+        // Apply the Room.
+        final float[] lRoom     = this.onImpulse(lReceived);
+        // Bury the result in Noise.
+        this.onNoise(lRoom);
+        // Return the received Signal.
+        return lRoom;
+    }
+
+    /** Returns where a transmitted sample lands within the received signal, in (fractional) samples. */
+    public final double getPosition(final double pSample) {
+        return this.getOffset() * this.getSampleRate() + pSample / this.getRatio();
+    }
+
+    /** Returns the number of transmitted samples which make up each received sample. */
+    private final double getRatio() {
+        return 1.0 + this.getDrift() * 1.0E-6;
+    }
+
+    /** Delays and resamples the signal. (Cubic interpolation; linear would smear the upper tones.) */
+    private final float[] onClock(final float[] pSignal) {
+        // Allocate the Received signal.
+        final float[] lReceived = new float[(int)Math.ceil(this.getPosition(pSignal.length))];
+        // Iterate the Received samples.
+        for(int i = 0; i < lReceived.length; i++) {
+            // Fetch the corresponding position within the transmitted Signal.
+            final double lPosition = (i - this.getOffset() * this.getSampleRate()) * this.getRatio();
+            final int    lIndex    = (int)Math.floor(lPosition);
+            final double lFraction = lPosition - lIndex;
+            // Fetch the four neighbouring Samples. (Silence lies either side of the transmission.)
+            final double lA        = ChirpChannel.getSample(pSignal, lIndex - 1);
+            final double lB        = ChirpChannel.getSample(pSignal, lIndex);
+            final double lC        = ChirpChannel.getSample(pSignal, lIndex + 1);
+            final double lD        = ChirpChannel.getSample(pSignal, lIndex + 2);
+            // Interpolate. (Catmull-Rom.)
+            lReceived[i] = (float)(lB + 0.5 * lFraction * (lC - lA + lFraction * (2.0 * lA - 5.0 * lB + 4.0 * lC - lD + lFraction * (3.0 * (lB - lC) + lD - lA))));
+        }
+        // Return the Received signal.
+        return lReceived;
+    }
+
+    /** Returns a sample of the signal, or silence beyond either end. */
+    private static final double getSample(final float[] pSignal, final int pIndex) {
+        return (pIndex < 0 || pIndex >= pSignal.length) ? 0.0 : pSignal[pIndex];
+    }
+
+    /** Applies the first-order roll-offs, in place. */
+    private final void onFilter(final float[] pSignal) {
+        // Calculate the smoothing of each filter; zero where it's disabled.
+        final double lLow  = (this.getLowPass()  > 0.0) ? 1.0 - Math.exp(-2.0 * Math.PI * this.getLowPass()  / this.getSampleRate()) : 0.0;
+        final double lHigh = (this.getHighPass() > 0.0) ? 1.0 - Math.exp(-2.0 * Math.PI * this.getHighPass() / this.getSampleRate()) : 0.0;
+        // Declare the filter states.
+              double lLowState  = 0.0;
+              double lHighState = 0.0;
+        // Iterate the Samples.
+        for(int i = 0; i < pSignal.length; i++) {
+            // Fetch the Sample.
+            double lSample = pSignal[i];
+            // Apply the low-pass.
+            if(lLow > 0.0) {
+                lLowState += lLow * (lSample - lLowState);
+                lSample    = lLowState;
+            }
+            // Apply the high-pass; whatever a low-pass at the cut-off wouldn't let through.
+            if(lHigh > 0.0) {
+                lHighState += lHigh * (lSample - lHighState);
+                lSample    -= lHighState;
+            }
+            // Update the Sample.
+            pSignal[i] = (float)lSample;
+        }
+    }
+
+    /** Convolves the signal with the impulse response; only the non-zero taps cost anything. */
+    private final float[] onImpulse(final float[] pSignal) {
+        // Is there only a direct path? (Then there's nothing to do.)
+        if(this.getImpulse().length == 1 && this.getImpulse()[0] == 1.0f) {
+            return pSignal;
+        }
+        // Allocate the Room; long enough for the tail of the last sample.
+        final float[] lRoom = new float[pSignal.length + this.getImpulse().length - 1];
+        // Iterate the Taps.
+        for(final int lTap : this.getTaps()) {
+            // Fetch the Gain.
+            final float lGain = this.getImpulse()[lTap];
+            // Accumulate the delayed signal.
+            for(int i = 0; i < pSignal.length; i++) {
+                lRoom[lTap + i] += lGain * pSignal[i];
+            }
+        }
+        // Return the Room.
+        return lRoom;
+    }
+
+    /** Adds white Gaussian noise, in place, scaled against the power of the signal wherever it isn't silent. */
+    private final void onNoise(final float[] pSignal) {
+        // Is there any Noise to add?
+        if(Double.isInfinite(this.getSignalToNoise())) {
+            return;
+        }
+        // Declare the measurement of the Signal.
+        double lPower  = 0.0;
+        long   lActive = 0L;
+        // Iterate the Samples.
+        for(final float lSample : pSignal) {
+            // Is the Sample part of the signal?
+            if(Math.abs(lSample) > ChirpChannel.SILENCE) {
+                lPower  += lSample * lSample;
+                lActive++;
+            }
+        }
+        // Calculate the amplitude of the Noise.
+        final double lSigma  = Math.sqrt(((lActive == 0) ? 0.0 : lPower / lActive) / Math.pow(10.0, this.getSignalToNoise() / 10.0));
+        // Declare the Random; the same channel always adds the same noise.
+        final Random lRandom = new Random(this.getSeed());
+        // Iterate the Samples.
+        for(int i = 0; i < pSignal.length; i++) {
+            pSignal[i] += (float)(lRandom.nextGaussian() * lSigma);
+        }
+    }
+
+    /* Getters. */
+    public final int getSampleRate() {
+        return this.mSampleRate;
+    }
+
+    public final double getSignalToNoise() {
+        return this.mSignalToNoise;
+    }
+
+    /** Returns the impulse response of the room. */
+    public final float[] getImpulse() {
+        return this.mImpulse;
+    }
+
+    private final int[] getTaps() {
+        return this.mTaps;
+    }
+
+    public final double getLowPass() {
+        return this.mLowPass;
+    }
+
+    public final double getHighPass() {
+        return this.mHighPass;
+    }
+
+    public final double getDrift() {
+        return this.mDrift;
+    }
+
+    public final double getOffset() {
+        return this.mOffset;
+    }
+
+    public final long getSeed() {
+        return this.mSeed;
+    }
+
+}
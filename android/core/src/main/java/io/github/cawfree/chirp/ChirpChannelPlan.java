@@ -0,0 +1,104 @@
+package io.github.cawfree.chirp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Divides the spectrum into channels, so that nearby transmitters needn't collide. Every channel is a copy of a template ChirpFactory whose tones
+ * have been moved up to begin just above those of the channel beneath it, leaving a guard between them. A transmitter picks a single channel,
+ * whilst a ChirpMultiReceiver given every channel of the plan decodes all of them from the one capture stream.
+ */
+public class ChirpChannelPlan {
+
+    /* Member Variables. */
+    private final ChirpFactory       mTemplate;
+    private final double             mGuard;
+    private final List<ChirpFactory> mChannels;
+
+    /** Returns the bandwidth each channel occupies, in Hz; i.e. the distance between the base frequencies of adjacent channels. */
+    public static final double getWidth(final ChirpFactory pTemplate, final double pGuard) {
+        // Every tone holds a slot of the Spacing, and the Guard separates us from the next channel.
+        return pTemplate.getFrequencies().length * pTemplate.getSpacing() + pGuard;
+    }
+
+    /** Returns how many channels fit between the template's base frequency and the ceiling; e.g. the Nyquist frequency, or where the speaker rolls off. */
+    public static final int getCapacity(final ChirpFactory pTemplate, final double pGuard, final double pCeiling) {
+        // Fetch the span of the tones within a single channel.
+        final double lSpan = (pTemplate.getFrequencies().length - 1) * pTemplate.getSpacing();
+        // Return the number of channels whose highest tone stays beneath the Ceiling.
+        return Math.max(0, (int)Math.floor((pCeiling - pTemplate.getBaseFrequency() - lSpan) / ChirpChannelPlan.getWidth(pTemplate, pGuard)) + 1);
+    }
+
+    /** Constructor. The guard defaults to a single tone's spacing. */
+    public ChirpChannelPlan(final ChirpFactory pTemplate, final int pChannels) throws IllegalArgumentException {
+        this(pTemplate, pChannels, pTemplate.getSpacing());
+    }
+
+    /** Constructor. The template defines the lowest channel; the remainder are stacked above it, each separated by the guard (in Hz). */
+    public ChirpChannelPlan(final ChirpFactory pTemplate, final int pChannels, final double pGuard) throws IllegalArgumentException {
+        // Are the tones spaced linearly? (Semitones climb too steeply to fit more than a single channel within the audible range.)
+        if(pTemplate.getSpacing() <= 0.0) {
+            // Assert that we need linear spacing.
+            throw new IllegalArgumentException("Channels require a linear tone spacing.");
+        }
+        // Is the Plan valid?
+        if(pChannels < 1 || pGuard < 0.0) {
+            // Assert that the Plan is invalid.
+            throw new IllegalArgumentException("A plan requires at least one channel, and a guard which isn't negative.");
+        }
+        // Allocate the Channels.
+        final List<ChirpFactory> lChannels = new ArrayList<>(pChannels);
+        // Iterate the Channels.
+        for(int i = 0; i < pChannels; i++) {
+            // Move the Template up to the Channel's base frequency.
+            lChannels.add(new ChirpFactory.Builder(pTemplate).setBaseFrequency(pTemplate.getBaseFrequency() + i * ChirpChannelPlan.getWidth(pTemplate, pGuard)).build());
+        }
+        // Initialize Member Variables.
+        this.mTemplate = pTemplate;
+        this.mGuard    = pGuard;
+        this.mChannels = Collections.unmodifiableList(lChannels);
+    }
+
+    /** Returns the channel whose tones include the given frequency, or -1 if it falls outside of the plan. (Guards belong to no channel.) */
+    public final int getChannelFor(final double pFrequency) {
+        // Iterate the Channels.
+        for(int i = 0; i < this.getChannels().size(); i++) {
+            // Fetch the Frequencies.
+            final double[] lFrequencies = this.getChannels().get(i).getFrequencies();
+            // Does the Frequency fall within the Channel? (Allow half a spacing either side of the outermost tones.)
+            if(Math.abs(pFrequency - (lFrequencies[0] + lFrequencies[lFrequencies.length - 1]) / 2.0) <= lFrequencies.length * this.getTemplate().getSpacing() / 2.0) {
+                return i;
+            }
+        }
+        // The Frequency lies outside of the plan.
+        return -1;
+    }
+
+    /* Getters. */
+    public final ChirpFactory getTemplate() {
+        return this.mTemplate;
+    }
+
+    public final double getGuard() {
+        return this.mGuard;
+    }
+
+    /** Returns every channel of the plan, from the lowest to the highest. */
+    public final List<ChirpFactory> getChannels() {
+        return this.mChannels;
+    }
+
+    public final ChirpFactory getChannel(final int pChannel) {
+        return this.getChannels().get(pChannel);
+    }
+
+    /** Returns the highest tone used by the plan, in Hz. */
+    public final double getTopFrequency() {
+        // Fetch the Frequencies of the highest Channel.
+        final double[] lFrequencies = this.getChannel(this.getChannels().size() - 1).getFrequencies();
+        // Return the highest Frequency.
+        return lFrequencies[lFrequencies.length - 1];
+    }
+
+}
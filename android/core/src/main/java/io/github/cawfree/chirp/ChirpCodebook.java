@@ -0,0 +1,133 @@
+package io.github.cawfree.chirp;
+
+import java.util.Arrays;
+
+/**
+ * Maps between characters, symbol indices and tones using flat tables, so the receive path never boxes a value or searches the alphabet. Tones are
+ * spaced either linearly or by a constant ratio, so the tone nearest a pitch is found in closed form: its position along the scale (linear, or
+ * logarithmic) is rounded down, then compared against the tone above it. This finds exactly the tone a search for the nearest frequency would.
+ *
+ * Pitches can optionally be rejected if they stray too far from their nearest tone; the tolerance is the fraction of the way towards the neighbouring
+ * tone that we'll accept. (e.g. 0.5 accepts pitches up to a quarter of the gap away, 1.0 accepts anything up to the midpoint, and zero accepts any
+ * pitch at all.)
+ */
+public class ChirpCodebook {
+
+    /* Static Declarations. */
+    public static final int INDEX_INVALID = -1;
+
+    /* Member Variables. */
+    private final char[]   mCharacters;
+    private final int[]    mSymbols;
+    private final double[] mFrequencies;
+    private final double   mBaseFrequency;
+    private final boolean  mLinear;
+    private final double   mScale;
+    private final double   mTolerance;
+
+    /** Constructor. Tones climb from the base frequency by the spacing (in Hz) when it's positive, otherwise by the ratio. */
+    public ChirpCodebook(final String pCharacters, final int pBands, final double pBaseFrequency, final double pSpacing, final double pRatio, final double pTolerance) {
+        // Allocate the Symbols; the index of every character, looked up by its value. (Anything outside of the alphabet is invalid.)
+        final int[]    lSymbols     = new int[pCharacters.chars().max().orElse(-1) + 1];
+        Arrays.fill(lSymbols, ChirpCodebook.INDEX_INVALID);
+        // Iterate the Characters. (If a character repeats, the first occurrence wins; just like String.indexOf().)
+        for(int i = pCharacters.length() - 1; i >= 0; i--) {
+            lSymbols[pCharacters.charAt(i)] = i;
+        }
+        // Allocate the Frequencies; each band holds a complete set of tones, stacked one above the other.
+        final double[] lFrequencies = new double[pBands * pCharacters.length()];
+        // Generate the frequencies that correspond to each valid symbol.
+        for(int i = 0; i < lFrequencies.length; i++) {
+            lFrequencies[i] = (pSpacing > 0.0) ? (pBaseFrequency + i * pSpacing) : (pBaseFrequency * Math.pow(pRatio, i));
+        }
+        // Initialize Member Variables.
+        this.mCharacters    = pCharacters.toCharArray();
+        this.mSymbols       = lSymbols;
+        this.mFrequencies   = lFrequencies;
+        this.mBaseFrequency = pBaseFrequency;
+        this.mLinear        = (pSpacing > 0.0);
+        this.mScale         = this.isLinear() ? (1.0 / pSpacing) : (1.0 / Math.log(pRatio)); // (Tones per Hz, or per unit of log-frequency.)
+        this.mTolerance     = pTolerance;
+    }
+
+    /** Returns the index of the tone closest to the pitch. Pitches beyond either end of the scale belong to the outermost tones. */
+    public final int getToneFor(final double pPitch) {
+        // Fetch the Frequencies.
+        final double[] lFrequencies = this.getFrequencies();
+        // Is there only a single Tone?
+        if(lFrequencies.length == 1) {
+            return 0;
+        }
+        // Calculate how far along the scale the Pitch sits. (Non-positive pitches have no logarithm; these clamp to the lowest tone.)
+        final double   lPosition    = this.isLinear() ? ((pPitch - this.getBaseFrequency()) * this.getScale()) : (Math.log(pPitch / this.getBaseFrequency()) * this.getScale());
+        // Fetch the Tone beneath the Pitch, keeping room for the Tone above it.
+        final int      lBelow       = Math.max(0, Math.min(lFrequencies.length - 2, (lPosition >= 0.0) ? (int)lPosition : 0));
+        // Return whichever of the two is nearer. (Ties go to the lower tone, and rounding error can't land us on the wrong one.)
+        return (Math.abs(pPitch - lFrequencies[lBelow]) <= Math.abs(pPitch - lFrequencies[lBelow + 1])) ? lBelow : (lBelow + 1);
+    }
+
+    /** Decides whether a pitch lies close enough to its nearest tone to be trusted. */
+    public final boolean isAccepted(final double pPitch, final int pTone) {
+        // Are we accepting everything?
+        if(this.getTolerance() <= 0.0) {
+            return true;
+        }
+        // Fetch the Frequencies.
+        final double[] lFrequencies = this.getFrequencies();
+        // Fetch the Neighbour in the direction of the Pitch. (At either end of the scale, use the only neighbour there is.)
+        final int      lNeighbour   = (pPitch >= lFrequencies[pTone]) ? ((pTone == lFrequencies.length - 1) ? (pTone - 1) : (pTone + 1)) : ((pTone == 0) ? 1 : (pTone - 1));
+        // Is there no Neighbour to compare against?
+        if(lNeighbour < 0 || lNeighbour >= lFrequencies.length) {
+            return true;
+        }
+        // Does the Pitch fall within the Tolerance of the midpoint?
+        return Math.abs(pPitch - lFrequencies[pTone]) <= this.getTolerance() * Math.abs(lFrequencies[lNeighbour] - lFrequencies[pTone]) / 2.0;
+    }
+
+    /** Returns the symbol index of a character, or INDEX_INVALID if it doesn't belong to the alphabet. */
+    public final int getSymbolFor(final char pCharacter) {
+        return (pCharacter < this.mSymbols.length) ? this.mSymbols[pCharacter] : ChirpCodebook.INDEX_INVALID;
+    }
+
+    /** Returns the symbol a tone carries. (Every band repeats the alphabet.) */
+    public final int getSymbolOf(final int pTone) {
+        return pTone % this.getSize();
+    }
+
+    /** Returns the character of a symbol index. */
+    public final char getCharacter(final int pSymbol) {
+        return this.mCharacters[pSymbol];
+    }
+
+    /** Returns the frequency of a tone, in Hz. */
+    public final double getFrequency(final int pTone) {
+        return this.getFrequencies()[pTone];
+    }
+
+    /* Getters. */
+    /** Returns the number of characters in the alphabet. */
+    public final int getSize() {
+        return this.mCharacters.length;
+    }
+
+    public final double[] getFrequencies() {
+        return this.mFrequencies;
+    }
+
+    public final double getBaseFrequency() {
+        return this.mBaseFrequency;
+    }
+
+    public final boolean isLinear() {
+        return this.mLinear;
+    }
+
+    private final double getScale() {
+        return this.mScale;
+    }
+
+    public final double getTolerance() {
+        return this.mTolerance;
+    }
+
+}
@@ -0,0 +1,513 @@
+package io.github.cawfree.chirp;
+
+import java.util.Arrays;
+
+/**
+ * A streaming decoder for received chirps. Each new sample completes exactly one symbol window (the one ending at that sample), so we evaluate only
+ * that symbol and remember it. Every sub-sampling phase therefore maintains its own sequence of symbols, and a frame is only decoded once a phase
+ * has accumulated enough consecutive valid symbols to fill one. When the factory uses several bands, each band keeps its own history and a period
+ * only counts towards a run if every band yielded a valid symbol.
+ *
+ * Alongside each symbol, we remember how confident the detector was and which symbol came a close second. If a frame can't be decoded as
+ * received, the least confident symbols are declared as erasures, which lets the Reed/Solomon code repair up to twice as many of them. For the
+ * same reason, a period where a band yielded nothing no longer breaks a run; the gap is simply erased, so long as there aren't too many. As a
+ * last resort, a Chase-style search substitutes the runner-up symbols at the least confident positions and tries again.
+ *
+ * A phase which straddles the symbol boundaries still sees most of a real frame, identifier and all, so with enough of it erased it can decode
+ * to the wrong payload. Any decode that needed repairs is therefore held for a symbol period, whilst the remaining phases have their turn, and
+ * only the one which needed the least repair is delivered.
+ *
+ * The remaining phases keep on decoding the same frame once it's been delivered, and a beacon keeps on repeating it, so every delivery is checked
+ * against a cache of recently delivered frames and repeats are dropped. Nothing else is cleared, so a frame which follows straight on from the
+ * last is decoded as soon as it's been heard. Only a frame arriving sooner than that can't be real; it's a misreading of the last one, and is dropped.
+ */
+public class ChirpDecoder {
+
+    /* Static Declarations. */
+    private static final int   ERASURE_RESERVE           = 1; // Error symbols held back whenever we erase; without them, almost anything decodes.
+
+    /* Default Declarations. */
+    public static final int    DEFAULT_ERASURES          = 6;
+    public static final double DEFAULT_ERASURE_THRESHOLD = 0.5;
+    public static final int    DEFAULT_CHASE_DEPTH       = 0;
+    public static final int    DEFAULT_DUPLICATE_TTL_MS  = 0; // (Repeats are delivered, so long as they're a frame apart.)
+
+    /* Member Variables. */
+    private final ChirpFactory           mChirpFactory;
+    private final ChirpFactory.IDetector mDetector;
+    private final ChirpFactory.Result    mResult;
+    private final ReedSolomonCodec       mReedSolomonCodec;
+    private final int                    mSubsamples;
+    private final ChirpHistory[]         mHistories;
+    private final int[][]                mSymbols;
+    private final int[][]                mAlternates;
+    private final float[][]              mConfidences;
+    private final int[]                  mRuns;
+    private final int[]                  mReceived;
+    private final int[]                  mPacket;
+    private final int[]                  mPacketAlternates;
+    private final float[]                mPacketConfidences;
+    private final int[]                  mRanked;
+    private final int[]                  mCandidate;
+    private final ChirpDuplicateCache    mDuplicates;
+    private       int                    mCandidateScore;
+    private       int                    mCandidateAge;
+    private       int                    mCorrections;
+    private       int                    mPosition;
+    private       long                   mSegment;
+    private       long                   mGuard;
+    private       int                    mDuplicateTtlMs;
+    private       int                    mErasures;
+    private       double                 mErasureThreshold;
+    private       int                    mChaseDepth;
+    private       ChirpMetrics           mMetrics;
+
+    /** Constructor. */
+    public ChirpDecoder(final ChirpFactory pChirpFactory, final int pSubsamples) {
+        this(pChirpFactory, ChirpFactory.DETECTOR_CHIRP_MEAN, pSubsamples);
+    }
+
+    /** Constructor. */
+    public ChirpDecoder(final ChirpFactory pChirpFactory, final ChirpFactory.IDetector pDetector, final int pSubsamples) {
+        // Initialize Member Variables.
+        this.mChirpFactory       = pChirpFactory;
+        this.mDetector           = pDetector;
+        this.mResult             = new ChirpFactory.Result(); // (Reused for every detection.)
+        this.mReedSolomonCodec   = new ReedSolomonCodec(pChirpFactory);
+        this.mSubsamples         = pSubsamples;
+        // Allocate the Histories; each is capable of storing an entire chirp's worth of a band, with each period sampled at the sub-sampling rate.
+        this.mHistories          = new ChirpHistory[pChirpFactory.getBands()];
+        // Allocate the Symbols; the symbol (as an index into the Range) whose window ended at each sample position, for each band.
+        this.mSymbols            = new int[pChirpFactory.getBands()][pSubsamples * pChirpFactory.getEncodedPeriods()];
+        // Allocate the Alternates and Confidences; the runner-up for each symbol, and how much we trusted the winner.
+        this.mAlternates         = new int[pChirpFactory.getBands()][pSubsamples * pChirpFactory.getEncodedPeriods()];
+        this.mConfidences        = new float[pChirpFactory.getBands()][pSubsamples * pChirpFactory.getEncodedPeriods()];
+        // Allocate the Runs; the number of consecutive valid symbols seen by each sub-sampling phase.
+        this.mRuns               = new int[pSubsamples];
+        // Allocate the Packet scratch; this is reused between decode attempts. (Each attempt starts again from the Received symbols.)
+        this.mReceived           = new int[pChirpFactory.getRange().getFrameLength()];
+        this.mPacket             = new int[pChirpFactory.getRange().getFrameLength()];
+        this.mPacketAlternates   = new int[pChirpFactory.getRange().getFrameLength()];
+        this.mPacketConfidences  = new float[pChirpFactory.getRange().getFrameLength()];
+        // Allocate the Ranked positions; the least confident symbols of the candidate frame, in order.
+        this.mRanked             = new int[pChirpFactory.getEncodedLength()];
+        // Allocate the Candidate; the best repaired frame we're holding on to, and how long we've held it. (-1 when there isn't one.)
+        this.mCandidate          = new int[pChirpFactory.getRange().getFrameLength()];
+        this.mCandidateScore     = 0;
+        this.mCandidateAge       = -1;
+        this.mCorrections        = 0;
+        // Allocate the Duplicates; the frames we've recently delivered, keyed on their identifier and payload, and timed in segments.
+        this.mDuplicates         = new ChirpDuplicateCache(ChirpDuplicateCache.DEFAULT_CAPACITY, pChirpFactory.getIdentifier().length() + pChirpFactory.getPayloadLength(), 0L);
+        this.mPosition           = 0;
+        this.mSegment            = 0L;
+        this.mGuard              = Long.MIN_VALUE;
+        this.mErasures           = ChirpDecoder.DEFAULT_ERASURES;
+        this.mErasureThreshold   = ChirpDecoder.DEFAULT_ERASURE_THRESHOLD;
+        this.mChaseDepth         = ChirpDecoder.DEFAULT_CHASE_DEPTH;
+        this.mMetrics            = null;
+        // Apply the default time-to-live.
+        this.setDuplicateTtl(ChirpDecoder.DEFAULT_DUPLICATE_TTL_MS);
+        // Iterate the Bands.
+        for(int i = 0; i < this.getHistories().length; i++) {
+            // Allocate the History.
+            this.getHistories()[i] = new ChirpHistory(pSubsamples * pChirpFactory.getEncodedPeriods());
+        }
+    }
+
+    /** Buffers a new pitch sample and its confidence for each band, calling the listener if they complete a valid chirp. */
+    public final void onSamples(final double[] pSamples, final double[] pConfidences, final ChirpFactory.IListener pChirpListener) {
+        // Fetch the Phase this sample completes a symbol for.
+        final int     lPhase   = this.getPosition() % this.getSubsamples();
+        // Declare the search metric.
+              boolean lIsValid = true;
+        // Are we being measured?
+        final long    lStart   = (this.getMetrics() != null) ? System.nanoTime() : 0L;
+        // Iterate the Bands.
+        for(int i = 0; i < this.getHistories().length; i++) {
+            // Fetch the History.
+            final ChirpHistory        lHistory = this.getHistories()[i];
+            // Buffer the Pitch and the corresponding Confidence.
+            lHistory.push((float)pSamples[i], (float)pConfidences[i]);
+            // Detect the Symbol whose window ends at this sample.
+            final ChirpFactory.Result lResult  = this.getDetector().getSymbol(this.getChirpFactory(), lHistory, lHistory.getLength() - this.getSubsamples(), this.getSubsamples(), this.getResult());
+            // Is the Result valid?
+            if(lResult.isValid()) {
+                // Remember the Symbol, its runner-up and our Confidence in it.
+                this.getSymbols()[i][this.getPosition()]     = lResult.getSymbol();
+                this.getAlternates()[i][this.getPosition()]  = lResult.getAlternate();
+                this.getConfidences()[i][this.getPosition()] = (float)lResult.getConfidence();
+            }
+            else {
+                // Remember that the Symbol is missing; it can only ever be decoded as an erasure.
+                this.getSymbols()[i][this.getPosition()]     = 0;
+                this.getAlternates()[i][this.getPosition()]  = 0;
+                this.getConfidences()[i][this.getPosition()] = 0.0f;
+            }
+            // Update the search metric.
+            lIsValid &= lResult.isValid();
+            // Count the Symbol.
+            if(this.getMetrics() != null) {
+                this.getMetrics().onCount(lResult.isValid() ? ChirpMetrics.COUNTER_VALID : ChirpMetrics.COUNTER_INVALID);
+            }
+        }
+        // Record how long detection took.
+        if(this.getMetrics() != null) {
+            this.getMetrics().onStage(ChirpMetrics.STAGE_DETECT, System.nanoTime() - lStart);
+        }
+        // Did every Band yield a Symbol? (If we're allowed to erase symbols, missing ones needn't break the run; the frame is checked for too many when it's decoded.)
+        if(lIsValid || this.getErasures() > 0) {
+            // Extend the Run for this Phase. (There's no need to count beyond a frame.)
+            this.getRuns()[lPhase] = Math.min(this.getRuns()[lPhase] + 1, this.getChirpFactory().getEncodedPeriods());
+        }
+        else {
+            // The Run has been broken.
+            this.getRuns()[lPhase] = 0;
+        }
+        // Move onto the next position.
+        this.mPosition = (this.getPosition() + 1) % this.getSymbols()[0].length;
+        this.mSegment++;
+        // Has this Phase accumulated enough periods for a frame?
+        if(this.getRuns()[lPhase] >= this.getChirpFactory().getEncodedPeriods()) {
+            // Attempt to decode the frame.
+            final long lDecode = (this.getMetrics() != null) ? System.nanoTime() : 0L;
+            this.onGaydecki(pChirpListener);
+            // Record how long the attempt took.
+            if(this.getMetrics() != null) {
+                this.getMetrics().onStage(ChirpMetrics.STAGE_GAYDECKI, System.nanoTime() - lDecode);
+            }
+        }
+        // Has every other phase had the chance to better the Candidate?
+        if(this.mCandidateAge >= 0 && ++this.mCandidateAge >= this.getSubsamples()) {
+            // Deliver the Candidate.
+            this.onDeliver(pChirpListener);
+        }
+    }
+
+    /** Called when a phase has accumulated a candidate frame. The most recent symbol lies just behind the current position. */
+    private final void onGaydecki(final ChirpFactory.IListener pChirpListener) {
+        // Fetch the Lengths.
+        final int lHeader = this.getChirpFactory().getIdentifier().length() + this.getChirpFactory().getPayloadLength();
+        final int lLength  = this.getChirpFactory().getEncodedLength();
+        final int lPeriods = this.getChirpFactory().getEncodedPeriods();
+        final int lBands   = this.getChirpFactory().getBands();
+        final int lFrame   = this.getChirpFactory().getRange().getFrameLength();
+        // Fetch the number of positions we may need to rank.
+        final int lRanks   = Math.min(lLength, this.getErasures() + this.getChaseDepth());
+        // Declare the number of missing Symbols.
+              int lMissing = 0;
+        // Iterate the Symbols of the candidate frame, from oldest to newest.
+        for(int i = 0; i < lLength; i++) {
+            // Fetch the Index of the period holding this Symbol. (Periods of a phase are spaced by the sub-sampling factor, and symbols are dealt across the bands in turn.)
+            final int lIndex  = Math.floorMod(this.getPosition() - 1 - (lPeriods - 1 - i / lBands) * this.getSubsamples(), this.getSymbols()[0].length);
+            // Fetch where the Symbol belongs within the Packet. (Skip over the zero-padded region for the error symbols.)
+            final int lTarget = (i < lHeader) ? i : (lFrame - lLength + i);
+            // Update the Packetized with the corresponding index value.
+            this.getReceived()[lTarget]          = this.getSymbols()[i % lBands][lIndex];
+            this.getPacketAlternates()[lTarget]  = this.getAlternates()[i % lBands][lIndex];
+            this.getPacketConfidences()[lTarget] = this.getConfidences()[i % lBands][lIndex];
+            // Is the Symbol missing?
+            if(this.getPacketConfidences()[lTarget] == 0.0f && ++lMissing > this.getErasures()) {
+                // There are more gaps than we can erase; this can't be a frame.
+                return;
+            }
+            // Rank the Symbol amongst the least confident. (Insertion; we only ever keep a handful.)
+            int j = Math.min(i, lRanks);
+            while(j > 0 && this.getPacketConfidences()[this.getRanked()[j - 1]] > this.getPacketConfidences()[lTarget]) {
+                // Make room for the Symbol, dropping the most confident if we're full.
+                if(j < lRanks) {
+                    this.getRanked()[j] = this.getRanked()[j - 1];
+                }
+                j--;
+            }
+            if(j < lRanks) {
+                this.getRanked()[j] = lTarget;
+            }
+        }
+        // Zero the padded region.
+        Arrays.fill(this.getReceived(), lHeader, lFrame - this.getChirpFactory().getErrorLength(), 0);
+        // Attempt to Reed/Solomon Decode the symbols as they were received. (Most candidates are noise, so failure is expected.)
+        final int lHard    = (lMissing == 0) ? this.onAttempt(0, 0) : ReedSolomonCodec.DECODE_FAILURE;
+        if(lHard != ReedSolomonCodec.DECODE_FAILURE) {
+            this.onDecoded(lHard, pChirpListener);
+            return;
+        }
+        // Fetch how many of the least confident symbols are doubtful enough to erase. (This always includes the missing ones, since they rank first.)
+        int lErasures = lMissing;
+        while(lErasures < Math.min(lRanks, this.getErasures()) && this.getPacketConfidences()[this.getRanked()[lErasures]] < this.getErasureThreshold()) {
+            lErasures++;
+        }
+        // Attempt to decode with the doubtful symbols erased.
+        final int lErased  = (lErasures > 0) ? this.onAttempt(lErasures, 0) : ReedSolomonCodec.DECODE_FAILURE;
+        if(lErased != ReedSolomonCodec.DECODE_FAILURE) {
+            this.onDecoded(lErased, pChirpListener);
+            return;
+        }
+        // Iterate each combination of runner-up substitutions amongst the least confident symbols which aren't missing. (Chase search.)
+        for(int lPattern = 1; lPattern < (1 << Math.min(lRanks - lMissing, this.getChaseDepth())); lPattern++) {
+            // Attempt to decode with the substitutions; the missing symbols must still be erased.
+            final int lChased = this.onAttempt(lMissing, lPattern);
+            if(lChased != ReedSolomonCodec.DECODE_FAILURE) {
+                this.onDecoded(lChased, pChirpListener);
+                return;
+            }
+        }
+        // Count the Failure.
+        if(this.getMetrics() != null) {
+            this.getMetrics().onCount(ChirpMetrics.COUNTER_FAILURES);
+        }
+    }
+
+    /**
+     * Attempts to decode the received frame. The given number of the least confident symbols are treated as erasures, and each set bit of the
+     * pattern substitutes the runner-up at the corresponding ranked position beyond them. Returns how much repair the frame needed (twice the
+     * errors, plus the erasures), or DECODE_FAILURE.
+     */
+    private final int onAttempt(final int pErasures, final int pPattern) {
+        // Start again from the Received symbols.
+        System.arraycopy(this.getReceived(), 0, this.getPacket(), 0, this.getPacket().length);
+        // Iterate the Substitutions.
+        for(int i = 0; pPattern >>> i != 0; i++) {
+            // Is this position substituted?
+            if(((pPattern >>> i) & 1) != 0) {
+                this.getPacket()[this.getRanked()[pErasures + i]] = this.getPacketAlternates()[this.getRanked()[pErasures + i]];
+            }
+        }
+        // Decode the Packet.
+        final long lStart     = (this.getMetrics() != null) ? System.nanoTime() : 0L;
+        final int  lCorrected = this.getReedSolomonCodec().decode(this.getPacket(), this.getPacket().length, this.getRanked(), pErasures);
+        // Record how long the decode took.
+        if(this.getMetrics() != null) {
+            this.getMetrics().onStage(ChirpMetrics.STAGE_DECODE, System.nanoTime() - lStart);
+        }
+        // Did the decode fail?
+        if(lCorrected == ReedSolomonCodec.DECODE_FAILURE) {
+            return ReedSolomonCodec.DECODE_FAILURE;
+        }
+        // Fetch the number of Errors; these are the corrections which fell outside of the erased symbols. (Substituted symbols count as errors.)
+        int lErrors = lCorrected + Integer.bitCount(pPattern);
+        for(int i = 0; i < pErasures; i++) {
+            lErrors -= (this.getPacket()[this.getRanked()[i]] != this.getReceived()[this.getRanked()[i]]) ? 1 : 0;
+        }
+        // Fetch the Score.
+        final int lScore = 2 * lErrors + pErasures;
+        // Did we erase or substitute anything, and did the correction eat into the Reserve? (Garbage can almost always be "corrected" once enough of it has been erased.)
+        if((pErasures > 0 || pPattern != 0) && lScore > this.getChirpFactory().getErrorLength() - ChirpDecoder.ERASURE_RESERVE) {
+            return ReedSolomonCodec.DECODE_FAILURE;
+        }
+        // Return the Score.
+        return lScore;
+    }
+
+    /** Called once the Packet holds a valid codeword. If the identifier matches our own, it's delivered straight away when it needed no repair, and otherwise held as the Candidate if it's the best so far. */
+    private final void onDecoded(final int pScore, final ChirpFactory.IListener pChirpListener) {
+        // Declare the search metric.
+        boolean lIsValid = true;
+        // Iterate the Identifier characters.
+        for(int i = 0; i < this.getChirpFactory().getIdentifier().length(); i++) {
+            // Update the search metric.
+            lIsValid &= this.getChirpFactory().getIdentifier().charAt(i) == this.getChirpFactory().getCodebook().getCharacter(this.getPacket()[i]);
+        }
+        // Is the message directed to us, and does it improve upon the Candidate?
+        if(lIsValid && (this.mCandidateAge < 0 || pScore < this.mCandidateScore)) {
+            // Hold the Packet as the Candidate. (Keep the original age; the phases that could better it are the same.)
+            System.arraycopy(this.getPacket(), 0, this.getCandidate(), 0, this.getCandidate().length);
+            this.mCandidateScore = pScore;
+            this.mCandidateAge   = Math.max(this.mCandidateAge, 0);
+            // Count the symbols which were corrected.
+            this.mCorrections    = 0;
+            for(int i = 0; i < this.getCandidate().length; i++) {
+                this.mCorrections += (this.getCandidate()[i] != this.getReceived()[i]) ? 1 : 0;
+            }
+            // Did the frame arrive intact? (Nothing can improve on it.)
+            if(pScore == 0) {
+                this.onDeliver(pChirpListener);
+            }
+        }
+    }
+
+    /** Delivers the Candidate's payload, unless we've delivered it recently. */
+    private final void onDeliver(final ChirpFactory.IListener pChirpListener) {
+        // We're no longer holding a Candidate. (Do this first; the listener is free to reset us.)
+        this.mCandidateAge = -1;
+        // Has the frame arrived too soon after the last to be anything other than another reading of it? Otherwise, have we already delivered it? (Check
+        // the guard first; the other phases re-reading a frame mustn't keep it alive in the cache, or a repeat straight after it would be dropped.)
+        if(this.mSegment < this.mGuard || this.getDuplicates().isRecent(this.getCandidate(), 0, this.mSegment)) {
+            // Count the Duplicate.
+            if(this.getMetrics() != null) {
+                this.getMetrics().onCount(ChirpMetrics.COUNTER_DUPLICATES);
+            }
+            // Drop the Candidate.
+            return;
+        }
+        // Remember the Frame.
+        this.getDuplicates().put(this.getCandidate(), 0, this.mSegment);
+        // Nothing new can arrive until another frame has been heard.
+        this.mGuard = this.mSegment + this.getGuardSegments();
+        // Count the Frame.
+        if(this.getMetrics() != null) {
+            this.getMetrics().onFrame(this.mCorrections);
+        }
+        // Call the callback with the Payload.
+        pChirpListener.onPayload(this.getChirpFactory(), this.getCandidate(), this.getChirpFactory().getIdentifier().length(), this.getChirpFactory().getPayloadLength());
+    }
+
+    /** Returns the shortest interval between two distinct frames, in segments. Back to back, they end a frame apart; allow for one being held back. */
+    private final long getGuardSegments() {
+        return (long)Math.max(1, this.getChirpFactory().getEncodedPeriods() - 2) * this.getSubsamples();
+    }
+
+    /**
+     * Skips over segments which were never measured, such as whilst the receiver was squelched. Nothing heard before the gap can belong to a frame
+     * heard after it, so every run is broken; delivered frames are still remembered, and timed as though the gap had been heard.
+     */
+    public final void skip(final long pSegments) {
+        // Is there a gap?
+        if(pSegments <= 0L) {
+            return;
+        }
+        // Clear the Histories.
+        for(final ChirpHistory lHistory : this.getHistories()) {
+            lHistory.reset();
+        }
+        // Break every Run.
+        Arrays.fill(this.getRuns(), 0);
+        // Move past the Gap.
+        this.mSegment += pSegments;
+    }
+
+    /** Forgets all buffered samples, partially accumulated symbols and delivered frames. */
+    public final void reset() {
+        // Clear the Histories.
+        for(final ChirpHistory lHistory : this.getHistories()) {
+            lHistory.reset();
+        }
+        // Break every Run.
+        Arrays.fill(this.getRuns(), 0);
+        // Drop any Candidate.
+        this.mCandidateAge = -1;
+        // Forget the delivered Frames.
+        this.getDuplicates().clear();
+        this.mGuard        = Long.MIN_VALUE;
+    }
+
+    /* Getters. */
+    public final ChirpFactory getChirpFactory() {
+        return this.mChirpFactory;
+    }
+
+    private final ChirpFactory.IDetector getDetector() {
+        return this.mDetector;
+    }
+
+    private final ChirpFactory.Result getResult() {
+        return this.mResult;
+    }
+
+    private final ReedSolomonCodec getReedSolomonCodec() {
+        return this.mReedSolomonCodec;
+    }
+
+    public final int getSubsamples() {
+        return this.mSubsamples;
+    }
+
+    private final ChirpHistory[] getHistories() {
+        return this.mHistories;
+    }
+
+    private final int[][] getSymbols() {
+        return this.mSymbols;
+    }
+
+    private final int[][] getAlternates() {
+        return this.mAlternates;
+    }
+
+    private final float[][] getConfidences() {
+        return this.mConfidences;
+    }
+
+    private final int[] getRuns() {
+        return this.mRuns;
+    }
+
+    private final int[] getReceived() {
+        return this.mReceived;
+    }
+
+    private final int[] getPacket() {
+        return this.mPacket;
+    }
+
+    private final int[] getPacketAlternates() {
+        return this.mPacketAlternates;
+    }
+
+    private final float[] getPacketConfidences() {
+        return this.mPacketConfidences;
+    }
+
+    private final int[] getRanked() {
+        return this.mRanked;
+    }
+
+    private final int[] getCandidate() {
+        return this.mCandidate;
+    }
+
+    private final ChirpDuplicateCache getDuplicates() {
+        return this.mDuplicates;
+    }
+
+    private final int getPosition() {
+        return this.mPosition;
+    }
+
+    /** Sets the most symbols we'll erase, and how confident a symbol must be to escape erasure. (Zero erasures restores hard-decision decoding.) */
+    public final void setErasures(final int pErasures, final double pErasureThreshold) {
+        this.mErasures         = pErasures;
+        this.mErasureThreshold = pErasureThreshold;
+    }
+
+    public final int getErasures() {
+        return this.mErasures;
+    }
+
+    public final double getErasureThreshold() {
+        return this.mErasureThreshold;
+    }
+
+    /** Sets how many of the least confident symbols the Chase search may substitute; this costs up to 2^depth decode attempts per failed frame. */
+    public final void setChaseDepth(final int pChaseDepth) {
+        this.mChaseDepth = pChaseDepth;
+    }
+
+    public final int getChaseDepth() {
+        return this.mChaseDepth;
+    }
+
+    /**
+     * Sets how long a delivered frame is remembered after it was last heard, in milliseconds; hearing it again within this time drops it. Use a
+     * little longer than a beacon's repeat interval to deliver it once. Anything shorter than a frame delivers every repeat, even back to back; the
+     * guard alone drops the other readings of a frame. (As does the default.)
+     */
+    public final void setDuplicateTtl(final int pDuplicateTtlMs) {
+        // Convert the time-to-live into segments.
+        this.mDuplicateTtlMs = pDuplicateTtlMs;
+        this.getDuplicates().setTtl((long)pDuplicateTtlMs * this.getSubsamples() / this.getChirpFactory().getSymbolPeriodMs());
+    }
+
+    public final int getDuplicateTtl() {
+        return this.mDuplicateTtlMs;
+    }
+
+    /** Sets where we record how long each stage takes, and how many symbols and frames we see; null (the default) records nothing. */
+    public final void setMetrics(final ChirpMetrics pMetrics) {
+        this.mMetrics = pMetrics;
+    }
+
+    public final ChirpMetrics getMetrics() {
+        return this.mMetrics;
+    }
+
+}
@@ -0,0 +1,381 @@
+package io.github.cawfree.chirp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands received payloads over from the audio thread to the listener, so that a slow listener can never hold up capture. The receiver calls
+ * onPayload(), which copies the payload into a bounded ring and returns straight away; it never takes a lock, allocates or waits on anybody. One
+ * or more consumers take the payloads back out and call the listener, delivering up to a batch at a time before they sleep, so a burst of chirps
+ * only costs a single wake-up.
+ *
+ * The ring has a single producer and any number of consumers. Each slot carries a sequence number which says whose turn it is, and consumers claim
+ * slots by advancing a shared cursor. When the ring is full, the overflow policy decides whether the newest payload is dropped, or whether it
+ * replaces the oldest one that nobody has started delivering yet. Either way, the drop is counted.
+ *
+ * Should the listener throw a RuntimeException, the error is counted and the consumer carries on with the next payload.
+ *
+ * Consumers run on a dedicated thread by default, or on any Executor. (On runtimes which have them, an executor of virtual threads works just as
+ * well.) With more than one consumer, payloads may be delivered out of order and the listener is called concurrently.
+ */
+public class ChirpDispatcher implements ChirpFactory.IListener {
+
+    /** A listener which is told when each batch has been delivered; e.g. to upload, or to update the UI, once per batch rather than per payload. */
+    public interface IBatchListener extends ChirpFactory.IListener {
+        /** Called by a consumer once it's delivered a batch of payloads. */
+        void onBatch(final int pCount);
+    }
+
+    /* Static Declarations. */
+    public  static final int  OVERFLOW_DROP_NEWEST = 0; // Keep what's queued, and drop the payload that doesn't fit.
+    public  static final int  OVERFLOW_DROP_OLDEST = 1; // Make room by dropping the oldest payload that isn't already being delivered.
+    public  static final int  MAXIMUM_CONSUMERS    = 8;
+    private static final long IDLE_TIMEOUT_NS      = TimeUnit.MILLISECONDS.toNanos(100); // Sleeping consumers check whether they've been shut down at least this often.
+
+    /* Default Declarations. */
+    public static final int DEFAULT_CAPACITY = 16;
+    public static final int DEFAULT_OVERFLOW = ChirpDispatcher.OVERFLOW_DROP_OLDEST;
+    public static final int DEFAULT_BATCH    = 8;
+
+    /* Member Variables. */
+    private final    int                          mPayloadLength;
+    private final    int                          mOverflow;
+    private final    AtomicLongArray              mSequences;
+    private final    ChirpFactory[]               mChirpFactories;
+    private final    int[]                        mSymbols;
+    private final    int[]                        mLengths;
+    private final    AtomicLong                   mHead;
+    private          long                         mTail;
+    private final    AtomicReferenceArray<Thread> mIdle;
+    private volatile int                          mBatch;
+    private volatile int                          mGeneration;
+    private          boolean                      mRunning;
+    private volatile ChirpFactory.IListener       mListener;
+    private volatile ChirpMetrics                 mMetrics;
+
+    /** Constructor. */
+    public ChirpDispatcher(final int pPayloadLength) {
+        this(ChirpDispatcher.DEFAULT_CAPACITY, pPayloadLength, ChirpDispatcher.DEFAULT_OVERFLOW);
+    }
+
+    /** Constructor. The capacity is the number of payloads which can wait to be delivered, and must be a power of two. */
+    public ChirpDispatcher(final int pCapacity, final int pPayloadLength, final int pOverflow) throws IllegalArgumentException {
+        // Is the Capacity a power of two?
+        if(pCapacity < 1 || Integer.bitCount(pCapacity) != 1) {
+            // Assert that we can't wrap around the ring.
+            throw new IllegalArgumentException("Capacity must be a power of two (" + pCapacity + ").");
+        }
+        // Is the Overflow policy known?
+        if(pOverflow != ChirpDispatcher.OVERFLOW_DROP_NEWEST && pOverflow != ChirpDispatcher.OVERFLOW_DROP_OLDEST) {
+            // Assert that we don't know what to do when we're full.
+            throw new IllegalArgumentException("Unknown overflow policy (" + pOverflow + ").");
+        }
+        // Initialize Member Variables.
+        this.mPayloadLength  = pPayloadLength;
+        this.mOverflow       = pOverflow;
+        // Allocate the Sequences; a slot is free for the producer when it holds the producer's position, and ready for a consumer when it holds one more.
+        this.mSequences      = new AtomicLongArray(pCapacity);
+        // Allocate the Slots; each holds a single payload, along with the profile it was received with.
+        this.mChirpFactories = new ChirpFactory[pCapacity];
+        this.mSymbols        = new int[pCapacity * pPayloadLength];
+        this.mLengths        = new int[pCapacity];
+        this.mHead           = new AtomicLong(0L);
+        this.mTail           = 0L;
+        // Allocate the Idle consumers; the producer wakes one of these whenever it queues a payload.
+        this.mIdle           = new AtomicReferenceArray<>(ChirpDispatcher.MAXIMUM_CONSUMERS);
+        this.mBatch          = ChirpDispatcher.DEFAULT_BATCH;
+        this.mGeneration     = 0;
+        this.mRunning        = false;
+        this.mListener       = null;
+        this.mMetrics        = null;
+        // Iterate the Slots.
+        for(int i = 0; i < pCapacity; i++) {
+            // Every Slot starts out free.
+            this.getSequences().set(i, i);
+        }
+    }
+
+    /** Queues a payload for delivery. Called by the receiver, on the audio thread; this never blocks, and the symbols are copied before we return. */
+    @Override
+    public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) throws IllegalArgumentException {
+        // Will the Payload fit into a Slot?
+        if(pLength > this.getPayloadLength()) {
+            // Assert that the payload is too long.
+            throw new IllegalArgumentException("Payload is longer (" + pLength + ") than we were built to hold (" + this.getPayloadLength() + ").");
+        }
+        // Is anybody listening? (Don't keep payloads which nobody is going to read.)
+        if(this.getListener() == null) {
+            return;
+        }
+        // Attempt to queue the Payload. (If we're full, we're allowed to make room, and there's room to make, try again.)
+        if(!this.onOffer(pChirpFactory, pSymbols, pOffset, pLength) && !(this.getOverflow() == ChirpDispatcher.OVERFLOW_DROP_OLDEST && this.onEvict() && this.onOffer(pChirpFactory, pSymbols, pOffset, pLength))) {
+            // Count the Payload which didn't fit.
+            this.onCount(ChirpMetrics.COUNTER_DROPPED);
+        }
+    }
+
+    /** Receivers always call onPayload(). */
+    @Override
+    public final void onChirp(final String pMessage) throws UnsupportedOperationException {
+        // Assert that only payloads can be queued.
+        throw new UnsupportedOperationException("Only payloads can be dispatched.");
+    }
+
+    /** Copies the Payload into the next Slot, if it's free, and wakes a consumer. (Producer only.) */
+    private final boolean onOffer(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) {
+        // Fetch the Slot.
+        final int lSlot = (int)this.mTail & (this.getCapacity() - 1);
+        // Is the Slot still waiting to be delivered?
+        if(this.getSequences().get(lSlot) != this.mTail) {
+            return false;
+        }
+        // Fill the Slot.
+        this.mChirpFactories[lSlot] = pChirpFactory;
+        this.mLengths[lSlot]        = pLength;
+        System.arraycopy(pSymbols, pOffset, this.mSymbols, lSlot * this.getPayloadLength(), pLength);
+        // Publish the Slot. (This must be visible before we check for idle consumers, or one could go to sleep on it.)
+        this.getSequences().set(lSlot, this.mTail + 1);
+        this.mTail++;
+        // Iterate the Idle consumers.
+        for(int i = 0; i < this.getIdle().length(); i++) {
+            // Fetch the Consumer, so nobody else wakes it.
+            final Thread lThread = (this.getIdle().get(i) != null) ? this.getIdle().getAndSet(i, null) : null;
+            // Did we find one?
+            if(lThread != null) {
+                // Wake the Consumer; it'll deliver everything that's queued.
+                LockSupport.unpark(lThread);
+                break;
+            }
+        }
+        // Assert that the Payload was queued.
+        return true;
+    }
+
+    /** Drops the oldest Payload, if no consumer has claimed it yet. Its Slot is the one we're trying to fill. (Producer only.) */
+    private final boolean onEvict() {
+        // Fetch the position of the oldest Payload.
+        final long lOldest = this.mTail - this.getCapacity();
+        // Claim the Payload before a consumer does. (If one already has, it's being delivered; we have to wait for it.)
+        if(!this.getHead().compareAndSet(lOldest, lOldest + 1)) {
+            return false;
+        }
+        // Free the Slot.
+        this.getSequences().set((int)lOldest & (this.getCapacity() - 1), this.mTail);
+        // Count the Payload we dropped.
+        this.onCount(ChirpMetrics.COUNTER_DROPPED);
+        // Assert that there's room.
+        return true;
+    }
+
+    /** Counts a dropped Payload, or a Listener which threw. */
+    private final void onCount(final int pCounter) {
+        // Are we being measured?
+        if(this.getMetrics() != null) {
+            this.getMetrics().onCount(pCounter);
+        }
+    }
+
+    /** Delivers up to the given number of queued payloads to the listener, on the calling thread. Returns how many were delivered. */
+    public final int deliver(final int pMaximum) {
+        // Fetch the Listener.
+        final ChirpFactory.IListener lListener = this.getListener();
+        // Declare the number of Payloads delivered.
+              int                    lCount    = 0;
+        // Deliver Payloads until we've had our fill, or there aren't any left.
+        while(lCount < pMaximum) {
+            // Fetch the oldest Payload.
+            final long lHead     = this.getHead().get();
+            final int  lSlot     = (int)lHead & (this.getCapacity() - 1);
+            final long lSequence = this.getSequences().get(lSlot);
+            // Has the Payload not been published yet?
+            if(lSequence < lHead + 1) {
+                break;
+            }
+            // Has somebody else taken the Payload? Otherwise, attempt to claim it. (If we lose the race, look again.)
+            if(lSequence > lHead + 1 || !this.getHead().compareAndSet(lHead, lHead + 1)) {
+                continue;
+            }
+            try {
+                // Deliver the Payload. (The listener is only allowed to use the symbols during the call, so they can stay where they are.)
+                if(lListener != null) {
+                    lListener.onPayload(this.mChirpFactories[lSlot], this.mSymbols, lSlot * this.getPayloadLength(), this.mLengths[lSlot]);
+                }
+            }
+            catch(final RuntimeException pRuntimeException) {
+                // Count the Failure; a listener which throws mustn't take the consumer down with it, or nothing else would ever be delivered.
+                this.onCount(ChirpMetrics.COUNTER_ERRORS);
+            }
+            finally {
+                // Hand the Slot back to the producer, for its next time around the ring.
+                this.getSequences().set(lSlot, lHead + this.getCapacity());
+            }
+            // Count the Payload.
+            lCount++;
+        }
+        // Was anything delivered to a listener which wants to know?
+        if(lCount > 0 && lListener instanceof ChirpDispatcher.IBatchListener) {
+            try {
+                // Inform the Listener.
+                ((ChirpDispatcher.IBatchListener)lListener).onBatch(lCount);
+            }
+            catch(final RuntimeException pRuntimeException) {
+                // Count the Failure.
+                this.onCount(ChirpMetrics.COUNTER_ERRORS);
+            }
+        }
+        // Return the number of Payloads.
+        return lCount;
+    }
+
+    /** Returns whether there's nothing waiting to be delivered. (Any thread; this is only a hint, since the producer keeps on going.) */
+    public final boolean isEmpty() {
+        // Fetch the oldest Payload.
+        final long lHead = this.getHead().get();
+        // Has it been published?
+        return this.getSequences().get((int)lHead & (this.getCapacity() - 1)) < lHead + 1;
+    }
+
+    /** Starts delivering on a dedicated thread, if we aren't already. */
+    public final void start() {
+        this.start(null, 1);
+    }
+
+    /**
+     * Starts the given number of consumers on the Executor (or on dedicated threads, if it's null), if we aren't already running. Each consumer
+     * occupies its thread until we're shut down.
+     */
+    public final synchronized void start(final Executor pExecutor, final int pConsumers) throws IllegalArgumentException {
+        // Is the number of Consumers valid?
+        if(pConsumers < 1 || pConsumers > ChirpDispatcher.MAXIMUM_CONSUMERS) {
+            // Assert that we can't keep track of them.
+            throw new IllegalArgumentException("Between 1 and " + ChirpDispatcher.MAXIMUM_CONSUMERS + " consumers are supported (" + pConsumers + ").");
+        }
+        // Are we already running?
+        if(this.mRunning) {
+            return;
+        }
+        // Fetch the Generation; consumers from an earlier start will finish up and leave.
+        final int lGeneration = this.mGeneration;
+        this.mRunning         = true;
+        // Iterate the Consumers.
+        for(int i = 0; i < pConsumers; i++) {
+            // Fetch the Consumer's index.
+            final int      lIndex    = i;
+            final Runnable lConsumer = () -> this.onConsume(lIndex, lGeneration);
+            // Are we running on an Executor?
+            if(pExecutor != null) {
+                // Submit the Consumer.
+                pExecutor.execute(lConsumer);
+            }
+            else {
+                // Allocate the Thread.
+                final Thread lThread = new Thread(lConsumer, "chirp-rx");
+                // Don't hold the process open for undelivered chirps.
+                lThread.setDaemon(true);
+                // Start the Thread.
+                lThread.start();
+            }
+        }
+    }
+
+    /** Stops the consumers. Each delivers whatever's still queued before it leaves; anything queued afterwards waits for the next start(). */
+    public final synchronized void shutdown() {
+        // Are we running?
+        if(!this.mRunning) {
+            return;
+        }
+        // Move onto the next Generation.
+        this.mRunning    = false;
+        this.mGeneration = this.mGeneration + 1;
+        // Wake the Idle consumers, so they notice.
+        for(int i = 0; i < this.getIdle().length(); i++) {
+            LockSupport.unpark(this.getIdle().getAndSet(i, null));
+        }
+    }
+
+    /** Consumer loop. Delivers a batch at a time, sleeping whenever there's nothing to deliver, until its generation is shut down. */
+    private final void onConsume(final int pIndex, final int pGeneration) {
+        // Run until we're shut down, and there's nothing left to deliver.
+        while(true) {
+            // Deliver a Batch. (Go straight around for the next one.)
+            if(this.deliver(this.getBatch()) > 0) {
+                continue;
+            }
+            // Have we been shut down?
+            if(this.mGeneration != pGeneration) {
+                return;
+            }
+            // Declare that we're Idle. (Then look again; the producer may have published just before it could see us.)
+            this.getIdle().set(pIndex, Thread.currentThread());
+            if(this.isEmpty() && this.mGeneration == pGeneration) {
+                // Sleep until there's something to deliver.
+                LockSupport.parkNanos(this, ChirpDispatcher.IDLE_TIMEOUT_NS);
+            }
+            // We're no longer Idle.
+            this.getIdle().compareAndSet(pIndex, Thread.currentThread(), null);
+        }
+    }
+
+    /* Getters. */
+    /** Returns the most symbols a payload may have. */
+    public final int getPayloadLength() {
+        return this.mPayloadLength;
+    }
+
+    public final int getCapacity() {
+        return this.mSequences.length();
+    }
+
+    public final int getOverflow() {
+        return this.mOverflow;
+    }
+
+    private final AtomicLongArray getSequences() {
+        return this.mSequences;
+    }
+
+    private final AtomicLong getHead() {
+        return this.mHead;
+    }
+
+    private final AtomicReferenceArray<Thread> getIdle() {
+        return this.mIdle;
+    }
+
+    /** Sets the most payloads a consumer delivers in a batch; between batches, it checks whether it's been shut down. */
+    public final void setBatch(final int pBatch) {
+        this.mBatch = pBatch;
+    }
+
+    public final int getBatch() {
+        return this.mBatch;
+    }
+
+    /** Returns whether consumers are running. */
+    public final synchronized boolean isRunning() {
+        return this.mRunning;
+    }
+
+    /** Sets the listener; it's called by the consumers. (Or by whoever calls deliver().) Implement IBatchListener to hear about each batch. */
+    public final void setListener(final ChirpFactory.IListener pListener) {
+        this.mListener = pListener;
+    }
+
+    public final ChirpFactory.IListener getListener() {
+        return this.mListener;
+    }
+
+    /** Sets where we count the payloads which had to be dropped, and the calls to the listener which threw; null (the default) counts nothing. */
+    public final void setMetrics(final ChirpMetrics pMetrics) {
+        this.mMetrics = pMetrics;
+    }
+
+    public final ChirpMetrics getMetrics() {
+        return this.mMetrics;
+    }
+
+}
@@ -0,0 +1,136 @@
+package io.github.cawfree.chirp;
+
+import java.util.Arrays;
+
+/**
+ * Remembers recently delivered frames, so that repeats of the same chirp can be dropped before they reach the listener. An entry expires once it's
+ * gone unseen for longer than the time-to-live; hearing the frame again keeps it alive, so a beacon which repeats more often than that is only
+ * delivered once. When the cache is full, the least recently seen entry makes way. Time is measured on whatever clock the caller uses.
+ *
+ * The capacity is small and fixed, and entries are compared by hash before their symbols, so a lookup costs a bounded handful of comparisons and
+ * never allocates.
+ */
+public class ChirpDuplicateCache {
+
+    /* Default Declarations. */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /* Static Declarations. */
+    private static final long SEEN_NEVER = Long.MIN_VALUE;
+
+    /* Member Variables. */
+    private final int    mLength;
+    private final int[]  mSymbols;
+    private final int[]  mHashes;
+    private final long[] mSeen;
+    private       long   mTtl;
+
+    /** Constructor. Each entry is keyed on pLength symbols. */
+    public ChirpDuplicateCache(final int pCapacity, final int pLength, final long pTtl) throws IllegalArgumentException {
+        // Are the dimensions valid?
+        if(pCapacity < 1 || pLength < 1) {
+            // Assert that the cache can't hold anything.
+            throw new IllegalArgumentException("A cache needs room for at least one entry of at least one symbol.");
+        }
+        // Initialize Member Variables.
+        this.mLength  = pLength;
+        this.mSymbols = new int[pCapacity * pLength];
+        this.mHashes  = new int[pCapacity];
+        this.mSeen    = new long[pCapacity];
+        this.mTtl     = pTtl;
+        // Start out empty.
+        this.clear();
+    }
+
+    /** Returns whether the frame was seen within the time-to-live. If it was, it's treated as having been seen again now. */
+    public final boolean isRecent(final int[] pSymbols, final int pOffset, final long pNow) {
+        // Fetch the Entry.
+        final int lEntry = this.getEntry(pSymbols, pOffset, ChirpDuplicateCache.getHash(pSymbols, pOffset, this.getLength()), pNow);
+        // Is the Entry missing?
+        if(lEntry < 0) {
+            return false;
+        }
+        // Keep the Entry alive.
+        this.mSeen[lEntry] = pNow;
+        // The frame is a repeat.
+        return true;
+    }
+
+    /** Remembers a frame as having been seen now, making way by evicting an expired entry or, failing that, the least recently seen one. */
+    public final void put(final int[] pSymbols, final int pOffset, final long pNow) {
+        // Calculate the Hash.
+        final int lHash  = ChirpDuplicateCache.getHash(pSymbols, pOffset, this.getLength());
+        // Is the frame already held? Otherwise, find the least recently seen Entry. (Empty entries have never been seen, so they come first.)
+              int lEntry = this.getEntry(pSymbols, pOffset, lHash, pNow);
+        if(lEntry < 0) {
+            // Iterate the Entries.
+            lEntry = 0;
+            for(int i = 1; i < this.mSeen.length; i++) {
+                lEntry = (this.mSeen[i] < this.mSeen[lEntry]) ? i : lEntry;
+            }
+            // Overwrite the Entry.
+            System.arraycopy(pSymbols, pOffset, this.mSymbols, lEntry * this.getLength(), this.getLength());
+            this.mHashes[lEntry] = lHash;
+        }
+        // Remember when we saw it.
+        this.mSeen[lEntry] = pNow;
+    }
+
+    /** Forgets every frame. */
+    public final void clear() {
+        Arrays.fill(this.mSeen, ChirpDuplicateCache.SEEN_NEVER);
+    }
+
+    /** Returns the index of the live entry holding the frame, or -1 if there isn't one. */
+    private final int getEntry(final int[] pSymbols, final int pOffset, final int pHash, final long pNow) {
+        // Iterate the Entries.
+        for(int i = 0; i < this.mSeen.length; i++) {
+            // Is the Entry live, and could it hold the frame?
+            if(this.mSeen[i] != ChirpDuplicateCache.SEEN_NEVER && pNow - this.mSeen[i] <= this.getTtl() && this.mHashes[i] == pHash) {
+                // Compare the Symbols.
+                boolean lIsEqual = true;
+                for(int j = 0; j < this.getLength() && lIsEqual; j++) {
+                    lIsEqual = (this.mSymbols[i * this.getLength() + j] == pSymbols[pOffset + j]);
+                }
+                // Have we found the frame?
+                if(lIsEqual) {
+                    return i;
+                }
+            }
+        }
+        // The frame isn't held.
+        return -1;
+    }
+
+    /** Hashes a frame's symbols. */
+    private static final int getHash(final int[] pSymbols, final int pOffset, final int pLength) {
+        // Declare the Hash.
+        int lHash = 1;
+        // Iterate the Symbols.
+        for(int i = 0; i < pLength; i++) {
+            lHash = 31 * lHash + pSymbols[pOffset + i];
+        }
+        // Return the Hash.
+        return lHash;
+    }
+
+    /* Getters. */
+    /** Returns the number of symbols each frame is keyed on. */
+    public final int getLength() {
+        return this.mLength;
+    }
+
+    public final int getCapacity() {
+        return this.mSeen.length;
+    }
+
+    /** Sets how long a frame is remembered after it was last seen. */
+    public final void setTtl(final long pTtl) {
+        this.mTtl = pTtl;
+    }
+
+    public final long getTtl() {
+        return this.mTtl;
+    }
+
+}
@@ -0,0 +1,456 @@
+package io.github.cawfree.chirp;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Removes our own transmissions from the microphone signal, so that chirps from other devices can still be decoded whilst we're transmitting. The
+ * transmit path hands over every block it plays as the reference, and the receive path passes each captured block through process() before it's
+ * decoded.
+ *
+ * Neither side knows how long the audio takes to get from one to the other. At the start of each burst, the reference is pinned to wherever the
+ * microphone has got to, and once enough of the burst has been heard we find the echo by cross-correlating the two. (Using an FFT; the tones of a
+ * single symbol correlate equally well at many lags, so the search has to span a few of them. No more, though; a burst of short symbols is
+ * short.) Beyond that bulk delay, a normalized LMS filter learns the gain and the response of the room, and subtracts its estimate of the echo.
+ * Adaptation is frozen whenever the residual is louder than the echo we predicted; that's somebody else talking, which is exactly the signal we
+ * want to keep.
+ *
+ * The reference is written on the transmit thread and read on the audio thread, through a ring which is never locked. Nothing is allocated once
+ * we've been constructed. (Both clocks are assumed to run at the same rate; the delay is found again for every burst.)
+ */
+public class ChirpEchoCanceller {
+
+    /* Static Declarations. */
+    private static final int    REFERENCE_LENGTH  = 1 << 16; // Samples of reference we keep; enough to cover the output latency and the longest delay.
+    private static final int    SEARCH_SYMBOLS    = 4;       // Symbol periods of the microphone correlated against the reference. (At least; rounded up to a power of two samples.)
+    private static final int    CHUNK_LENGTH      = 256;     // Samples filtered at a time.
+    private static final double SEARCH_THRESHOLD  = 0.2;     // The normalized correlation we need before we'll trust a delay.
+    private static final double SMOOTHING         = 0.002;   // The weight given to each sample when tracking the power of the echo and the residual.
+    private static final double CONVERGED_ERLE    = 4.0;     // How much quieter (in power) the residual must be than the microphone before the filter is trusted. (~6dB.)
+    private static final double DOUBLE_TALK_RATIO = 2.0;     // Once trusted, a residual this much louder than the predicted echo means somebody else is talking.
+    private static final float  REGULARIZATION    = 1.0E-6f; // Keeps the step bounded whilst the reference is quiet. (Per tap.)
+
+    /* Default Declarations. */
+    public static final int   DEFAULT_TAPS             = 128;
+    public static final float DEFAULT_STEP             = 0.1f;
+    public static final int   DEFAULT_MAXIMUM_DELAY_MS = 200;
+
+    /* Member Variables. */
+    private final    int     mSampleRate;
+    private final    int     mSearchLength;
+    private final    int     mTaps;
+    private final    int     mLead;
+    private final    float   mStep;
+    private final    int     mMaximumDelay;
+    private final    float[] mReference;
+    private final    float[] mMicrophone;
+    private final    float[] mWeights;
+    private final    float[] mSegment;
+    private final    float[] mReal;
+    private final    float[] mImaginary;
+    private final    float[] mOtherReal;
+    private final    float[] mOtherImaginary;
+    private final    float[] mCosines;
+    private final    float[] mSines;
+    private volatile long    mWritten;
+    private volatile long    mBurst;
+    private volatile int     mVersion;
+    private volatile long    mCaptured;
+    private volatile long    mCapturedNanos;
+    private          long    mSearchBurst;
+    private          long    mNextSearch;
+    private          boolean mLocked;
+    private          long    mDelay;
+    private          boolean mConverged;
+    private          double  mEchoPower;
+    private          double  mResidualPower;
+    private          double  mMicrophonePower;
+    private          ChirpMetrics mMetrics;
+
+    /** Constructor. The echo is searched for across a few of the factory's symbols. */
+    public ChirpEchoCanceller(final ChirpFactory pChirpFactory, final int pSampleRate) {
+        this(pChirpFactory, pSampleRate, ChirpEchoCanceller.DEFAULT_TAPS, ChirpEchoCanceller.DEFAULT_STEP, ChirpEchoCanceller.DEFAULT_MAXIMUM_DELAY_MS);
+    }
+
+    /** Constructor. The filter spans the given number of taps beyond the bulk delay, which is searched for up to the maximum. */
+    public ChirpEchoCanceller(final ChirpFactory pChirpFactory, final int pSampleRate, final int pTaps, final float pStep, final int pMaximumDelayMs) throws IllegalArgumentException {
+        // Fetch the Maximum Delay, in samples.
+        final int lMaximumDelay = (int)((long)pMaximumDelayMs * pSampleRate / 1000);
+        // Fetch the Search length; the shortest power of two spanning a few symbols. (Any shorter, and a short burst would be over before we'd found it.)
+        final int lSymbols      = (int)((long)ChirpEchoCanceller.SEARCH_SYMBOLS * pChirpFactory.getSymbolPeriodMs() * pSampleRate / 1000);
+        final int lSearch       = Integer.highestOneBit(Math.max(1, lSymbols - 1)) << 1;
+        // Can the Reference hold everything we'll need to look back on?
+        if(pTaps < 1 || lMaximumDelay + pTaps + lSearch > ChirpEchoCanceller.REFERENCE_LENGTH / 2) {
+            // Assert that the delay is too long.
+            throw new IllegalArgumentException("Unable to search for a delay of " + pMaximumDelayMs + "ms using " + pTaps + " taps.");
+        }
+        // Fetch the length of the FFT; long enough to correlate the search against every delay without wrapping around.
+        int lTransform = 1;
+        while(lTransform < lSearch + lMaximumDelay) {
+            lTransform <<= 1;
+        }
+        // Initialize Member Variables.
+        this.mSampleRate      = pSampleRate;
+        this.mSearchLength    = lSearch;
+        this.mTaps            = pTaps;
+        this.mLead            = pTaps / 8; // (A few taps ahead of the bulk delay, in case the direct path arrives a little early.)
+        this.mStep            = pStep;
+        this.mMaximumDelay    = lMaximumDelay;
+        this.mReference       = new float[ChirpEchoCanceller.REFERENCE_LENGTH];
+        this.mMicrophone      = new float[lSearch];
+        this.mWeights         = new float[pTaps];
+        this.mSegment         = new float[ChirpEchoCanceller.CHUNK_LENGTH + pTaps - 1];
+        this.mReal            = new float[lTransform];
+        this.mImaginary       = new float[lTransform];
+        this.mOtherReal       = new float[lTransform];
+        this.mOtherImaginary  = new float[lTransform];
+        this.mCosines         = new float[lTransform / 2];
+        this.mSines           = new float[lTransform / 2];
+        this.mWritten         = 0L;
+        this.mBurst           = 0L;
+        this.mVersion         = 0;
+        this.mCaptured        = 0L;
+        this.mCapturedNanos   = 0L;
+        this.mSearchBurst     = 0L;
+        this.mNextSearch      = Long.MIN_VALUE;
+        this.mLocked          = false;
+        this.mDelay           = 0L;
+        this.mConverged       = false;
+        this.mEchoPower       = 0.0;
+        this.mResidualPower   = 0.0;
+        this.mMicrophonePower = 0.0;
+        this.mMetrics         = null;
+        // Iterate the Twiddles.
+        for(int i = 0; i < this.mCosines.length; i++) {
+            this.mCosines[i] = (float)Math.cos(-2.0 * Math.PI * i / lTransform);
+            this.mSines[i]   = (float)Math.sin(-2.0 * Math.PI * i / lTransform);
+        }
+    }
+
+    /** Called by the transmit path when a burst begins. The burst is pinned to the microphone's current position, estimated from when it last captured. */
+    public final void onStart() {
+        // Fetch the Position and when it was captured, consistently.
+        long lCaptured;
+        long lNanos;
+        int  lVersion;
+        do {
+            lVersion  = this.mVersion;
+            lCaptured = this.mCaptured;
+            lNanos    = this.mCapturedNanos;
+        } while((lVersion & 1) != 0 || lVersion != this.mVersion);
+        // Start the Burst where the microphone is now. (If it's never captured anything, there's nothing to go on.)
+        this.onStart(lCaptured + ((lNanos == 0L) ? 0L : Math.max(0L, (System.nanoTime() - lNanos) * this.getSampleRate() / 1000000000L)));
+    }
+
+    /** Called by the transmit path when a burst begins, with the microphone sample that the burst's first sample is played alongside. (Or earlier.) */
+    public final void onStart(final long pPosition) {
+        // Never move the Reference backwards; samples which have been written are where they are.
+        final long lStart = Math.max(pPosition, this.mWritten);
+        // Begin the Burst. (Publish the Burst first; anybody who sees the new Written position also sees where it began.)
+        this.mBurst   = lStart;
+        this.mWritten = lStart;
+    }
+
+    /** Called by the transmit path with a block of native-order 16-bit PCM, as it's handed to the output. */
+    public final void onReference(final ByteBuffer pBuffer, final int pSizeInBytes) {
+        // Fetch where we're writing.
+        final long lWritten = this.mWritten;
+        // Iterate the Samples.
+        for(int i = 0; i < pSizeInBytes / 2; i++) {
+            this.getReference()[(int)(lWritten + i) & (ChirpEchoCanceller.REFERENCE_LENGTH - 1)] = pBuffer.getShort(i * 2) / 32768.0f;
+        }
+        // Publish the Samples.
+        this.mWritten = lWritten + pSizeInBytes / 2;
+    }
+
+    /** Called by the transmit path with a block of 16-bit PCM, as it's handed to the output. */
+    public final void onReference(final short[] pSamples, final int pOffset, final int pLength) {
+        // Fetch where we're writing.
+        final long lWritten = this.mWritten;
+        // Iterate the Samples.
+        for(int i = 0; i < pLength; i++) {
+            this.getReference()[(int)(lWritten + i) & (ChirpEchoCanceller.REFERENCE_LENGTH - 1)] = pSamples[pOffset + i] / 32768.0f;
+        }
+        // Publish the Samples.
+        this.mWritten = lWritten + pLength;
+    }
+
+    /** Removes the echo of our own transmissions from a captured block, in place. Called on the audio thread. */
+    public final void process(final float[] pSamples, final int pOffset, final int pLength) {
+        // Are we being measured?
+        final long lNanos   = (this.getMetrics() != null) ? System.nanoTime() : 0L;
+        // Fetch the Reference. (Read the Written position first; it's published after the Burst.)
+        final long lWritten = this.mWritten;
+        final long lBurst   = this.mBurst;
+        // Fetch the position of the Block.
+        final long lStart   = this.mCaptured;
+        final long lEnd     = lStart + pLength;
+        // Has a new Burst begun?
+        if(lBurst != this.mSearchBurst) {
+            // Find the delay again. (Keep the Weights; the room hasn't changed, so they're a good place to start.)
+            this.mSearchBurst = lBurst;
+            this.mNextSearch  = Long.MIN_VALUE;
+            this.mLocked      = false;
+            this.mConverged   = false;
+        }
+        // Remember the Block, as captured.
+        for(int i = 0; i < pLength; i++) {
+            this.getMicrophone()[(int)(lStart + i) & (this.getSearchLength() - 1)] = pSamples[pOffset + i];
+        }
+        // Have we heard enough of the Burst to look for its echo, however late it is, and has enough changed since we last looked?
+        if(!this.isLocked() && lWritten > lBurst && lEnd - lBurst >= this.getSearchLength() + this.getMaximumDelay() && lEnd >= this.mNextSearch) {
+            // Search for the Delay.
+            this.mNextSearch = lEnd + this.getSearchLength() / 2;
+            this.onSearch(lEnd, lBurst, lWritten);
+        }
+        // Do we know where the echo is?
+        if(this.isLocked()) {
+            // Iterate the Chunks.
+            for(int i = 0; i < pLength; i += ChirpEchoCanceller.CHUNK_LENGTH) {
+                // Cancel the Chunk.
+                this.onChunk(pSamples, pOffset + i, Math.min(ChirpEchoCanceller.CHUNK_LENGTH, pLength - i), lStart + i, lBurst, lWritten);
+            }
+        }
+        // Publish how far we've got, and when. (Readers retry whilst the version is odd, or if it changes underneath them.)
+        this.mVersion       = this.mVersion + 1;
+        this.mCaptured      = lEnd;
+        this.mCapturedNanos = System.nanoTime();
+        this.mVersion       = this.mVersion + 1;
+        // Record how long cancellation took.
+        if(this.getMetrics() != null) {
+            this.getMetrics().onStage(ChirpMetrics.STAGE_ECHO, System.nanoTime() - lNanos);
+        }
+    }
+
+    /** Subtracts the estimated echo from a chunk of captured samples, adapting the filter as we go. */
+    private final void onChunk(final float[] pSamples, final int pOffset, final int pLength, final long pPosition, final long pBurst, final long pWritten) {
+        // Fetch the Filter.
+        final float[] lWeights = this.getWeights();
+        final float[] lSegment = this.getSegment();
+        final int     lTaps    = this.getTaps();
+        // Fetch the oldest Reference sample any tap will need. (The newest sample of each window feeds the first tap.)
+        final long    lOldest  = pPosition - this.getDelay() + this.getLead() - (lTaps - 1);
+        // Copy the Reference into the Segment; anything outside of the Burst, or not yet written, is silence.
+        for(int i = 0; i < pLength + lTaps - 1; i++) {
+            final long lIndex = lOldest + i;
+            lSegment[i] = (lIndex >= pBurst && lIndex < pWritten) ? this.getReference()[(int)lIndex & (ChirpEchoCanceller.REFERENCE_LENGTH - 1)] : 0.0f;
+        }
+        // Calculate the power of the first window.
+        float lNorm = 0.0f;
+        for(int j = 0; j < lTaps; j++) {
+            lNorm += lSegment[j] * lSegment[j];
+        }
+        // Iterate the Samples.
+        for(int i = 0; i < pLength; i++) {
+            // Slide the window along. (The first window is already accounted for.)
+            if(i > 0) {
+                lNorm += lSegment[i + lTaps - 1] * lSegment[i + lTaps - 1] - lSegment[i - 1] * lSegment[i - 1];
+                lNorm  = Math.max(lNorm, 0.0f);
+            }
+            // Estimate the Echo.
+            float lEcho = 0.0f;
+            for(int j = 0; j < lTaps; j++) {
+                lEcho += lWeights[j] * lSegment[i + lTaps - 1 - j];
+            }
+            // Fetch the Residual.
+            final float lMicrophone = pSamples[pOffset + i];
+            final float lResidual   = lMicrophone - lEcho;
+            // Track the power of the Microphone, the Echo and the Residual.
+            this.mMicrophonePower += (lMicrophone * lMicrophone - this.mMicrophonePower) * ChirpEchoCanceller.SMOOTHING;
+            this.mEchoPower       += (lEcho * lEcho - this.mEchoPower) * ChirpEchoCanceller.SMOOTHING;
+            this.mResidualPower   += (lResidual * lResidual - this.mResidualPower) * ChirpEchoCanceller.SMOOTHING;
+            // Has the filter started to work?
+            this.mConverged |= this.mMicrophonePower > ChirpEchoCanceller.CONVERGED_ERLE * this.mResidualPower;
+            // Is the residual louder than the echo it's left behind? (Once we trust the filter, that means somebody else is talking; don't learn from them.)
+            if(lNorm > 0.0f && !(this.isConverged() && this.mResidualPower > ChirpEchoCanceller.DOUBLE_TALK_RATIO * this.mEchoPower)) {
+                // Fetch the normalized Step.
+                final float lStep = this.getStep() * lResidual / (lNorm + lTaps * ChirpEchoCanceller.REGULARIZATION);
+                // Adapt the Weights.
+                for(int j = 0; j < lTaps; j++) {
+                    lWeights[j] += lStep * lSegment[i + lTaps - 1 - j];
+                }
+            }
+            // Replace the Sample with the Residual.
+            pSamples[pOffset + i] = lResidual;
+        }
+    }
+
+    /** Cross-correlates the most recent microphone samples against the reference, locking onto the delay of the strongest echo if it's convincing. */
+    private final void onSearch(final long pEnd, final long pBurst, final long pWritten) {
+        // Fetch the Transform.
+        final float[] lReal           = this.mReal;
+        final float[] lImaginary      = this.mImaginary;
+        final float[] lOtherReal      = this.mOtherReal;
+        final float[] lOtherImaginary = this.mOtherImaginary;
+        final int     lLength         = this.getSearchLength();
+        final int     lDelays         = this.getMaximumDelay();
+        // Fetch the first Microphone sample we'll correlate.
+        final long    lFirst          = pEnd - lLength;
+        // Clear the Transform.
+        Arrays.fill(lReal, 0.0f);
+        Arrays.fill(lImaginary, 0.0f);
+        Arrays.fill(lOtherReal, 0.0f);
+        Arrays.fill(lOtherImaginary, 0.0f);
+        // Copy the Reference, starting from the longest delay. (Anything outside of the Burst, or not yet written, is silence.)
+        for(int i = 0; i < lLength + lDelays; i++) {
+            final long lIndex = lFirst - lDelays + i;
+            lReal[i] = (lIndex >= pBurst && lIndex < pWritten) ? this.getReference()[(int)lIndex & (ChirpEchoCanceller.REFERENCE_LENGTH - 1)] : 0.0f;
+        }
+        // Copy the Microphone.
+        double lMicrophoneEnergy = 0.0;
+        for(int i = 0; i < lLength; i++) {
+            lOtherReal[i]      = this.getMicrophone()[(int)(lFirst + i) & (lLength - 1)];
+            lMicrophoneEnergy += lOtherReal[i] * lOtherReal[i];
+        }
+        // Transform both.
+        this.onTransform(lReal, lImaginary);
+        this.onTransform(lOtherReal, lOtherImaginary);
+        // Multiply the Reference by the conjugate of the Microphone; this is the spectrum of their cross-correlation. (Conjugated, for the inverse transform.)
+        for(int i = 0; i < lReal.length; i++) {
+            final float lRe = lReal[i] * lOtherReal[i] + lImaginary[i] * lOtherImaginary[i];
+            final float lIm = lImaginary[i] * lOtherReal[i] - lReal[i] * lOtherImaginary[i];
+            lReal[i]      =  lRe;
+            lImaginary[i] = -lIm;
+        }
+        // Transform back. (The result is conjugated and scaled, but we only need the real part, and only compare it against itself.)
+        this.onTransform(lReal, lImaginary);
+        // Calculate the energy of the Reference beneath the Microphone, when shifted by the longest delay.
+        double lReferenceEnergy = 0.0;
+        for(int i = 0; i < lLength; i++) {
+            final long  lIndex  = lFirst - lDelays + i;
+            final float lSample = (lIndex >= pBurst && lIndex < pWritten) ? this.getReference()[(int)lIndex & (ChirpEchoCanceller.REFERENCE_LENGTH - 1)] : 0.0f;
+            lReferenceEnergy += lSample * lSample;
+        }
+        // Iterate the Shifts; shift s correlates the Microphone against the Reference from (longest delay - s) samples earlier.
+        double lBest      = 0.0;
+        int    lBestShift = -1;
+        for(int s = 0; s <= lDelays; s++) {
+            // Normalize the Correlation.
+            final double lNormal = Math.sqrt(lReferenceEnergy * lMicrophoneEnergy);
+            final double lScore  = (lNormal > 0.0) ? Math.abs(lReal[s] / lReal.length) / lNormal : 0.0;
+            // Is this the strongest so far?
+            if(lScore > lBest) {
+                lBest      = lScore;
+                lBestShift = s;
+            }
+            // Slide the Reference energy along by a sample.
+            final long  lLeaving  = lFirst - lDelays + s;
+            final long  lEntering = lLeaving + lLength;
+            final float lOut      = (lLeaving  >= pBurst && lLeaving  < pWritten) ? this.getReference()[(int)lLeaving  & (ChirpEchoCanceller.REFERENCE_LENGTH - 1)] : 0.0f;
+            final float lIn       = (lEntering >= pBurst && lEntering < pWritten) ? this.getReference()[(int)lEntering & (ChirpEchoCanceller.REFERENCE_LENGTH - 1)] : 0.0f;
+            lReferenceEnergy      = Math.max(0.0, lReferenceEnergy + lIn * lIn - lOut * lOut);
+        }
+        // Is the Correlation convincing?
+        if(lBest >= ChirpEchoCanceller.SEARCH_THRESHOLD) {
+            // Lock onto the Delay.
+            this.mDelay  = lDelays - lBestShift;
+            this.mLocked = true;
+        }
+    }
+
+    /** An in-place, radix-2 forward FFT. The length must be a power of two, no longer than we were built for. */
+    private final void onTransform(final float[] pReal, final float[] pImaginary) {
+        // Fetch the Length.
+        final int lLength = pReal.length;
+        // Reorder the Samples by bit-reversed index.
+        for(int i = 1, j = 0; i < lLength; i++) {
+            int lBit = lLength >> 1;
+            for(; (j & lBit) != 0; lBit >>= 1) {
+                j ^= lBit;
+            }
+            j ^= lBit;
+            if(i < j) {
+                final float lRe = pReal[i];      pReal[i]      = pReal[j];      pReal[j]      = lRe;
+                final float lIm = pImaginary[i]; pImaginary[i] = pImaginary[j]; pImaginary[j] = lIm;
+            }
+        }
+        // Iterate the Stages.
+        for(int lSize = 2; lSize <= lLength; lSize <<= 1) {
+            // Fetch the stride through the Twiddles.
+            final int lStride = lLength / lSize;
+            // Iterate the Butterflies.
+            for(int i = 0; i < lLength; i += lSize) {
+                for(int j = 0; j < lSize / 2; j++) {
+                    final float lCos = this.mCosines[j * lStride];
+                    final float lSin = this.mSines[j * lStride];
+                    final int   lA   = i + j;
+                    final int   lB   = lA + lSize / 2;
+                    final float lRe  = pReal[lB] * lCos - pImaginary[lB] * lSin;
+                    final float lIm  = pReal[lB] * lSin + pImaginary[lB] * lCos;
+                    pReal[lB]        = pReal[lA] - lRe;
+                    pImaginary[lB]   = pImaginary[lA] - lIm;
+                    pReal[lA]       += lRe;
+                    pImaginary[lA]  += lIm;
+                }
+            }
+        }
+    }
+
+    /* Getters. */
+    public final int getSampleRate() {
+        return this.mSampleRate;
+    }
+
+    /** Returns how many samples of the microphone are correlated against the reference. A burst is only found once it's lasted this long, plus the maximum delay. */
+    public final int getSearchLength() {
+        return this.mSearchLength;
+    }
+
+    public final int getTaps() {
+        return this.mTaps;
+    }
+
+    private final int getLead() {
+        return this.mLead;
+    }
+
+    public final float getStep() {
+        return this.mStep;
+    }
+
+    /** Returns the longest delay we'll search for, in samples. */
+    public final int getMaximumDelay() {
+        return this.mMaximumDelay;
+    }
+
+    private final float[] getReference() {
+        return this.mReference;
+    }
+
+    private final float[] getMicrophone() {
+        return this.mMicrophone;
+    }
+
+    private final float[] getWeights() {
+        return this.mWeights;
+    }
+
+    private final float[] getSegment() {
+        return this.mSegment;
+    }
+
+    /** Returns whether we've found the echo of the current burst. (Audio thread only.) */
+    public final boolean isLocked() {
+        return this.mLocked;
+    }
+
+    /** Returns the delay of the echo behind the start of the current burst, in samples. (Audio thread only.) */
+    public final long getDelay() {
+        return this.mDelay;
+    }
+
+    /** Returns whether the filter has started to cancel the echo of the current burst. (Audio thread only.) */
+    public final boolean isConverged() {
+        return this.mConverged;
+    }
+
+    /** Sets where we record how long cancellation takes; null (the default) records nothing. */
+    public final void setMetrics(final ChirpMetrics pMetrics) {
+        this.mMetrics = pMetrics;
+    }
+
+    public final ChirpMetrics getMetrics() {
+        return this.mMetrics;
+    }
+
+}
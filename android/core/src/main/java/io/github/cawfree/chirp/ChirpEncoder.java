@@ -0,0 +1,81 @@
+package io.github.cawfree.chirp;
+
+/**
+ * Frames payloads for transmission. The identifier and payload are written to the start of a Reed/Solomon frame and the error symbols are computed
+ * over the rest of it, which is zero. Only the identifier, the payload and the error symbols are sent; the receiver restores the zero padding
+ * itself, so it's never transmitted.
+ */
+public class ChirpEncoder {
+
+    /* Member Variables. */
+    private final ChirpFactory     mChirpFactory;
+    private final ReedSolomonCodec mReedSolomonCodec;
+
+    /** Constructor. */
+    public ChirpEncoder(final ChirpFactory pChirpFactory) {
+        // Initialize Member Variables.
+        this.mChirpFactory     = pChirpFactory;
+        this.mReedSolomonCodec = new ReedSolomonCodec(pChirpFactory); // (5-bit, using root polynomial a^5 + a^2 + 1.)
+    }
+
+    /** Writes the alphabet index of each character of the data into the buffer, starting at the offset. */
+    public final void indices(final String pData, final int[] pBuffer, final int pOffset) {
+        // Iterate the Data.
+        for(int i = 0; i < pData.length(); i++) {
+            // Update the contents of the Array.
+            pBuffer[pOffset + i] = this.getChirpFactory().getCodebook().getSymbolFor(pData.charAt(i));
+        }
+    }
+
+    /** Returns an empty ChirpBuffer, holding just the identifier; the payload is written directly after it. */
+    public final int[] getChirpBuffer() {
+        // Allocate the ChirpBuffer. (Any unused symbols remain zero.)
+        final int[] lChirpBuffer = new int[this.getChirpFactory().getRange().getFrameLength()];
+        // Fetch the indices of the Identifier.
+        this.indices(this.getChirpFactory().getIdentifier(), lChirpBuffer, 0);
+        // Return the ChirpBuffer.
+        return lChirpBuffer;
+    }
+
+    /** Encodes a single textual payload. Returns the symbols to transmit. */
+    public final int[] encode(final String pPayload) {
+        // Declare the ChirpBuffer.
+        final int[] lChirpBuffer = this.getChirpBuffer();
+        // Fetch the indices of the Payload.
+        this.indices(pPayload, lChirpBuffer, this.getChirpFactory().getIdentifier().length());
+        // Encode the ChirpBuffer.
+        return this.encode(lChirpBuffer);
+    }
+
+    /** Appends the error symbols to a ChirpBuffer holding the identifier and payload. Returns the symbols to transmit. */
+    public final int[] encode(final int[] pChirpBuffer) {
+        // Allocate the Symbols.
+        final int[] lSymbols = new int[this.getChirpFactory().getEncodedLength()];
+        // Encode into the Symbols.
+        this.encode(pChirpBuffer, lSymbols);
+        // Return the Symbols.
+        return lSymbols;
+    }
+
+    /** Appends the error symbols to a ChirpBuffer holding the identifier and payload, writing the symbols to transmit into pSymbols. Doesn't allocate. */
+    public final void encode(final int[] pChirpBuffer, final int[] pSymbols) {
+        // Fetch the Lengths.
+        final int lHeader = this.getChirpFactory().getIdentifier().length() + this.getChirpFactory().getPayloadLength();
+        final int lError  = this.getChirpFactory().getErrorLength();
+        // Encode the Bytes.
+        this.getReedSolomonCodec().encode(pChirpBuffer, pChirpBuffer.length);
+        // Copy the Identifier and Payload, followed by the error symbols. (Skip over the zero-padded region.)
+        System.arraycopy(pChirpBuffer, 0, pSymbols, 0, lHeader);
+        System.arraycopy(pChirpBuffer, pChirpBuffer.length - lError, pSymbols, lHeader, lError);
+    }
+
+    /* Getters. */
+    public final ChirpFactory getChirpFactory() {
+        return this.mChirpFactory;
+    }
+
+    public final ReedSolomonCodec getReedSolomonCodec() {
+        return this.mReedSolomonCodec;
+    }
+
+}
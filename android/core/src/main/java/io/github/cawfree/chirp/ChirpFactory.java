@@ -0,0 +1,362 @@
+package io.github.cawfree.chirp;
+
+/**
+ * Created by cawfree on 05/10/17.
+ */
+
+/** Represents an encoded ChirpFactory, capable of transmission. */
+public class ChirpFactory {
+
+    /* Static Declarations. */
+    private static final double            SEMITONE               = 1.05946311;
+    private static final int               MINIMUM_PERIOD_MS      = 20;
+
+    /* Default Declarations. */
+    public static final int                 DEFAULT_FREQUENCY_BASE = 1760;
+    public static final ChirpFactory.Range DEFAULT_RANGE = new Range(".0123456789abcdefghijklmnopqrst ", 0b00100101, 31);
+    /**
+     * TODO: i.e. 2^5 - 1.
+     */
+    public static final String              DEFAULT_IDENTIFIER     = "hj";
+    public static final int                 DEFAULT_LENGTH_PAYLOAD = 10;
+    public static final int                 DEFAULT_LENGTH_CRC     = 8;
+    public static final int                 DEFAULT_PERIOD_MS      = 120;
+    public static final int                 DEFAULT_BANDS          = 1;
+    public static final double              DEFAULT_SPACING        = 0.0; // Spacing between adjacent tones, in Hz. (Zero spaces them by semitones.)
+    public static final double              DEFAULT_TOLERANCE      = 0.0; // How far towards a neighbouring tone a detected pitch may stray. (Zero accepts any pitch.)
+
+    /* Speed Profiles. (The receive window, ramps and detector windows are all derived from the symbol period.) */
+    public static final ChirpFactory        PROFILE_85_MS          = new ChirpFactory.Builder().setSymbolPeriodMs(85).build();
+    public static final ChirpFactory        PROFILE_60_MS          = new ChirpFactory.Builder().setSymbolPeriodMs(60).build();
+    public static final ChirpFactory        PROFILE_40_MS          = new ChirpFactory.Builder().setSymbolPeriodMs(40).build();
+    public static final ChirpFactory        PROFILE_20_MS          = new ChirpFactory.Builder().setSymbolPeriodMs(20).build();
+
+    /**
+     * Declares a ChirpResult. Along with the detected symbol, a Result carries the runner-up and a confidence, for soft-decision decoding. Symbols are
+     * indices into the Range. Results are mutable, so that a caller can reuse the same one for every detection.
+     */
+    public static class Result {
+        /* Member Variables. */
+        private int     mSymbol;
+        private boolean mValid;
+        private int     mAlternate;
+        private double  mConfidence;
+        /** Constructor. Results start out invalid. */
+        public Result() {
+            this.setInvalid();
+        }
+        /** Marks the Result as valid, holding the given symbols. Returns the Result. */
+        public final ChirpFactory.Result set(final int pSymbol, final int pAlternate, final double pConfidence) {
+            // Update Member Variables.
+            this.mSymbol     = pSymbol;
+            this.mValid      = true;
+            this.mAlternate  = pAlternate;
+            this.mConfidence = pConfidence;
+            // Return the Result.
+            return this;
+        }
+        /** Marks the Result as invalid; nothing was detected. Returns the Result. */
+        public final ChirpFactory.Result setInvalid() {
+            // Update Member Variables.
+            this.mSymbol     = ChirpCodebook.INDEX_INVALID;
+            this.mValid      = false;
+            this.mAlternate  = ChirpCodebook.INDEX_INVALID;
+            this.mConfidence = 0.0;
+            // Return the Result.
+            return this;
+        }
+        /* Getters. */
+        public final int     getSymbol()     { return this.mSymbol;     }
+        public final boolean isValid()       { return this.mValid;      }
+        /** Returns the next most likely symbol. */
+        public final int     getAlternate()  { return this.mAlternate;  }
+        /** Returns how much we trust the symbol, from zero (a guess) to one (certain). */
+        public final double  getConfidence() { return this.mConfidence; }
+    }
+
+    /** A base interface for a concrete class capable of interpreting chirp data. */
+    public interface IDetector {
+        /**
+         * Detects a Symbol within a history of Samples and Confidences. Callers must define the segment they wish to analyze within the window. The
+         * outcome is written into pResult, which is returned; detectors run for every band of every segment, so they mustn't allocate.
+         */
+        ChirpFactory.Result getSymbol(final ChirpFactory pChirpFactory, final ChirpHistory pHistory, final int pOffset, final int pLength, final ChirpFactory.Result pResult);
+    }
+
+    /** Called when a Chirp has beend detected. */
+    public interface IListener {
+        /** Called when a Chirp has been detected. Returns the response data. */
+        void onChirp(final String pMessage);
+        /**
+         * Called with the payload of a detected Chirp as symbol indices, before it's converted into text. The symbols are only valid for the duration
+         * of the call. Override this to handle binary payloads; by default, the symbols are mapped onto the Range and passed to onChirp().
+         */
+        default void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) {
+            // Allocate the Message.
+            final char[] lMessage = new char[pLength];
+            // Iterate the Symbols.
+            for(int i = 0; i < pLength; i++) {
+                // Fetch the corresponding Character.
+                lMessage[i] = pChirpFactory.getCodebook().getCharacter(pSymbols[pOffset + i]);
+            }
+            // Deliver the Message.
+            this.onChirp(new String(lMessage));
+        }
+    }
+
+    /** A default ChirpDetector, which uses an average to interpret symbols. */
+    public static final IDetector DETECTOR_CHIRP_MEAN = new IDetector() { @Override public final Result getSymbol(final ChirpFactory pChirpFactory, final ChirpHistory pHistory, final int pOffset, final int pLength, final ChirpFactory.Result pResult) {
+        // Ignore the First/Last 18% of the Samples. (Protected against slew rate.)
+        final int    lIgnore = (int)Math.ceil(pLength * 0.3);
+        // Declare buffers to accumulate the sampled frequencies.
+              double lFacc   = 0.0;
+              double lCacc   = 0.0;
+              int    lCount  = 0;
+        // Iterate the Samples.
+        for(int i = pOffset + lIgnore; i < pOffset + pLength - lIgnore; i++) { /** TODO: fn */
+            // Are we confident in this sample?
+            if(pHistory.getConfidence(i) > 0.75) {
+                // Fetch the Sample.
+                final double lSample = pHistory.getSample(i);
+                // Is the Sample valid?
+                if(lSample != -1) {
+                    // Accumulate the Sample and its Confidence.
+                    lFacc += lSample;
+                    lCacc += pHistory.getConfidence(i);
+                    // Update the accumulated count.
+                    lCount++;
+                }
+            }
+        }
+        // Result valid?
+        if(lCount != 0) {
+            // Calculate the Mean.
+            final double        lMean        = lFacc / lCount;
+            // Fetch the Codebook, the Frequencies and the number of Symbols.
+            final ChirpCodebook lCodebook    = pChirpFactory.getCodebook();
+            final double[]      lFrequencies = lCodebook.getFrequencies();
+            final int           lSymbols     = lCodebook.getSize();
+            // Fetch the closest Tone.
+            final int           lNearest     = lCodebook.getToneFor(lMean);
+            // Is the Mean too far from the Tone to trust? (It's likely a blend of two symbols, heard across a transition.)
+            if(!lCodebook.isAccepted(lMean, lNearest)) {
+                // Return the invalid result.
+                return pResult.setInvalid();
+            }
+            // Fetch the runner-up; the neighbouring tone on the same side as the Mean. (Keep within the band, since other bands are measured separately.)
+            final boolean       lIsAbove     = (lMean > lFrequencies[lNearest] && (lNearest % lSymbols) != lSymbols - 1) || (lNearest % lSymbols) == 0;
+            final int           lRunnerUp    = lIsAbove ? (lNearest + 1) : (lNearest - 1);
+            // Calculate the Margin; one when the mean sits on the tone, falling to zero halfway towards the runner-up.
+            final double        lNear        = Math.abs(lMean - lFrequencies[lNearest]);
+            final double        lFar         = Math.abs(lMean - lFrequencies[lRunnerUp]);
+            final double        lMargin      = (lFar - lNear) / (lFar + lNear);
+            // Calculate the Support; the confidence of the samples we used, spread across the whole of the segment we inspected.
+            final double        lSupport     = lCacc / (pLength - 2 * lIgnore);
+            // Return the Result.
+            return pResult.set(lCodebook.getSymbolOf(lNearest), lCodebook.getSymbolOf(lRunnerUp), lSupport * lMargin);
+        }
+        else {
+            // Return the invalid result.
+            return pResult.setInvalid();
+        }
+    } };
+
+    /** Returns the index of the Frequency closest to the Pitch. */
+    public final int getIndexFor(final double pPitch) {
+        return this.getCodebook().getToneFor(pPitch);
+    }
+
+    /** Returns the Character corresponding to a Frequency. */
+    public final char getCharacterFor(final double pPitch) {
+        return this.getCodebook().getCharacter(this.getCodebook().getSymbolOf(this.getIndexFor(pPitch)));
+    }
+
+
+    /** Defines the set of allowable characters for a given protocol. */
+    public static class Range {
+        /* Member Variables. */
+        private final String mCharacters;
+        private final int    mGaloisPolynomial;
+        private final int    mFrameLength;
+        /** Constructor. */
+        public Range(final String pCharacters, final int pGaloisPolynomial, final int pFrameLength) {
+            // Initialize Member Variables.
+            this.mCharacters       = pCharacters;
+            this.mGaloisPolynomial = pGaloisPolynomial;
+            this.mFrameLength      = pFrameLength;
+        }
+        /* Getters. */
+        public final String getCharacters()       { return this.mCharacters;       }
+        public final int    getGaloisPolynomial() { return this.mGaloisPolynomial; }
+        public final int    getFrameLength()      { return this.mFrameLength;      }
+    }
+
+    /** Factory Pattern. */
+    public static final class Builder {
+        /* Default Declarations. */
+        private double             mBaseFrequency  = ChirpFactory.DEFAULT_FREQUENCY_BASE; // Declares the initial frequency which the range of Chirps is built upon.
+        private ChirpFactory.Range mRange          = ChirpFactory.DEFAULT_RANGE;
+        private String             mIdentifier     = ChirpFactory.DEFAULT_IDENTIFIER;
+        private int                mPayloadLength  = ChirpFactory.DEFAULT_LENGTH_PAYLOAD;
+        private int                mErrorLength    = ChirpFactory.DEFAULT_LENGTH_CRC;
+        private int                mSymbolPeriodMs = ChirpFactory.DEFAULT_PERIOD_MS;
+        private int                mBands          = ChirpFactory.DEFAULT_BANDS;
+        private double             mSpacing        = ChirpFactory.DEFAULT_SPACING;
+        private double             mTolerance      = ChirpFactory.DEFAULT_TOLERANCE;
+        /** Constructor. */
+        public Builder() { }
+        /** Constructor. Starts from the configuration of an existing ChirpFactory; e.g. to move it onto another channel. */
+        public Builder(final ChirpFactory pChirpFactory) {
+            // Initialize Member Variables.
+            this.mBaseFrequency  = pChirpFactory.getBaseFrequency();
+            this.mRange          = pChirpFactory.getRange();
+            this.mIdentifier     = pChirpFactory.getIdentifier();
+            this.mPayloadLength  = pChirpFactory.getPayloadLength();
+            this.mErrorLength    = pChirpFactory.getErrorLength();
+            this.mSymbolPeriodMs = pChirpFactory.getSymbolPeriodMs();
+            this.mBands          = pChirpFactory.getBands();
+            this.mSpacing        = pChirpFactory.getSpacing();
+            this.mTolerance      = pChirpFactory.getTolerance();
+        }
+        /** Builds the ChirpFactory Object. */
+        public final ChirpFactory build() throws IllegalStateException {
+            // Is the Symbol Period too short?
+            if(this.getSymbolPeriodMs() < ChirpFactory.MINIMUM_PERIOD_MS) {
+                // Assert that the Symbol Period is invalid.
+                throw new IllegalStateException("Symbol period must be at least " + ChirpFactory.MINIMUM_PERIOD_MS + "ms.");
+            }
+            // Does the encoded message fit within a single Reed/Solomon frame?
+            if(this.getIdentifier().length() + this.getPayloadLength() + this.getErrorLength() > this.getRange().getFrameLength()) {
+                // Assert that the lengths are invalid.
+                throw new IllegalStateException("Identifier, payload and error symbols exceed the frame length of " + this.getRange().getFrameLength() + ".");
+            }
+            // Are the Bands valid?
+            if(this.getBands() < 1) {
+                // Assert that the Bands are invalid.
+                throw new IllegalStateException("At least one band is required.");
+            }
+            // Semitones climb too steeply to fit more than a single band within the audible range.
+            if(this.getBands() > 1 && this.getSpacing() <= 0.0) {
+                // Assert that we need linear spacing.
+                throw new IllegalStateException("Multiple bands require a linear tone spacing.");
+            }
+            // Is the Tolerance valid?
+            if(this.getTolerance() < 0.0 || this.getTolerance() > 1.0) {
+                // Assert that the Tolerance is invalid.
+                throw new IllegalStateException("Tolerance must lie between zero (disabled) and one.");
+            }
+            // Allocate and return the ChirpFactory.
+            return new ChirpFactory(this.getBaseFrequency(), this.getIdentifier(), this.getRange(), this.getPayloadLength(), this.getErrorLength(), this.getSymbolPeriodMs(), this.getBands(), this.getSpacing(), this.getTolerance());
+        }
+        /* Setters. */
+        /** Sets the frequency of the lowest tone, in Hz. */
+        public final ChirpFactory.Builder setBaseFrequency(final double pBaseFrequency) { this.mBaseFrequency  = pBaseFrequency;  return this; }
+        public final ChirpFactory.Builder setSymbolPeriodMs(final int pSymbolPeriodMs) { this.mSymbolPeriodMs = pSymbolPeriodMs; return this; }
+        public final ChirpFactory.Builder setIdentifier(final String pIdentifier)      { this.mIdentifier     = pIdentifier;     return this; }
+        /** Sets the number of payload symbols per frame. Together with the identifier and error symbols, these must fit within the Range's frame length. */
+        public final ChirpFactory.Builder setPayloadLength(final int pPayloadLength)   { this.mPayloadLength  = pPayloadLength;  return this; }
+        /** Splits the tones into the given number of sub-bands; each symbol period then carries one symbol per band. */
+        public final ChirpFactory.Builder setBands(final int pBands)                   { this.mBands          = pBands;          return this; }
+        /** Spaces adjacent tones linearly, by the given number of Hz. (This must exceed the receiver's resolution; roughly the sample rate over the segment length.) */
+        public final ChirpFactory.Builder setSpacing(final double pSpacing)            { this.mSpacing        = pSpacing;        return this; }
+        /** Rejects detections which stray more than this fraction of the way towards a neighbouring tone; they're treated as missing. (Zero disables.) */
+        public final ChirpFactory.Builder setTolerance(final double pTolerance)        { this.mTolerance      = pTolerance;      return this; }
+        /* Getters. */
+        private final double             getBaseFrequency()  { return this.mBaseFrequency;  }
+        private final ChirpFactory.Range getRange()          { return this.mRange;          }
+        private final String             getIdentifier()     { return this.mIdentifier;     }
+        public final int                 getPayloadLength()  { return this.mPayloadLength;  }
+        public final int                 getErrorLength()    { return this.mErrorLength;    }
+        public final int                 getSymbolPeriodMs() { return this.mSymbolPeriodMs; }
+        public final int                 getBands()          { return this.mBands;          }
+        public final double              getSpacing()        { return this.mSpacing;        }
+        public final double              getTolerance()      { return this.mTolerance;      }
+    }
+
+    /* Member Variables. */
+    private final double             mBaseFrequency;
+    private final String             mIdentifier;
+    private final ChirpFactory.Range mRange;
+    private final int                mPayloadLength;
+    private final int                mErrorLength;
+    private final int                mSymbolPeriodMs;
+    private final int                mBands;
+    private final double             mSpacing;
+    private final double             mTolerance;
+    private final ChirpCodebook      mCodebook;
+
+    /** Private construction; force the Builder pattern. */
+    private ChirpFactory(final double pBaseFrequency, final String pIdentifier, final ChirpFactory.Range pRange, final int pPayloadLength, final int pErrorLength, final int pSymbolPeriodMs, final int pBands, final double pSpacing, final double pTolerance) {
+        // Initialize Member Variables.
+        this.mBaseFrequency  = pBaseFrequency;
+        this.mIdentifier     = pIdentifier;
+        this.mRange          = pRange;
+        this.mPayloadLength  = pPayloadLength;
+        this.mErrorLength    = pErrorLength;
+        this.mSymbolPeriodMs = pSymbolPeriodMs;
+        this.mBands          = pBands;
+        this.mSpacing        = pSpacing;
+        this.mTolerance      = pTolerance;
+        // Allocate the Codebook; this maps between characters, symbols and tones.
+        this.mCodebook       = new ChirpCodebook(pRange.getCharacters(), pBands, pBaseFrequency, pSpacing, ChirpFactory.SEMITONE, pTolerance);
+    }
+
+    /** Returns the total length of an encoded message. */
+    public final int getEncodedLength() {
+        // The total packet is comprised as follows: [ID_SYMBOLS + PAYLOAD_SYMBOLS + ERROR_SYMBOLS].
+        return this.getIdentifier().length() + this.getPayloadLength() + this.getErrorLength();
+    }
+
+    /** Returns the number of symbol periods it takes to transmit an encoded message. Every band carries a symbol per period, so the last period may be padded. */
+    public final int getEncodedPeriods() {
+        return (this.getEncodedLength() + this.getBands() - 1) / this.getBands();
+    }
+
+    /* Getters. */
+    public final double getBaseFrequency() {
+        return this.mBaseFrequency;
+    }
+
+    public final String getIdentifier() {
+        return this.mIdentifier;
+    }
+
+    /** Returns the frequency of every tone; each band holds a complete set of tones, stacked one above the other. */
+    public final double[] getFrequencies() {
+        return this.getCodebook().getFrequencies();
+    }
+
+    public final ChirpCodebook getCodebook() {
+        return this.mCodebook;
+    }
+
+    public final ChirpFactory.Range getRange() {
+        return this.mRange;
+    }
+
+    public final int getPayloadLength() {
+        return this.mPayloadLength;
+    }
+
+    public final int getErrorLength() {
+        return this.mErrorLength;
+    }
+
+    public final int getSymbolPeriodMs() {
+        return this.mSymbolPeriodMs;
+    }
+
+    /** Returns the number of sub-bands; symbols are transmitted this many at a time. */
+    public final int getBands() {
+        return this.mBands;
+    }
+
+    public final double getSpacing() {
+        return this.mSpacing;
+    }
+
+    public final double getTolerance() {
+        return this.mTolerance;
+    }
+
+}
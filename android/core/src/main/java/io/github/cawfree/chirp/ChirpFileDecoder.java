@@ -0,0 +1,291 @@
+package io.github.cawfree.chirp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+/**
+ * Decodes chirps from recorded audio files, using the same receive path as the microphone. Files are memory-mapped a window at a time, so we
+ * never copy the recording onto the heap and can scan files of any length as fast as the detector runs. Requires nothing from Android.
+ */
+public class ChirpFileDecoder {
+
+    /* Static Declarations. */
+    public  static final int    DEFAULT_PERIOD_MS   = 85; // (Matches Chirp.)
+    public  static final int    DEFAULT_SUBSAMPLES  = 9;
+    private static final int    BLOCK_SAMPLES       = 4096;
+    private static final long   WINDOW_BYTES        = 64L << 20;
+    private static final int    WAV_FORMAT_PCM      = 1;
+    private static final int    WAV_FORMAT_FLOAT    = 3;
+    private static final int    WAV_FORMAT_EXTENDED = 0xFFFE;
+    private static final int    WAV_FMT_LENGTH      = 16; // The size of a plain "fmt " chunk.
+    private static final int    WAV_FMT_EXTENDED    = 40; // The size of an extensible "fmt " chunk; the sub-format lies at the end.
+    private static final byte[] WAV_SUBFORMAT       = { 0x00, 0x00, 0x00, 0x00, 0x10, 0x00, (byte)0x80, 0x00, 0x00, (byte)0xAA, 0x00, 0x38, (byte)0x9B, 0x71 }; // Every sub-format GUID which maps onto a plain encoding ends with this.
+
+    /** Called whenever a chirp is found within a recording. */
+    public interface IListener {
+        /** Called with the approximate time the chirp started, in seconds from the start of the recording. */
+        void onChirp(final double pSeconds, final String pMessage);
+    }
+
+    /** Describes the layout of the samples within a file. */
+    public static final class Format {
+        /* Member Variables. */
+        private final int     mSampleRate;
+        private final int     mChannels;
+        private final int     mBitsPerSample;
+        private final boolean mFloat;
+        /** Constructor. */
+        public Format(final int pSampleRate, final int pChannels, final int pBitsPerSample, final boolean pIsFloat) {
+            // Initialize Member Variables.
+            this.mSampleRate    = pSampleRate;
+            this.mChannels      = pChannels;
+            this.mBitsPerSample = pBitsPerSample;
+            this.mFloat         = pIsFloat;
+        }
+        /* Getters. */
+        public final int     getSampleRate()    { return this.mSampleRate;    }
+        public final int     getChannels()      { return this.mChannels;      }
+        public final int     getBitsPerSample() { return this.mBitsPerSample; }
+        public final boolean isFloat()          { return this.mFloat;         }
+        /** Returns the size of a single frame (one sample per channel), in bytes. */
+        public final int     getFrameSize()     { return this.getChannels() * (this.getBitsPerSample() / 8); }
+    }
+
+    /** Describes where the samples lie within a file. */
+    public static final class Region {
+        /* Member Variables. */
+        private final long                    mOffset;
+        private final long                    mFrames;
+        private final ChirpFileDecoder.Format mFormat;
+        /** Constructor. */
+        public Region(final long pOffset, final long pFrames, final ChirpFileDecoder.Format pFormat) {
+            // Initialize Member Variables.
+            this.mOffset = pOffset;
+            this.mFrames = pFrames;
+            this.mFormat = pFormat;
+        }
+        /* Getters. */
+        public final long                    getOffset() { return this.mOffset; }
+        public final long                    getFrames() { return this.mFrames; }
+        public final ChirpFileDecoder.Format getFormat() { return this.mFormat; }
+    }
+
+    /* Member Variables. */
+    private final ChirpFactory mChirpFactory;
+    private final int          mSubsamples;
+
+    /** Constructor. */
+    public ChirpFileDecoder(final ChirpFactory pChirpFactory, final int pSubsamples) {
+        // Initialize Member Variables.
+        this.mChirpFactory = pChirpFactory;
+        this.mSubsamples   = pSubsamples;
+    }
+
+    /** Decodes a RIFF/WAVE file. Supports 16-bit integer and 32-bit float PCM; multiple channels are mixed down. */
+    public final void decodeWav(final File pFile, final ChirpFileDecoder.IListener pListener) throws IOException {
+        try (final RandomAccessFile lFile = new RandomAccessFile(pFile, "r"); final FileChannel lChannel = lFile.getChannel()) {
+            // Locate the samples.
+            final ChirpFileDecoder.Region lRegion = ChirpFileDecoder.getWavRegion(lChannel);
+            // Decode the entire recording.
+            this.decode(lChannel, lRegion, 0, lRegion.getFrames(), pListener);
+        }
+    }
+
+    /** Decodes a headerless file of samples in the given format. */
+    public final void decodeRaw(final File pFile, final ChirpFileDecoder.Format pFormat, final ChirpFileDecoder.IListener pListener) throws IOException {
+        try (final RandomAccessFile lFile = new RandomAccessFile(pFile, "r"); final FileChannel lChannel = lFile.getChannel()) {
+            // Decode the entire file.
+            this.decode(lChannel, new ChirpFileDecoder.Region(0, lChannel.size() / pFormat.getFrameSize(), pFormat), 0, lChannel.size() / pFormat.getFrameSize(), pListener);
+        }
+    }
+
+    /** Locates the samples within a RIFF/WAVE file. */
+    public static final ChirpFileDecoder.Region getWavRegion(final FileChannel pChannel) throws IOException {
+        // Declare the Header.
+        final ByteBuffer lHeader = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        // Read the RIFF header.
+        ChirpFileDecoder.read(pChannel, lHeader, 0);
+        // Is this a WAV?
+        if(lHeader.getInt(0) != 0x46464952 || lHeader.getInt(8) != 0x45564157) { // "RIFF", "WAVE"
+            throw new IOException("Not a WAV file.");
+        }
+        // Declare the Format.
+        ChirpFileDecoder.Format lFormat = null;
+        // Iterate the Chunks.
+        for(long lPosition = 12; lPosition + 8 <= pChannel.size();) {
+            // Read the Chunk header.
+            final ByteBuffer lChunk = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            ChirpFileDecoder.read(pChannel, lChunk, lPosition);
+            // Fetch the Chunk's identity and size.
+            final int  lId   = lChunk.getInt(0);
+            final long lSize = lChunk.getInt(4) & 0xFFFFFFFFL;
+            // Is this the format chunk?
+            if(lId == 0x20746D66) { // "fmt "
+                // Is the chunk long enough to describe a format?
+                if(lSize < ChirpFileDecoder.WAV_FMT_LENGTH) {
+                    throw new IOException("WAV format chunk is too short.");
+                }
+                // Read the Format; the extensible layout when there's room for it.
+                final ByteBuffer lFmt = ByteBuffer.allocate((int)Math.min(lSize, ChirpFileDecoder.WAV_FMT_EXTENDED)).order(ByteOrder.LITTLE_ENDIAN);
+                ChirpFileDecoder.read(pChannel, lFmt, lPosition + 8);
+                // Fetch the encoding.
+                      int lEncoding = lFmt.getShort(0) & 0xFFFF;
+                final int lChannels = lFmt.getShort(2) & 0xFFFF;
+                final int lRate     = lFmt.getInt(4);
+                final int lBits     = lFmt.getShort(14) & 0xFFFF;
+                // Is the header extensible? Then the encoding is given by the first two bytes of the sub-format GUID.
+                if(lEncoding == ChirpFileDecoder.WAV_FORMAT_EXTENDED) {
+                    // Is the sub-format present?
+                    if(lFmt.capacity() < ChirpFileDecoder.WAV_FMT_EXTENDED) {
+                        throw new IOException("WAV extensible format chunk is too short.");
+                    }
+                    // Fetch the sub-format's encoding.
+                    lEncoding = lFmt.getShort(24) & 0xFFFF;
+                    // Does the rest of the GUID match? (Otherwise, it isn't one of the plain encodings at all.)
+                    for(int i = 0; i < ChirpFileDecoder.WAV_SUBFORMAT.length; i++) {
+                        if(lFmt.get(26 + i) != ChirpFileDecoder.WAV_SUBFORMAT[i]) {
+                            throw new IOException("Unsupported WAV sub-format.");
+                        }
+                    }
+                }
+                // Is the encoding supported?
+                final boolean lIsFloat = (lEncoding == ChirpFileDecoder.WAV_FORMAT_FLOAT);
+                final boolean lIsPCM   = (lEncoding == ChirpFileDecoder.WAV_FORMAT_PCM);
+                if(!((lIsFloat && lBits == 32) || (lIsPCM && lBits == 16))) {
+                    throw new IOException("Unsupported WAV encoding (" + lEncoding + ", " + lBits + "-bit).");
+                }
+                // Is the layout sensible? (Otherwise, there's no such thing as a frame.)
+                if(lChannels < 1 || lRate <= 0) {
+                    throw new IOException("Invalid WAV format (" + lChannels + " channels at " + lRate + "Hz).");
+                }
+                // Declare the Format.
+                lFormat = new ChirpFileDecoder.Format(lRate, lChannels, lBits, lIsFloat);
+            }
+            // Is this the data chunk?
+            else if(lId == 0x61746164) { // "data"
+                // Have we been told how to read it?
+                if(lFormat == null) {
+                    throw new IOException("WAV data precedes its format.");
+                }
+                // Return the Region. (Guard against truncated recordings.)
+                return new ChirpFileDecoder.Region(lPosition + 8, Math.min(lSize, pChannel.size() - lPosition - 8) / lFormat.getFrameSize(), lFormat);
+            }
+            // Move onto the next Chunk. (Chunks are word-aligned.)
+            lPosition += 8 + lSize + (lSize & 1);
+        }
+        // We didn't find any data.
+        throw new IOException("WAV file contains no audio data.");
+    }
+
+    /** Decodes a run of frames from a region of a channel. Chirps are timed relative to the start of the region. Safe to call concurrently. */
+    public final void decode(final FileChannel pChannel, final ChirpFileDecoder.Region pRegion, final long pFirst, final long pCount, final ChirpFileDecoder.IListener pListener) throws IOException {
+        // Fetch the Format.
+        final ChirpFileDecoder.Format lFormat = pRegion.getFormat();
+        // Allocate a Receiver for this recording's sample rate.
+        final ChirpReceiver lReceiver = new ChirpReceiver(this.getChirpFactory(), lFormat.getSampleRate(), this.getSubsamples());
+        // Report chirps against the time they started.
+        lReceiver.setListener(pMessage -> pListener.onChirp(Math.max(0, pFirst + lReceiver.getPosition() - lReceiver.getFrameSamples()) / (double)lFormat.getSampleRate(), pMessage));
+        // Allocate the Block; this is where we convert samples before handing them to the receiver.
+        final float[] lBlock = new float[ChirpFileDecoder.BLOCK_SAMPLES];
+        // Fetch the size of each frame, and the number of frames we'll map at once.
+        final int  lFrameSize = lFormat.getFrameSize();
+        final long lWindow    = ChirpFileDecoder.WINDOW_BYTES / lFrameSize;
+        // Iterate the Windows.
+        for(long lFrame = 0; lFrame < pCount; lFrame += lWindow) {
+            // Map the Window.
+            final MappedByteBuffer lMapped = pChannel.map(FileChannel.MapMode.READ_ONLY, pRegion.getOffset() + (pFirst + lFrame) * lFrameSize, Math.min(lWindow, pCount - lFrame) * lFrameSize);
+            lMapped.order(ByteOrder.LITTLE_ENDIAN);
+            // Process the Window.
+            ChirpFileDecoder.onWindow(lMapped, lFormat, lBlock, lReceiver);
+        }
+        // Discard anything left over.
+        lReceiver.flush();
+    }
+
+    /** Converts a mapped window into blocks of floats and passes them to the receiver. */
+    private static final void onWindow(final ByteBuffer pWindow, final ChirpFileDecoder.Format pFormat, final float[] pBlock, final ChirpReceiver pReceiver) {
+        // Fetch the number of Channels, and the scale required to mix them down.
+        final int     lChannels = pFormat.getChannels();
+        final float   lScale    = (pFormat.isFloat() ? 1.0f : (1.0f / 32768.0f)) / lChannels;
+        // Declare the number of buffered samples.
+              int     lLength   = 0;
+        // Iterate the Frames.
+        for(int i = 0; i < pWindow.limit(); i += pFormat.getFrameSize()) {
+            // Declare the Sample.
+            float lSample = 0.0f;
+            // Mix down the Channels.
+            for(int j = 0; j < lChannels; j++) {
+                lSample += pFormat.isFloat() ? pWindow.getFloat(i + j * 4) : pWindow.getShort(i + j * 2);
+            }
+            // Buffer the Sample.
+            pBlock[lLength++] = lSample * lScale;
+            // Is the Block full?
+            if(lLength == pBlock.length) {
+                // Process the Block.
+                pReceiver.process(pBlock, 0, lLength);
+                lLength = 0;
+            }
+        }
+        // Process the remainder.
+        pReceiver.process(pBlock, 0, lLength);
+    }
+
+    /** Reads from an absolute position in the channel until the buffer is full. */
+    private static final void read(final FileChannel pChannel, final ByteBuffer pBuffer, final long pPosition) throws IOException {
+        // Iterate until the buffer is full.
+        while(pBuffer.hasRemaining()) {
+            // Read the next part.
+            if(pChannel.read(pBuffer, pPosition + pBuffer.position()) < 0) {
+                throw new IOException("Unexpected end of file.");
+            }
+        }
+    }
+
+    /** Usage: ChirpFileDecoder [--raw <sample rate>] [--period <ms>] <file>...; prints the start time and content of each received chirp. */
+    public static void main(final String[] pArgs) throws IOException {
+        // Declare the options.
+        int lRawRate  = 0;
+        int lPeriodMs = ChirpFileDecoder.DEFAULT_PERIOD_MS;
+        // Iterate the Arguments.
+        for(int i = 0; i < pArgs.length; i++) {
+            // Is this an option?
+            if("--raw".equals(pArgs[i])) {
+                lRawRate  = Integer.parseInt(pArgs[++i]);
+            }
+            else if("--period".equals(pArgs[i])) {
+                lPeriodMs = Integer.parseInt(pArgs[++i]);
+            }
+            else {
+                // Allocate a Decoder.
+                final ChirpFileDecoder lDecoder = new ChirpFileDecoder(new ChirpFactory.Builder().setSymbolPeriodMs(lPeriodMs).build(), ChirpFileDecoder.DEFAULT_SUBSAMPLES);
+                // Fetch the File.
+                final File             lFile    = new File(pArgs[i]);
+                // Declare how to print the results.
+                final ChirpFileDecoder.IListener lListener = (pSeconds, pMessage) -> System.out.println(String.format(Locale.US, "%s\t%.3f\t%s", lFile.getName(), pSeconds, pMessage));
+                // Decode the File.
+                if(lRawRate > 0) {
+                    lDecoder.decodeRaw(lFile, new ChirpFileDecoder.Format(lRawRate, 1, 16, false), lListener);
+                }
+                else {
+                    lDecoder.decodeWav(lFile, lListener);
+                }
+            }
+        }
+    }
+
+    /* Getters. */
+    public final ChirpFactory getChirpFactory() {
+        return this.mChirpFactory;
+    }
+
+    public final int getSubsamples() {
+        return this.mSubsamples;
+    }
+
+}
@@ -0,0 +1,96 @@
+package io.github.cawfree.chirp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits messages of arbitrary length into a sequence of fixed-length payloads, each of which can be sent as an ordinary chirp. Every payload
+ * begins with a short header, [TAG, INDEX, LAST], which travels inside the Reed/Solomon protected region along with the data. The tag groups the
+ * fragments of a single message together, and the message itself is prefixed by its length so the padding of the final fragment can be discarded.
+ */
+public class ChirpFragmenter {
+
+    /* Static Declarations. */
+    public static final int HEADER_LENGTH = 3; // Tag, Index, Last Index.
+    public static final int PREFIX_LENGTH = 2; // The length of the message, as two symbols.
+
+    /* Member Variables. */
+    private final ChirpFactory mChirpFactory;
+    private       int          mTag;
+
+    /** Constructor. */
+    public ChirpFragmenter(final ChirpFactory pChirpFactory) throws IllegalArgumentException {
+        // Is there room for any data?
+        if(pChirpFactory.getPayloadLength() <= ChirpFragmenter.HEADER_LENGTH) {
+            // Assert that the payload is too short.
+            throw new IllegalArgumentException("Payload must be longer than the " + ChirpFragmenter.HEADER_LENGTH + " symbol fragment header.");
+        }
+        // Initialize Member Variables.
+        this.mChirpFactory = pChirpFactory;
+        this.mTag          = 0;
+    }
+
+    /** Returns the number of message symbols carried by each fragment. */
+    public static final int getFragmentData(final ChirpFactory pChirpFactory) {
+        return pChirpFactory.getPayloadLength() - ChirpFragmenter.HEADER_LENGTH;
+    }
+
+    /** Returns the longest message which can be fragmented. This is bounded by the number of fragments a header can index, and the size of the length prefix. */
+    public static final int getMaximumLength(final ChirpFactory pChirpFactory) {
+        // Fetch the number of Symbols.
+        final int lSymbols = pChirpFactory.getRange().getCharacters().length();
+        // Return the Maximum Length.
+        return Math.min(lSymbols * ChirpFragmenter.getFragmentData(pChirpFactory), lSymbols * lSymbols) - ChirpFragmenter.PREFIX_LENGTH;
+    }
+
+    /** Splits the message into payloads, ready for encoding. The message must only contain characters of the factory's Range. */
+    public final List<String> fragment(final CharSequence pMessage) throws UnsupportedOperationException {
+        // Is the Message too long?
+        if(pMessage.length() > ChirpFragmenter.getMaximumLength(this.getChirpFactory())) {
+            // Assert that we can't fragment the Message.
+            throw new UnsupportedOperationException("Message is too long (" + pMessage.length() + ")! Expected at most " + ChirpFragmenter.getMaximumLength(this.getChirpFactory()) + " symbols.");
+        }
+        // Fetch the Characters.
+        final String             lCharacters = this.getChirpFactory().getRange().getCharacters();
+        final int                lSymbols    = lCharacters.length();
+        // Fetch the length of the stream, and the number of fragments needed to carry it.
+        final int                lStream     = ChirpFragmenter.PREFIX_LENGTH + pMessage.length();
+        final int                lData       = ChirpFragmenter.getFragmentData(this.getChirpFactory());
+        final int                lFragments  = Math.max(1, (lStream + lData - 1) / lData);
+        // Fetch the Tag for this Message; consecutive messages use different tags, so their fragments can't be confused.
+        final char               lTag        = lCharacters.charAt(this.mTag);
+        // Advance the Tag.
+        this.mTag = (this.mTag + 1) % lSymbols;
+        // Allocate the Fragments.
+        final List<String>       lResult     = new ArrayList<>(lFragments);
+        final StringBuilder      lBuilder    = new StringBuilder(this.getChirpFactory().getPayloadLength());
+        // Iterate the Fragments.
+        for(int i = 0; i < lFragments; i++) {
+            // Write the Header.
+            lBuilder.setLength(0);
+            lBuilder.append(lTag).append(lCharacters.charAt(i)).append(lCharacters.charAt(lFragments - 1));
+            // Iterate this Fragment's share of the stream.
+            for(int j = i * lData; j < (i + 1) * lData; j++) {
+                // Is this part of the Prefix?
+                if(j < ChirpFragmenter.PREFIX_LENGTH) {
+                    // Write the Length, most significant symbol first.
+                    lBuilder.append(lCharacters.charAt((j == 0) ? (pMessage.length() / lSymbols) : (pMessage.length() % lSymbols)));
+                }
+                else {
+                    // Write the Message; pad out the final Fragment.
+                    lBuilder.append((j < lStream) ? pMessage.charAt(j - ChirpFragmenter.PREFIX_LENGTH) : lCharacters.charAt(0));
+                }
+            }
+            // Buffer the Fragment.
+            lResult.add(lBuilder.toString());
+        }
+        // Return the Fragments.
+        return lResult;
+    }
+
+    /* Getters. */
+    public final ChirpFactory getChirpFactory() {
+        return this.mChirpFactory;
+    }
+
+}
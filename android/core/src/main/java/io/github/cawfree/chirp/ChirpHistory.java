@@ -0,0 +1,86 @@
+package io.github.cawfree.chirp;
+
+/**
+ * A fixed-length history of received samples and their confidences. Entries are appended into a circular buffer, so pushing and resetting are
+ * constant-time regardless of the window length. Readers index the window from oldest (0) to newest (getLength() - 1); positions that haven't
+ * been written since the last reset read back as an invalid sample with no confidence.
+ */
+public class ChirpHistory {
+
+    /* Static Declarations. */
+    public static final float SAMPLE_INVALID = -1.0f;
+
+    /* Member Variables. */
+    private final float[] mSamples;
+    private final float[] mConfidences;
+    private final int     mLength;
+    private final int     mMask;
+    private       long    mWritten;
+    private       long    mEpoch;
+
+    /** Constructor. */
+    public ChirpHistory(final int pLength) {
+        // Round the Capacity up to a power of two; this way we can wrap indices using a mask.
+        final int lCapacity = Integer.highestOneBit(Math.max(1, pLength - 1)) << 1;
+        // Initialize Member Variables.
+        this.mSamples     = new float[lCapacity];
+        this.mConfidences = new float[lCapacity];
+        this.mLength      = pLength;
+        this.mMask        = lCapacity - 1;
+        this.mWritten     = 0;
+        this.mEpoch       = 0;
+    }
+
+    /** Appends a Sample and its Confidence, retiring the oldest entry in the window. */
+    public final void push(final float pSample, final float pConfidence) {
+        // Fetch the Index to write to.
+        final int lIndex = (int)(this.mWritten & this.mMask);
+        // Buffer the Sample and Confidence.
+        this.mSamples[lIndex]     = pSample;
+        this.mConfidences[lIndex] = pConfidence;
+        // Increase the Written count.
+        this.mWritten++;
+    }
+
+    /** Returns the absolute position of a window index, or -1 if the entry predates the last reset. */
+    private final long getPosition(final int pIndex) {
+        // Calculate the absolute position.
+        final long lPosition = this.mWritten - this.mLength + pIndex;
+        // Has this position been written since the last reset?
+        return (lPosition >= this.mEpoch) ? lPosition : -1;
+    }
+
+    /** Returns the Sample at the given index within the window. */
+    public final float getSample(final int pIndex) {
+        // Fetch the Position.
+        final long lPosition = this.getPosition(pIndex);
+        // Return the Sample.
+        return (lPosition == -1) ? ChirpHistory.SAMPLE_INVALID : this.mSamples[(int)(lPosition & this.mMask)];
+    }
+
+    /** Returns the Confidence at the given index within the window. */
+    public final float getConfidence(final int pIndex) {
+        // Fetch the Position.
+        final long lPosition = this.getPosition(pIndex);
+        // Return the Confidence.
+        return (lPosition == -1) ? 0.0f : this.mConfidences[(int)(lPosition & this.mMask)];
+    }
+
+    /** Invalidates every entry in the window. */
+    public final void reset() {
+        // Everything written so far now predates the window.
+        this.mEpoch = this.mWritten;
+    }
+
+    /* Getters. */
+    /** Returns the number of entries in the window. */
+    public final int getLength() {
+        return this.mLength;
+    }
+
+    /** Returns the total number of entries that have ever been pushed. */
+    public final long getWritten() {
+        return this.mWritten;
+    }
+
+}
@@ -0,0 +1,278 @@
+package io.github.cawfree.chirp;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts what the pipeline is doing, so that symbol periods can be tuned and failures in the field diagnosed. The time taken by each stage is
+ * gathered into a histogram with power-of-two buckets, alongside a handful of plain counters. Everything is recorded with atomic increments; there
+ * are no locks and nothing is allocated, so recording is safe from the audio thread (and from several decoding threads at once). Readers take a
+ * Snapshot, which can be inspected or exported as a flat map.
+ */
+public class ChirpMetrics {
+
+    /* Stages. */
+    public static final int      STAGE_SEGMENT       = 0; // Cutting captured audio into segments, and sliding the window along.
+    public static final int      STAGE_TONES         = 1; // Measuring the energy of each tone, and finding the peaks.
+    public static final int      STAGE_DETECT        = 2; // Detecting the symbol which completes with each segment.
+    public static final int      STAGE_GAYDECKI      = 3; // Assembling and decoding a candidate frame. (Includes STAGE_DECODE.)
+    public static final int      STAGE_DECODE        = 4; // A single Reed/Solomon decode.
+    public static final int      STAGE_SYNTHESIS     = 5; // Synthesizing an entire chirp, excluding any time spent waiting on the sink.
+    public static final int      STAGE_LATENCY       = 6; // From the capture of the segment which released a chirp, to the listener being called. (Excludes any buffering by the recorder.)
+    public static final int      STAGE_ECHO          = 7; // Cancelling our own transmission from a captured block, when running full-duplex.
+    public static final int      STAGE_SQUELCH       = 8; // Deciding whether a segment is worth measuring, when squelched.
+    public static final String[] STAGES              = { "segment", "tones", "detect", "gaydecki", "decode", "synthesis", "latency", "echo", "squelch" };
+
+    /* Counters. */
+    public static final int      COUNTER_SEGMENTS    = 0; // Segments measured.
+    public static final int      COUNTER_VALID       = 1; // Symbols the detector was able to read.
+    public static final int      COUNTER_INVALID     = 2; // Symbols the detector wasn't able to read; the band was silent, or we didn't trust it.
+    public static final int      COUNTER_FRAMES      = 3; // Frames delivered to the listener.
+    public static final int      COUNTER_FAILURES    = 4; // Candidate frames which couldn't be decoded. (Mostly noise; a rise alongside few frames means trouble.)
+    public static final int      COUNTER_OVERRUNS    = 5; // Captured blocks which took longer to process than to record; the capture buffer is filling up.
+    public static final int      COUNTER_CHIRPS      = 6; // Chirps synthesized.
+    public static final int      COUNTER_DUPLICATES  = 7; // Frames dropped because they'd already been delivered.
+    public static final int      COUNTER_DROPPED     = 8; // Frames dropped because the listener couldn't keep up, and the delivery queue was full.
+    public static final int      COUNTER_SQUELCHED   = 9; // Segments which weren't measured, because the squelch was closed. (Replayed segments are counted as measured too.)
+    public static final int      COUNTER_ERRORS      = 10; // Calls to a dispatched listener which threw; the payload was skipped, and delivery carried on.
+    public static final String[] COUNTERS            = { "segments", "valid", "invalid", "frames", "failures", "overruns", "chirps", "duplicates", "dropped", "squelched", "errors" };
+
+    /* Static Declarations. */
+    private static final int     BUCKETS             = 64; // Bucket i holds durations of [2^(i-1), 2^i) nanoseconds. (Bucket 0 holds zero.)
+    private static final int     CORRECTIONS         = 32; // The largest number of corrections we keep track of; more than a frame can hold.
+
+    /** The durations recorded for a single stage. */
+    private static final class Histogram {
+        /* Member Variables. */
+        private final AtomicLongArray mBuckets;
+        private final AtomicLong      mCount;
+        private final AtomicLong      mTotal;
+        private final AtomicLong      mMaximum;
+        /** Constructor. */
+        private Histogram() {
+            // Initialize Member Variables.
+            this.mBuckets = new AtomicLongArray(ChirpMetrics.BUCKETS);
+            this.mCount   = new AtomicLong();
+            this.mTotal   = new AtomicLong();
+            this.mMaximum = new AtomicLong();
+        }
+        /** Records a duration, in nanoseconds. */
+        private final void onRecord(final long pNanos) {
+            // Fetch the Bucket; the number of significant bits in the duration.
+            final int  lBucket  = 64 - Long.numberOfLeadingZeros(Math.max(0L, pNanos));
+            // Update the Histogram.
+            this.mBuckets.incrementAndGet(Math.min(lBucket, ChirpMetrics.BUCKETS - 1));
+            this.mCount.incrementAndGet();
+            this.mTotal.addAndGet(pNanos);
+            // Raise the Maximum. (Retry whenever another thread got there first.)
+                  long lMaximum = this.mMaximum.get();
+            while(pNanos > lMaximum && !this.mMaximum.compareAndSet(lMaximum, pNanos)) {
+                lMaximum = this.mMaximum.get();
+            }
+        }
+        /** Clears the Histogram. */
+        private final void reset() {
+            for(int i = 0; i < this.mBuckets.length(); i++) {
+                this.mBuckets.set(i, 0L);
+            }
+            this.mCount.set(0L);
+            this.mTotal.set(0L);
+            this.mMaximum.set(0L);
+        }
+    }
+
+    /** A copy of the metrics at a moment in time. (Values are read one at a time, so a snapshot taken mid-segment may be off by an increment or two.) */
+    public static final class Snapshot {
+        /* Member Variables. */
+        private final long[][] mBuckets;
+        private final long[]   mCounts;
+        private final long[]   mTotals;
+        private final long[]   mMaxima;
+        private final long[]   mCounters;
+        private final long[]   mCorrections;
+        /** Constructor. */
+        private Snapshot(final ChirpMetrics pChirpMetrics) {
+            // Allocate the Arrays.
+            this.mBuckets     = new long[ChirpMetrics.STAGES.length][ChirpMetrics.BUCKETS];
+            this.mCounts      = new long[ChirpMetrics.STAGES.length];
+            this.mTotals      = new long[ChirpMetrics.STAGES.length];
+            this.mMaxima      = new long[ChirpMetrics.STAGES.length];
+            this.mCounters    = new long[ChirpMetrics.COUNTERS.length];
+            this.mCorrections = new long[ChirpMetrics.CORRECTIONS + 1];
+            // Iterate the Stages.
+            for(int i = 0; i < ChirpMetrics.STAGES.length; i++) {
+                // Fetch the Histogram.
+                final ChirpMetrics.Histogram lHistogram = pChirpMetrics.getHistograms()[i];
+                // Copy the Histogram.
+                for(int j = 0; j < ChirpMetrics.BUCKETS; j++) {
+                    this.mBuckets[i][j] = lHistogram.mBuckets.get(j);
+                }
+                this.mCounts[i] = lHistogram.mCount.get();
+                this.mTotals[i] = lHistogram.mTotal.get();
+                this.mMaxima[i] = lHistogram.mMaximum.get();
+            }
+            // Copy the Counters and Corrections.
+            for(int i = 0; i < this.mCounters.length; i++) {
+                this.mCounters[i] = pChirpMetrics.getCounters().get(i);
+            }
+            for(int i = 0; i < this.mCorrections.length; i++) {
+                this.mCorrections[i] = pChirpMetrics.getCorrections().get(i);
+            }
+        }
+        /** Returns the number of durations recorded for a stage. */
+        public final long   getCount(final int pStage)   { return this.mCounts[pStage]; }
+        /** Returns the mean duration of a stage, in nanoseconds. */
+        public final double getMean(final int pStage)    { return (this.mCounts[pStage] == 0) ? 0.0 : (double)this.mTotals[pStage] / this.mCounts[pStage]; }
+        /** Returns the longest duration of a stage, in nanoseconds. */
+        public final long   getMaximum(final int pStage) { return this.mMaxima[pStage]; }
+        public final long   getCounter(final int pCounter) { return this.mCounters[pCounter]; }
+        /** Returns the number of delivered frames which needed the given number of corrections. */
+        public final long   getCorrections(final int pCorrections) { return this.mCorrections[Math.min(pCorrections, ChirpMetrics.CORRECTIONS)]; }
+        /** Returns an upper bound on the given percentile (0-100) of a stage's durations, in nanoseconds. (The bound is the top of the bucket it falls in, so it's within a factor of two.) */
+        public final long getPercentile(final int pStage, final double pPercentile) {
+            // Fetch the rank of the Percentile.
+            final long lRank  = (long)Math.ceil(this.mCounts[pStage] * pPercentile / 100.0);
+            // Iterate the Buckets.
+                  long lTotal = 0L;
+            for(int i = 0; i < ChirpMetrics.BUCKETS; i++) {
+                // Have we reached the Rank?
+                if((lTotal += this.mBuckets[pStage][i]) >= lRank && lTotal > 0) {
+                    // Return the top of the Bucket. (But never more than we've actually seen.)
+                    return Math.min((i == 0) ? 0L : (1L << i) - 1, this.mMaxima[pStage]);
+                }
+            }
+            // Nothing has been recorded.
+            return 0L;
+        }
+        /** Returns the share of symbols which the detector was able to read, from zero to one. */
+        public final double getValidity() {
+            // Fetch the total number of Symbols.
+            final long lSymbols = this.getCounter(ChirpMetrics.COUNTER_VALID) + this.getCounter(ChirpMetrics.COUNTER_INVALID);
+            // Return the Validity.
+            return (lSymbols == 0) ? 0.0 : (double)this.getCounter(ChirpMetrics.COUNTER_VALID) / lSymbols;
+        }
+        /** Returns the mean number of corrections across the delivered frames. */
+        public final double getMeanCorrections() {
+            // Declare the Totals.
+            long lFrames      = 0L;
+            long lCorrections = 0L;
+            // Iterate the Corrections.
+            for(int i = 0; i < this.mCorrections.length; i++) {
+                lFrames      += this.mCorrections[i];
+                lCorrections += this.mCorrections[i] * i;
+            }
+            // Return the Mean.
+            return (lFrames == 0) ? 0.0 : (double)lCorrections / lFrames;
+        }
+        /** Flattens the Snapshot into named values, ready for export; e.g. "decode.p99_ns" or "counter.frames". Durations are in nanoseconds. */
+        public final Map<String, Number> toMap() {
+            // Allocate the Map. (Keep a stable order.)
+            final Map<String, Number> lMap = new LinkedHashMap<>();
+            // Iterate the Stages.
+            for(int i = 0; i < ChirpMetrics.STAGES.length; i++) {
+                lMap.put(ChirpMetrics.STAGES[i] + ".count",   this.getCount(i));
+                lMap.put(ChirpMetrics.STAGES[i] + ".mean_ns", this.getMean(i));
+                lMap.put(ChirpMetrics.STAGES[i] + ".p50_ns",  this.getPercentile(i, 50.0));
+                lMap.put(ChirpMetrics.STAGES[i] + ".p99_ns",  this.getPercentile(i, 99.0));
+                lMap.put(ChirpMetrics.STAGES[i] + ".max_ns",  this.getMaximum(i));
+            }
+            // Iterate the Counters.
+            for(int i = 0; i < ChirpMetrics.COUNTERS.length; i++) {
+                lMap.put("counter." + ChirpMetrics.COUNTERS[i], this.getCounter(i));
+            }
+            // Append the derived values.
+            lMap.put("symbols.validity",  this.getValidity());
+            lMap.put("frames.corrections", this.getMeanCorrections());
+            // Return the Map.
+            return lMap;
+        }
+        /** Returns a one-line summary; handy for the log. */
+        @Override public final String toString() {
+            // Declare the Summary.
+            final StringBuilder lSummary = new StringBuilder();
+            // Iterate the Stages which have been recorded.
+            for(int i = 0; i < ChirpMetrics.STAGES.length; i++) {
+                if(this.getCount(i) > 0) {
+                    lSummary.append(String.format(Locale.US, "%s(n=%d mean=%.1fus p99<%.1fus max=%.1fus) ", ChirpMetrics.STAGES[i], this.getCount(i), this.getMean(i) / 1000.0, this.getPercentile(i, 99.0) / 1000.0, this.getMaximum(i) / 1000.0));
+                }
+            }
+            // Append the Counters.
+            for(int i = 0; i < ChirpMetrics.COUNTERS.length; i++) {
+                lSummary.append(ChirpMetrics.COUNTERS[i]).append('=').append(this.getCounter(i)).append(' ');
+            }
+            // Append the derived values.
+            lSummary.append(String.format(Locale.US, "validity=%.3f corrections=%.2f", this.getValidity(), this.getMeanCorrections()));
+            // Return the Summary.
+            return lSummary.toString();
+        }
+    }
+
+    /* Member Variables. */
+    private final ChirpMetrics.Histogram[] mHistograms;
+    private final AtomicLongArray          mCounters;
+    private final AtomicLongArray          mCorrections;
+
+    /** Constructor. */
+    public ChirpMetrics() {
+        // Initialize Member Variables.
+        this.mHistograms  = new ChirpMetrics.Histogram[ChirpMetrics.STAGES.length];
+        this.mCounters    = new AtomicLongArray(ChirpMetrics.COUNTERS.length);
+        this.mCorrections = new AtomicLongArray(ChirpMetrics.CORRECTIONS + 1);
+        // Iterate the Stages.
+        for(int i = 0; i < this.getHistograms().length; i++) {
+            // Allocate the Histogram.
+            this.getHistograms()[i] = new ChirpMetrics.Histogram();
+        }
+    }
+
+    /** Records how long a stage took, in nanoseconds; e.g. onStage(STAGE_DECODE, System.nanoTime() - lStart). */
+    public final void onStage(final int pStage, final long pNanos) {
+        this.getHistograms()[pStage].onRecord(pNanos);
+    }
+
+    /** Increments a counter. */
+    public final void onCount(final int pCounter) {
+        this.getCounters().incrementAndGet(pCounter);
+    }
+
+    /** Records a delivered frame, and the number of symbols which had to be corrected. */
+    public final void onFrame(final int pCorrections) {
+        this.onCount(ChirpMetrics.COUNTER_FRAMES);
+        this.getCorrections().incrementAndGet(Math.min(Math.max(pCorrections, 0), ChirpMetrics.CORRECTIONS));
+    }
+
+    /** Takes a copy of the metrics. */
+    public final ChirpMetrics.Snapshot snapshot() {
+        return new ChirpMetrics.Snapshot(this);
+    }
+
+    /** Clears every metric; e.g. after exporting a snapshot, so the next one only covers the interval since. */
+    public final void reset() {
+        for(final ChirpMetrics.Histogram lHistogram : this.getHistograms()) {
+            lHistogram.reset();
+        }
+        for(int i = 0; i < this.getCounters().length(); i++) {
+            this.getCounters().set(i, 0L);
+        }
+        for(int i = 0; i < this.getCorrections().length(); i++) {
+            this.getCorrections().set(i, 0L);
+        }
+    }
+
+    /* Getters. */
+    private final ChirpMetrics.Histogram[] getHistograms() {
+        return this.mHistograms;
+    }
+
+    private final AtomicLongArray getCounters() {
+        return this.mCounters;
+    }
+
+    private final AtomicLongArray getCorrections() {
+        return this.mCorrections;
+    }
+
+}
@@ -0,0 +1,327 @@
+package io.github.cawfree.chirp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A receive path which listens for several ChirpFactory profiles at once, e.g. fleets which use different identifiers or base frequencies, or the
+ * channels of a ChirpChannelPlan, from a single capture stream. Profiles which cut the stream into the same segments share a front end; every
+ * distinct tone amongst them is measured just once per segment, by a single ToneBank. Each profile then runs its own lane, picking its peaks out
+ * of the shared energies and decoding them, and the lanes of a block are fanned out across a fork-join pool.
+ *
+ * The listener is never called concurrently, but chirps of different profiles found within the same block may arrive in any order.
+ */
+public class ChirpMultiReceiver {
+
+    /** The analysis shared by every profile with the same segment and window lengths. */
+    private static final class FrontEnd {
+        /* Member Variables. */
+        private final int        mSegment;
+        private final int        mHistory;
+        private final ToneBank   mToneBank;
+        private       float[]    mStream;
+        private       int        mFill;
+        private       double[][] mEnergies;
+        private       int        mSegments;
+        /** Constructor. */
+        private FrontEnd(final int pSegment, final int pWindow, final ToneBank pToneBank) {
+            // Initialize Member Variables.
+            this.mSegment  = pSegment;
+            this.mHistory  = pWindow - pSegment; // (The window reaches back this far before each segment.)
+            this.mToneBank = pToneBank;
+            this.mStream   = new float[pWindow];
+            this.mFill     = this.mHistory;
+            this.mEnergies = new double[0][];
+            this.mSegments = 0;
+        }
+        /** Buffers a block of samples, and measures the energies of every segment it completes. */
+        private final void onSamples(final float[] pSamples, final int pOffset, final int pLength, final ChirpMetrics pMetrics) {
+            // Do we need to grow the Stream? (Only until we've seen the largest block the capture produces.)
+            if(this.mFill + pLength > this.mStream.length) {
+                this.mStream = Arrays.copyOf(this.mStream, this.mFill + pLength);
+            }
+            // Append the Samples.
+            System.arraycopy(pSamples, pOffset, this.mStream, this.mFill, pLength);
+            this.mFill    += pLength;
+            // Fetch the number of complete Segments.
+            this.mSegments = (this.mFill - this.mHistory) / this.mSegment;
+            // Do we need to grow the Energies?
+            if(this.mSegments > this.mEnergies.length) {
+                // Allocate the new rows.
+                final int lRows = this.mEnergies.length;
+                this.mEnergies  = Arrays.copyOf(this.mEnergies, this.mSegments);
+                for(int i = lRows; i < this.mSegments; i++) {
+                    this.mEnergies[i] = new double[this.mToneBank.getFrequencies().length];
+                }
+            }
+            // Iterate the Segments.
+            for(int i = 0; i < this.mSegments; i++) {
+                // Are we being measured?
+                final long lStart = (pMetrics != null) ? System.nanoTime() : 0L;
+                // Measure the window which ends with this Segment.
+                this.mToneBank.measure(this.mStream, i * this.mSegment, this.mHistory + this.mSegment);
+                // Buffer the Energies.
+                System.arraycopy(this.mToneBank.getEnergies(), 0, this.mEnergies[i], 0, this.mEnergies[i].length);
+                // Record the Measurement. (The lanes' decoders record the rest.)
+                if(pMetrics != null) {
+                    pMetrics.onStage(ChirpMetrics.STAGE_TONES, System.nanoTime() - lStart);
+                    pMetrics.onCount(ChirpMetrics.COUNTER_SEGMENTS);
+                }
+            }
+            // Fetch the number of consumed samples.
+            final int lConsumed = this.mSegments * this.mSegment;
+            // Keep the history and any partial segment for next time.
+            System.arraycopy(this.mStream, lConsumed, this.mStream, 0, this.mFill - lConsumed);
+            this.mFill -= lConsumed;
+        }
+        /** Discards any partial segment. */
+        private final void flush() {
+            this.mFill = this.mHistory;
+        }
+    }
+
+    /** A single profile; finds its own tones within the shared energies, and decodes them. */
+    private final class Lane implements ChirpFactory.IListener {
+        /* Member Variables. */
+        private final ChirpFactory                mChirpFactory;
+        private final ChirpMultiReceiver.FrontEnd mFrontEnd;
+        private final int[]                       mMap;
+        private final ToneBank                    mToneBank;
+        private final ChirpDecoder                mChirpDecoder;
+        /** Constructor. */
+        private Lane(final ChirpFactory pChirpFactory, final ChirpMultiReceiver.FrontEnd pFrontEnd, final int[] pMap, final int pSampleRate, final int pSubsamples) {
+            // Initialize Member Variables.
+            this.mChirpFactory = pChirpFactory;
+            this.mFrontEnd     = pFrontEnd;
+            this.mMap          = pMap;
+            this.mToneBank     = new ToneBank(pChirpFactory, pSampleRate);
+            this.mChirpDecoder = new ChirpDecoder(pChirpFactory, pSubsamples);
+        }
+        /** Decodes the segments measured by the front end for the current block. */
+        private final void onBlock() {
+            // Iterate the Segments.
+            for(int i = 0; i < this.mFrontEnd.mSegments; i++) {
+                // Find our Peaks amongst the shared Energies.
+                this.mToneBank.process(this.mFrontEnd.mEnergies[i], this.mMap);
+                // Buffer the strongest Tone of each band; the decoder will call us back if this completes a chirp.
+                this.mChirpDecoder.onSamples(this.mToneBank.getPitches(), this.mToneBank.getConfidences(), this);
+            }
+        }
+        /** Called when our ChirpDecoder has received a valid chirp. */
+        @Override public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) {
+            // Deliver the Payload.
+            onDeliver(pChirpFactory, pSymbols, pOffset, pLength);
+        }
+        /** The ChirpDecoder always calls onPayload() instead. */
+        @Override public final void onChirp(final String pMessage) { }
+    }
+
+    /** Runs a range of lanes, splitting the work in half until only a single lane remains. (Never serialized.) */
+    @SuppressWarnings("serial")
+    private final class LaneTask extends RecursiveAction {
+        /* Member Variables. */
+        private final int mFirst;
+        private final int mLast;
+        /** Constructor. */
+        private LaneTask(final int pFirst, final int pLast) {
+            // Initialize Member Variables.
+            this.mFirst = pFirst;
+            this.mLast  = pLast;
+        }
+        /** Runs our range of lanes. */
+        @Override protected final void compute() {
+            // Are there several lanes left?
+            if(this.mLast - this.mFirst > 1) {
+                // Split the range in half.
+                final int lMiddle = (this.mFirst + this.mLast) >>> 1;
+                RecursiveAction.invokeAll(new LaneTask(this.mFirst, lMiddle), new LaneTask(lMiddle, this.mLast));
+            }
+            else {
+                // Run the Lane.
+                getLanes().get(this.mFirst).onBlock();
+            }
+        }
+    }
+
+    /* Member Variables. */
+    private final List<ChirpFactory>                mChirpFactories;
+    private final List<ChirpMultiReceiver.FrontEnd> mFrontEnds;
+    private final List<ChirpMultiReceiver.Lane>     mLanes;
+    private final ForkJoinPool                      mForkJoinPool;
+    private       ChirpFactory.IListener            mListener;
+    private       ChirpMetrics                      mMetrics;
+
+    /** Constructor. Listens to every channel of the plan; since the channels only differ in frequency, they all share a single front end. */
+    public ChirpMultiReceiver(final ChirpChannelPlan pChirpChannelPlan, final int pSampleRate, final int pSubsamples) {
+        this(pChirpChannelPlan.getChannels(), pSampleRate, pSubsamples);
+    }
+
+    /** Constructor. */
+    public ChirpMultiReceiver(final List<ChirpFactory> pChirpFactories, final int pSampleRate, final int pSubsamples) {
+        this(pChirpFactories, pSampleRate, pSubsamples, ForkJoinPool.commonPool());
+    }
+
+    /** Constructor. */
+    public ChirpMultiReceiver(final List<ChirpFactory> pChirpFactories, final int pSampleRate, final int pSubsamples, final ForkJoinPool pForkJoinPool) {
+        // Initialize Member Variables.
+        this.mChirpFactories = Collections.unmodifiableList(new ArrayList<>(pChirpFactories));
+        this.mFrontEnds      = new ArrayList<>();
+        this.mLanes          = new ArrayList<>();
+        this.mForkJoinPool   = pForkJoinPool;
+        this.mListener       = null;
+        this.mMetrics        = null;
+        // Declare the tones measured by each FrontEnd.
+        final List<List<Double>> lTones = new ArrayList<>();
+        // Declare the (segment, window) of each FrontEnd.
+        final List<int[]>        lKeys  = new ArrayList<>();
+        // Iterate the ChirpFactories; group them by how they cut up the stream, and gather each group's distinct tones.
+        for(final ChirpFactory lChirpFactory : this.getChirpFactories()) {
+            // Fetch the Key.
+            final int[] lKey   = new int[] { ChirpReceiver.getSegmentSamples(lChirpFactory, pSampleRate, pSubsamples), ChirpReceiver.getWindowSamples(lChirpFactory, pSampleRate, pSubsamples) };
+            // Fetch the matching group.
+                  int   lGroup = this.indexOf(lKeys, lKey);
+            // Is this a new group?
+            if(lGroup == -1) {
+                lGroup = lKeys.size();
+                lKeys.add(lKey);
+                lTones.add(new ArrayList<>());
+            }
+            // Iterate the Frequencies.
+            for(final double lFrequency : lChirpFactory.getFrequencies()) {
+                // Is this a new Tone?
+                if(!lTones.get(lGroup).contains(lFrequency)) {
+                    lTones.get(lGroup).add(lFrequency);
+                }
+            }
+        }
+        // Iterate the groups.
+        for(int i = 0; i < lKeys.size(); i++) {
+            // Fetch the Frequencies.
+            final double[] lFrequencies = new double[lTones.get(i).size()];
+            for(int j = 0; j < lFrequencies.length; j++) {
+                lFrequencies[j] = lTones.get(i).get(j);
+            }
+            // Allocate the FrontEnd; the ToneBank only measures energies, so the band split is irrelevant.
+            this.getFrontEnds().add(new ChirpMultiReceiver.FrontEnd(lKeys.get(i)[0], lKeys.get(i)[1], new ToneBank(lFrequencies, 1, pSampleRate)));
+        }
+        // Iterate the ChirpFactories again, allocating their Lanes.
+        for(final ChirpFactory lChirpFactory : this.getChirpFactories()) {
+            // Fetch the Key.
+            final int[]                       lKey      = new int[] { ChirpReceiver.getSegmentSamples(lChirpFactory, pSampleRate, pSubsamples), ChirpReceiver.getWindowSamples(lChirpFactory, pSampleRate, pSubsamples) };
+            // Fetch the FrontEnd.
+            final int                         lGroup    = this.indexOf(lKeys, lKey);
+            final ChirpMultiReceiver.FrontEnd lFrontEnd = this.getFrontEnds().get(lGroup);
+            // Map each of the profile's tones onto those of the FrontEnd.
+            final int[]                       lMap      = new int[lChirpFactory.getFrequencies().length];
+            for(int j = 0; j < lMap.length; j++) {
+                lMap[j] = lTones.get(lGroup).indexOf(lChirpFactory.getFrequencies()[j]);
+            }
+            // Allocate the Lane.
+            this.getLanes().add(new ChirpMultiReceiver.Lane(lChirpFactory, lFrontEnd, lMap, pSampleRate, pSubsamples));
+        }
+    }
+
+    /** Returns the index of a key within the list. */
+    private final int indexOf(final List<int[]> pKeys, final int[] pKey) {
+        // Iterate the Keys.
+        for(int i = 0; i < pKeys.size(); i++) {
+            // Is this the Key?
+            if(Arrays.equals(pKeys.get(i), pKey)) {
+                return i;
+            }
+        }
+        // The Key wasn't found.
+        return -1;
+    }
+
+    /** Processes a block of samples. Returns once every profile has decoded the block. */
+    public final void process(final float[] pSamples, final int pOffset, final int pLength) {
+        // Measure the shared Energies of each FrontEnd.
+        for(final ChirpMultiReceiver.FrontEnd lFrontEnd : this.getFrontEnds()) {
+            lFrontEnd.onSamples(pSamples, pOffset, pLength, this.getMetrics());
+        }
+        // Is there only a single Lane? (Then there's nothing to fan out.)
+        if(this.getLanes().size() == 1) {
+            this.getLanes().get(0).onBlock();
+        }
+        else {
+            // Decode every Lane in parallel.
+            this.getForkJoinPool().invoke(new LaneTask(0, this.getLanes().size()));
+        }
+    }
+
+    /** Delivers a Payload to the listener, one at a time. */
+    private final synchronized void onDeliver(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) {
+        // Deliver the Payload.
+        if(this.getListener() != null) {
+            this.getListener().onPayload(pChirpFactory, pSymbols, pOffset, pLength);
+        }
+    }
+
+    /** Discards any partially filled segments. */
+    public final void flush() {
+        for(final ChirpMultiReceiver.FrontEnd lFrontEnd : this.getFrontEnds()) {
+            lFrontEnd.flush();
+        }
+    }
+
+    /* Getters. */
+    /** Returns the profiles we're listening for. */
+    public final List<ChirpFactory> getChirpFactories() {
+        return this.mChirpFactories;
+    }
+
+    private final List<ChirpMultiReceiver.FrontEnd> getFrontEnds() {
+        return this.mFrontEnds;
+    }
+
+    private final List<ChirpMultiReceiver.Lane> getLanes() {
+        return this.mLanes;
+    }
+
+    private final ForkJoinPool getForkJoinPool() {
+        return this.mForkJoinPool;
+    }
+
+    /** Returns the number of distinct tones measured for each segment, across every front end. */
+    public final int getTones() {
+        int lTones = 0;
+        for(final ChirpMultiReceiver.FrontEnd lFrontEnd : this.getFrontEnds()) {
+            lTones += lFrontEnd.mToneBank.getFrequencies().length;
+        }
+        return lTones;
+    }
+
+    /** Sets the listener; it's called with the payload of every profile, which can be told apart by the ChirpFactory it's delivered with. */
+    public final synchronized void setListener(final ChirpFactory.IListener pListener) {
+        this.mListener = pListener;
+    }
+
+    private final ChirpFactory.IListener getListener() {
+        return this.mListener;
+    }
+
+    /** Configures how long each lane remembers the chirps it's delivered, so that repeats are dropped; see ChirpDecoder#setDuplicateTtl(). */
+    public final void setDuplicateTtl(final int pDuplicateTtlMs) {
+        for(final ChirpMultiReceiver.Lane lLane : this.getLanes()) {
+            lLane.mChirpDecoder.setDuplicateTtl(pDuplicateTtlMs);
+        }
+    }
+
+    /** Sets where we record how long the shared measurement and each lane's decoding take; null (the default) records nothing. Shared by every lane. */
+    public final void setMetrics(final ChirpMetrics pMetrics) {
+        this.mMetrics = pMetrics;
+        for(final ChirpMultiReceiver.Lane lLane : this.getLanes()) {
+            lLane.mChirpDecoder.setMetrics(pMetrics);
+        }
+    }
+
+    public final ChirpMetrics getMetrics() {
+        return this.mMetrics;
+    }
+
+}
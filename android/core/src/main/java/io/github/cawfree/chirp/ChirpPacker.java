@@ -0,0 +1,122 @@
+package io.github.cawfree.chirp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs binary data into 5-bit symbols, and back again. Bits are taken most significant first, so the symbols read as a contiguous big-endian
+ * bitstream; where the data doesn't fill the last symbol, it's padded with zeros. Nothing is allocated, so these are safe to use on the audio
+ * thread.
+ */
+public final class ChirpPacker {
+
+    /* Static Declarations. */
+    public  static final int BITS_PER_SYMBOL = 5;
+    private static final int MASK_SYMBOL     = (1 << ChirpPacker.BITS_PER_SYMBOL) - 1;
+
+    /** Prevent instantiation. */
+    private ChirpPacker() {}
+
+    /** Returns the number of symbols needed to carry the given number of bytes. */
+    public static final int getSymbolCount(final int pBytes) {
+        return (pBytes * 8 + ChirpPacker.BITS_PER_SYMBOL - 1) / ChirpPacker.BITS_PER_SYMBOL;
+    }
+
+    /** Returns the number of whole bytes carried by the given number of symbols. */
+    public static final int getByteCount(final int pSymbols) {
+        return (pSymbols * ChirpPacker.BITS_PER_SYMBOL) / 8;
+    }
+
+    /** Packs bytes into symbols. Returns the number of symbols written. */
+    public static final int pack(final byte[] pData, final int pOffset, final int pLength, final int[] pSymbols, final int pSymbolOffset) {
+        // Declare the bit accumulator.
+        int lAccumulator = 0;
+        int lBits        = 0;
+        int lWritten     = 0;
+        // Iterate the Data.
+        for(int i = pOffset; i < pOffset + pLength; i++) {
+            // Shift in the next byte.
+            lAccumulator = (lAccumulator << 8) | (pData[i] & 0xFF);
+            lBits       += 8;
+            // Drain whole symbols.
+            while(lBits >= ChirpPacker.BITS_PER_SYMBOL) {
+                lBits -= ChirpPacker.BITS_PER_SYMBOL;
+                pSymbols[pSymbolOffset + lWritten++] = (lAccumulator >>> lBits) & ChirpPacker.MASK_SYMBOL;
+            }
+        }
+        // Are there leftover bits? (Pad them out to a whole symbol.)
+        if(lBits > 0) {
+            pSymbols[pSymbolOffset + lWritten++] = (lAccumulator << (ChirpPacker.BITS_PER_SYMBOL - lBits)) & ChirpPacker.MASK_SYMBOL;
+        }
+        // Return the number of symbols written.
+        return lWritten;
+    }
+
+    /** Packs the remaining bytes of the buffer into symbols, advancing its position. Returns the number of symbols written. */
+    public static final int pack(final ByteBuffer pData, final int[] pSymbols, final int pSymbolOffset) {
+        // Declare the bit accumulator.
+        int lAccumulator = 0;
+        int lBits        = 0;
+        int lWritten     = 0;
+        // Iterate the Data.
+        while(pData.hasRemaining()) {
+            // Shift in the next byte.
+            lAccumulator = (lAccumulator << 8) | (pData.get() & 0xFF);
+            lBits       += 8;
+            // Drain whole symbols.
+            while(lBits >= ChirpPacker.BITS_PER_SYMBOL) {
+                lBits -= ChirpPacker.BITS_PER_SYMBOL;
+                pSymbols[pSymbolOffset + lWritten++] = (lAccumulator >>> lBits) & ChirpPacker.MASK_SYMBOL;
+            }
+        }
+        // Are there leftover bits? (Pad them out to a whole symbol.)
+        if(lBits > 0) {
+            pSymbols[pSymbolOffset + lWritten++] = (lAccumulator << (ChirpPacker.BITS_PER_SYMBOL - lBits)) & ChirpPacker.MASK_SYMBOL;
+        }
+        // Return the number of symbols written.
+        return lWritten;
+    }
+
+    /** Unpacks symbols into bytes. Any trailing bits which don't make up a whole byte are discarded. Returns the number of bytes written. */
+    public static final int unpack(final int[] pSymbols, final int pSymbolOffset, final int pSymbolLength, final byte[] pData, final int pOffset) {
+        // Declare the bit accumulator.
+        int lAccumulator = 0;
+        int lBits        = 0;
+        int lWritten     = 0;
+        // Iterate the Symbols.
+        for(int i = pSymbolOffset; i < pSymbolOffset + pSymbolLength; i++) {
+            // Shift in the next symbol.
+            lAccumulator = (lAccumulator << ChirpPacker.BITS_PER_SYMBOL) | (pSymbols[i] & ChirpPacker.MASK_SYMBOL);
+            lBits       += ChirpPacker.BITS_PER_SYMBOL;
+            // Is there a whole byte?
+            if(lBits >= 8) {
+                lBits -= 8;
+                pData[pOffset + lWritten++] = (byte)(lAccumulator >>> lBits);
+            }
+        }
+        // Return the number of bytes written.
+        return lWritten;
+    }
+
+    /** Unpacks symbols into the buffer, advancing its position. Any trailing bits which don't make up a whole byte are discarded. Returns the number of bytes written. */
+    public static final int unpack(final int[] pSymbols, final int pSymbolOffset, final int pSymbolLength, final ByteBuffer pData) {
+        // Declare the bit accumulator.
+        int lAccumulator = 0;
+        int lBits        = 0;
+        int lWritten     = 0;
+        // Iterate the Symbols.
+        for(int i = pSymbolOffset; i < pSymbolOffset + pSymbolLength; i++) {
+            // Shift in the next symbol.
+            lAccumulator = (lAccumulator << ChirpPacker.BITS_PER_SYMBOL) | (pSymbols[i] & ChirpPacker.MASK_SYMBOL);
+            lBits       += ChirpPacker.BITS_PER_SYMBOL;
+            // Is there a whole byte?
+            if(lBits >= 8) {
+                lBits -= 8;
+                pData.put((byte)(lAccumulator >>> lBits));
+                lWritten++;
+            }
+        }
+        // Return the number of bytes written.
+        return lWritten;
+    }
+
+}
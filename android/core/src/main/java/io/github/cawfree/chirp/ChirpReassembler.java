@@ -0,0 +1,180 @@
+package io.github.cawfree.chirp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reassembles the fragments produced by a ChirpFragmenter. Fragments may arrive in any order, and repeats are ignored; a completed message is
+ * remembered until the timeout, so late repeats of its fragments can't deliver it again. Only a bounded number of messages are tracked at once;
+ * if another message begins whilst we're full, the oldest message is abandoned. Any message which hasn't completed within the timeout is
+ * abandoned too.
+ */
+public class ChirpReassembler implements ChirpFactory.IListener {
+
+    /* Static Declarations. */
+    public static final long DEFAULT_TIMEOUT_MS = 10000;
+    public static final int  DEFAULT_CAPACITY   = 4;
+
+    /** A partially received message. */
+    private static final class Partial {
+        /* Member Variables. */
+        private final long      mStarted;
+        private final char[]    mStream;
+        private final boolean[] mReceived;
+        private       int       mRemaining;
+        /** Constructor. */
+        private Partial(final long pStarted, final int pFragments, final int pFragmentData) {
+            // Initialize Member Variables.
+            this.mStarted   = pStarted;
+            this.mStream    = new char[pFragments * pFragmentData];
+            this.mReceived  = new boolean[pFragments];
+            this.mRemaining = pFragments;
+        }
+        /* Getters. */
+        private final long      getStarted()  { return this.mStarted;  }
+        private final char[]    getStream()   { return this.mStream;   }
+        private final boolean[] getReceived() { return this.mReceived; }
+    }
+
+    /* Member Variables. */
+    private final ChirpFactory                           mChirpFactory;
+    private final long                                   mTimeout;
+    private final int                                    mCapacity;
+    private final Map<Integer, ChirpReassembler.Partial> mPartials;
+    private       ChirpFactory.IListener                 mListener;
+
+    /** Constructor. */
+    public ChirpReassembler(final ChirpFactory pChirpFactory) {
+        this(pChirpFactory, ChirpReassembler.DEFAULT_TIMEOUT_MS, ChirpReassembler.DEFAULT_CAPACITY);
+    }
+
+    /** Constructor. */
+    public ChirpReassembler(final ChirpFactory pChirpFactory, final long pTimeout, final int pCapacity) {
+        // Initialize Member Variables.
+        this.mChirpFactory = pChirpFactory;
+        this.mTimeout      = pTimeout;
+        this.mCapacity     = pCapacity;
+        this.mPartials     = new LinkedHashMap<>(); // (Insertion order; the eldest entry is always the oldest message.)
+        this.mListener     = null;
+    }
+
+    /** Called with the payload of each received chirp. Calls the listener once a message has been completed. */
+    @Override
+    public final void onChirp(final String pPayload) {
+        this.onChirp(pPayload, System.currentTimeMillis());
+    }
+
+    /** Called with the payload of each received chirp, and the time it was received. */
+    public final void onChirp(final String pPayload, final long pNow) {
+        // Fetch the Characters.
+        final String lCharacters = this.getChirpFactory().getRange().getCharacters();
+        final int    lSymbols    = lCharacters.length();
+        // Abandon any stale messages.
+        this.onExpire(pNow);
+        // Is the Payload the wrong length?
+        if(pPayload.length() != this.getChirpFactory().getPayloadLength()) {
+            return;
+        }
+        // Parse the Header.
+        final int lTag   = lCharacters.indexOf(pPayload.charAt(0));
+        final int lIndex = lCharacters.indexOf(pPayload.charAt(1));
+        final int lLast  = lCharacters.indexOf(pPayload.charAt(2));
+        // Is the Header invalid?
+        if(lTag < 0 || lIndex < 0 || lLast < 0 || lIndex > lLast) {
+            return;
+        }
+        // Fetch the Key; fragments belong to the same message if they share both the tag and the fragment count.
+        final Integer                  lKey     = Integer.valueOf(lTag * lSymbols + lLast);
+        // Fetch the amount of data carried by each fragment.
+        final int                      lData    = ChirpFragmenter.getFragmentData(this.getChirpFactory());
+        // Fetch the Partial.
+              ChirpReassembler.Partial lPartial = this.getPartials().get(lKey);
+        // Is this a new message?
+        if(lPartial == null) {
+            // Are we full?
+            if(this.getPartials().size() >= this.getCapacity()) {
+                // Abandon the oldest message.
+                final Iterator<ChirpReassembler.Partial> lIterator = this.getPartials().values().iterator();
+                lIterator.next();
+                lIterator.remove();
+            }
+            // Allocate the Partial.
+            lPartial = new ChirpReassembler.Partial(pNow, lLast + 1, lData);
+            // Track the Partial.
+            this.getPartials().put(lKey, lPartial);
+        }
+        // Have we already received this Fragment?
+        if(lPartial.getReceived()[lIndex]) {
+            return;
+        }
+        // Copy the Fragment's data into the stream.
+        pPayload.getChars(ChirpFragmenter.HEADER_LENGTH, pPayload.length(), lPartial.getStream(), lIndex * lData);
+        // Assert that we've received the Fragment.
+        lPartial.getReceived()[lIndex] = true;
+        lPartial.mRemaining--;
+        // Is the message complete?
+        if(lPartial.mRemaining == 0) {
+            // Keep hold of the Partial until it expires; any repeats of its fragments are ignored.
+            // Parse the Length Prefix.
+            final int lHigh   = lCharacters.indexOf(lPartial.getStream()[0]);
+            final int lLow    = lCharacters.indexOf(lPartial.getStream()[1]);
+            final int lLength = lHigh * lSymbols + lLow;
+            // Does the Length fit within the stream? (If not, the fragments didn't come from the same message.)
+            if(lHigh >= 0 && lLow >= 0 && lLength <= lPartial.getStream().length - ChirpFragmenter.PREFIX_LENGTH && this.getListener() != null) {
+                // Deliver the Message.
+                this.getListener().onChirp(new String(lPartial.getStream(), ChirpFragmenter.PREFIX_LENGTH, lLength));
+            }
+        }
+    }
+
+    /** Abandons any messages which have been waiting for longer than the timeout. */
+    private final void onExpire(final long pNow) {
+        // Fetch the Iterator. (Messages are ordered by age, so we can stop at the first one which is still fresh.)
+        final Iterator<ChirpReassembler.Partial> lIterator = this.getPartials().values().iterator();
+        // Iterate the Partials.
+        while(lIterator.hasNext() && (pNow - lIterator.next().getStarted()) > this.getTimeout()) {
+            // Abandon the Partial.
+            lIterator.remove();
+        }
+    }
+
+    /* Getters. */
+    public final ChirpFactory getChirpFactory() {
+        return this.mChirpFactory;
+    }
+
+    public final long getTimeout() {
+        return this.mTimeout;
+    }
+
+    public final int getCapacity() {
+        return this.mCapacity;
+    }
+
+    private final Map<Integer, ChirpReassembler.Partial> getPartials() {
+        return this.mPartials;
+    }
+
+    /** Returns the number of messages which are currently incomplete. */
+    public final int getPending() {
+        // Declare the Pending count.
+        int lPending = 0;
+        // Iterate the Partials.
+        for(final ChirpReassembler.Partial lPartial : this.getPartials().values()) {
+            // Is the Partial still waiting on fragments?
+            lPending += (lPartial.mRemaining > 0) ? 1 : 0;
+        }
+        // Return the Pending count.
+        return lPending;
+    }
+
+    public final void setListener(final ChirpFactory.IListener pListener) {
+        this.mListener = pListener;
+    }
+
+    private final ChirpFactory.IListener getListener() {
+        return this.mListener;
+    }
+
+}
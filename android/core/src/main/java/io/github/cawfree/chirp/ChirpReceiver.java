@@ -0,0 +1,345 @@
+package io.github.cawfree.chirp;
+
+/**
+ * The receive path, independent of where the audio comes from. Incoming samples are cut into fixed-length segments (carrying any remainder
+ * between calls, so every sample lands in exactly one segment), each segment's tones are measured by a ToneBank, and the strongest tone is
+ * handed to a ChirpDecoder. For short symbol periods a segment is too brief to tell adjacent tones apart, so the ToneBank instead measures a
+ * longer window which slides along by one segment at a time.
+ */
+public class ChirpReceiver implements ChirpFactory.IListener {
+
+    /** Decides whether a measured segment should be passed on to the decoder. */
+    public interface IGate {
+        /** Called for every segment once its tones have been measured. Returns false to discard the segment. */
+        boolean isOpen(final ToneBank pToneBank);
+    }
+
+    /* Member Variables. */
+    private final ChirpFactory           mChirpFactory;
+    private final int                    mSampleRate;
+    private final ToneBank               mToneBank;
+    private final ChirpDecoder           mChirpDecoder;
+    private final float[]                mSegment;
+    private final float[]                mWindow;
+    private       int                    mFill;
+    private       long                   mPosition;
+    private       ChirpSquelch           mSquelch;
+    private       long                   mSkipped;
+    private       ChirpReceiver.IGate    mGate;
+    private       ChirpFactory.IListener mListener;
+    private       ChirpMetrics           mMetrics;
+    private       long                   mBlockNanos;
+    private       int                    mBlockEnd;
+    private       int                    mSegmentEnd;
+    private       long                   mCarryNanos;
+
+    /** Returns the number of samples in each segment; a symbol period is split into this many sub-samples. */
+    public static final int getSegmentSamples(final ChirpFactory pChirpFactory, final int pSampleRate, final int pSubsamples) {
+        // Calculate the number of samples in a symbol, then divide it amongst the sub-samples.
+        return ((int)((pChirpFactory.getSymbolPeriodMs() / 1000.0f) * pSampleRate)) / pSubsamples;
+    }
+
+    /** Returns the number of samples the ToneBank measures at a time. This is at least a segment, and long enough to resolve the closest pair of tones. */
+    public static final int getWindowSamples(final ChirpFactory pChirpFactory, final int pSampleRate, final int pSubsamples) {
+        // Fetch the Frequencies.
+        final double[] lFrequencies = pChirpFactory.getFrequencies();
+        // Declare the closest Spacing.
+              double   lSpacing     = Double.POSITIVE_INFINITY;
+        // Iterate the Frequencies.
+        for(int i = 1; i < lFrequencies.length; i++) {
+            // Track the closest Spacing.
+            lSpacing = Math.min(lSpacing, Math.abs(lFrequencies[i] - lFrequencies[i - 1]));
+        }
+        // A window of N samples resolves tones which are at least (sample rate / N) apart.
+        final int lResolution = (int)Math.ceil(pSampleRate / lSpacing);
+        // Fetch the Segment and the Symbol.
+        final int lSegment    = ChirpReceiver.getSegmentSamples(pChirpFactory, pSampleRate, pSubsamples);
+        final int lSymbol     = lSegment * pSubsamples;
+        // Don't let the window grow beyond half a symbol; otherwise it'll never sit cleanly within one.
+        return Math.max(lSegment, Math.min(lResolution, lSymbol / 2));
+    }
+
+    /** Constructor. */
+    public ChirpReceiver(final ChirpFactory pChirpFactory, final int pSampleRate, final int pSubsamples) {
+        this(pChirpFactory, ChirpFactory.DETECTOR_CHIRP_MEAN, pSampleRate, pSubsamples);
+    }
+
+    /** Constructor. The detector turns each symbol's run of measured pitches into a symbol; see ChirpFactory.IDetector. */
+    public ChirpReceiver(final ChirpFactory pChirpFactory, final ChirpFactory.IDetector pDetector, final int pSampleRate, final int pSubsamples) {
+        // Initialize Member Variables.
+        this.mChirpFactory = pChirpFactory;
+        this.mSampleRate   = pSampleRate;
+        // Allocate the ToneBank; we only need to measure the frequencies that correspond to valid symbols.
+        this.mToneBank     = new ToneBank(pChirpFactory, pSampleRate);
+        // Allocate the ChirpDecoder; this tracks the received symbols for each sub-sampling phase.
+        this.mChirpDecoder = new ChirpDecoder(pChirpFactory, pDetector, pSubsamples);
+        // Allocate the Segment; used to carry samples between buffers whenever a segment straddles them.
+        this.mSegment      = new float[ChirpReceiver.getSegmentSamples(pChirpFactory, pSampleRate, pSubsamples)];
+        // Allocate the Window; only needed if we measure more than a single segment at a time.
+        this.mWindow       = new float[ChirpReceiver.getWindowSamples(pChirpFactory, pSampleRate, pSubsamples)];
+        this.mFill         = 0;
+        this.mPosition     = 0;
+        this.mSquelch      = null;
+        this.mSkipped      = 0L;
+        this.mGate         = null;
+        this.mListener     = null;
+        this.mMetrics      = null;
+        this.mBlockNanos   = 0L;
+        this.mBlockEnd     = 0;
+        this.mSegmentEnd   = 0;
+        this.mCarryNanos   = 0L;
+    }
+
+    /** Processes a block of samples. Any listener is called synchronously, from the calling thread. */
+    public final void process(final float[] pSamples, final int pOffset, final int pLength) {
+        // Fetch the Segment length.
+        final int lSegment = this.getSegment().length;
+        // Are we being measured? (Remember when the block arrived; its last sample has only just been captured.)
+        if(this.getMetrics() != null) {
+            this.mBlockNanos = System.nanoTime();
+            this.mBlockEnd   = pOffset + pLength;
+        }
+        // Iterate across the Samples.
+        int i = pOffset;
+        while (i < pOffset + pLength) {
+            // Are we aligned with a complete segment inside the buffer?
+            if (this.mFill == 0 && (pOffset + pLength - i) >= lSegment) {
+                // Measure the Tones in place; there's no need to copy.
+                this.mSegmentEnd = i + lSegment;
+                this.onSegment(pSamples, i);
+                // Move onto the next segment.
+                i += lSegment;
+            } else {
+                // Fetch how many samples we can carry.
+                final int  lCarry = Math.min(lSegment - this.mFill, pOffset + pLength - i);
+                final long lStart = (this.getMetrics() != null) ? System.nanoTime() : 0L;
+                // Top up the Segment.
+                System.arraycopy(pSamples, i, this.getSegment(), this.mFill, lCarry);
+                // Charge the copy to the Segment. (It's recorded along with the rest of the segmenting, once the Segment is complete.)
+                if(this.getMetrics() != null) {
+                    this.mCarryNanos += System.nanoTime() - lStart;
+                }
+                // Update the offsets.
+                this.mFill += lCarry;
+                i += lCarry;
+                // Is the Segment complete?
+                if (this.mFill == lSegment) {
+                    // Measure the Tones within the Segment.
+                    this.mSegmentEnd = i;
+                    this.onSegment(this.getSegment(), 0);
+                    // Empty the Segment.
+                    this.mFill = 0;
+                }
+            }
+        }
+    }
+
+    /** Called with every complete segment. Unless the squelch is closed, it's measured and passed on to the decoder. */
+    private final void onSegment(final float[] pSamples, final int pOffset) {
+        // Keep track of how far through the stream we are.
+        this.mPosition += this.getSegment().length;
+        // Are we squelched?
+        if (this.getSquelch() != null) {
+            // Was the Squelch open?
+            final boolean lWasOpen = this.getSquelch().isOpen();
+            // Ask the Squelch whether there's anything to hear.
+            final long    lStart   = (this.getMetrics() != null) ? System.nanoTime() : 0L;
+            final boolean lIsOpen  = this.getSquelch().onSegment(pSamples, pOffset);
+            // Record how long the decision took.
+            if (this.getMetrics() != null) {
+                this.getMetrics().onStage(ChirpMetrics.STAGE_SQUELCH, System.nanoTime() - lStart);
+            }
+            // Is the Squelch closed?
+            if (!lIsOpen) {
+                // Skip the Segment.
+                this.mSkipped++;
+                if (this.getMetrics() != null) {
+                    this.getMetrics().onCount(ChirpMetrics.COUNTER_SQUELCHED);
+                }
+                return;
+            }
+            // Has the Squelch just opened? Catch up on what we skipped.
+            if (!lWasOpen) {
+                this.onReplay();
+            }
+        }
+        // Measure the Segment.
+        this.onMeasure(pSamples, pOffset);
+    }
+
+    /** Called when the squelch opens. The segments it held before this one are measured, oldest first, and the decoder skips over the rest. */
+    private final void onReplay() {
+        // Fetch how many of the skipped Segments were held.
+        final int  lHeld     = (int)Math.min(this.getSquelch().getHeld() - 1, this.mSkipped);
+        // Fetch where the current Segment ends.
+        final long lPosition = this.getPosition();
+        // Skip the Decoder over what we can't replay.
+        this.getChirpDecoder().skip(this.mSkipped - lHeld);
+        this.mSkipped        = 0L;
+        // Iterate the held Segments.
+        for (int i = 0; i < lHeld; i++) {
+            // Rewind to where the Segment ended; anyone listening sees the position of what's being measured.
+            this.mPosition = lPosition - (long)(lHeld - i) * this.getSegment().length;
+            // Measure the Segment. (The held segments run up to and including the current one; we want those just before it.)
+            this.onMeasure(this.getSquelch().getPreRoll(), this.getSquelch().getHeldOffset(this.getSquelch().getHeld() - 1 - lHeld + i));
+        }
+        // Return to the current Segment.
+        this.mPosition       = lPosition;
+    }
+
+    /** Measures a complete segment and passes it on to the decoder. */
+    private final void onMeasure(final float[] pSamples, final int pOffset) {
+        // Are we being measured?
+        final long lStart = (this.getMetrics() != null) ? System.nanoTime() : 0L;
+              long lTones = lStart;
+        // Are we measuring a single segment?
+        if (this.getWindow().length == this.getSegment().length) {
+            // Measure the Tones within the Segment.
+            this.getToneBank().process(pSamples, pOffset, this.getSegment().length);
+        } else {
+            // Slide the Window along by a segment.
+            System.arraycopy(this.getWindow(), this.getSegment().length, this.getWindow(), 0, this.getWindow().length - this.getSegment().length);
+            System.arraycopy(pSamples, pOffset, this.getWindow(), this.getWindow().length - this.getSegment().length, this.getSegment().length);
+            // Mark where the segmenting ends.
+            lTones = (this.getMetrics() != null) ? System.nanoTime() : 0L;
+            // Measure the Tones within the Window.
+            this.getToneBank().process(this.getWindow(), 0, this.getWindow().length);
+        }
+        // Record how long the segmenting and measurement took.
+        if (this.getMetrics() != null) {
+            this.getMetrics().onStage(ChirpMetrics.STAGE_SEGMENT, lTones - lStart + this.mCarryNanos);
+            this.getMetrics().onStage(ChirpMetrics.STAGE_TONES, System.nanoTime() - lTones);
+            this.getMetrics().onCount(ChirpMetrics.COUNTER_SEGMENTS);
+            this.mCarryNanos = 0L;
+        }
+        // Is the segment allowed through?
+        if (this.getGate() == null || this.getGate().isOpen(this.getToneBank())) {
+            // Buffer the strongest Tone of each band and the corresponding Confidence; the decoder will call us back if this completes a chirp.
+            this.getChirpDecoder().onSamples(this.getToneBank().getPitches(), this.getToneBank().getConfidences(), this);
+        }
+    }
+
+    /** Called when the ChirpDecoder has received a valid chirp. */
+    @Override
+    public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) {
+        // Record the Latency; the time since the block arrived, plus how long before that the segment which completed the chirp was captured.
+        if (this.getMetrics() != null) {
+            this.getMetrics().onStage(ChirpMetrics.STAGE_LATENCY, System.nanoTime() - this.mBlockNanos + (this.mBlockEnd - this.mSegmentEnd) * 1000000000L / this.getSampleRate());
+        }
+        // Deliver the Payload.
+        if (this.getListener() != null) {
+            this.getListener().onPayload(pChirpFactory, pSymbols, pOffset, pLength);
+        }
+    }
+
+    /** Delivers a chirp which has already been converted into text. (The ChirpDecoder always calls onPayload() instead.) */
+    @Override
+    public final void onChirp(final String pMessage) {
+        // Deliver the Message.
+        if (this.getListener() != null) {
+            this.getListener().onChirp(pMessage);
+        }
+    }
+
+    /** Discards any partially filled segment. */
+    public final void flush() {
+        this.mFill = 0;
+    }
+
+    /* Getters. */
+    public final ChirpFactory getChirpFactory() {
+        return this.mChirpFactory;
+    }
+
+    public final int getSampleRate() {
+        return this.mSampleRate;
+    }
+
+    private final ToneBank getToneBank() {
+        return this.mToneBank;
+    }
+
+    private final ChirpDecoder getChirpDecoder() {
+        return this.mChirpDecoder;
+    }
+
+    private final float[] getSegment() {
+        return this.mSegment;
+    }
+
+    private final float[] getWindow() {
+        return this.mWindow;
+    }
+
+    /** Returns the number of samples that have been processed, up to the end of the last complete segment. (Whilst replaying, the end of the segment being measured.) */
+    public final long getPosition() {
+        return this.mPosition;
+    }
+
+    /** Returns the duration of an entire encoded chirp, in samples. */
+    public final long getFrameSamples() {
+        return (long)this.getChirpFactory().getEncodedPeriods() * this.getChirpFactory().getSymbolPeriodMs() * this.getSampleRate() / 1000;
+    }
+
+    /** Configures erasure decoding; see ChirpDecoder#setErasures(). */
+    public final void setErasures(final int pErasures, final double pErasureThreshold) {
+        this.getChirpDecoder().setErasures(pErasures, pErasureThreshold);
+    }
+
+    /** Configures the Chase search; see ChirpDecoder#setChaseDepth(). */
+    public final void setChaseDepth(final int pChaseDepth) {
+        this.getChirpDecoder().setChaseDepth(pChaseDepth);
+    }
+
+    /** Configures how long delivered chirps are remembered, so that repeats are dropped; see ChirpDecoder#setDuplicateTtl(). */
+    public final void setDuplicateTtl(final int pDuplicateTtlMs) {
+        this.getChirpDecoder().setDuplicateTtl(pDuplicateTtlMs);
+    }
+
+    /** Sets where we record how long each stage of the receive path takes; null (the default) records nothing. */
+    public final void setMetrics(final ChirpMetrics pMetrics) {
+        this.mMetrics = pMetrics;
+        this.getChirpDecoder().setMetrics(pMetrics);
+    }
+
+    public final ChirpMetrics getMetrics() {
+        return this.mMetrics;
+    }
+
+    /** Sets the squelch which decides whether segments are worth measuring; null (the default) measures them all. It must be cut into the same segments as us. */
+    public final void setSquelch(final ChirpSquelch pSquelch) {
+        // Does the Squelch match our Segments?
+        if (pSquelch != null && pSquelch.getSegment() != this.getSegment().length) {
+            throw new IllegalArgumentException("The squelch must use the same segments as the receiver.");
+        }
+        // Assign the Squelch; nothing has been skipped yet.
+        this.mSquelch = pSquelch;
+        this.mSkipped = 0L;
+    }
+
+    public final ChirpSquelch getSquelch() {
+        return this.mSquelch;
+    }
+
+    /** Returns whether the last segment was measured; false whilst the squelch is closed. */
+    public final boolean isListening() {
+        return this.getSquelch() == null || this.getSquelch().isOpen();
+    }
+
+    public final void setGate(final ChirpReceiver.IGate pGate) {
+        this.mGate = pGate;
+    }
+
+    private final ChirpReceiver.IGate getGate() {
+        return this.mGate;
+    }
+
+    public final void setListener(final ChirpFactory.IListener pListener) {
+        this.mListener = pListener;
+    }
+
+    private final ChirpFactory.IListener getListener() {
+        return this.mListener;
+    }
+
+}
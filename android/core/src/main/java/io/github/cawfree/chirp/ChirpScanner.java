@@ -0,0 +1,225 @@
+package io.github.cawfree.chirp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans long recordings in parallel. Each recording is split into chunks which are decoded independently on a fork-join pool. Every chunk begins
+ * with a lead-in that overlaps the end of the previous one by more than a whole frame, so a chirp that straddles a boundary is always seen in full
+ * by at least one chunk; anything found twice is de-duplicated when the chunks are merged.
+ */
+public class ChirpScanner {
+
+    /* Static Declarations. */
+    public static final int DEFAULT_CHUNK_SECONDS = 60;
+
+    /** A chirp found within a recording. */
+    public static final class Detection implements Comparable<ChirpScanner.Detection> {
+        /* Member Variables. */
+        private final File   mFile;
+        private final double mSeconds;
+        private final String mMessage;
+        /** Constructor. */
+        public Detection(final File pFile, final double pSeconds, final String pMessage) {
+            // Initialize Member Variables.
+            this.mFile    = pFile;
+            this.mSeconds = pSeconds;
+            this.mMessage = pMessage;
+        }
+        /** Orders Detections by when they occurred. */
+        @Override public final int compareTo(final ChirpScanner.Detection pDetection) {
+            return Double.compare(this.getSeconds(), pDetection.getSeconds());
+        }
+        /* Getters. */
+        public final File   getFile()    { return this.mFile;    }
+        public final double getSeconds() { return this.mSeconds; }
+        public final String getMessage() { return this.mMessage; }
+    }
+
+    /** Decodes a range of chunks, splitting the work in half until only a single chunk remains. (Never serialized.) */
+    @SuppressWarnings("serial")
+    private final class ChunkTask extends RecursiveTask<List<ChirpScanner.Detection>> {
+        /* Member Variables. */
+        private final File                    mFile;
+        private final FileChannel             mChannel;
+        private final ChirpFileDecoder.Region mRegion;
+        private final long                    mChunk;
+        private final long                    mOverlap;
+        private final long                    mFirst;
+        private final long                    mLast;
+        /** Constructor. */
+        private ChunkTask(final File pFile, final FileChannel pChannel, final ChirpFileDecoder.Region pRegion, final long pChunk, final long pOverlap, final long pFirst, final long pLast) {
+            // Initialize Member Variables.
+            this.mFile    = pFile;
+            this.mChannel = pChannel;
+            this.mRegion  = pRegion;
+            this.mChunk   = pChunk;
+            this.mOverlap = pOverlap;
+            this.mFirst   = pFirst;
+            this.mLast    = pLast;
+        }
+        /** Computes the Detections within our range of chunks. */
+        @Override protected final List<ChirpScanner.Detection> compute() {
+            // Are there several chunks left?
+            if(this.mLast - this.mFirst > 1) {
+                // Split the range in half.
+                final long      lMiddle = (this.mFirst + this.mLast) >>> 1;
+                final ChunkTask lLower  = new ChunkTask(this.mFile, this.mChannel, this.mRegion, this.mChunk, this.mOverlap, this.mFirst, lMiddle);
+                final ChunkTask lUpper  = new ChunkTask(this.mFile, this.mChannel, this.mRegion, this.mChunk, this.mOverlap, lMiddle, this.mLast);
+                // Decode the upper half elsewhere, whilst we work on the lower half.
+                lUpper.fork();
+                final List<ChirpScanner.Detection> lDetections = lLower.compute();
+                // Merge the results.
+                lDetections.addAll(lUpper.join());
+                return lDetections;
+            }
+            // Fetch where the chunk starts, including the lead-in. (The lead-in is a whole number of segments, so every chunk segments identically.)
+            final long lStart = Math.max(0, this.mFirst * this.mChunk - this.mOverlap);
+            final long lEnd   = Math.min(this.mRegion.getFrames(), this.mLast * this.mChunk);
+            // Declare the Detections.
+            final List<ChirpScanner.Detection> lDetections = new ArrayList<>();
+            try {
+                // Decode the chunk.
+                getChirpFileDecoder().decode(this.mChannel, this.mRegion, lStart, lEnd - lStart, (pSeconds, pMessage) -> lDetections.add(new ChirpScanner.Detection(this.mFile, pSeconds, pMessage)));
+            }
+            catch(final IOException pIOException) {
+                // Propagate the failure to whoever's waiting on the scan.
+                throw new UncheckedIOException(pIOException);
+            }
+            // Return the Detections.
+            return lDetections;
+        }
+    }
+
+    /* Member Variables. */
+    private final ChirpFileDecoder mChirpFileDecoder;
+    private final ForkJoinPool     mForkJoinPool;
+    private final int              mChunkSeconds;
+
+    /** Constructor. */
+    public ChirpScanner(final ChirpFileDecoder pChirpFileDecoder) {
+        this(pChirpFileDecoder, ForkJoinPool.commonPool(), ChirpScanner.DEFAULT_CHUNK_SECONDS);
+    }
+
+    /** Constructor. */
+    public ChirpScanner(final ChirpFileDecoder pChirpFileDecoder, final ForkJoinPool pForkJoinPool, final int pChunkSeconds) {
+        // Initialize Member Variables.
+        this.mChirpFileDecoder = pChirpFileDecoder;
+        this.mForkJoinPool     = pForkJoinPool;
+        this.mChunkSeconds     = pChunkSeconds;
+    }
+
+    /** Scans a WAV recording, returning the chirps it contains in order of occurrence. */
+    public final List<ChirpScanner.Detection> scanWav(final File pFile) throws IOException {
+        try (final RandomAccessFile lFile = new RandomAccessFile(pFile, "r"); final FileChannel lChannel = lFile.getChannel()) {
+            // Locate the samples.
+            final ChirpFileDecoder.Region lRegion = ChirpFileDecoder.getWavRegion(lChannel);
+            // Scan the Region.
+            return this.scan(pFile, lChannel, lRegion);
+        }
+    }
+
+    /** Scans a region of a recording. */
+    private final List<ChirpScanner.Detection> scan(final File pFile, final FileChannel pChannel, final ChirpFileDecoder.Region pRegion) throws IOException {
+        // Fetch the Sample Rate.
+        final int  lSampleRate = pRegion.getFormat().getSampleRate();
+        // Fetch the length of a segment; chunk boundaries are aligned to these.
+        final long lSegment    = ChirpReceiver.getSegmentSamples(this.getChirpFileDecoder().getChirpFactory(), lSampleRate, this.getChirpFileDecoder().getSubsamples());
+        // Calculate the duration of a frame, plus a symbol's worth of slack.
+        final long lFrame      = (long)(this.getChirpFileDecoder().getChirpFactory().getEncodedPeriods() + 1) * this.getChirpFileDecoder().getChirpFactory().getSymbolPeriodMs() * lSampleRate / 1000;
+        // Round the Overlap and the Chunk up to a whole number of segments.
+        final long lOverlap    = ((lFrame + lSegment - 1) / lSegment) * lSegment;
+        final long lChunk      = Math.max(lOverlap, (((long)this.getChunkSeconds() * lSampleRate + lSegment - 1) / lSegment) * lSegment);
+        // Calculate the number of Chunks.
+        final long lChunks     = Math.max(1, (pRegion.getFrames() + lChunk - 1) / lChunk);
+        // Decode the Chunks.
+        final List<ChirpScanner.Detection> lDetections;
+        try {
+            lDetections = this.getForkJoinPool().invoke(new ChunkTask(pFile, pChannel, pRegion, lChunk, lOverlap, 0, lChunks));
+        }
+        catch(final UncheckedIOException pUncheckedIOException) {
+            // Unwrap the failure.
+            throw pUncheckedIOException.getCause();
+        }
+        // Order the Detections.
+        Collections.sort(lDetections);
+        // Return the unique Detections.
+        return ChirpScanner.getUnique(lDetections, lFrame / (double)lSampleRate);
+    }
+
+    /** Removes repeated detections of the same chirp; two identical messages can't genuinely start within a frame of one another. */
+    private static final List<ChirpScanner.Detection> getUnique(final List<ChirpScanner.Detection> pDetections, final double pFrameSeconds) {
+        // Declare the unique Detections.
+        final List<ChirpScanner.Detection> lUnique = new ArrayList<>();
+        // Iterate the Detections.
+        for(final ChirpScanner.Detection lDetection : pDetections) {
+            // Declare the search metric.
+            boolean lIsDuplicate = false;
+            // Iterate backwards through anything recent enough to be the same chirp.
+            for(int i = lUnique.size() - 1; i >= 0 && (lDetection.getSeconds() - lUnique.get(i).getSeconds()) < pFrameSeconds; i--) {
+                // Update the search metric.
+                lIsDuplicate |= lUnique.get(i).getMessage().equals(lDetection.getMessage());
+            }
+            // Is this a new chirp?
+            if(!lIsDuplicate) {
+                lUnique.add(lDetection);
+            }
+        }
+        // Return the unique Detections.
+        return lUnique;
+    }
+
+    /** Usage: ChirpScanner [--chunk <seconds>] [--period <ms>] <file.wav>...; scans every recording in parallel and prints each received chirp. */
+    public static void main(final String[] pArgs) throws Exception {
+        // Declare the options.
+        int                lChunkSeconds = ChirpScanner.DEFAULT_CHUNK_SECONDS;
+        int                lPeriodMs     = ChirpFileDecoder.DEFAULT_PERIOD_MS;
+        final List<File>   lFiles        = new ArrayList<>();
+        // Iterate the Arguments.
+        for(int i = 0; i < pArgs.length; i++) {
+            // Is this an option?
+            if("--chunk".equals(pArgs[i])) {
+                lChunkSeconds = Integer.parseInt(pArgs[++i]);
+            }
+            else if("--period".equals(pArgs[i])) {
+                lPeriodMs     = Integer.parseInt(pArgs[++i]);
+            }
+            else {
+                lFiles.add(new File(pArgs[i]));
+            }
+        }
+        // Allocate the Scanner.
+        final ChirpScanner lScanner = new ChirpScanner(new ChirpFileDecoder(new ChirpFactory.Builder().setSymbolPeriodMs(lPeriodMs).build(), ChirpFileDecoder.DEFAULT_SUBSAMPLES), ForkJoinPool.commonPool(), lChunkSeconds);
+        // Iterate the Files. (Each file is already spread across the whole pool.)
+        for(final File lFile : lFiles) {
+            // Iterate the Detections.
+            for(final ChirpScanner.Detection lDetection : lScanner.scanWav(lFile)) {
+                // Print the Detection.
+                System.out.println(String.format(Locale.US, "%s\t%.3f\t%s", lDetection.getFile().getName(), lDetection.getSeconds(), lDetection.getMessage()));
+            }
+        }
+    }
+
+    /* Getters. */
+    public final ChirpFileDecoder getChirpFileDecoder() {
+        return this.mChirpFileDecoder;
+    }
+
+    private final ForkJoinPool getForkJoinPool() {
+        return this.mForkJoinPool;
+    }
+
+    public final int getChunkSeconds() {
+        return this.mChunkSeconds;
+    }
+
+}
@@ -0,0 +1,245 @@
+package io.github.cawfree.chirp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Serializes outgoing chirps onto a single dedicated thread. Messages wait in a bounded queue and each is paired with a future that completes once
+ * it has been written. Queued frames are emitted back-to-back without stopping the output in between, and before starting a burst we wait for the
+ * medium to fall quiet.
+ */
+public class ChirpScheduler {
+
+    /* Static Declarations. */
+    public  static final int  DEFAULT_CAPACITY       = 32;
+    public  static final long DEFAULT_MAXIMUM_DEFER  = 2000; // The longest we'll wait for a busy medium before transmitting anyway. (ms)
+    private static final long BACKOFF_MINIMUM_MS     = 10;
+    private static final long BACKOFF_MAXIMUM_MS     = 60;
+
+    /** An output capable of playing synthesized audio. */
+    public interface IOutput extends ChirpTransmitter.ISink {
+        /** Called before the first block of a burst is written. */
+        void onStart();
+        /** Called once the last queued block of a burst has been written. */
+        void onStop();
+    }
+
+    /** A pending transmission. */
+    private static final class Request {
+        /* Member Variables. */
+        private final int[]                   mSymbols;
+        private final CompletableFuture<Void> mFuture;
+        /** Constructor. */
+        private Request(final int[] pSymbols) {
+            // Initialize Member Variables.
+            this.mSymbols = pSymbols;
+            this.mFuture  = new CompletableFuture<>();
+        }
+        /* Getters. */
+        private final int[]                   getSymbols() { return this.mSymbols; }
+        private final CompletableFuture<Void> getFuture()  { return this.mFuture;  }
+    }
+
+    /* Member Variables. */
+    private final    ChirpTransmitter                      mChirpTransmitter;
+    private final    ChirpScheduler.IOutput                mOutput;
+    private final    CarrierSense                          mCarrierSense;
+    private final    BlockingQueue<ChirpScheduler.Request> mQueue;
+    private final    long                                  mMaximumDefer;
+    private final    Random                                mRandom;
+    private          Thread                                mThread;
+    private volatile boolean                               mTransmitting;
+
+    /** Constructor. */
+    public ChirpScheduler(final ChirpTransmitter pChirpTransmitter, final ChirpScheduler.IOutput pOutput, final CarrierSense pCarrierSense) {
+        this(pChirpTransmitter, pOutput, pCarrierSense, ChirpScheduler.DEFAULT_CAPACITY, ChirpScheduler.DEFAULT_MAXIMUM_DEFER);
+    }
+
+    /** Constructor. The CarrierSense may be null, in which case we never defer. */
+    public ChirpScheduler(final ChirpTransmitter pChirpTransmitter, final ChirpScheduler.IOutput pOutput, final CarrierSense pCarrierSense, final int pCapacity, final long pMaximumDefer) {
+        // Initialize Member Variables.
+        this.mChirpTransmitter = pChirpTransmitter;
+        this.mOutput           = pOutput;
+        this.mCarrierSense     = pCarrierSense;
+        this.mQueue            = new ArrayBlockingQueue<>(pCapacity);
+        this.mMaximumDefer     = pMaximumDefer;
+        this.mRandom           = new Random();
+        this.mThread           = null;
+        this.mTransmitting     = false;
+    }
+
+    /**
+     * Queues an encoded chirp, as symbol indices, for transmission. The scheduler takes ownership of the array, so don't modify it afterwards. If the
+     * queue is full, the returned future fails with a RejectedExecutionException.
+     */
+    public final CompletableFuture<Void> submit(final int[] pSymbols) {
+        // Declare the Request.
+        final ChirpScheduler.Request lRequest = new ChirpScheduler.Request(pSymbols);
+        // Make sure we're running.
+        this.start();
+        // Attempt to queue the Request.
+        if(!this.getQueue().offer(lRequest)) {
+            // Inform the caller.
+            lRequest.getFuture().completeExceptionally(new RejectedExecutionException("Transmit queue is full (" + this.getQueue().size() + " pending)."));
+        }
+        // Return the Future.
+        return lRequest.getFuture();
+    }
+
+    /** Starts the transmit thread, if it isn't already running. */
+    private final synchronized void start() {
+        // Are we already running?
+        if(this.mThread == null) {
+            // Allocate the Thread.
+            this.mThread = new Thread(this::onRun, "chirp-tx");
+            // Don't hold the process open for queued chirps.
+            this.mThread.setDaemon(true);
+            // Start the Thread.
+            this.mThread.start();
+        }
+    }
+
+    /**
+     * Stops the transmit thread. Anything still queued is cancelled. Blocks until the thread has exited, which may mean waiting for the chirp being
+     * written to finish; the output needn't respond to interrupts, and only one thread may ever touch the transmitter and output at a time.
+     */
+    public final synchronized void shutdown() {
+        // Are we running?
+        if(this.mThread != null) {
+            // Interrupt the Thread.
+            this.mThread.interrupt();
+            // Wait for it to exit. (Even if we're interrupted ourselves; we'll pass that on once it has. A future's callback may shut us down from the
+            // Thread itself, which can't wait for itself.)
+            boolean lIsInterrupted = false;
+            while(this.mThread != Thread.currentThread() && this.mThread.isAlive()) {
+                try {
+                    this.mThread.join();
+                }
+                catch(final InterruptedException pInterruptedException) {
+                    lIsInterrupted = true;
+                }
+            }
+            this.mThread = null;
+            // Restore our Interrupt.
+            if(lIsInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Drain the Queue.
+        final List<ChirpScheduler.Request> lPending = new ArrayList<>();
+        this.getQueue().drainTo(lPending);
+        // Cancel the pending Requests.
+        for(final ChirpScheduler.Request lRequest : lPending) {
+            lRequest.getFuture().completeExceptionally(new CancellationException("Scheduler was shut down."));
+        }
+    }
+
+    /** Transmit loop. */
+    private final void onRun() {
+        try {
+            // Run until we're interrupted.
+            while(!Thread.currentThread().isInterrupted()) {
+                // Wait for the first Request of a burst.
+                ChirpScheduler.Request lRequest = this.getQueue().take();
+                try {
+                    // Wait for the medium to be free.
+                    this.onDefer();
+                }
+                catch(final InterruptedException pInterruptedException) {
+                    // We were shut down whilst waiting; the Request won't be sent.
+                    lRequest.getFuture().completeExceptionally(new CancellationException("Scheduler was shut down."));
+                    throw pInterruptedException;
+                }
+                // Start the Output.
+                this.mTransmitting = true;
+                this.getOutput().onStart();
+                try {
+                    // Emit queued Requests back-to-back.
+                    while(lRequest != null) {
+                        // Transmit the Request.
+                        this.onTransmit(lRequest);
+                        // Fetch the next Request, if there is one. (If we've been shut down, the rest are cancelled once we've exited.)
+                        lRequest = Thread.currentThread().isInterrupted() ? null : this.getQueue().poll();
+                    }
+                }
+                finally {
+                    // Stop the Output.
+                    this.getOutput().onStop();
+                    this.mTransmitting = false;
+                }
+            }
+        }
+        catch(final InterruptedException pInterruptedException) { /* We've been shut down. */ }
+    }
+
+    /** Waits for the carrier to clear, backing off by a random interval each time it's found busy. */
+    private final void onDefer() throws InterruptedException {
+        // Are we able to sense the carrier?
+        if(this.getCarrierSense() == null) {
+            return;
+        }
+        // Fetch when we started waiting.
+        final long lStart = System.currentTimeMillis();
+        // Wait whilst the medium is busy. (But don't starve the queue forever.)
+        while(this.getCarrierSense().isBusy() && (System.currentTimeMillis() - lStart) < this.getMaximumDefer()) {
+            // Back off.
+            Thread.sleep(ChirpScheduler.BACKOFF_MINIMUM_MS + this.getRandom().nextInt((int)(ChirpScheduler.BACKOFF_MAXIMUM_MS - ChirpScheduler.BACKOFF_MINIMUM_MS)));
+        }
+    }
+
+    /** Transmits a single Request, completing its future. */
+    private final void onTransmit(final ChirpScheduler.Request pRequest) {
+        try {
+            // Stream the chirp to the Output.
+            this.getChirpTransmitter().transmit(pRequest.getSymbols(), pRequest.getSymbols().length, this.getOutput());
+            // Assert that the Request was written.
+            pRequest.getFuture().complete(null);
+        }
+        catch(final RuntimeException pRuntimeException) {
+            // Inform the caller.
+            pRequest.getFuture().completeExceptionally(pRuntimeException);
+        }
+    }
+
+    /* Getters. */
+    private final ChirpTransmitter getChirpTransmitter() {
+        return this.mChirpTransmitter;
+    }
+
+    private final ChirpScheduler.IOutput getOutput() {
+        return this.mOutput;
+    }
+
+    private final CarrierSense getCarrierSense() {
+        return this.mCarrierSense;
+    }
+
+    private final BlockingQueue<ChirpScheduler.Request> getQueue() {
+        return this.mQueue;
+    }
+
+    private final long getMaximumDefer() {
+        return this.mMaximumDefer;
+    }
+
+    private final Random getRandom() {
+        return this.mRandom;
+    }
+
+    /** Returns whether a burst is currently being written. */
+    public final boolean isTransmitting() {
+        return this.mTransmitting;
+    }
+
+    /** Returns the number of chirps waiting to be transmitted. */
+    public final int getPending() {
+        return this.getQueue().size();
+    }
+
+}
@@ -0,0 +1,279 @@
+package io.github.cawfree.chirp;
+
+/**
+ * Keeps the receive path asleep until there's something to hear. Each segment is passed through a band-pass filter spanning the factory's tones,
+ * and its energy is compared against a slowly-adapting estimate of the noise floor, in the same way as CarrierSense. Once the band is sufficiently
+ * louder than the floor the squelch opens, and it stays open until the band has been quiet for a few symbol periods. The filter costs a handful
+ * of operations per sample; the ToneBank costs one per tone, for every sample of its window.
+ *
+ * The energy takes a segment or two to climb above the floor, and the ToneBank's window and the detector both need history of their own, so the
+ * most recent segments are kept in a pre-roll buffer. When the squelch opens, these are replayed through the receive path ahead of the segment
+ * which opened it; the start of a frame isn't lost.
+ *
+ * For background listening, the squelch can also be duty-cycled. Whilst closed, it only listens for part of each cycle and sleeps through the
+ * rest, without looking at the audio at all. A frame which begins whilst we're asleep is missed, so this suits beacons which keep on repeating
+ * for longer than a cycle.
+ */
+public class ChirpSquelch {
+
+    /* Static Declarations. */
+    public  static final double DEFAULT_RATIO            = 1.5;          // How far above the noise floor (in power) the band must be to open the squelch. (~2dB.)
+    public  static final int    DEFAULT_PRE_ROLL_PERIODS = 2;            // Symbol periods held back for replay, on top of the ToneBank's window.
+    public  static final int    DEFAULT_HOLD_PERIODS     = 4;            // Symbol periods the band must be quiet for before the squelch closes.
+    private static final double SMOOTHING                = 0.5;          // The weight given to each new segment's energy.
+    private static final double FLOOR_RISE               = 1.001;        // How quickly the noise floor is allowed to creep back up, per segment.
+    private static final double FLOOR_MINIMUM            = 1.0E-12;      // Prevents a perfectly silent input from making everything look loud.
+    private static final double EDGE                     = 0.9;          // How far below the lowest tone (and above the highest) the band extends.
+    private static final double Q                        = 0.70710678;   // One over root two; a Butterworth response.
+
+    /* Member Variables. */
+    private final    int      mSegment;
+    private final    double   mSegmentMs;
+    private final    int      mPeriodMs;
+    private final    double   mRatio;
+    private final    int      mHold;
+    private final    float[]  mPreRoll;
+    private final    int      mCapacity;
+    private final    double[] mHighPass;
+    private final    double[] mLowPass;
+    private          double   mX1;
+    private          double   mX2;
+    private          double   mY1;
+    private          double   mY2;
+    private          double   mZ1;
+    private          double   mZ2;
+    private          int      mNext;
+    private          int      mHeld;
+    private          double   mEnergy;
+    private          double   mFloor;
+    private          boolean  mOpen;
+    private          int      mQuiet;
+    private          int      mPhase;
+    private volatile int      mListen;
+    private volatile int      mCycle;
+
+    /** Returns the coefficients { b0, b1, b2, a1, a2 } of a second-order Butterworth filter, normalized so that a0 is one. */
+    private static final double[] getCoefficients(final boolean pIsHighPass, final double pFrequency, final int pSampleRate) {
+        // Fetch the normalized Frequency.
+        final double lOmega = 2.0 * Math.PI * pFrequency / pSampleRate;
+        final double lCos   = Math.cos(lOmega);
+        final double lAlpha = Math.sin(lOmega) / (2.0 * ChirpSquelch.Q);
+        final double lA0    = 1.0 + lAlpha;
+        // Fetch the feed-forward Gain; the only difference between the two responses.
+        final double lGain  = pIsHighPass ? (1.0 + lCos) / 2.0 : (1.0 - lCos) / 2.0;
+        // Return the Coefficients.
+        return new double[] { lGain / lA0, (pIsHighPass ? -2.0 : 2.0) * lGain / lA0, lGain / lA0, -2.0 * lCos / lA0, (1.0 - lAlpha) / lA0 };
+    }
+
+    /** Constructor. */
+    public ChirpSquelch(final ChirpFactory pChirpFactory, final int pSampleRate, final int pSubsamples) {
+        this(pChirpFactory, pSampleRate, pSubsamples, ChirpSquelch.DEFAULT_RATIO, ChirpSquelch.DEFAULT_PRE_ROLL_PERIODS, ChirpSquelch.DEFAULT_HOLD_PERIODS);
+    }
+
+    /** Constructor. The segments must match those of the ChirpReceiver we're attached to. */
+    public ChirpSquelch(final ChirpFactory pChirpFactory, final int pSampleRate, final int pSubsamples, final double pRatio, final int pPreRollPeriods, final int pHoldPeriods) {
+        // Are the arguments valid?
+        if(pRatio < 1.0 || pPreRollPeriods < 0 || pHoldPeriods < 1) {
+            throw new IllegalArgumentException("The squelch needs a ratio of at least one, and must hold open for at least a symbol period.");
+        }
+        // Fetch the Segment and Window, in samples.
+        final int      lSegment     = ChirpReceiver.getSegmentSamples(pChirpFactory, pSampleRate, pSubsamples);
+        final int      lWindow      = ChirpReceiver.getWindowSamples(pChirpFactory, pSampleRate, pSubsamples);
+        // Fetch the Frequencies.
+        final double[] lFrequencies = pChirpFactory.getFrequencies();
+              double   lLowest      = Double.POSITIVE_INFINITY;
+              double   lHighest     = 0.0;
+        for(final double lFrequency : lFrequencies) {
+            lLowest  = Math.min(lLowest,  lFrequency);
+            lHighest = Math.max(lHighest, lFrequency);
+        }
+        // Initialize Member Variables.
+        this.mSegment   = lSegment;
+        this.mSegmentMs = (double)pChirpFactory.getSymbolPeriodMs() / pSubsamples;
+        this.mPeriodMs  = pChirpFactory.getSymbolPeriodMs();
+        this.mRatio     = pRatio;
+        this.mHold      = pHoldPeriods * pSubsamples;
+        // Allocate the PreRoll; enough segments to refill the ToneBank's window, plus the periods we've been asked for, plus the one which opens the squelch.
+        this.mCapacity  = (lWindow + lSegment - 1) / lSegment + pPreRollPeriods * pSubsamples + 1;
+        this.mPreRoll   = new float[this.mCapacity * lSegment];
+        // Allocate the Filters; we only need to hear the band the tones lie within. (Keep the upper edge clear of Nyquist.)
+        this.mHighPass  = ChirpSquelch.getCoefficients(true,  lLowest * ChirpSquelch.EDGE, pSampleRate);
+        this.mLowPass   = ChirpSquelch.getCoefficients(false, Math.min(lHighest / ChirpSquelch.EDGE, 0.45 * pSampleRate), pSampleRate);
+        this.mNext      = 0;
+        this.mHeld      = 0;
+        this.mEnergy    = 0.0;
+        this.mFloor     = Double.POSITIVE_INFINITY;
+        this.mOpen      = false;
+        this.mQuiet     = 0;
+        this.mPhase     = 0;
+        this.mListen    = 0;
+        this.mCycle     = 0;
+    }
+
+    /** Called by the receive path with every complete segment. Returns whether the squelch is open; if it isn't, there's no need to measure the segment. */
+    public final boolean onSegment(final float[] pSamples, final int pOffset) {
+        // Fetch the Cycle. (Read it once; it may be changed from another thread.)
+        final int lCycle = this.getCycle();
+        // Are we closed, and duty-cycling?
+        if(!this.isOpen() && lCycle > 0) {
+            // Fetch where we are in the Cycle, and move on.
+            final int lPhase = this.mPhase;
+            this.mPhase      = (lPhase + 1) % lCycle;
+            // Are we asleep?
+            if(lPhase >= this.getListen()) {
+                // Nothing we've held runs on into what comes next.
+                this.mHeld = 0;
+                return false;
+            }
+            // Have we just woken up? (The filters still remember whatever we heard before we went to sleep.)
+            if(lPhase == 0) {
+                this.mX1 = this.mX2 = this.mY1 = this.mY2 = this.mZ1 = this.mZ2 = 0.0;
+            }
+        }
+        // Fetch the Coefficients.
+        final double[] lH      = this.getHighPass();
+        final double[] lL      = this.getLowPass();
+        // Fetch the filter State. (Keep it in locals whilst we run across the segment.)
+              double   lX1     = this.mX1;
+              double   lX2     = this.mX2;
+              double   lY1     = this.mY1;
+              double   lY2     = this.mY2;
+              double   lZ1     = this.mZ1;
+              double   lZ2     = this.mZ2;
+        // Declare the Energy.
+              double   lEnergy = 0.0;
+        // Iterate the Samples.
+        for(int i = pOffset; i < pOffset + this.getSegment(); i++) {
+            // Run the High-Pass.
+            final double lX = pSamples[i];
+            final double lY = lH[0] * lX + lH[1] * lX1 + lH[2] * lX2 - lH[3] * lY1 - lH[4] * lY2;
+            // Run the Low-Pass. (Its input history is the High-Pass output history.)
+            final double lZ = lL[0] * lY + lL[1] * lY1 + lL[2] * lY2 - lL[3] * lZ1 - lL[4] * lZ2;
+            // Shift the State.
+            lX2 = lX1;
+            lX1 = lX;
+            lY2 = lY1;
+            lY1 = lY;
+            lZ2 = lZ1;
+            lZ1 = lZ;
+            // Accumulate the Energy.
+            lEnergy += lZ * lZ;
+        }
+        // Store the filter State.
+        this.mX1 = lX1;
+        this.mX2 = lX2;
+        this.mY1 = lY1;
+        this.mY2 = lY2;
+        this.mZ1 = lZ1;
+        this.mZ2 = lZ2;
+        // Hold on to the Segment, in case we need to replay it.
+        System.arraycopy(pSamples, pOffset, this.getPreRoll(), this.mNext * this.getSegment(), this.getSegment());
+        this.mNext   = (this.mNext + 1) % this.getCapacity();
+        this.mHeld   = Math.min(this.mHeld + 1, this.getCapacity());
+        // Smooth the Energy.
+        this.mEnergy = this.mEnergy + (lEnergy / this.getSegment() - this.mEnergy) * ChirpSquelch.SMOOTHING;
+        // Track the Floor; follow it down immediately, but only let it rise slowly. (Long frames shouldn't become the floor.)
+        this.mFloor  = Math.max(ChirpSquelch.FLOOR_MINIMUM, Math.min(this.mFloor * ChirpSquelch.FLOOR_RISE, this.mEnergy));
+        // Is the band loud?
+        if(this.mEnergy > this.mFloor * this.getRatio()) {
+            // Open the Squelch.
+            this.mOpen  = true;
+            this.mQuiet = 0;
+        }
+        // Has the band been quiet for long enough to close?
+        else if(this.isOpen() && ++this.mQuiet >= this.getHold()) {
+            // Close the Squelch; start the next cycle awake.
+            this.mOpen  = false;
+            this.mPhase = 0;
+        }
+        // Return whether we're open.
+        return this.isOpen();
+    }
+
+    /** Returns the number of consecutive segments held for replay, up to and including the last one we were given. */
+    public final int getHeld() {
+        return this.mHeld;
+    }
+
+    /** Returns where a held segment begins within getPreRoll(); the oldest is zero, and the last one we were given is getHeld() - 1. */
+    public final int getHeldOffset(final int pIndex) {
+        return Math.floorMod(this.mNext - this.getHeld() + pIndex, this.getCapacity()) * this.getSegment();
+    }
+
+    /**
+     * Duty-cycles the squelch; whilst closed, it only listens for the first part of each cycle. Both are given in milliseconds, and rounded to whole
+     * segments; a cycle of zero (the default) listens all the time. The listening part must be at least a symbol period long, and should be a few,
+     * or the squelch may never hear enough to open. Safe to call whilst listening.
+     */
+    public final void setDutyCycle(final int pListenMs, final int pCycleMs) throws IllegalArgumentException {
+        // Are the arguments valid?
+        if(pListenMs < 0 || pCycleMs < 0) {
+            throw new IllegalArgumentException("The duty cycle can't be negative.");
+        }
+        // Convert the duty cycle into segments. (Listening for the whole cycle is the same as not cycling at all.)
+        final int    lListen    = (int)Math.round(pListenMs / this.getSegmentMs());
+        final int    lCycle     = (int)Math.round(pCycleMs  / this.getSegmentMs());
+        // Would we cycle without ever listening for long enough to hear a symbol? (We'd be deaf.)
+        if(lListen < lCycle && pListenMs < this.getPeriodMs()) {
+            throw new IllegalArgumentException("Whilst cycling, the squelch must listen for at least a symbol period (" + this.getPeriodMs() + "ms).");
+        }
+        this.mListen = lListen;
+        this.mCycle  = (lListen >= lCycle) ? 0 : lCycle;
+    }
+
+    /* Getters. */
+    public final int getSegment() {
+        return this.mSegment;
+    }
+
+    /** Returns the length of a segment, in milliseconds. */
+    public final double getSegmentMs() {
+        return this.mSegmentMs;
+    }
+
+    /** Returns the symbol period, in milliseconds. */
+    public final int getPeriodMs() {
+        return this.mPeriodMs;
+    }
+
+    public final double getRatio() {
+        return this.mRatio;
+    }
+
+    /** Returns how many quiet segments we'll wait for before closing. */
+    public final int getHold() {
+        return this.mHold;
+    }
+
+    /** Returns the most recent segments, held for replay; see getHeldOffset(). */
+    public final float[] getPreRoll() {
+        return this.mPreRoll;
+    }
+
+    /** Returns the most segments we can hold. */
+    public final int getCapacity() {
+        return this.mCapacity;
+    }
+
+    private final double[] getHighPass() {
+        return this.mHighPass;
+    }
+
+    private final double[] getLowPass() {
+        return this.mLowPass;
+    }
+
+    /** Returns whether the squelch is open; i.e. the receive path is measuring what it hears. */
+    public final boolean isOpen() {
+        return this.mOpen;
+    }
+
+    private final int getListen() {
+        return this.mListen;
+    }
+
+    private final int getCycle() {
+        return this.mCycle;
+    }
+
+}
@@ -0,0 +1,209 @@
+package io.github.cawfree.chirp;
+
+import java.util.Arrays;
+
+/**
+ * Synthesizes the audio for encoded chirps. Tones are generated by a single phase accumulator reading from a shared sine wavetable, so the waveform
+ * stays continuous between symbols. Per-tone phase increments and the ramp envelope are computed once, up front, and output is written as 16-bit PCM
+ * straight into a reusable buffer. When the factory uses several bands, each band has its own oscillator and their tones are summed, so a single
+ * symbol period carries one symbol per band.
+ */
+public class ChirpSynthesizer {
+
+    /* Static Declarations. */
+    private static final int     WAVETABLE_BITS     = 12;
+    private static final int     WAVETABLE_SHIFT    = (32 - ChirpSynthesizer.WAVETABLE_BITS);
+    private static final int     WAVETABLE_FRACTION = (1 << ChirpSynthesizer.WAVETABLE_SHIFT) - 1;
+    private static final float[] WAVETABLE          = ChirpSynthesizer.getWavetable(1 << ChirpSynthesizer.WAVETABLE_BITS);
+    private static final double  RATIO_RAMP         = 0.3;   // The proportion of each symbol spent ramping in (and out).
+    private static final double  FILTER_ALPHA       = 0.3;   // Declare the filtering constant.
+    private static final double  AMPLITUDE          = 32767; // Assume normalized, so scale to the maximum amplitude.
+
+    /** Allocates a single cycle of a sine wave, with an extra guard sample to simplify interpolation. */
+    private static final float[] getWavetable(final int pLength) {
+        // Allocate the Wavetable.
+        final float[] lWavetable = new float[pLength + 1];
+        // Iterate the Wavetable.
+        for(int i = 0; i < lWavetable.length; i++) {
+            // Buffer the Sample.
+            lWavetable[i] = (float)Math.sin(2.0 * Math.PI * i / pLength);
+        }
+        // Return the Wavetable.
+        return lWavetable;
+    }
+
+    /* Member Variables. */
+    private final ChirpFactory mChirpFactory;
+    private final int          mSymbolSamples;
+    private final int[]        mIncrements;
+    private final float[]      mRamp;
+    private final int[]        mTones;
+    private final int[]        mPhases;
+    private       short[]      mBuffer;
+    private       double       mPrevious;
+
+    /** Constructor. */
+    public ChirpSynthesizer(final ChirpFactory pChirpFactory, final int pSampleRate) {
+        // Fetch the Frequencies.
+        final double[] lFrequencies   = pChirpFactory.getFrequencies();
+        // Calculate the Number of Samples per symbol.
+        final int      lSymbolSamples = (int)(pSampleRate * (pChirpFactory.getSymbolPeriodMs() / 1000.0f));
+        // Allocate the Increments; these are how far the phase accumulator advances per sample, for each tone. (A full cycle is 2^32.)
+        final int[]    lIncrements    = new int[lFrequencies.length];
+        // Iterate the Frequencies.
+        for(int i = 0; i < lFrequencies.length; i++) {
+            // Calculate the Increment.
+            lIncrements[i] = (int)Math.round(lFrequencies[i] / pSampleRate * 4294967296.0);
+        }
+        // Declare the RampWidth.
+        final int      lRampWidth     = (int)(lSymbolSamples * ChirpSynthesizer.RATIO_RAMP);
+        // Allocate the Ramp.
+        final float[]  lRamp          = new float[lRampWidth];
+        // Iterate the Ramp.
+        for(int i = 0; i < lRampWidth; i++) {
+            // Calculate the progression of the Ramp.
+            lRamp[i] = (float)(i / (double)lRampWidth);
+        }
+        // Initialize Member Variables.
+        this.mChirpFactory  = pChirpFactory;
+        this.mSymbolSamples = lSymbolSamples;
+        this.mIncrements    = lIncrements;
+        this.mRamp          = lRamp;
+        this.mTones         = new int[pChirpFactory.getBands()];
+        this.mPhases        = new int[pChirpFactory.getBands()];
+        this.mBuffer        = new short[0]; // (Only allocated if a whole chirp is generated at once.)
+        this.mPrevious      = 0.0;
+    }
+
+    /** Prepares the synthesizer for a new transmission. */
+    public final void reset() {
+        // Reset the Oscillators and the Filter.
+        Arrays.fill(this.getPhases(), 0);
+        this.mPrevious = 0.0;
+    }
+
+    /** Generates an entire chirp into the internal buffer. Returns the number of samples written; read them back using getBuffer(). */
+    public final int generate(final CharSequence pData) {
+        // Allocate the Symbols.
+        final int[] lSymbols = new int[pData.length()];
+        // Iterate the Data.
+        for(int i = 0; i < pData.length(); i++) {
+            // Fetch the Symbol for each Character.
+            lSymbols[i] = this.getChirpFactory().getCodebook().getSymbolFor(pData.charAt(i));
+        }
+        // Generate the Symbols.
+        return this.generate(lSymbols, lSymbols.length);
+    }
+
+    /** Generates an entire chirp from symbol indices into the internal buffer. Returns the number of samples written; read them back using getBuffer(). */
+    public final int generate(final int[] pSymbols, final int pLength) {
+        // Calculate the number of samples required. (Each period carries a symbol for every band.)
+        final int lLength = this.getPeriods(pLength) * this.getSymbolSamples();
+        // Is the Buffer too small? (Only happens for longer-than-usual data.)
+        if(this.getBuffer().length < lLength) {
+            // Grow the Buffer.
+            this.mBuffer = new short[lLength];
+        }
+        // Prepare for the new transmission.
+        this.reset();
+        // Iterate the Transmission, a period at a time.
+        for(int i = 0; i < pLength; i += this.getChirpFactory().getBands()) {
+            // Synthesize the Period.
+            this.onPeriod(pSymbols, i, pLength, this.getBuffer(), (i / this.getChirpFactory().getBands()) * this.getSymbolSamples());
+        }
+        // Return the Length.
+        return lLength;
+    }
+
+    /** Returns the number of symbol periods needed to transmit the given number of symbols. */
+    public final int getPeriods(final int pSymbols) {
+        return (pSymbols + this.getChirpFactory().getBands() - 1) / this.getChirpFactory().getBands();
+    }
+
+    /**
+     * Synthesizes a single symbol period into the buffer, starting from the given symbol of the first pLength symbols. Every band takes the next symbol
+     * in turn; if the symbols run out part-way through a period, the remaining bands carry the first tone. Returns the number of samples written.
+     */
+    public final int onPeriod(final int[] pSymbols, final int pFirst, final int pLength, final short[] pBuffer, final int pOffset) {
+        // Fetch the Tones.
+        final int[]   lTones     = this.getTones();
+        // Iterate the Bands.
+        for(int i = 0; i < lTones.length; i++) {
+            // Fetch the Symbol for this Band. (Pad using the first symbol.)
+            final int lSymbol = (pFirst + i < pLength) ? pSymbols[pFirst + i] : 0;
+            // Offset the Symbol into this Band's tones.
+            lTones[i] = i * this.getChirpFactory().getRange().getCharacters().length() + lSymbol;
+        }
+        // Fetch the Ramp.
+        final float[] lRamp      = this.getRamp();
+        // Fetch the length of the symbol.
+        final int     lLength    = this.getSymbolSamples();
+        // Fetch the Gain; share the amplitude between the bands.
+        final float   lGain      = 1.0f / lTones.length;
+        // Copy the filter state into a local.
+              double  lPrevious  = this.mPrevious;
+        // Iterate the NumberOfSamples. (Per chirp data.)
+        for(int i = 0; i < lLength; i++) {
+            // Declare the Mix.
+                  float  lMix      = 0.0f;
+            // Iterate the Bands.
+            for(int j = 0; j < lTones.length; j++) {
+                // Fetch the Phase.
+                final int   lPhase    = this.getPhases()[j];
+                // Fetch the Wavetable position and the fractional distance to the next entry.
+                final int   lIndex    = lPhase >>> ChirpSynthesizer.WAVETABLE_SHIFT;
+                final float lFraction = (lPhase & ChirpSynthesizer.WAVETABLE_FRACTION) * (1.0f / (1 << ChirpSynthesizer.WAVETABLE_SHIFT));
+                // Interpolate the Sample.
+                lMix += ChirpSynthesizer.WAVETABLE[lIndex] + (ChirpSynthesizer.WAVETABLE[lIndex + 1] - ChirpSynthesizer.WAVETABLE[lIndex]) * lFraction;
+                // Advance the Oscillator. (Overflow wraps the phase around the cycle.)
+                this.getPhases()[j] = lPhase + this.getIncrements()[lTones[j]];
+            }
+            // Fetch the Envelope; ramp in across the start of the symbol, and out again across the end.
+            final float  lEnvelope = (i < lRamp.length) ? lRamp[i] : ((i >= lLength - lRamp.length) ? lRamp[lLength - 1 - i] : 1.0f);
+            // Fetch the Value.
+            final double lValue    = lMix * lGain * lEnvelope;
+            // Filter the Value.
+            final double lFiltered = (ChirpSynthesizer.FILTER_ALPHA < 1.0) ? ((lValue - lPrevious) * ChirpSynthesizer.FILTER_ALPHA) : lValue;
+            // Supply the Buffer with 16-bit PCM.
+            pBuffer[pOffset + i] = (short)(lFiltered * ChirpSynthesizer.AMPLITUDE);
+            // Overwrite the Previous with the Filtered value.
+            lPrevious = lFiltered;
+        }
+        // Persist the filter state; the next period continues from here. (The oscillators already have.)
+        this.mPrevious = lPrevious;
+        // Return the number of samples written.
+        return lLength;
+    }
+
+    /* Getters. */
+    public final ChirpFactory getChirpFactory() {
+        return this.mChirpFactory;
+    }
+
+    /** Returns the number of samples used to represent a single symbol. */
+    public final int getSymbolSamples() {
+        return this.mSymbolSamples;
+    }
+
+    private final int[] getIncrements() {
+        return this.mIncrements;
+    }
+
+    private final float[] getRamp() {
+        return this.mRamp;
+    }
+
+    private final int[] getTones() {
+        return this.mTones;
+    }
+
+    private final int[] getPhases() {
+        return this.mPhases;
+    }
+
+    /** Returns the buffer populated by the last call to generate(). */
+    public final short[] getBuffer() {
+        return this.mBuffer;
+    }
+
+}
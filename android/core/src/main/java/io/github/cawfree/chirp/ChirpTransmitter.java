@@ -0,0 +1,147 @@
+package io.github.cawfree.chirp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Streams encoded chirps to a PCM sink one block at a time. Each block is synthesized into one of two direct buffers which are used alternately,
+ * so the sink can still be consuming the previous block whilst the next one is rendered. Time to first sound no longer depends on the length of the
+ * frame, and memory use is constant.
+ */
+public class ChirpTransmitter {
+
+    /* Static Declarations. */
+    public static final int DEFAULT_SYMBOLS_PER_BLOCK = 1; // (Counted in symbol periods; with several bands, each period carries more than one symbol.)
+
+    /** A destination for synthesized 16-bit PCM. */
+    public interface ISink {
+        /** Consumes a block of native-order 16-bit PCM. The buffer remains valid until the block after next has been written. */
+        void onWrite(final ByteBuffer pBuffer, final int pSizeInBytes);
+    }
+
+    /* Member Variables. */
+    private final ChirpSynthesizer mChirpSynthesizer;
+    private final int              mSymbolsPerBlock;
+    private final short[]          mBlock;
+    private final ByteBuffer[]     mBuffers;
+    private final ShortBuffer[]    mViews;
+    private       int              mIndex;
+    private       ChirpMetrics     mMetrics;
+
+    /** Constructor. */
+    public ChirpTransmitter(final ChirpSynthesizer pChirpSynthesizer) {
+        this(pChirpSynthesizer, ChirpTransmitter.DEFAULT_SYMBOLS_PER_BLOCK);
+    }
+
+    /** Constructor. */
+    public ChirpTransmitter(final ChirpSynthesizer pChirpSynthesizer, final int pSymbolsPerBlock) {
+        // Calculate the number of samples in each Block.
+        final int lSamples = pSymbolsPerBlock * pChirpSynthesizer.getSymbolSamples();
+        // Initialize Member Variables.
+        this.mChirpSynthesizer = pChirpSynthesizer;
+        this.mSymbolsPerBlock  = pSymbolsPerBlock;
+        this.mBlock            = new short[lSamples];
+        this.mBuffers          = new ByteBuffer[2];
+        this.mViews            = new ShortBuffer[2];
+        this.mIndex            = 0;
+        this.mMetrics          = null;
+        // Iterate the Buffers.
+        for(int i = 0; i < this.getBuffers().length; i++) {
+            // Allocate a direct Buffer; this way, the sink can hand it to native code without a copy.
+            this.getBuffers()[i] = ByteBuffer.allocateDirect(lSamples * 2).order(ByteOrder.nativeOrder());
+            // Declare a 16-bit view onto the Buffer.
+            this.getViews()[i]   = this.getBuffers()[i].asShortBuffer();
+        }
+    }
+
+    /** Synthesizes the first pLength encoded symbols, writing each block to the sink as soon as it has been rendered. */
+    public final void transmit(final int[] pSymbols, final int pLength, final ChirpTransmitter.ISink pSink) {
+        // Prepare for the new transmission.
+        this.getChirpSynthesizer().reset();
+        // Fetch the number of symbols carried by each period.
+        final int  lBands   = this.getChirpSynthesizer().getChirpFactory().getBands();
+        // Fetch the number of periods in the Transmission.
+        final int  lPeriods = this.getChirpSynthesizer().getPeriods(pLength);
+        // Declare the time spent synthesizing. (Time spent blocked on the sink doesn't count.)
+              long lNanos   = 0L;
+        // Iterate the Transmission, a Block at a time.
+        for(int i = 0; i < lPeriods; i += this.getSymbolsPerBlock()) {
+            // Fetch the number of periods in this Block. (The last Block may be short.)
+            final int  lCount  = Math.min(this.getSymbolsPerBlock(), lPeriods - i);
+            // Declare the number of samples rendered.
+                  int  lLength = 0;
+            // Are we being measured?
+            final long lStart  = (this.getMetrics() != null) ? System.nanoTime() : 0L;
+            // Iterate the Periods.
+            for(int j = 0; j < lCount; j++) {
+                // Synthesize the Period.
+                lLength += this.getChirpSynthesizer().onPeriod(pSymbols, (i + j) * lBands, pLength, this.getBlock(), lLength);
+            }
+            // Accumulate the time spent synthesizing.
+            if(this.getMetrics() != null) {
+                lNanos += System.nanoTime() - lStart;
+            }
+            // Write the Block.
+            this.onBlock(lLength, pSink);
+        }
+        // Record the Synthesis.
+        if(this.getMetrics() != null) {
+            this.getMetrics().onStage(ChirpMetrics.STAGE_SYNTHESIS, lNanos);
+            this.getMetrics().onCount(ChirpMetrics.COUNTER_CHIRPS);
+        }
+    }
+
+    /** Copies a rendered block into the next direct buffer and hands it to the sink. */
+    private final void onBlock(final int pLength, final ChirpTransmitter.ISink pSink) {
+        // Fetch the Buffer and its View.
+        final ByteBuffer  lBuffer = this.getBuffers()[this.mIndex];
+        final ShortBuffer lView   = this.getViews()[this.mIndex];
+        // Alternate the Buffers.
+        this.mIndex = (this.mIndex + 1) % this.getBuffers().length;
+        // Copy the Block into the Buffer.
+        lView.clear();
+        lView.put(this.getBlock(), 0, pLength);
+        // Expose the written region of the Buffer.
+        lBuffer.clear();
+        lBuffer.limit(pLength * 2);
+        // Export the Block.
+        pSink.onWrite(lBuffer, pLength * 2);
+    }
+
+    /* Getters. */
+    public final ChirpSynthesizer getChirpSynthesizer() {
+        return this.mChirpSynthesizer;
+    }
+
+    public final int getSymbolsPerBlock() {
+        return this.mSymbolsPerBlock;
+    }
+
+    /** Returns the size of a complete block, in bytes. */
+    public final int getBlockSize() {
+        return this.getBlock().length * 2;
+    }
+
+    /** Sets where we record how long each chirp takes to synthesize; null (the default) records nothing. */
+    public final void setMetrics(final ChirpMetrics pMetrics) {
+        this.mMetrics = pMetrics;
+    }
+
+    public final ChirpMetrics getMetrics() {
+        return this.mMetrics;
+    }
+
+    private final short[] getBlock() {
+        return this.mBlock;
+    }
+
+    private final ByteBuffer[] getBuffers() {
+        return this.mBuffers;
+    }
+
+    private final ShortBuffer[] getViews() {
+        return this.mViews;
+    }
+
+}
@@ -0,0 +1,333 @@
+package io.github.cawfree.chirp;
+
+import java.util.Arrays;
+
+/**
+ * A Reed/Solomon codec specialized for the small fields used by chirps, such as GF(32). Arithmetic is performed using precomputed log/antilog
+ * tables, and every intermediate polynomial lives in scratch buffers which are allocated up front; encoding and decoding never allocate. Decoding
+ * reports failure through its return value rather than an exception, since failure is the common case whilst we're searching a noisy channel.
+ * Callers which know which symbols are unreliable may declare them as erasures; a codeword with n error symbols can then be corrected so long
+ * as (2 * errors + erasures) <= n.
+ * Codewords are laid out the same way as zxing's: coefficients are stored highest-degree first, with the error symbols at the end, and the
+ * generator's roots begin at a^1.
+ *
+ * Instances are not thread safe.
+ */
+public class ReedSolomonCodec {
+
+    /* Static Declarations. */
+    public static final int DECODE_FAILURE = -1;
+
+    /* Member Variables. */
+    private final int   mSize;
+    private final int   mErrorLength;
+    private final int[] mExp;
+    private final int[] mLog;
+    private final int[] mGenerator;
+    private final int[] mRemainder;
+    private final int[] mSyndromes;
+    private final int[] mLambda;
+    private final int[] mPrevious;
+    private final int[] mScratch;
+    private final int[] mOmega;
+    private final int[] mPositions;
+
+    /** Constructor. */
+    public ReedSolomonCodec(final ChirpFactory pChirpFactory) {
+        this(pChirpFactory.getRange().getGaloisPolynomial(), pChirpFactory.getRange().getFrameLength() + 1, pChirpFactory.getErrorLength());
+    }
+
+    /** Constructor. The size of the field must be a power of two, and codewords may be at most (size - 1) symbols long. */
+    public ReedSolomonCodec(final int pPrimitive, final int pSize, final int pErrorLength) {
+        // Initialize Member Variables.
+        this.mSize        = pSize;
+        this.mErrorLength = pErrorLength;
+        this.mExp         = new int[2 * pSize]; // (Doubled, so products of two logarithms never need reducing.)
+        this.mLog         = new int[pSize];
+        this.mGenerator   = new int[pErrorLength + 1];
+        this.mRemainder   = new int[pErrorLength];
+        this.mSyndromes   = new int[pErrorLength];
+        this.mLambda      = new int[pErrorLength + 1];
+        this.mPrevious    = new int[pErrorLength + 1];
+        this.mScratch     = new int[pErrorLength + 1];
+        this.mOmega       = new int[pErrorLength];
+        this.mPositions   = new int[pErrorLength];
+        // Generate the Tables.
+        int lValue = 1;
+        for(int i = 0; i < pSize - 1; i++) {
+            // Buffer the Power and its Logarithm.
+            this.getExp()[i] = lValue;
+            this.getLog()[lValue] = i;
+            // Multiply by a, reducing by the primitive polynomial.
+            lValue <<= 1;
+            if(lValue >= pSize) {
+                lValue ^= pPrimitive;
+            }
+        }
+        // Repeat the powers, so we can index up to twice the field.
+        for(int i = pSize - 1; i < this.getExp().length; i++) {
+            this.getExp()[i] = this.getExp()[i - (pSize - 1)];
+        }
+        // Generate the Generator; (x - a^1)(x - a^2)...(x - a^n), highest degree first.
+        this.getGenerator()[0] = 1;
+        for(int i = 0; i < pErrorLength; i++) {
+            // Multiply the Generator by (x + a^(i + 1)). (Work downwards, so we read each coefficient before it's overwritten.)
+            for(int j = i + 1; j > 0; j--) {
+                this.getGenerator()[j] ^= this.multiply(this.getGenerator()[j - 1], this.getExp()[i + 1]);
+            }
+        }
+    }
+
+    /** Multiplies two field elements. */
+    private final int multiply(final int pA, final int pB) {
+        return (pA == 0 || pB == 0) ? 0 : this.getExp()[this.getLog()[pA] + this.getLog()[pB]];
+    }
+
+    /** Divides two field elements. The divisor must be non-zero. */
+    private final int divide(final int pA, final int pB) {
+        return (pA == 0) ? 0 : this.getExp()[this.getLog()[pA] + (this.getSize() - 1) - this.getLog()[pB]];
+    }
+
+    /** Encodes a codeword in place. The first (length - error length) symbols hold the data; the error symbols are written after them. */
+    public final void encode(final int[] pCodeword, final int pLength) {
+        // Fetch the number of data symbols.
+        final int lData = pLength - this.getErrorLength();
+        // Clear the Remainder.
+        Arrays.fill(this.getRemainder(), 0);
+        // Divide the data by the Generator, one symbol at a time.
+        for(int i = 0; i < lData; i++) {
+            // Fetch the Feedback.
+            final int lFeedback = pCodeword[i] ^ this.getRemainder()[0];
+            // Shift the Remainder, accumulating the Feedback.
+            for(int j = 0; j < this.getErrorLength() - 1; j++) {
+                this.getRemainder()[j] = this.getRemainder()[j + 1] ^ this.multiply(lFeedback, this.getGenerator()[j + 1]);
+            }
+            this.getRemainder()[this.getErrorLength() - 1] = this.multiply(lFeedback, this.getGenerator()[this.getErrorLength()]);
+        }
+        // Append the Remainder.
+        System.arraycopy(this.getRemainder(), 0, pCodeword, lData, this.getErrorLength());
+    }
+
+    /** Corrects a codeword in place. Returns the number of symbols which were corrected, or DECODE_FAILURE if the codeword can't be corrected. */
+    public final int decode(final int[] pCodeword, final int pLength) {
+        return this.decode(pCodeword, pLength, null, 0);
+    }
+
+    /**
+     * Corrects a codeword in place, treating the symbols at the given positions as erasures; their values are assumed to be wrong, but we know
+     * where they are, so each costs half as much redundancy as an error. Positions must be distinct. Returns the number of symbols which were
+     * corrected, or DECODE_FAILURE if the codeword can't be corrected.
+     */
+    public final int decode(final int[] pCodeword, final int pLength, final int[] pErasures, final int pErasureCount) {
+        // Are there more erasures than we have redundancy?
+        if(pErasureCount > this.getErrorLength()) {
+            return ReedSolomonCodec.DECODE_FAILURE;
+        }
+        // Calculate the Syndromes; S(j) = c(a^(j + 1)).
+        boolean lIsClean = true;
+        for(int j = 0; j < this.getErrorLength(); j++) {
+            // Fetch the Root.
+            final int lRoot     = this.getExp()[j + 1];
+            // Evaluate the Codeword at the Root. (Horner's method.)
+                  int lSyndrome = 0;
+            for(int i = 0; i < pLength; i++) {
+                lSyndrome = this.multiply(lSyndrome, lRoot) ^ pCodeword[i];
+            }
+            // Buffer the Syndrome.
+            this.getSyndromes()[j] = lSyndrome;
+            // Update the search metric.
+            lIsClean &= (lSyndrome == 0);
+        }
+        // Is the codeword already valid? (By far the cheapest outcome.)
+        if(lIsClean) {
+            return 0;
+        }
+        // Find the errata locator using Berlekamp/Massey, seeded with the locator of the erasures.
+        final int lDegree = this.onBerlekampMassey(pLength, pErasures, pErasureCount);
+        // Are there too many errors to correct? (Each error beyond the erasures costs two symbols of redundancy.)
+        if(2 * lDegree - pErasureCount > this.getErrorLength()) {
+            return ReedSolomonCodec.DECODE_FAILURE;
+        }
+        // Find the errata positions; they're the reciprocals of the roots of the locator. (Chien search.)
+        int lFound = 0;
+        for(int i = 0; i < pLength && lFound <= lDegree; i++) {
+            // Fetch the inverse of the position's locator, a^-(length - 1 - i).
+            final int lInverse = this.getExp()[(this.getSize() - 1) - ((pLength - 1 - i) % (this.getSize() - 1))];
+            // Is it a root of the Lambda?
+            if(this.evaluate(this.getLambda(), lDegree + 1, lInverse) == 0) {
+                // Did we find more roots than the locator can have? (Then it doesn't describe a valid error pattern.)
+                if(lFound == lDegree) {
+                    return ReedSolomonCodec.DECODE_FAILURE;
+                }
+                // Buffer the Position.
+                this.getPositions()[lFound++] = i;
+            }
+        }
+        // Did we find every errata? (If not, the locator has roots outside of the codeword, so there are too many errors.)
+        if(lFound != lDegree) {
+            return ReedSolomonCodec.DECODE_FAILURE;
+        }
+        // Calculate the errata evaluator; Omega(x) = S(x)Lambda(x) mod x^n.
+        for(int i = 0; i < this.getErrorLength(); i++) {
+            int lSum = 0;
+            for(int j = 0; j <= Math.min(i, lDegree); j++) {
+                lSum ^= this.multiply(this.getLambda()[j], this.getSyndromes()[i - j]);
+            }
+            this.getOmega()[i] = lSum;
+        }
+        // Declare the number of corrections. (An erased symbol may turn out to have been right all along.)
+        int lCorrected = 0;
+        // Correct each errata using Forney's algorithm.
+        for(int k = 0; k < lFound; k++) {
+            // Fetch the inverse of the errata's locator.
+            final int lInverse    = this.getExp()[(this.getSize() - 1) - ((pLength - 1 - this.getPositions()[k]) % (this.getSize() - 1))];
+            // Evaluate the formal derivative of Lambda; in characteristic two, only the odd terms survive.
+                  int lDerivative = 0;
+            for(int i = 1; i <= lDegree; i += 2) {
+                lDerivative ^= this.multiply(this.getLambda()[i], this.power(lInverse, i - 1));
+            }
+            // Is the derivative zero? (Repeated roots; this isn't a valid locator.)
+            if(lDerivative == 0) {
+                return ReedSolomonCodec.DECODE_FAILURE;
+            }
+            // Calculate the Magnitude.
+            final int lMagnitude  = this.divide(this.evaluate(this.getOmega(), this.getErrorLength(), lInverse), lDerivative);
+            // Correct the Symbol.
+            pCodeword[this.getPositions()[k]] ^= lMagnitude;
+            // Update the number of corrections.
+            lCorrected += (lMagnitude != 0) ? 1 : 0;
+        }
+        // Return the number of corrections.
+        return lCorrected;
+    }
+
+    /**
+     * Calculates the errata locator polynomial from the syndromes, leaving it in Lambda (lowest degree first). Returns its degree. The locator starts
+     * out as the product of (1 + Xx) over each erasure's locator X, and the remaining syndromes are used to extend it to cover the errors.
+     */
+    private final int onBerlekampMassey(final int pLength, final int[] pErasures, final int pErasureCount) {
+        // Reset the Locators.
+        Arrays.fill(this.getLambda(), 0);
+        this.getLambda()[0] = 1;
+        // Iterate the Erasures.
+        for(int k = 0; k < pErasureCount; k++) {
+            // Fetch the Erasure's locator, a^(length - 1 - position).
+            final int lLocator = this.getExp()[(pLength - 1 - pErasures[k]) % (this.getSize() - 1)];
+            // Multiply the Lambda by (1 + Xx). (Work downwards, so we read each coefficient before it's overwritten.)
+            for(int j = k + 1; j > 0; j--) {
+                this.getLambda()[j] ^= this.multiply(this.getLambda()[j - 1], lLocator);
+            }
+        }
+        // The Previous starts out as the erasure locator too.
+        System.arraycopy(this.getLambda(), 0, this.getPrevious(), 0, this.getPrevious().length);
+        // Declare the algorithm's state.
+        int lDegree   = pErasureCount;
+        int lShift    = 1;
+        int lLastStep = 1;
+        // Iterate the Syndromes which aren't already accounted for by the erasures.
+        for(int r = pErasureCount; r < this.getErrorLength(); r++) {
+            // Calculate the Discrepancy.
+            int lDiscrepancy = this.getSyndromes()[r];
+            for(int i = 1; i <= Math.min(r, this.getErrorLength()); i++) {
+                lDiscrepancy ^= this.multiply(this.getLambda()[i], this.getSyndromes()[r - i]);
+            }
+            // Does the current locator already explain this syndrome?
+            if(lDiscrepancy == 0) {
+                lShift++;
+                continue;
+            }
+            // Calculate the correction's scale.
+            final int lScale = this.divide(lDiscrepancy, lLastStep);
+            // Do we need to lengthen the locator?
+            if(2 * lDegree <= r + pErasureCount) {
+                // Remember the current Lambda.
+                System.arraycopy(this.getLambda(), 0, this.getScratch(), 0, this.getLambda().length);
+                // Lambda -= scale * x^shift * Previous.
+                this.onCorrect(lScale, lShift);
+                // The old Lambda becomes the Previous.
+                System.arraycopy(this.getScratch(), 0, this.getPrevious(), 0, this.getPrevious().length);
+                lDegree   = r + 1 + pErasureCount - lDegree;
+                lLastStep = lDiscrepancy;
+                lShift    = 1;
+            }
+            else {
+                // Lambda -= scale * x^shift * Previous.
+                this.onCorrect(lScale, lShift);
+                lShift++;
+            }
+        }
+        // Return the Degree.
+        return lDegree;
+    }
+
+    /** Subtracts a scaled, shifted copy of the previous locator from Lambda. */
+    private final void onCorrect(final int pScale, final int pShift) {
+        for(int i = pShift; i < this.getLambda().length; i++) {
+            this.getLambda()[i] ^= this.multiply(pScale, this.getPrevious()[i - pShift]);
+        }
+    }
+
+    /** Evaluates a polynomial, stored lowest degree first, at the given point. */
+    private final int evaluate(final int[] pPolynomial, final int pLength, final int pX) {
+        int lResult = 0;
+        for(int i = pLength - 1; i >= 0; i--) {
+            lResult = this.multiply(lResult, pX) ^ pPolynomial[i];
+        }
+        return lResult;
+    }
+
+    /** Raises a non-zero field element to a power. */
+    private final int power(final int pX, final int pExponent) {
+        return this.getExp()[(this.getLog()[pX] * pExponent) % (this.getSize() - 1)];
+    }
+
+    /* Getters. */
+    public final int getSize() {
+        return this.mSize;
+    }
+
+    public final int getErrorLength() {
+        return this.mErrorLength;
+    }
+
+    private final int[] getExp() {
+        return this.mExp;
+    }
+
+    private final int[] getLog() {
+        return this.mLog;
+    }
+
+    private final int[] getGenerator() {
+        return this.mGenerator;
+    }
+
+    private final int[] getRemainder() {
+        return this.mRemainder;
+    }
+
+    private final int[] getSyndromes() {
+        return this.mSyndromes;
+    }
+
+    private final int[] getLambda() {
+        return this.mLambda;
+    }
+
+    private final int[] getPrevious() {
+        return this.mPrevious;
+    }
+
+    private final int[] getScratch() {
+        return this.mScratch;
+    }
+
+    private final int[] getOmega() {
+        return this.mOmega;
+    }
+
+    private final int[] getPositions() {
+        return this.mPositions;
+    }
+
+}
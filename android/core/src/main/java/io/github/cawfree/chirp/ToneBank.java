@@ -0,0 +1,204 @@
+package io.github.cawfree.chirp;
+
+import java.util.Arrays;
+
+/**
+ * A bank of Goertzel filters tuned to the tones of a ChirpFactory. Rather than estimating an arbitrary pitch, we only measure the energy at the frequencies a symbol can actually take.
+ * When the factory splits its tones into several bands, the strongest tone is found separately within each band. A bank may also adopt energies
+ * which were measured by another, larger bank; this way several profiles can share the cost of filtering a single stream.
+ */
+public class ToneBank {
+
+    /* Static Declarations. */
+    private static final double ENERGY_SILENCE = 1.0E-9; // Windows quieter than this (normalized power) are treated as silence.
+
+    /* Member Variables. */
+    private final double[] mFrequencies;
+    private final double[] mCoefficients;
+    private final double[] mEnergies;
+    private final int      mTones;
+    private final int[]    mPeaks;
+    private final double[] mPitches;
+    private final double[] mConfidences;
+    private       double   mEnergy;
+
+    /** Constructor. */
+    public ToneBank(final ChirpFactory pChirpFactory, final int pSampleRate) {
+        this(pChirpFactory.getFrequencies(), pChirpFactory.getBands(), pSampleRate);
+    }
+
+    /** Constructor. The frequencies are split evenly between the bands. */
+    public ToneBank(final double[] pFrequencies, final int pBands, final int pSampleRate) {
+        // Allocate the Coefficients.
+        final double[] lCoefficients = new double[pFrequencies.length];
+        // Iterate the Frequencies.
+        for(int i = 0; i < pFrequencies.length; i++) {
+            // Calculate the Goertzel coefficient, 2cos(w), for this tone. (Non-integer bins are fine; we don't need to align with an FFT.)
+            lCoefficients[i] = 2.0 * Math.cos(2.0 * Math.PI * pFrequencies[i] / pSampleRate);
+        }
+        // Initialize Member Variables.
+        this.mFrequencies  = pFrequencies;
+        this.mCoefficients = lCoefficients;
+        this.mEnergies     = new double[pFrequencies.length];
+        this.mTones        = pFrequencies.length / pBands;
+        this.mPeaks        = new int[pBands];
+        this.mPitches      = new double[pBands];
+        this.mConfidences  = new double[pBands];
+        this.mEnergy       = 0.0;
+        // Nothing has been measured yet.
+        Arrays.fill(this.getPeaks(), -1);
+        Arrays.fill(this.getPitches(), -1.0);
+    }
+
+    /** Measures the energy of each tone across a window of samples. Returns the index of the strongest tone in the first band, or -1 if the window is silent. */
+    public final int process(final float[] pSamples, final int pOffset, final int pLength) {
+        // Measure the Energies.
+        this.measure(pSamples, pOffset, pLength);
+        // Find the Peaks.
+        return this.onPeaks();
+    }
+
+    /** Adopts energies measured elsewhere; each of our tones takes the energy at the corresponding index of the map. Returns the same as process(). */
+    public final int process(final double[] pEnergies, final int[] pMap) {
+        // Iterate the Tones.
+        for(int i = 0; i < this.getEnergies().length; i++) {
+            // Adopt the Energy.
+            this.getEnergies()[i] = pEnergies[pMap[i]];
+        }
+        // Find the Peaks.
+        return this.onPeaks();
+    }
+
+    /** Measures the energy of each tone across a window of samples, without looking for the peaks. */
+    public final void measure(final float[] pSamples, final int pOffset, final int pLength) {
+        // Declare the normalization; makes the energies independent of the window length.
+        final double lNormal = 1.0 / ((double)pLength * pLength);
+        // Iterate the Tones. (Keep each filter's state in locals whilst we run across the window.)
+        for(int i = 0; i < this.getCoefficients().length; i++) {
+            // Fetch the Coefficient.
+            final double lCoefficient = this.getCoefficients()[i];
+            // Declare the filter state.
+                  double lS1          = 0.0;
+                  double lS2          = 0.0;
+            // Iterate the Samples.
+            for(int j = pOffset; j < pOffset + pLength; j++) {
+                // Run the filter.
+                final double lS0 = pSamples[j] + lCoefficient * lS1 - lS2;
+                // Shift the state.
+                lS2 = lS1;
+                lS1 = lS0;
+            }
+            // Calculate the power at this tone.
+            final double lEnergy = (lS1 * lS1 + lS2 * lS2 - lCoefficient * lS1 * lS2) * lNormal;
+            // Buffer the Energy.
+            this.getEnergies()[i] = lEnergy;
+        }
+    }
+
+    /** Finds the strongest tone within each band of the measured energies. Returns the peak of the first band, or -1 if it was silent. */
+    private final int onPeaks() {
+        // Reset the Energy.
+        this.mEnergy = 0.0;
+        // Iterate the Bands.
+        for(int i = 0; i < this.getPeaks().length; i++) {
+            // Fetch where the Band begins.
+            final int    lFirst   = i * this.getTones();
+            // Declare search metrics.
+                  double lTotal   = 0.0;
+                  double lMaximum = 0.0;
+                  int    lPeak    = -1;
+            // Iterate the Tones of this Band.
+            for(int j = lFirst; j < lFirst + this.getTones(); j++) {
+                // Accumulate the Total.
+                lTotal += this.getEnergies()[j];
+                // Is this the strongest tone so far?
+                if(this.getEnergies()[j] > lMaximum) {
+                    // Track the Peak.
+                    lMaximum = this.getEnergies()[j];
+                    lPeak    = j;
+                }
+            }
+            // Is the band silent?
+            if(lTotal < ToneBank.ENERGY_SILENCE) {
+                // Nothing to report.
+                lPeak = -1;
+            }
+            // Update the Peak, Pitch and Confidence for this Band.
+            this.getPeaks()[i]       = lPeak;
+            this.getPitches()[i]     = (lPeak == -1) ? -1.0 : this.getFrequencies()[lPeak];
+            this.getConfidences()[i] = (lPeak == -1) ? 0.0  : this.getConfidence(lPeak, lFirst, lTotal);
+            // Accumulate the Energy.
+            this.mEnergy            += lTotal;
+        }
+        // Return the Peak.
+        return this.getPeak();
+    }
+
+    /** Calculates the share of the band's energy held by a tone. We discount the immediate neighbours, since they'll always receive some leakage from the peak. */
+    private final double getConfidence(final int pPeak, final int pFirst, final double pTotal) {
+        // Declare the Remainder.
+        double lRemainder = pTotal;
+        // Discount the lower neighbour.
+        if(pPeak > pFirst) {
+            lRemainder -= this.getEnergies()[pPeak - 1];
+        }
+        // Discount the upper neighbour.
+        if(pPeak < pFirst + this.getTones() - 1) {
+            lRemainder -= this.getEnergies()[pPeak + 1];
+        }
+        // Return the Confidence.
+        return (lRemainder > 0.0) ? Math.min(1.0, this.getEnergies()[pPeak] / lRemainder) : 0.0;
+    }
+
+    /* Getters. */
+    private final double[] getCoefficients() {
+        return this.mCoefficients;
+    }
+
+    /** Returns the per-tone energies of the last processed window. (Indexed the same as ChirpFactory.getFrequencies().) */
+    public final double[] getEnergies() {
+        return this.mEnergies;
+    }
+
+    public final double[] getFrequencies() {
+        return this.mFrequencies;
+    }
+
+    /** Returns the number of tones in each band. */
+    public final int getTones() {
+        return this.mTones;
+    }
+
+    private final int[] getPeaks() {
+        return this.mPeaks;
+    }
+
+    public final int getPeak() {
+        return this.getPeaks()[0];
+    }
+
+    /** Returns the frequency of the strongest tone within each band of the last processed window, or -1 where a band was silent. */
+    public final double[] getPitches() {
+        return this.mPitches;
+    }
+
+    /** Returns the frequency of the strongest tone of the last processed window, or -1 if it was silent. */
+    public final double getPitch() {
+        return this.getPitches()[0];
+    }
+
+    /** Returns the confidence in the strongest tone within each band of the last processed window. */
+    public final double[] getConfidences() {
+        return this.mConfidences;
+    }
+
+    public final double getConfidence() {
+        return this.getConfidences()[0];
+    }
+
+    /** Returns the total in-band energy of the last processed window. */
+    public final double getEnergy() {
+        return this.mEnergy;
+    }
+
+}
@@ -0,0 +1,83 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChirpDecoderTest {
+
+    /* Static Declarations. */
+    private static final String PAYLOAD  = "0123abcdef";
+    private static final int    MISSING  = 3;                           // A symbol which was never heard.
+    private static final int[]  DOUBTFUL = new int[] { 5, 7, 9, 11, 13 }; // Right, but doubtful; their runner-ups are wrong.
+    private static final int[]  WRONG    = new int[] { 15, 17, 19 };      // Wrong, with the right symbol as the runner-up.
+
+    /**
+     * Returns a detector which replays a scripted frame of the payload. Each pitch sample is the index of the symbol to detect, so the frame
+     * is received by pushing 0, 1, 2... The missing symbol is invalid, the doubtful ones are right with low confidence, and the wrong ones hold
+     * their neighbour, with the right symbol as the runner-up.
+     */
+    private static final ChirpFactory.IDetector getScript(final ChirpFactory pChirpFactory) {
+        // Fetch the Symbols.
+        final int[]   lSymbols     = Signals.getSymbols(pChirpFactory, ChirpDecoderTest.PAYLOAD);
+        // Allocate the Script.
+        final int[]   lDetected    = lSymbols.clone();
+        final int[]   lAlternates  = new int[lSymbols.length];
+        final float[] lConfidences = new float[lSymbols.length];
+        for(int i = 0; i < lSymbols.length; i++) {
+            lAlternates[i]  = (lSymbols[i] + 1) % pChirpFactory.getRange().getFrameLength();
+            lConfidences[i] = 0.95f;
+        }
+        for(final int lIndex : ChirpDecoderTest.DOUBTFUL) {
+            lConfidences[lIndex] = 0.3f;
+        }
+        for(final int lIndex : ChirpDecoderTest.WRONG) {
+            lDetected[lIndex]    = lAlternates[lIndex];
+            lAlternates[lIndex]  = lSymbols[lIndex];
+            lConfidences[lIndex] = 0.55f;
+        }
+        lConfidences[ChirpDecoderTest.MISSING] = 0.0f;
+        // Return the Detector.
+        return (pFactory, pHistory, pOffset, pLength, pResult) -> {
+            // Fetch the Index.
+            final int lIndex = (int)pHistory.getSample(pOffset);
+            // Replay the Script.
+            return (lIndex < 0 || lConfidences[lIndex] == 0.0f) ? pResult.setInvalid() : pResult.set(lDetected[lIndex], lAlternates[lIndex], lConfidences[lIndex]);
+        };
+    }
+
+    /** Receives the scripted frame, returning what was delivered. */
+    private static final Signals.Counter receive(final int pChaseDepth) {
+        // Allocate the ChirpDecoder; one sample per symbol.
+        final ChirpFactory    lChirpFactory = ChirpFactory.PROFILE_85_MS;
+        final ChirpDecoder    lChirpDecoder = new ChirpDecoder(lChirpFactory, ChirpDecoderTest.getScript(lChirpFactory), 1);
+        final Signals.Counter lCounter      = new Signals.Counter();
+        lChirpDecoder.setChaseDepth(pChaseDepth);
+        // Push the Frame.
+        for(int i = 0; i < lChirpFactory.getEncodedLength(); i++) {
+            lChirpDecoder.onSamples(new double[] { i }, new double[] { 1.0 }, lCounter);
+        }
+        // Return the Counter.
+        return lCounter;
+    }
+
+    /**
+     * Erasing every doubtful symbol alongside the missing one leaves too little redundancy to correct the wrong ones, so without a Chase search,
+     * the frame is lost.
+     */
+    @Test
+    public final void testLosesFrameWithoutChase() {
+        assertEquals(0, ChirpDecoderTest.receive(0).getCount());
+    }
+
+    /** Trying the runner-ups of the least confident symbols finds the one which repairs the frame within the reserve. */
+    @Test
+    public final void testRecoversFrameWithChase() {
+        // Receive the Frame.
+        final Signals.Counter lCounter = ChirpDecoderTest.receive(7);
+        // Was the right Payload delivered, once?
+        assertEquals(1, lCounter.getCount());
+        assertEquals(ChirpDecoderTest.PAYLOAD, lCounter.getLast());
+    }
+
+}
@@ -0,0 +1,87 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChirpDispatcherTest {
+
+    /* Static Declarations. */
+    private static final int PAYLOAD_LENGTH = 10;
+
+    /** A listener which throws on every other payload, and counts the rest down. */
+    private static final class Throwing implements ChirpFactory.IListener {
+        /* Member Variables. */
+        private final CountDownLatch mDelivered;
+        private       int            mCalls;
+        /** Constructor. */
+        private Throwing(final int pExpected) {
+            this.mDelivered = new CountDownLatch(pExpected);
+            this.mCalls     = 0;
+        }
+        /** Throws on the first payload, the third, and so on. */
+        @Override public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) {
+            // Is it our turn to throw?
+            if(this.mCalls++ % 2 == 0) {
+                throw new IllegalStateException("Listener failure.");
+            }
+            // Count the Payload.
+            this.mDelivered.countDown();
+        }
+        /** The ChirpDispatcher always calls onPayload() instead. */
+        @Override public final void onChirp(final String pMessage) { }
+    }
+
+    /** Queues the given number of payloads. */
+    private static final void offer(final ChirpDispatcher pChirpDispatcher, final int pPayloads) {
+        for(int i = 0; i < pPayloads; i++) {
+            pChirpDispatcher.onPayload(ChirpFactory.PROFILE_85_MS, new int[ChirpDispatcherTest.PAYLOAD_LENGTH], 0, ChirpDispatcherTest.PAYLOAD_LENGTH);
+        }
+    }
+
+    /** A listener which throws is counted, and the rest of the batch is still delivered. */
+    @Test
+    public final void testCountsThrowingListener() {
+        // Allocate the ChirpDispatcher.
+        final ChirpDispatcher lChirpDispatcher = new ChirpDispatcher(ChirpDispatcherTest.PAYLOAD_LENGTH);
+        final ChirpMetrics    lChirpMetrics    = new ChirpMetrics();
+        final Throwing        lThrowing        = new Throwing(2);
+        lChirpDispatcher.setListener(lThrowing);
+        lChirpDispatcher.setMetrics(lChirpMetrics);
+        // Queue and deliver the Payloads.
+        ChirpDispatcherTest.offer(lChirpDispatcher, 4);
+        assertEquals(4, lChirpDispatcher.deliver(Integer.MAX_VALUE));
+        // Were the Failures counted, and everything else delivered?
+        assertEquals(0L, lThrowing.mDelivered.getCount());
+        assertEquals(2L, lChirpMetrics.snapshot().getCounter(ChirpMetrics.COUNTER_ERRORS));
+        assertTrue(lChirpDispatcher.isEmpty());
+    }
+
+    /** A consumer survives its listener throwing, and goes on to deliver whatever's queued afterwards. */
+    @Test
+    public final void testConsumerSurvivesThrowingListener() throws InterruptedException {
+        // Allocate the ChirpDispatcher.
+        final ChirpDispatcher lChirpDispatcher = new ChirpDispatcher(ChirpDispatcherTest.PAYLOAD_LENGTH);
+        final Throwing        lThrowing        = new Throwing(3);
+        lChirpDispatcher.setListener(lThrowing);
+        lChirpDispatcher.start();
+        try {
+            // Queue the Payloads one at a time, so the first is delivered (and throws) before the rest arrive.
+            for(int i = 0; i < 6; i++) {
+                ChirpDispatcherTest.offer(lChirpDispatcher, 1);
+                Thread.sleep(10L);
+            }
+            // Was everything else delivered?
+            assertTrue(lThrowing.mDelivered.await(5L, TimeUnit.SECONDS));
+        }
+        finally {
+            // Stop the Consumer.
+            lChirpDispatcher.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Plays a burst of our own chirps into a simulated room and back into the microphone, alongside somebody else's, and checks what the canceller
+ * makes of it. The transmit path hands the reference over a little ahead of the microphone, just as it would on a device.
+ */
+public class ChirpEchoCancellerTest {
+
+    /* Static Declarations. */
+    private static final int    BLOCK_SAMPLES = 4096;
+    private static final double DELAY         = 0.05;  // Seconds between the reference and its echo; the output and input latency, combined.
+    private static final double GAIN          = 0.5;   // The level of the echo.
+    private static final double REMOTE        = 0.1;   // The level of somebody else's chirp; 14dB beneath our echo.
+    private static final int    BURST         = Signals.SAMPLE_RATE / 2; // Where the burst begins, in microphone samples.
+
+    /** The outcome of a run. */
+    private static final class Run {
+        /* Member Variables. */
+        private ChirpEchoCanceller mChirpEchoCanceller;
+        private Signals.Counter    mCounter;
+        private double             mBefore;
+        private double             mAfter;
+    }
+
+    /**
+     * Transmits a frame of our own, and hears its echo. If there's a remote frame, it's heard at the given level, starting halfway through our own.
+     * The power of the microphone, before and after cancellation, is measured across the second half of our frame.
+     */
+    private static final Run run(final ChirpFactory pChirpFactory, final double pRemote, final boolean pIsCancelling) {
+        // Synthesize our Frame, and pass it through the Room; a direct path, a reflection, and the latency.
+        final float[]            lFrame             = Signals.getFrame(pChirpFactory, "0123abcdef");
+        final ChirpChannel       lChirpChannel      = new ChirpChannel.Builder().setImpulse(ChirpChannel.getEcho(Signals.SAMPLE_RATE, 0.003, -0.35)).setOffset(ChirpEchoCancellerTest.DELAY).build(Signals.SAMPLE_RATE);
+        final float[]            lEcho              = lChirpChannel.process(lFrame);
+        for(int i = 0; i < lEcho.length; i++) {
+            lEcho[i] *= (float)ChirpEchoCancellerTest.GAIN;
+        }
+        // Build what the Microphone hears.
+              float[]            lMicrophone        = Signals.mix(Signals.getNoise(3.0 + (double)lFrame.length / Signals.SAMPLE_RATE, 0.005, 1L), lEcho, ChirpEchoCancellerTest.BURST);
+        if(pRemote > 0.0) {
+            // Mix in the Remote frame.
+            final float[] lRemote = Signals.getFrame(pChirpFactory, "n3a67aai1o");
+            for(int i = 0; i < lRemote.length; i++) {
+                lRemote[i] *= (float)pRemote;
+            }
+            lMicrophone = Signals.mix(lMicrophone, lRemote, ChirpEchoCancellerTest.BURST + lFrame.length / 2);
+        }
+        // Fetch the Reference, as the transmit path would hand it over.
+        final short[]            lReference         = new short[lFrame.length];
+        for(int i = 0; i < lFrame.length; i++) {
+            lReference[i] = (short)Math.round(lFrame[i] * 32768.0f);
+        }
+        // Allocate the ChirpEchoCanceller and a ChirpReceiver.
+        final Run                lRun               = new Run();
+        final ChirpReceiver      lChirpReceiver     = new ChirpReceiver(pChirpFactory, Signals.SAMPLE_RATE, ChirpFileDecoder.DEFAULT_SUBSAMPLES);
+        lRun.mChirpEchoCanceller = new ChirpEchoCanceller(pChirpFactory, Signals.SAMPLE_RATE);
+        lRun.mCounter            = new Signals.Counter();
+        lChirpReceiver.setListener(lRun.mCounter);
+        // Declare how much of the Reference has been handed over.
+        int lWritten = 0;
+        // Iterate the Blocks.
+        for(int i = 0; i < lMicrophone.length; i += ChirpEchoCancellerTest.BLOCK_SAMPLES) {
+            // Fetch the Block.
+            final int     lLength = Math.min(ChirpEchoCancellerTest.BLOCK_SAMPLES, lMicrophone.length - i);
+            final float[] lBlock  = Arrays.copyOfRange(lMicrophone, i, i + lLength);
+            // Has the Burst begun? Keep the Reference a couple of blocks ahead of the Microphone.
+            if(i + lLength >= ChirpEchoCancellerTest.BURST) {
+                if(lWritten == 0) {
+                    lRun.mChirpEchoCanceller.onStart(ChirpEchoCancellerTest.BURST);
+                }
+                while(lWritten < lReference.length && lWritten < i + lLength - ChirpEchoCancellerTest.BURST + 2 * ChirpEchoCancellerTest.BLOCK_SAMPLES) {
+                    final int lChunk = Math.min(ChirpEchoCancellerTest.BLOCK_SAMPLES, lReference.length - lWritten);
+                    lRun.mChirpEchoCanceller.onReference(lReference, lWritten, lChunk);
+                    lWritten += lChunk;
+                }
+            }
+            // Measure the Block as captured.
+            final boolean lIsMeasured = (i >= ChirpEchoCancellerTest.BURST + lFrame.length / 2 && i + lLength <= ChirpEchoCancellerTest.BURST + lFrame.length);
+            lRun.mBefore += lIsMeasured ? ChirpEchoCancellerTest.getEnergy(lBlock) : 0.0;
+            // Cancel the Echo.
+            if(pIsCancelling) {
+                lRun.mChirpEchoCanceller.process(lBlock, 0, lLength);
+            }
+            // Measure the Block as decoded.
+            lRun.mAfter  += lIsMeasured ? ChirpEchoCancellerTest.getEnergy(lBlock) : 0.0;
+            // Receive the Block.
+            lChirpReceiver.process(lBlock, 0, lLength);
+        }
+        // Return the Run.
+        return lRun;
+    }
+
+    /** Returns the energy of a block. */
+    private static final double getEnergy(final float[] pBlock) {
+        // Declare the Energy.
+        double lEnergy = 0.0;
+        // Iterate the Samples.
+        for(final float lSample : pBlock) {
+            lEnergy += lSample * lSample;
+        }
+        // Return the Energy.
+        return lEnergy;
+    }
+
+    /** The echo is found even for a burst of the shortest symbols, since the search only spans a few of them. */
+    @Test
+    public final void testFindsDelay() {
+        for(final ChirpFactory lChirpFactory : new ChirpFactory[] { ChirpFactory.PROFILE_85_MS, ChirpFactory.PROFILE_20_MS }) {
+            // Transmit a Frame.
+            final ChirpEchoCanceller lChirpEchoCanceller = ChirpEchoCancellerTest.run(lChirpFactory, 0.0, true).mChirpEchoCanceller;
+            // Was the Delay found?
+            assertTrue("period=" + lChirpFactory.getSymbolPeriodMs(), lChirpEchoCanceller.isLocked());
+            assertEquals("period=" + lChirpFactory.getSymbolPeriodMs(), Math.round(ChirpEchoCancellerTest.DELAY * Signals.SAMPLE_RATE), lChirpEchoCanceller.getDelay());
+        }
+    }
+
+    /** Once converged, the echo is at least 10dB quieter, and our own frame never reaches the listener. */
+    @Test
+    public final void testCancelsEcho() {
+        // Transmit a Frame.
+        final Run lRun = ChirpEchoCancellerTest.run(ChirpFactory.PROFILE_85_MS, 0.0, true);
+        // How much quieter is the Microphone?
+        assertTrue("erle=" + 10.0 * Math.log10(lRun.mBefore / lRun.mAfter) + "dB", lRun.mBefore > 10.0 * lRun.mAfter);
+        assertEquals(0, lRun.mCounter.getCount());
+    }
+
+    /** Somebody else's chirp, well beneath our own echo, is only heard once the echo's been cancelled. */
+    @Test
+    public final void testHearsRemoteThroughEcho() {
+        // Without cancellation, only our own Frame is heard.
+        final Run lBuried = ChirpEchoCancellerTest.run(ChirpFactory.PROFILE_85_MS, ChirpEchoCancellerTest.REMOTE, false);
+        assertEquals(1, lBuried.mCounter.getCount());
+        assertEquals("0123abcdef", lBuried.mCounter.getLast());
+        // With it, only the Remote frame is heard.
+        final Run lHeard  = ChirpEchoCancellerTest.run(ChirpFactory.PROFILE_85_MS, ChirpEchoCancellerTest.REMOTE, true);
+        assertEquals(1, lHeard.mCounter.getCount());
+        assertEquals("n3a67aai1o", lHeard.mCounter.getLast());
+    }
+
+}
@@ -0,0 +1,123 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChirpFileDecoderTest {
+
+    /* Static Declarations. */
+    private static final int PCM        = 1;
+    private static final int FLOAT      = 3;
+    private static final int EXTENSIBLE = 0xFFFE;
+
+    @Rule
+    public final TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    /** Writes a WAV file. An extensible header carries the sub-format as its GUID; the samples are written at the given depth. */
+    private final File getWav(final int pEncoding, final int pSubFormat, final int pChannels, final int pBits, final float[] pSamples) throws IOException {
+        // Fetch the size of the Format chunk, and of the Data.
+        final int        lFmt    = (pEncoding == ChirpFileDecoderTest.EXTENSIBLE) ? 40 : 16;
+        final int        lData   = pSamples.length * Math.max(1, pChannels) * (pBits / 8);
+        // Allocate the File.
+        final ByteBuffer lBuffer = ByteBuffer.allocate(12 + 8 + lFmt + 8 + lData).order(ByteOrder.LITTLE_ENDIAN);
+        // Write the RIFF header.
+        lBuffer.putInt(0x46464952).putInt(lBuffer.capacity() - 8).putInt(0x45564157);
+        // Write the Format.
+        lBuffer.putInt(0x20746D66).putInt(lFmt);
+        lBuffer.putShort((short)pEncoding).putShort((short)pChannels).putInt(Signals.SAMPLE_RATE).putInt(Signals.SAMPLE_RATE * pChannels * pBits / 8).putShort((short)(pChannels * pBits / 8)).putShort((short)pBits);
+        if(pEncoding == ChirpFileDecoderTest.EXTENSIBLE) {
+            // Write the extension; the valid bits, the channel mask, then the sub-format GUID.
+            lBuffer.putShort((short)22).putShort((short)pBits).putInt(0x4);
+            lBuffer.putShort((short)pSubFormat).put(new byte[] { 0x00, 0x00, 0x00, 0x00, 0x10, 0x00, (byte)0x80, 0x00, 0x00, (byte)0xAA, 0x00, 0x38, (byte)0x9B, 0x71 });
+        }
+        // Write the Data.
+        lBuffer.putInt(0x61746164).putInt(lData);
+        for(final float lSample : pSamples) {
+            for(int i = 0; i < pChannels; i++) {
+                if(pBits == 16) {
+                    lBuffer.putShort((short)Math.round(lSample * 32767.0f));
+                }
+                else if(pSubFormat == ChirpFileDecoderTest.FLOAT) {
+                    lBuffer.putFloat(lSample);
+                }
+                else {
+                    lBuffer.putInt(Math.round(lSample * Integer.MAX_VALUE));
+                }
+            }
+        }
+        // Write the File.
+        final File lFile = this.mTemporaryFolder.newFile();
+        try (final FileOutputStream lStream = new FileOutputStream(lFile)) {
+            lStream.write(lBuffer.array());
+        }
+        // Return the File.
+        return lFile;
+    }
+
+    /** Decodes a file, returning the messages that were found. */
+    private static final List<String> decode(final File pFile) throws IOException {
+        // Allocate the Messages.
+        final List<String> lMessages = new ArrayList<>();
+        // Decode the File.
+        new ChirpFileDecoder(ChirpFactory.PROFILE_85_MS, ChirpFileDecoder.DEFAULT_SUBSAMPLES).decodeWav(pFile, (pSeconds, pMessage) -> lMessages.add(pMessage));
+        // Return the Messages.
+        return lMessages;
+    }
+
+    /** Returns a short recording holding a single frame. */
+    private static final float[] getRecording() {
+        return Signals.mix(Signals.getNoise(3.5, 0.001, 1L), Signals.getFrame(ChirpFactory.PROFILE_85_MS, "0123abcdef"), Signals.SAMPLE_RATE / 4);
+    }
+
+    @Test
+    public final void testDecodesPcm() throws IOException {
+        final List<String> lMessages = ChirpFileDecoderTest.decode(this.getWav(ChirpFileDecoderTest.PCM, 0, 2, 16, ChirpFileDecoderTest.getRecording()));
+        assertEquals(1, lMessages.size());
+        assertTrue(lMessages.get(0).contains("0123abcdef"));
+    }
+
+    @Test
+    public final void testDecodesExtensibleFloat() throws IOException {
+        final List<String> lMessages = ChirpFileDecoderTest.decode(this.getWav(ChirpFileDecoderTest.EXTENSIBLE, ChirpFileDecoderTest.FLOAT, 1, 32, ChirpFileDecoderTest.getRecording()));
+        assertEquals(1, lMessages.size());
+        assertTrue(lMessages.get(0).contains("0123abcdef"));
+    }
+
+    /** A 32-bit extensible file may hold integers rather than floats; we don't read those, so we mustn't pretend to. */
+    @Test
+    public final void testRejectsExtensibleInteger() throws IOException {
+        this.assertRejected(this.getWav(ChirpFileDecoderTest.EXTENSIBLE, ChirpFileDecoderTest.PCM, 1, 32, new float[16]));
+    }
+
+    @Test
+    public final void testRejectsNoChannels() throws IOException {
+        this.assertRejected(this.getWav(ChirpFileDecoderTest.PCM, 0, 0, 16, new float[16]));
+    }
+
+    /** Asserts that the file's header is rejected. */
+    private final void assertRejected(final File pFile) throws IOException {
+        try (final RandomAccessFile lFile = new RandomAccessFile(pFile, "r"); final FileChannel lChannel = lFile.getChannel()) {
+            ChirpFileDecoder.getWavRegion(lChannel);
+            fail("The header should have been rejected.");
+        }
+        catch (final IOException pIOException) {
+            // Expected.
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class ChirpPackerTest {
+
+    /* Static Declarations. */
+    private static final int MAXIMUM_BYTES = 40; // Spans every alignment of bytes against symbols, several times over.
+    private static final int OFFSET        = 3;  // Where the data starts within its array; nothing outside of it may be touched.
+
+    /** Returns the given number of random bytes. (Reproducible from the length.) */
+    private static final byte[] getData(final int pBytes) {
+        // Allocate the Data.
+        final byte[] lData = new byte[pBytes];
+        // Fill the Data.
+        new Random(pBytes).nextBytes(lData);
+        // Return the Data.
+        return lData;
+    }
+
+    /** Bits are taken most significant first, and the last symbol is zero-padded. */
+    @Test
+    public final void testPacksBigEndian() {
+        // Allocate the Symbols.
+        final int[] lSymbols = new int[2];
+        // 0b11111111 becomes 0b11111, 0b11100.
+        assertEquals(2, ChirpPacker.pack(new byte[] { (byte)0xFF }, 0, 1, lSymbols, 0));
+        assertArrayEquals(new int[] { 0x1F, 0x1C }, lSymbols);
+    }
+
+    /** Every length of data survives being packed into symbols and unpacked again, without disturbing anything around it. */
+    @Test
+    public final void testRoundTripsArrays() {
+        for(int lBytes = 0; lBytes <= ChirpPackerTest.MAXIMUM_BYTES; lBytes++) {
+            // Fetch the Data.
+            final byte[] lData     = ChirpPackerTest.getData(lBytes);
+            final byte[] lPadded   = new byte[ChirpPackerTest.OFFSET + lBytes + ChirpPackerTest.OFFSET];
+            System.arraycopy(lData, 0, lPadded, ChirpPackerTest.OFFSET, lBytes);
+            // Pack the Data; guard the symbols either side.
+            final int[]  lSymbols  = new int[ChirpPackerTest.OFFSET + ChirpPacker.getSymbolCount(lBytes) + ChirpPackerTest.OFFSET];
+            Arrays.fill(lSymbols, -1);
+            final int    lPacked   = ChirpPacker.pack(lPadded, ChirpPackerTest.OFFSET, lBytes, lSymbols, ChirpPackerTest.OFFSET);
+            assertEquals(ChirpPacker.getSymbolCount(lBytes), lPacked);
+            for(int i = 0; i < lSymbols.length; i++) {
+                final boolean lIsInside = (i >= ChirpPackerTest.OFFSET && i < ChirpPackerTest.OFFSET + lPacked);
+                assertEquals("bytes=" + lBytes + ", symbol=" + i, lIsInside, lSymbols[i] >= 0 && lSymbols[i] < (1 << ChirpPacker.BITS_PER_SYMBOL));
+            }
+            // Unpack the Symbols; the padding never makes up another byte.
+            final byte[] lUnpacked = new byte[lPadded.length];
+            assertEquals(lBytes, ChirpPacker.getByteCount(lPacked));
+            assertEquals(lBytes, ChirpPacker.unpack(lSymbols, ChirpPackerTest.OFFSET, lPacked, lUnpacked, ChirpPackerTest.OFFSET));
+            assertArrayEquals("bytes=" + lBytes, lPadded, lUnpacked);
+        }
+    }
+
+    /** Buffers are packed just as arrays are, and unpacked back into the same bytes; the positions of both advance past what was consumed. */
+    @Test
+    public final void testRoundTripsBuffers() {
+        for(int lBytes = 0; lBytes <= ChirpPackerTest.MAXIMUM_BYTES; lBytes++) {
+            // Fetch the Data.
+            final byte[]     lData     = ChirpPackerTest.getData(lBytes);
+            // Pack the Data from both an array and a buffer.
+            final int[]      lExpected = new int[ChirpPacker.getSymbolCount(lBytes)];
+            final int[]      lSymbols  = new int[ChirpPacker.getSymbolCount(lBytes)];
+            final ByteBuffer lSource   = ByteBuffer.wrap(lData);
+            ChirpPacker.pack(lData, 0, lBytes, lExpected, 0);
+            assertEquals(lSymbols.length, ChirpPacker.pack(lSource, lSymbols, 0));
+            assertFalse(lSource.hasRemaining());
+            assertArrayEquals("bytes=" + lBytes, lExpected, lSymbols);
+            // Unpack the Symbols into a buffer.
+            final ByteBuffer lTarget   = ByteBuffer.allocate(lBytes);
+            assertEquals(lBytes, ChirpPacker.unpack(lSymbols, 0, lSymbols.length, lTarget));
+            assertFalse(lTarget.hasRemaining());
+            assertArrayEquals("bytes=" + lBytes, lData, lTarget.array());
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChirpReassemblerTest {
+
+    /** Returns a message of the given length, drawn from the factory's Range. (Reproducible from the length.) */
+    private static final String getMessage(final ChirpFactory pChirpFactory, final int pLength) {
+        // Fetch the Characters.
+        final String        lCharacters    = pChirpFactory.getRange().getCharacters();
+        // Allocate the Message.
+        final Random        lRandom        = new Random(pLength);
+        final StringBuilder lStringBuilder = new StringBuilder(pLength);
+        for(int i = 0; i < pLength; i++) {
+            lStringBuilder.append(lCharacters.charAt(lRandom.nextInt(lCharacters.length())));
+        }
+        // Return the Message.
+        return lStringBuilder.toString();
+    }
+
+    /** Allocates a ChirpReassembler which collects the messages it completes. */
+    private static final ChirpReassembler getReassembler(final ChirpFactory pChirpFactory, final List<String> pMessages) {
+        // Allocate the ChirpReassembler.
+        final ChirpReassembler lChirpReassembler = new ChirpReassembler(pChirpFactory);
+        lChirpReassembler.setListener(new ChirpFactory.IListener() {
+            @Override public final void onPayload(final ChirpFactory pFactory, final int[] pSymbols, final int pOffset, final int pLength) { }
+            @Override public final void onChirp(final String pMessage) { pMessages.add(pMessage); }
+        });
+        // Return the ChirpReassembler.
+        return lChirpReassembler;
+    }
+
+    /** Every length of message is reassembled from its fragments, however they're shuffled and repeated. */
+    @Test
+    public final void testReassemblesShuffledRepeats() {
+        // Allocate the ChirpFragmenter.
+        final ChirpFactory     lChirpFactory     = ChirpFactory.PROFILE_85_MS;
+        final ChirpFragmenter  lChirpFragmenter  = new ChirpFragmenter(lChirpFactory);
+        final List<String>     lMessages         = new ArrayList<>();
+        final ChirpReassembler lChirpReassembler = ChirpReassemblerTest.getReassembler(lChirpFactory, lMessages);
+        final Random           lRandom           = new Random(1L);
+        // Iterate the Lengths; up to a dozen fragments' worth.
+        for(int lLength = 0; lLength <= 12 * ChirpFragmenter.getFragmentData(lChirpFactory); lLength++) {
+            // Fragment the Message.
+            final String       lMessage   = ChirpReassemblerTest.getMessage(lChirpFactory, lLength);
+            final List<String> lFragments = lChirpFragmenter.fragment(lMessage);
+            // Repeat some of the Fragments, then shuffle them all.
+            final List<String> lReceived  = new ArrayList<>(lFragments);
+            for(final String lFragment : lFragments) {
+                if(lRandom.nextBoolean()) {
+                    lReceived.add(lFragment);
+                }
+            }
+            Collections.shuffle(lReceived, lRandom);
+            // Receive the Fragments.
+            lMessages.clear();
+            for(final String lFragment : lReceived) {
+                lChirpReassembler.onChirp(lFragment, 0L);
+            }
+            // Was the Message delivered, just once?
+            assertEquals("length=" + lLength, Collections.singletonList(lMessage), lMessages);
+            assertEquals(0, lChirpReassembler.getPending());
+        }
+    }
+
+    /** The fragments of consecutive messages are tagged apart, so they can be received interleaved. */
+    @Test
+    public final void testReassemblesInterleaved() {
+        // Allocate the ChirpFragmenter.
+        final ChirpFactory     lChirpFactory     = ChirpFactory.PROFILE_85_MS;
+        final ChirpFragmenter  lChirpFragmenter  = new ChirpFragmenter(lChirpFactory);
+        final List<String>     lMessages         = new ArrayList<>();
+        final ChirpReassembler lChirpReassembler = ChirpReassemblerTest.getReassembler(lChirpFactory, lMessages);
+        // Fragment two Messages of the same length.
+        final String           lFirst            = ChirpReassemblerTest.getMessage(lChirpFactory, 20);
+        final String           lSecond           = new StringBuilder(lFirst).reverse().toString();
+        final List<String>     lFirsts           = lChirpFragmenter.fragment(lFirst);
+        final List<String>     lSeconds          = lChirpFragmenter.fragment(lSecond);
+        // Receive the Fragments, alternating between the Messages.
+        for(int i = 0; i < lFirsts.size(); i++) {
+            lChirpReassembler.onChirp(lFirsts.get(i), 0L);
+            lChirpReassembler.onChirp(lSeconds.get(lSeconds.size() - 1 - i), 0L);
+        }
+        // Were both Messages delivered?
+        assertEquals(2, lMessages.size());
+        assertEquals(lFirst, lMessages.get(0));
+        assertEquals(lSecond, lMessages.get(1));
+    }
+
+    /** A message which isn't completed within the timeout is abandoned. */
+    @Test
+    public final void testAbandonsStaleMessages() {
+        // Allocate the ChirpFragmenter.
+        final ChirpFactory     lChirpFactory     = ChirpFactory.PROFILE_85_MS;
+        final ChirpFragmenter  lChirpFragmenter  = new ChirpFragmenter(lChirpFactory);
+        final List<String>     lMessages         = new ArrayList<>();
+        final ChirpReassembler lChirpReassembler = ChirpReassemblerTest.getReassembler(lChirpFactory, lMessages);
+        // Fragment a Message.
+        final List<String>     lFragments        = lChirpFragmenter.fragment(ChirpReassemblerTest.getMessage(lChirpFactory, 20));
+        // Receive all but the last Fragment.
+        for(int i = 0; i < lFragments.size() - 1; i++) {
+            lChirpReassembler.onChirp(lFragments.get(i), 0L);
+        }
+        assertEquals(1, lChirpReassembler.getPending());
+        // Receive the last one too late; it begins a message of its own.
+        lChirpReassembler.onChirp(lFragments.get(lFragments.size() - 1), lChirpReassembler.getTimeout() + 1L);
+        assertEquals(0, lMessages.size());
+        assertEquals(1, lChirpReassembler.getPending());
+    }
+
+}
@@ -0,0 +1,107 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChirpReceiverTest {
+
+    /* Static Declarations. */
+    private static final int BLOCK_SAMPLES   = 4096; // (Roughly what TarsosDSP hands the audio thread.)
+    private static final int MEASURED_PASSES = 4;
+
+    /** Passes the stream through the receiver, a block at a time. (The last block is ragged, so segments straddle blocks.) */
+    private static final void process(final ChirpReceiver pChirpReceiver, final float[] pStream) {
+        for(int i = 0; i < pStream.length; i += ChirpReceiverTest.BLOCK_SAMPLES) {
+            pChirpReceiver.process(pStream, i, Math.min(ChirpReceiverTest.BLOCK_SAMPLES, pStream.length - i));
+        }
+    }
+
+    /** Once warmed up, receiving audio (including decoding and delivering a frame) mustn't allocate on the audio thread. */
+    @Test
+    public final void testSteadyStateAllocatesNothing() {
+        // Fetch the ThreadMXBean; we can only count allocations on a HotSpot-derived JVM.
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean lThreadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(lThreadMXBean.isThreadAllocatedMemorySupported());
+        lThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        // Allocate the ChirpReceiver, measured just as Chirp measures it; count deliveries without allocating.
+        final ChirpFactory  lChirpFactory  = ChirpFactory.PROFILE_85_MS;
+        final ChirpReceiver lChirpReceiver = new ChirpReceiver(lChirpFactory, Signals.SAMPLE_RATE, ChirpFileDecoder.DEFAULT_SUBSAMPLES);
+        final int[]         lPayloads      = new int[1];
+        lChirpReceiver.setMetrics(new ChirpMetrics());
+        lChirpReceiver.setListener(new ChirpFactory.IListener() {
+            @Override public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) { lPayloads[0]++; }
+            @Override public final void onChirp(final String pMessage) { }
+        });
+        // Build a stream holding a single frame amongst some noise.
+        final float[]       lStream        = Signals.mix(Signals.getNoise(3.5, 0.01, 1L), Signals.getFrame(lChirpFactory, "0123abcdef"), Signals.SAMPLE_RATE / 4);
+        // Warm up; every lazily-allocated structure is created, and the hot paths are compiled.
+        for(int i = 0; i < 8; i++) {
+            ChirpReceiverTest.process(lChirpReceiver, lStream);
+        }
+        // Measure the allocations whilst receiving the stream a few more times. (Recompiling a hot path occasionally allocates a little on our
+        // thread; that only happens now and then, whereas anything the receive path allocates would show up on every pass.)
+        final long lThread = Thread.currentThread().getId();
+              long lLeast  = Long.MAX_VALUE;
+        for(int i = 0; i < ChirpReceiverTest.MEASURED_PASSES; i++) {
+            final long lBefore = lThreadMXBean.getThreadAllocatedBytes(lThread);
+            ChirpReceiverTest.process(lChirpReceiver, lStream);
+            final long lAfter  = lThreadMXBean.getThreadAllocatedBytes(lThread);
+            lLeast = Math.min(lLeast, lAfter - lBefore);
+        }
+        // Was the frame delivered each time?
+        assertEquals(8 + ChirpReceiverTest.MEASURED_PASSES, lPayloads[0]);
+        // Did we allocate anything?
+        assertEquals(0L, lLeast);
+    }
+
+    /** Returns a stream holding the same frame the given number of times, back to back, amongst some noise. */
+    private static final float[] getRepeats(final ChirpFactory pChirpFactory, final int pRepeats) {
+        // Fetch the Frame.
+        final float[] lFrame  = Signals.getFrame(pChirpFactory, "0123abcdef");
+        // Allocate the Stream; leave a little silence either side.
+              float[] lStream = Signals.getNoise((double)(pRepeats * lFrame.length + Signals.SAMPLE_RATE) / Signals.SAMPLE_RATE, 0.01, 1L);
+        // Mix in the Repeats.
+        for(int i = 0; i < pRepeats; i++) {
+            lStream = Signals.mix(lStream, lFrame, Signals.SAMPLE_RATE / 4 + i * lFrame.length);
+        }
+        // Return the Stream.
+        return lStream;
+    }
+
+    /** Counts the payloads delivered from a stream. */
+    private static final int receive(final ChirpFactory pChirpFactory, final float[] pStream, final int pDuplicateTtlMs) {
+        // Allocate the ChirpReceiver.
+        final ChirpReceiver   lChirpReceiver = new ChirpReceiver(pChirpFactory, Signals.SAMPLE_RATE, ChirpFileDecoder.DEFAULT_SUBSAMPLES);
+        final Signals.Counter lCounter       = new Signals.Counter();
+        lChirpReceiver.setListener(lCounter);
+        lChirpReceiver.setDuplicateTtl(pDuplicateTtlMs);
+        // Receive the Stream.
+        ChirpReceiverTest.process(lChirpReceiver, pStream);
+        // Return the number of Payloads.
+        return lCounter.getCount();
+    }
+
+    /** By default, a frame repeated back to back is delivered every time. */
+    @Test
+    public final void testDeliversBackToBackRepeats() {
+        for(final ChirpFactory lChirpFactory : new ChirpFactory[] { ChirpFactory.PROFILE_85_MS, ChirpFactory.PROFILE_40_MS }) {
+            assertEquals("period=" + lChirpFactory.getSymbolPeriodMs(), 3, ChirpReceiverTest.receive(lChirpFactory, ChirpReceiverTest.getRepeats(lChirpFactory, 3), ChirpDecoder.DEFAULT_DUPLICATE_TTL_MS));
+        }
+    }
+
+    /** A time-to-live longer than the interval between repeats delivers a beacon just once. */
+    @Test
+    public final void testDropsBeaconRepeats() {
+        for(final ChirpFactory lChirpFactory : new ChirpFactory[] { ChirpFactory.PROFILE_85_MS, ChirpFactory.PROFILE_40_MS }) {
+            // Remember each frame for a little longer than one lasts.
+            final int lFrameMs = lChirpFactory.getEncodedPeriods() * lChirpFactory.getSymbolPeriodMs();
+            assertEquals("period=" + lChirpFactory.getSymbolPeriodMs(), 1, ChirpReceiverTest.receive(lChirpFactory, ChirpReceiverTest.getRepeats(lChirpFactory, 3), lFrameMs * 3 / 2));
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChirpSchedulerTest {
+
+    /* Static Declarations. */
+    private static final long WRITE_MS = 20L; // How long the output takes to accept each block.
+
+    /** An output which takes its time over every block, like a blocking AudioTrack, and ignores interrupts whilst it does. */
+    private static final class Slow implements ChirpScheduler.IOutput {
+        /* Member Variables. */
+        private final AtomicInteger  mInside;
+        private final AtomicBoolean  mBursting;
+        private final AtomicInteger  mOverlaps;
+        private final CountDownLatch mWriting;
+        /** Constructor. */
+        private Slow() {
+            this.mInside   = new AtomicInteger();
+            this.mBursting = new AtomicBoolean();
+            this.mOverlaps = new AtomicInteger();
+            this.mWriting  = new CountDownLatch(1);
+        }
+        /** Begins a burst; nobody else may be bursting. */
+        @Override public final void onStart() {
+            this.onEnter();
+            if(!this.mBursting.compareAndSet(false, true)) {
+                this.mOverlaps.incrementAndGet();
+            }
+            this.onLeave();
+        }
+        /** Takes its time over the block; nobody else may be writing, and we must be bursting. */
+        @Override public final void onWrite(final ByteBuffer pBuffer, final int pSizeInBytes) {
+            this.onEnter();
+            if(!this.mBursting.get()) {
+                this.mOverlaps.incrementAndGet();
+            }
+            this.mWriting.countDown();
+            ChirpSchedulerTest.sleep(ChirpSchedulerTest.WRITE_MS);
+            this.onLeave();
+        }
+        /** Ends a burst. */
+        @Override public final void onStop() {
+            this.onEnter();
+            if(!this.mBursting.compareAndSet(true, false)) {
+                this.mOverlaps.incrementAndGet();
+            }
+            this.onLeave();
+        }
+        /** Called as a thread enters the output. */
+        private final void onEnter() {
+            if(this.mInside.incrementAndGet() != 1) {
+                this.mOverlaps.incrementAndGet();
+            }
+        }
+        /** Called as a thread leaves the output. */
+        private final void onLeave() {
+            this.mInside.decrementAndGet();
+        }
+    }
+
+    /** Sleeps for the given time, regardless of interrupts; which are passed on once we're done. */
+    private static final void sleep(final long pMs) {
+        // Fetch when we're done.
+        final long    lEnd           = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pMs);
+              boolean lIsInterrupted = false;
+        // Sleep until then.
+        while(System.nanoTime() < lEnd) {
+            try {
+                Thread.sleep(Math.max(1L, TimeUnit.NANOSECONDS.toMillis(lEnd - System.nanoTime())));
+            }
+            catch(final InterruptedException pInterruptedException) {
+                lIsInterrupted = true;
+            }
+        }
+        // Restore the Interrupt.
+        if(lIsInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** A chirp submitted straight after a shutdown mustn't be written whilst the old thread is still finishing off its own. */
+    @Test
+    public final void testShutdownWaitsForTransmitThread() throws Exception {
+        // Allocate the ChirpScheduler.
+        final ChirpFactory   lChirpFactory   = ChirpFactory.PROFILE_85_MS;
+        final Slow           lSlow           = new Slow();
+        final ChirpScheduler lChirpScheduler = new ChirpScheduler(new ChirpTransmitter(new ChirpSynthesizer(lChirpFactory, Signals.SAMPLE_RATE)), lSlow, null);
+        // Begin writing a Chirp.
+        lChirpScheduler.submit(Signals.getSymbols(lChirpFactory, "0123abcdef"));
+        assertTrue(lSlow.mWriting.await(5L, TimeUnit.SECONDS));
+        // Shut down mid-chirp, then submit another straight away.
+        lChirpScheduler.shutdown();
+        lChirpScheduler.submit(Signals.getSymbols(lChirpFactory, "n3a67aai1o")).get(10L, TimeUnit.SECONDS);
+        // Stop the Scheduler, once the second burst has finished.
+        lChirpScheduler.shutdown();
+        // Was the Output only ever used by one thread, a burst at a time?
+        assertEquals(0, lSlow.mOverlaps.get());
+        assertFalse(lSlow.mBursting.get());
+    }
+
+}
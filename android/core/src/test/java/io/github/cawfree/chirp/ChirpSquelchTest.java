@@ -0,0 +1,108 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChirpSquelchTest {
+
+    /* Static Declarations. */
+    private static final int    SUBSAMPLES = ChirpFileDecoder.DEFAULT_SUBSAMPLES;
+    private static final int    TONES      = 12;    // How many tones the segments cycle through; more than the squelch can hold, so none are mistaken.
+    private static final int    SETTLE     = 400;   // How many segments it takes for the floor to creep up to a steady band.
+    private static final int    GAP        = 12;    // How many quiet segments separate the two bursts; long enough to close, and skip a few.
+    private static final double LOUD       = 0.15;  // The level of a segment which opens the squelch; 3.5dB above the rest.
+    private static final double QUIET      = 0.1;   // The level of every other segment.
+
+    /** Returns the tone played throughout a segment; each is one from the upper half of the band, cycling from one segment to the next. */
+    private static final double getTone(final ChirpFactory pChirpFactory, final int pSegment) {
+        // Fetch the Frequencies, in order.
+        final double[] lFrequencies = pChirpFactory.getFrequencies().clone();
+        Arrays.sort(lFrequencies);
+        // Return the Tone.
+        return lFrequencies[lFrequencies.length / 2 + pSegment % ChirpSquelchTest.TONES];
+    }
+
+    /** Returns a stream of segments, each playing its own tone; either loud, or quiet. */
+    private static final float[] getStream(final ChirpFactory pChirpFactory, final boolean[] pIsLoud) {
+        // Fetch the Segment.
+        final int     lSegment = ChirpReceiver.getSegmentSamples(pChirpFactory, Signals.SAMPLE_RATE, ChirpSquelchTest.SUBSAMPLES);
+        // Allocate the Stream.
+        final float[] lStream  = new float[pIsLoud.length * lSegment];
+        for(int i = 0; i < lStream.length; i++) {
+            lStream[i] = (float)((pIsLoud[i / lSegment] ? ChirpSquelchTest.LOUD : ChirpSquelchTest.QUIET) * Math.sin(2.0 * Math.PI * ChirpSquelchTest.getTone(pChirpFactory, i / lSegment) * i / Signals.SAMPLE_RATE));
+        }
+        // Return the Stream.
+        return lStream;
+    }
+
+    /**
+     * Once the squelch has closed, whatever's skipped before it opens again has to be replayed; the segments just before the one which opened it,
+     * not the oldest ones it happens to be holding. Every segment the receiver measures, replayed or not, must be the one at the position it reports.
+     */
+    @Test
+    public final void testReplaysSkippedSegments() {
+        // Allocate a ChirpReceiver, with a squelch which closes after a single quiet symbol period; sooner than it forgets what it's held.
+        final ChirpFactory  lChirpFactory  = ChirpFactory.PROFILE_85_MS;
+        final ChirpReceiver lChirpReceiver = new ChirpReceiver(lChirpFactory, Signals.SAMPLE_RATE, ChirpSquelchTest.SUBSAMPLES);
+        final ChirpSquelch  lChirpSquelch  = new ChirpSquelch(lChirpFactory, Signals.SAMPLE_RATE, ChirpSquelchTest.SUBSAMPLES, ChirpSquelch.DEFAULT_RATIO, ChirpSquelch.DEFAULT_PRE_ROLL_PERIODS, 1);
+        final int           lSegment       = lChirpSquelch.getSegment();
+        lChirpReceiver.setSquelch(lChirpSquelch);
+        // Build the Stream; settle on the floor, open, then fall quiet for just long enough to close and skip a little before opening again.
+        final int           lOpen          = ChirpSquelchTest.SETTLE;
+        final int           lReopen        = lOpen + 8 + ChirpSquelchTest.GAP;
+        final boolean[]     lIsLoud        = new boolean[lReopen + 8];
+        Arrays.fill(lIsLoud, lOpen,   lOpen + 8,      true);
+        Arrays.fill(lIsLoud, lReopen, lIsLoud.length, true);
+        final float[]       lStream        = ChirpSquelchTest.getStream(lChirpFactory, lIsLoud);
+        // Record every Segment which is measured, by where it ends.
+        final List<Long>    lPositions     = new ArrayList<>();
+        lChirpReceiver.setGate(pToneBank -> {
+            // Was the Segment the one we were told it was?
+            final long lPosition = lChirpReceiver.getPosition();
+            assertEquals("position=" + lPosition, ChirpSquelchTest.getTone(lChirpFactory, (int)(lPosition / lSegment) - 1), pToneBank.getPitch(), 0.0);
+            lPositions.add(lPosition);
+            return true;
+        });
+        // Receive everything up to where the band is loud again; the squelch should have closed.
+        lChirpReceiver.process(lStream, 0, lReopen * lSegment);
+        assertFalse(lChirpSquelch.isOpen());
+        // Receive the rest.
+        lChirpReceiver.process(lStream, lReopen * lSegment, lStream.length - lReopen * lSegment);
+        assertTrue(lChirpSquelch.isOpen());
+        // Was every Segment from the first opening onwards measured, just once and in order?
+        final int           lFirst         = lPositions.indexOf((long)(lOpen + 1) * lSegment);
+        assertTrue(lFirst >= 0);
+        for(int i = lOpen; i < lIsLoud.length; i++) {
+            assertEquals(Long.valueOf((long)(i + 1) * lSegment), lPositions.get(lFirst + i - lOpen));
+        }
+        assertEquals(lPositions.size(), lFirst + lIsLoud.length - lOpen);
+    }
+
+    /** Whilst cycling, listening for less than a symbol period would leave the squelch deaf. */
+    @Test
+    public final void testRejectsDeafDutyCycle() {
+        // Allocate the ChirpSquelch.
+        final ChirpSquelch lChirpSquelch = new ChirpSquelch(ChirpFactory.PROFILE_85_MS, Signals.SAMPLE_RATE, ChirpSquelchTest.SUBSAMPLES);
+        // A symbol period, or more, is fine; as is listening all the time.
+        lChirpSquelch.setDutyCycle(lChirpSquelch.getPeriodMs(), 1000);
+        lChirpSquelch.setDutyCycle(0, 0);
+        lChirpSquelch.setDutyCycle(5, 5);
+        // Anything less isn't.
+        try {
+            lChirpSquelch.setDutyCycle(5, 1000);
+            fail("A listening time of less than a symbol period should have been rejected.");
+        }
+        catch(final IllegalArgumentException pIllegalArgumentException) {
+            // Expected.
+        }
+    }
+
+}
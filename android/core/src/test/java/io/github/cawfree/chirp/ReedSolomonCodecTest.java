@@ -0,0 +1,144 @@
+package io.github.cawfree.chirp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+public class ReedSolomonCodecTest {
+
+    /* Static Declarations. */
+    private static final int TRIALS = 200; // Codewords tried for each combination of errors and erasures.
+
+    /** Returns a codec matching the default profile; n = 31 symbols, of which n - k = 8 are error symbols. */
+    private static final ReedSolomonCodec getCodec() {
+        return new ReedSolomonCodec(ChirpFactory.PROFILE_85_MS);
+    }
+
+    /** Returns a random, valid codeword. */
+    private static final int[] getCodeword(final ReedSolomonCodec pCodec, final Random pRandom) {
+        // Allocate the Codeword.
+        final int[] lCodeword = new int[pCodec.getSize() - 1];
+        // Fill the data symbols.
+        for(int i = 0; i < lCodeword.length - pCodec.getErrorLength(); i++) {
+            lCodeword[i] = pRandom.nextInt(pCodec.getSize());
+        }
+        // Append the error symbols.
+        pCodec.encode(lCodeword, lCodeword.length);
+        // Return the Codeword.
+        return lCodeword;
+    }
+
+    /**
+     * Corrupts a codeword. The first pErasures of the returned positions are erased (their values replaced at random, possibly by the same value)
+     * and the next pErrors are guaranteed to be wrong. Returns the shuffled positions.
+     */
+    private static final int[] corrupt(final int[] pCodeword, final int pSize, final int pErrors, final int pErasures, final Random pRandom) {
+        // Shuffle the Positions.
+        final int[] lPositions = new int[pCodeword.length];
+        for(int i = 0; i < lPositions.length; i++) {
+            final int j = pRandom.nextInt(i + 1);
+            lPositions[i] = lPositions[j];
+            lPositions[j] = i;
+        }
+        // Overwrite the Erasures.
+        for(int i = 0; i < pErasures; i++) {
+            pCodeword[lPositions[i]] = pRandom.nextInt(pSize);
+        }
+        // Corrupt the Errors.
+        for(int i = pErasures; i < pErasures + pErrors; i++) {
+            pCodeword[lPositions[i]] ^= 1 + pRandom.nextInt(pSize - 1);
+        }
+        // Return the Positions.
+        return lPositions;
+    }
+
+    @Test
+    public final void testEncodesValidCodewords() {
+        // Allocate the Codec.
+        final ReedSolomonCodec lCodec    = ReedSolomonCodecTest.getCodec();
+        // A valid codeword needs no correction.
+        final int[]            lCodeword = ReedSolomonCodecTest.getCodeword(lCodec, new Random(1L));
+        assertEquals(0, lCodec.decode(lCodeword.clone(), lCodeword.length));
+    }
+
+    /** Every combination of e errors and s erasures with 2e + s <= n - k must be corrected. */
+    @Test
+    public final void testCorrectsErrorsAndErasures() {
+        // Allocate the Codec.
+        final ReedSolomonCodec lCodec  = ReedSolomonCodecTest.getCodec();
+        final Random           lRandom = new Random(2L);
+        // Iterate the Erasures and Errors within the code's capacity.
+        for(int lErasures = 0; lErasures <= lCodec.getErrorLength(); lErasures++) {
+            for(int lErrors = 0; 2 * lErrors + lErasures <= lCodec.getErrorLength(); lErrors++) {
+                for(int i = 0; i < ReedSolomonCodecTest.TRIALS; i++) {
+                    // Corrupt a Codeword.
+                    final int[] lCodeword  = ReedSolomonCodecTest.getCodeword(lCodec, lRandom);
+                    final int[] lReceived  = lCodeword.clone();
+                    final int[] lPositions = ReedSolomonCodecTest.corrupt(lReceived, lCodec.getSize(), lErrors, lErasures, lRandom);
+                    // Decode it.
+                    final int   lCorrected = lCodec.decode(lReceived, lReceived.length, lPositions, lErasures);
+                    // Was the Codeword restored?
+                    assertNotEquals("errors=" + lErrors + ", erasures=" + lErasures, ReedSolomonCodec.DECODE_FAILURE, lCorrected);
+                    assertArrayEquals("errors=" + lErrors + ", erasures=" + lErasures, lCodeword, lReceived);
+                }
+            }
+        }
+    }
+
+    /**
+     * Beyond 2e + s <= n - k, the original codeword can never be recovered. Just beyond it, at 2e + s = n - k + 1, every other codeword is out of
+     * reach too, so the decode must fail. Any further, the damage may land within reach of a different codeword, which the decoder returns
+     * instead. (That's why the ChirpDecoder keeps some redundancy in reserve.)
+     */
+    @Test
+    public final void testFailsBeyondCapacity() {
+        // Allocate the Codec.
+        final ReedSolomonCodec lCodec  = ReedSolomonCodecTest.getCodec();
+        final Random           lRandom = new Random(3L);
+        // Iterate the Erasures, with the fewest errors we can't correct alongside them.
+        for(int lErasures = 0; lErasures < lCodec.getErrorLength(); lErasures++) {
+            // Fetch the Errors.
+            final int     lErrors  = (lCodec.getErrorLength() - lErasures) / 2 + 1;
+            // Are we only just beyond capacity?
+            final boolean lIsFirst = (2 * lErrors + lErasures == lCodec.getErrorLength() + 1);
+            for(int i = 0; i < ReedSolomonCodecTest.TRIALS; i++) {
+                // Corrupt a Codeword.
+                final int[] lCodeword  = ReedSolomonCodecTest.getCodeword(lCodec, lRandom);
+                final int[] lReceived  = lCodeword.clone();
+                final int[] lPositions = ReedSolomonCodecTest.corrupt(lReceived, lCodec.getSize(), lErrors, lErasures, lRandom);
+                // Decode it.
+                final int   lCorrected = lCodec.decode(lReceived, lReceived.length, lPositions, lErasures);
+                // We can't have recovered the original.
+                assertFalse("errors=" + lErrors + ", erasures=" + lErasures, Arrays.equals(lCodeword, lReceived));
+                // Did the decode fail? Otherwise, it must have produced a different, valid codeword.
+                if(lIsFirst) {
+                    assertEquals("errors=" + lErrors + ", erasures=" + lErasures, ReedSolomonCodec.DECODE_FAILURE, lCorrected);
+                }
+                else if(lCorrected != ReedSolomonCodec.DECODE_FAILURE) {
+                    assertEquals(0, lCodec.decode(lReceived.clone(), lReceived.length));
+                }
+            }
+        }
+    }
+
+    /** More erasures than error symbols can never be corrected. */
+    @Test
+    public final void testRejectsTooManyErasures() {
+        // Allocate the Codec.
+        final ReedSolomonCodec lCodec     = ReedSolomonCodecTest.getCodec();
+        // Erase one more symbol than we have redundancy.
+        final int[]            lCodeword  = ReedSolomonCodecTest.getCodeword(lCodec, new Random(4L));
+        final int[]            lPositions = new int[lCodec.getErrorLength() + 1];
+        for(int i = 0; i < lPositions.length; i++) {
+            lPositions[i] = i;
+        }
+        assertEquals(ReedSolomonCodec.DECODE_FAILURE, lCodec.decode(lCodeword, lCodeword.length, lPositions, lPositions.length));
+    }
+
+}
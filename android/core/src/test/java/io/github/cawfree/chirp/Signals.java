@@ -0,0 +1,83 @@
+package io.github.cawfree.chirp;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/** Builds the synthetic audio the tests feed to the receive path. */
+final class Signals {
+
+    /* Static Declarations. */
+    static final int SAMPLE_RATE = 44100; // (Matches Chirp.)
+
+    /** Returns the symbols Chirp would transmit for a payload. */
+    static final int[] getSymbols(final ChirpFactory pChirpFactory, final String pPayload) {
+        return new ChirpEncoder(pChirpFactory).encode(pPayload);
+    }
+
+    /** Synthesizes an entire frame carrying the payload, exactly as Chirp would play it. */
+    static final float[] getFrame(final ChirpFactory pChirpFactory, final String pPayload) {
+        // Allocate the ChirpSynthesizer.
+        final ChirpSynthesizer lChirpSynthesizer = new ChirpSynthesizer(pChirpFactory, Signals.SAMPLE_RATE);
+        // Generate the Frame.
+        final int              lLength           = lChirpSynthesizer.generate(Signals.getSymbols(pChirpFactory, pPayload), pChirpFactory.getEncodedLength());
+        // Convert the Frame into floats.
+        final float[]          lFrame            = new float[lLength];
+        for(int i = 0; i < lLength; i++) {
+            lFrame[i] = lChirpSynthesizer.getBuffer()[i] / 32768.0f;
+        }
+        // Return the Frame.
+        return lFrame;
+    }
+
+    /** Returns the given number of seconds of white noise. (Reproducible from the seed.) */
+    static final float[] getNoise(final double pSeconds, final double pDeviation, final long pSeed) {
+        // Allocate the Random.
+        final Random  lRandom = new Random(pSeed);
+        // Allocate the Noise.
+        final float[] lNoise  = new float[(int)(pSeconds * Signals.SAMPLE_RATE)];
+        for(int i = 0; i < lNoise.length; i++) {
+            lNoise[i] = (float)(lRandom.nextGaussian() * pDeviation);
+        }
+        // Return the Noise.
+        return lNoise;
+    }
+
+    /** Returns a copy of the stream with the frame added in at the given sample. */
+    static final float[] mix(final float[] pStream, final float[] pFrame, final int pOffset) {
+        // Copy the Stream.
+        final float[] lMixed = Arrays.copyOf(pStream, Math.max(pStream.length, pOffset + pFrame.length));
+        // Add the Frame.
+        for(int i = 0; i < pFrame.length; i++) {
+            lMixed[pOffset + i] += pFrame[i];
+        }
+        // Return the Mix.
+        return lMixed;
+    }
+
+    /** Counts the payloads a listener is handed, and remembers the last one as text. */
+    static final class Counter implements ChirpFactory.IListener {
+        /* Member Variables. */
+        private int    mCount;
+        private String mLast;
+        /** Remembers the Payload. */
+        @Override public final void onPayload(final ChirpFactory pChirpFactory, final int[] pSymbols, final int pOffset, final int pLength) {
+            // Convert the Payload into text.
+            final StringBuilder lStringBuilder = new StringBuilder();
+            for(int i = pOffset; i < pOffset + pLength; i++) {
+                lStringBuilder.append(pChirpFactory.getCodebook().getCharacter(pSymbols[i]));
+            }
+            // Count the Payload.
+            this.mLast = lStringBuilder.toString();
+            this.mCount++;
+        }
+        /** The ChirpDecoder always calls onPayload() instead. */
+        @Override public final void onChirp(final String pMessage) { }
+        /* Getters. */
+        final int    getCount() { return this.mCount; }
+        final String getLast()  { return this.mLast;  }
+    }
+
+    /** Not to be constructed. */
+    private Signals() { }
+
+}